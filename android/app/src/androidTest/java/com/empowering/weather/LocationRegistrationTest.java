@@ -0,0 +1,43 @@
+package com.empowering.weather;
+
+import static org.junit.Assert.*;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.os.Debug;
+import android.util.Log;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+/**
+ * Location updates are registered without any service of ours staying up. PSS is logged under
+ * "LocationRegistration" to compare with the resident LocationUpdatesService this replaced.
+ */
+@RunWith(AndroidJUnit4.class)
+public class LocationRegistrationTest {
+    private static final String TAG = "LocationRegistration";
+
+    @Test
+    public void registeringLeavesNoServiceRunning() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        LocationUpdates.register(context);
+        assertTrue(LocationUpdates.wanted(context));
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+
+        ActivityManager am = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        // Still returns the caller's own services. WorkManager's job service may be up briefly; ours never
+        List<ActivityManager.RunningServiceInfo> services = am.getRunningServices(100);
+        for (ActivityManager.RunningServiceInfo s : services) {
+            assertFalse(s.service.getClassName(), s.service.getClassName().startsWith("com.empowering.weather."));
+        }
+        Log.i(TAG, "pss after registering " + Debug.getPss() + " kB");
+
+        LocationUpdates.unregister(context);
+        assertFalse(LocationUpdates.wanted(context));
+        assertFalse(WidgetState.snapshot(context).getBoolean("location_updates_registered", true));
+    }
+}
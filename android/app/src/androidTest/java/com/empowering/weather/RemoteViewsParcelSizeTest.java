@@ -0,0 +1,79 @@
+package com.empowering.weather;
+
+import static org.junit.Assert.*;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.os.Parcel;
+import android.util.Log;
+import android.widget.RemoteViews;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import com.empowering.weather.core.WeatherStats;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Measures what a full widget update sends to the launcher: the tinted pill drawable against the old
+ * approach of three rounded 80x32dp ARGB_8888 bitmaps. Sizes are logged under "WidgetParcelSize".
+ */
+@RunWith(AndroidJUnit4.class)
+public class RemoteViewsParcelSizeTest {
+    private static final String TAG = "WidgetParcelSize";
+
+    @Test
+    public void tintedPillsCarryNoBitmaps() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        WeatherWidgetProvider.WidgetData data = new WeatherWidgetProvider.WidgetData(
+                "Grey skies, grey mood", WeatherStats.fromLabels("14.2°C", "Prec: 40% | Hum: 71% | UV: 3.5"),
+                "Last fetched (now) — Tap to refresh");
+
+        RemoteViews tinted = WeatherWidgetProvider.buildViews(context, data);
+        int tintedSize = parcelSize(tinted);
+
+        // Previous rendering: the same views plus one rounded bitmap per pill
+        RemoteViews legacy = WeatherWidgetProvider.buildViews(context, data);
+        float density = context.getResources().getDisplayMetrics().density;
+        int w = (int) (80 * density + 0.5f);
+        int h = (int) (32 * density + 0.5f);
+        long bitmapBytes = 0;
+        int[] ids = {R.id.bg_precip, R.id.bg_humidity, R.id.bg_uv};
+        int[] colors = {0xFF8AB8E6, 0xFF5AAEF0, 0xFF66BB6A};
+        for (int i = 0; i < ids.length; i++) {
+            Bitmap bmp = roundedBitmap(w, h, colors[i]);
+            bitmapBytes += bmp.getAllocationByteCount();
+            legacy.setImageViewBitmap(ids[i], bmp);
+        }
+        int legacyParcel = parcelSize(legacy);
+        // Large bitmaps may travel as ashmem blobs outside the parcel data, so count their pixels as well
+        long legacySize = Math.max(legacyParcel, tintedSize + bitmapBytes);
+
+        Log.i(TAG, "density=" + density + " pill=" + w + "x" + h
+                + " tinted=" + tintedSize + "B legacyParcel=" + legacyParcel + "B legacyBitmaps=" + bitmapBytes
+                + "B legacyTotal=" + legacySize + "B");
+
+        assertTrue("tinted update should be well under 8 KB, was " + tintedSize, tintedSize < 8 * 1024);
+        assertTrue("tinted update should be smaller than the bitmap one", tintedSize * 10L < legacySize);
+    }
+
+    private static int parcelSize(RemoteViews views) {
+        Parcel p = Parcel.obtain();
+        try {
+            views.writeToParcel(p, 0);
+            return p.dataSize();
+        } finally {
+            p.recycle();
+        }
+    }
+
+    private static Bitmap roundedBitmap(int w, int h, int color) {
+        Bitmap bmp = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+        Paint paint = new Paint();
+        paint.setColor(color);
+        paint.setAntiAlias(true);
+        new Canvas(bmp).drawRoundRect(0, 0, w, h, h / 2f, h / 2f, paint);
+        return bmp;
+    }
+}
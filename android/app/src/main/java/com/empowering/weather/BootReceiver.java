@@ -4,11 +4,13 @@ import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.util.Log;
+import androidx.work.ExistingWorkPolicy;
 import androidx.work.OneTimeWorkRequest;
 import androidx.work.WorkManager;
 
 /**
- * Receives BOOT_COMPLETED and schedules StartLocationWorker instead of starting a service directly.
+ * Receives BOOT_COMPLETED and MY_PACKAGE_REPLACED, which both drop our location registration, and schedules
+ * StartLocationWorker to restore it.
  */
 public class BootReceiver extends BroadcastReceiver {
     private static final String TAG = "BootReceiver";
@@ -19,7 +21,7 @@ public class BootReceiver extends BroadcastReceiver {
             String act = intent.getAction();
             Log.i(TAG, "received action: " + act);
             OneTimeWorkRequest req = new OneTimeWorkRequest.Builder(StartLocationWorker.class).build();
-            WorkManager.getInstance(context).enqueue(req);
+            WorkManager.getInstance(context).enqueueUniqueWork("start-location", ExistingWorkPolicy.REPLACE, req);
         } catch (Throwable t) {
             Log.w(TAG, "failed to enqueue StartLocationWorker", t);
         }
@@ -0,0 +1,107 @@
+package com.empowering.weather;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.util.Log;
+
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+
+import com.empowering.weather.core.RecoveryPolicy;
+import com.empowering.weather.core.StateStore;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retries failed widget fetches through {@link RecoveryPolicy}. The retry is a unique WorkManager job with a
+ * network constraint, so one scheduled while offline runs as soon as a network is back, and the breaker state
+ * is kept in the widget state so backoff keeps growing across process restarts.
+ */
+final class FetchRecovery {
+    private static final String TAG = "FetchRecovery";
+    static final String WORK_NAME = "widget-retry";
+    private static final long BASE_DELAY_MS = 30_000L;
+    private static final long MAX_DELAY_MS = 15 * 60_000L;
+    // Consecutive server failures before background fetches pause, and for how long
+    private static final int BREAKER_THRESHOLD = 4;
+    private static final long BREAKER_OPEN_MS = 30 * 60_000L;
+
+    private static RecoveryPolicy policy;
+
+    private FetchRecovery() {}
+
+    private static synchronized RecoveryPolicy policy(Context context) {
+        if (policy == null) {
+            policy = new RecoveryPolicy(BASE_DELAY_MS, MAX_DELAY_MS, BREAKER_THRESHOLD, BREAKER_OPEN_MS, new Random());
+            StateStore.Snapshot s = WidgetState.snapshot(context);
+            policy.restore((int) s.getLong("widget_retry_failures", 0L), s.getLong("widget_breaker_until", 0L));
+        }
+        return policy;
+    }
+
+    /** Drop the in-memory policy so the next use restores it from the widget state, as a cold process would. */
+    static synchronized void forget() {
+        policy = null;
+    }
+
+    /** Whether a fetch may use the network; taps always may. */
+    static boolean allow(Context context, long now, boolean user) {
+        return policy(context).allow(now, user);
+    }
+
+    static void succeeded(Context context) {
+        RecoveryPolicy p = policy(context);
+        if (p.failures() == 0 && p.openUntil() == 0L) return;
+        p.success();
+        save(context, p);
+        try {
+            WorkManager.getInstance(context).cancelUniqueWork(WORK_NAME);
+        } catch (Throwable ignored) {}
+    }
+
+    /** Record a failed fetch and schedule the retry, replacing any already scheduled. */
+    static void failed(Context context, long now) {
+        RecoveryPolicy p = policy(context);
+        boolean offline = !hasValidatedNetwork(context);
+        long delay = p.failure(now, offline);
+        save(context, p);
+        try {
+            OneTimeWorkRequest req = new OneTimeWorkRequest.Builder(RetryRefreshWorker.class)
+                    .setConstraints(new Constraints.Builder().setRequiredNetworkType(NetworkType.CONNECTED).build())
+                    .setInitialDelay(delay, TimeUnit.MILLISECONDS)
+                    .build();
+            WorkManager.getInstance(context).enqueueUniqueWork(WORK_NAME, ExistingWorkPolicy.REPLACE, req);
+        } catch (Throwable t) {
+            Log.w(TAG, "failed to schedule retry", t);
+        }
+        long[] s = p.stats();
+        Log.i(TAG, (offline ? "offline; retry on network" : "retry in " + delay / 1000 + " s") + "; failures="
+                + p.failures() + " failed=" + s[0] + " offline=" + s[1] + " opened=" + s[2] + " rejected=" + s[3]);
+    }
+
+    // A connected network can still be a captive portal or have no route; only a validated one counts
+    static boolean hasValidatedNetwork(Context context) {
+        try {
+            ConnectivityManager cm = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+            Network n = cm != null ? cm.getActiveNetwork() : null;
+            NetworkCapabilities caps = n != null ? cm.getNetworkCapabilities(n) : null;
+            return caps != null && caps.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED);
+        } catch (Throwable t) {
+            // Without ACCESS_NETWORK_STATE details, count failures against the server
+            return true;
+        }
+    }
+
+    private static void save(Context context, RecoveryPolicy p) {
+        WidgetState.edit(context)
+                .putLong("widget_retry_failures", p.failures())
+                .putLong("widget_breaker_until", p.openUntil())
+                .apply();
+    }
+}
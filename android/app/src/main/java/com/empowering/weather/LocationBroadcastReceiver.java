@@ -6,13 +6,15 @@ import android.content.Intent;
 import android.location.Location;
 import android.util.Log;
 import com.google.android.gms.location.LocationResult;
-import android.content.SharedPreferences;
-import android.appwidget.AppWidgetManager;
-import android.content.ComponentName;
+
+import com.empowering.weather.core.LocationGate;
+import com.empowering.weather.core.LocationPolicy;
+import com.empowering.weather.core.StateStore;
 
 /**
  * Receives location updates delivered via a PendingIntent from FusedLocationProviderClient.
- * Persists the last location into SharedPreferences and signals the widget to refresh.
+ * Persists the last location into the widget state and signals the widget to refresh when the fix can change
+ * what it shows: a different server cache bucket than the last fetch, or a stored forecast about to run out.
  */
 public class LocationBroadcastReceiver extends BroadcastReceiver {
     private static final String TAG = "LocBroadcastReceiver";
@@ -23,34 +25,57 @@ public class LocationBroadcastReceiver extends BroadcastReceiver {
             LocationResult result = LocationResult.extractResult(intent);
             if (result == null) return;
             Location loc = result.getLastLocation();
-            if (loc == null) return;
+            if (loc != null) onLocation(context, loc);
+        } catch (Throwable t) {
+            Log.w(TAG, "onReceive failed", t);
+        }
+    }
 
+    // One fix, from the fused provider or a test
+    static void onLocation(Context context, Location loc) {
+        try {
             Log.i(TAG, "received location: " + loc.getLatitude() + "," + loc.getLongitude());
 
-            SharedPreferences prefs = context.getSharedPreferences("weather_widget_prefs", Context.MODE_PRIVATE);
-            prefs.edit()
+            StateStore.Snapshot prefs = WidgetState.snapshot(context);
+            long now = System.currentTimeMillis();
+            long fetchTs = prefs.getLong("widget_last_fetch_time", 0L);
+            // Data goes stale when the stored hourly forecast is about to run out, or after the server TTL without one
+            TimelineCache tl = TimelineCache.get(context);
+            long staleMs = tl != null ? tl.timeline.refetchAtMillis() - fetchTs : WidgetHttpCache.SERVER_TTL_SECONDS * 1000L;
+            LocationGate.Decision decision = LocationGate.decide(
+                    fetchTs,
+                    prefs.getFloat("widget_fetch_lat", 0f),
+                    prefs.getFloat("widget_fetch_lon", 0f),
+                    loc.getLatitude(), loc.getLongitude(), now,
+                    BuildConfig.WIDGET_MOVE_THRESHOLD_METERS,
+                    staleMs);
+
+            // Speed tells the location policy whether we are on the move
+            double speed = loc.hasSpeed() ? loc.getSpeed() : LocationPolicy.State.speedBetween(
+                    prefs.getFloat("widget_lat", 0f), prefs.getFloat("widget_lon", 0f), prefs.getLong("widget_loc_time", 0L),
+                    loc.getLatitude(), loc.getLongitude(), now);
+
+            // Always keep the newest fix so the next fetch, whatever triggers it, uses it
+            StateStore.Editor editor = WidgetState.edit(context)
                     .putBoolean("widget_has_location", true)
                     .putFloat("widget_lat", (float)loc.getLatitude())
                     .putFloat("widget_lon", (float)loc.getLongitude())
-                    .putLong("widget_loc_time", System.currentTimeMillis())
-                    .apply();
-
-            // Notify the widget provider to refresh now
-            Intent refresh = new Intent(context, WeatherWidgetProvider.class);
-            refresh.setAction(WeatherWidgetProvider.ACTION_REFRESH);
-            context.sendBroadcast(refresh);
-
-            // Also update any AppWidget instances directly to be safe
-            try {
-                AppWidgetManager mgr = AppWidgetManager.getInstance(context);
-                int[] ids = mgr.getAppWidgetIds(new ComponentName(context, WeatherWidgetProvider.class));
-                for (int id : ids) {
-                    // Trigger an immediate update (the provider will fetch using saved prefs)
-                    mgr.updateAppWidget(id, mgr.getAppWidgetInfo(id) != null ? new android.widget.RemoteViews(context.getPackageName(), R.layout.weather_widget) : null);
-                }
-            } catch (Throwable ignored) {}
+                    .putLong("widget_loc_time", now)
+                    .putFloat("widget_loc_speed", (float) speed);
+            if (!decision.refresh()) {
+                long suppressed = editor.add("widget_loc_suppressed", 1).apply().getLong("widget_loc_suppressed", 0L);
+                LocationUpdates.adapt(context);
+                Log.i(TAG, "fix suppressed (same bucket, fresh data); suppressed=" + suppressed);
+                return;
+            }
+            editor.apply();
+            LocationUpdates.adapt(context);
+            Log.i(TAG, "refreshing widget: " + decision);
+
+            // Sync through the worker, which waits for a network and joins a sync already pending
+            WidgetSyncWorker.syncNow(context);
         } catch (Throwable t) {
-            Log.w(TAG, "onReceive failed", t);
+            Log.w(TAG, "handling location failed", t);
         }
     }
 }
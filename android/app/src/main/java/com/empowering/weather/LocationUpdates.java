@@ -0,0 +1,203 @@
+package com.empowering.weather;
+
+import android.Manifest;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.location.Location;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.util.Log;
+import androidx.core.content.ContextCompat;
+import com.google.android.gms.location.LocationRequest;
+import com.google.android.gms.location.LocationServices;
+import com.google.android.gms.tasks.CancellationTokenSource;
+
+import com.empowering.weather.core.AdaptiveLocationPolicy;
+import com.empowering.weather.core.LocationPolicy;
+import com.empowering.weather.core.SpeculativeFetch;
+import com.empowering.weather.core.StateStore;
+
+/**
+ * Registers the widget's background location updates with the fused provider. Updates are delivered to
+ * {@link LocationBroadcastReceiver} through a PendingIntent, which outlives our process, so nothing of ours
+ * has to stay running. The system drops the registration on reboot and on app update; the persisted state
+ * (location_updates_*) tells {@link StartLocationWorker} to register again then.
+ *
+ * The request itself comes from {@link #POLICY}, fed with the screen, battery and speed state. {@link #adapt} is
+ * called wherever our code runs anyway (location fixes, syncs, status ticks) and re-registers when the chosen
+ * request changes; there is no process kept around to watch for state changes.
+ */
+final class LocationUpdates {
+    private static final String TAG = "LocationUpdates";
+    static final LocationPolicy POLICY = new AdaptiveLocationPolicy(BuildConfig.WIDGET_MOVE_THRESHOLD_METERS);
+    // A speed measured longer ago than this says nothing about now
+    private static final long SPEED_VALID_MS = 15 * 60_000L;
+    // A request sent this recently and not yet answered is still in flight
+    private static final long PENDING_MS = 60_000L;
+
+    private LocationUpdates() {}
+
+    static boolean hasPermission(Context context) {
+        return ContextCompat.checkSelfPermission(context, Manifest.permission.ACCESS_FINE_LOCATION) == PackageManager.PERMISSION_GRANTED
+                || ContextCompat.checkSelfPermission(context, Manifest.permission.ACCESS_COARSE_LOCATION) == PackageManager.PERMISSION_GRANTED;
+    }
+
+    /** Whether updates should be registered: set by {@link #register}, cleared by {@link #unregister}. */
+    static boolean wanted(Context context) {
+        return WidgetState.snapshot(context).getBoolean("location_updates_wanted", false);
+    }
+
+    /** Register (or re-register) the updates. Calling it again replaces the earlier registration. */
+    static void register(Context context) {
+        Context app = context.getApplicationContext();
+        WidgetState.edit(app).putBoolean("location_updates_wanted", true).apply();
+        register(app, POLICY.choose(sample(app)));
+    }
+
+    /** Re-register if the device state now calls for a different request than the registered one. */
+    static void adapt(Context context) {
+        Context app = context.getApplicationContext();
+        try {
+            StateStore.Snapshot s = WidgetState.snapshot(app);
+            if (!s.getBoolean("location_updates_wanted", false)) return;
+            LocationPolicy.Request r = POLICY.choose(sample(app));
+            String current = s.getString("location_updates_request", "");
+            if (r.encode().equals(current) && (s.getBoolean("location_updates_registered", false)
+                    || System.currentTimeMillis() - s.getLong("location_updates_time", 0L) < PENDING_MS)) return;
+            Log.i(TAG, "request " + current + " -> " + r);
+            register(app, r);
+        } catch (Throwable t) {
+            Log.w(TAG, "adapt failed", t);
+        }
+    }
+
+    /** The device state the policy decides on. */
+    static LocationPolicy.State sample(Context context) {
+        boolean screenOn = true;
+        boolean powerSave = false;
+        try {
+            PowerManager pm = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+            screenOn = pm.isInteractive();
+            powerSave = pm.isPowerSaveMode();
+        } catch (Throwable ignored) {}
+        int battery = -1;
+        boolean charging = false;
+        try {
+            BatteryManager bm = (BatteryManager) context.getSystemService(Context.BATTERY_SERVICE);
+            battery = bm.getIntProperty(BatteryManager.BATTERY_PROPERTY_CAPACITY);
+            charging = bm.isCharging();
+        } catch (Throwable ignored) {}
+        StateStore.Snapshot s = WidgetState.snapshot(context);
+        double speed = System.currentTimeMillis() - s.getLong("widget_loc_time", 0L) < SPEED_VALID_MS
+                ? s.getFloat("widget_loc_speed", Float.NaN) : Double.NaN;
+        return new LocationPolicy.State(screenOn, battery, charging, powerSave, speed);
+    }
+
+    /**
+     * Ask for one fresh fix and hand it to spec, which fetches again only if the fix moved to another bucket than
+     * the one already fetched. The fix is saved like a background update. onDone (may be null) runs once either way.
+     */
+    static void freshFix(Context context, int priority, SpeculativeFetch spec, Runnable onDone) {
+        Context app = context.getApplicationContext();
+        long start = SystemClock.elapsedRealtime();
+        try {
+            LocationServices.getFusedLocationProviderClient(app)
+                    .getCurrentLocation(priority, new CancellationTokenSource().getToken())
+                    .addOnCompleteListener(task -> {
+                        Location loc = task.isSuccessful() ? task.getResult() : null;
+                        SpeculativeFetch.Outcome o;
+                        if (loc != null) {
+                            WidgetState.edit(app)
+                                    .putBoolean("widget_has_location", true)
+                                    .putFloat("widget_lat", (float) loc.getLatitude())
+                                    .putFloat("widget_lon", (float) loc.getLongitude())
+                                    .putLong("widget_loc_time", System.currentTimeMillis())
+                                    .apply();
+                            o = spec.fix(loc.getLatitude(), loc.getLongitude());
+                        } else {
+                            o = spec.noFix();
+                        }
+                        Log.i(TAG, "fresh fix after " + (SystemClock.elapsedRealtime() - start) + " ms: " + o);
+                        if (onDone != null) onDone.run();
+                    });
+        } catch (Throwable t) {
+            // No permission or no Play services: the speculative fetch, if any, stands
+            Log.w(TAG, "fresh fix failed", t);
+            spec.noFix();
+            if (onDone != null) onDone.run();
+        }
+    }
+
+    private static void register(Context app, LocationPolicy.Request r) {
+        if (!hasPermission(app)) {
+            // Nothing changed, so nothing to write; adapt runs far too often for that
+            Log.w(TAG, "missing location permission; not requesting updates");
+            return;
+        }
+        // Recorded before asking, so an adapt while the request is in flight does not send it again
+        WidgetState.edit(app)
+                .putString("location_updates_request", r.encode())
+                .putLong("location_updates_time", System.currentTimeMillis())
+                .apply();
+        try {
+            LocationRequest req = new LocationRequest.Builder(r.priority, r.intervalMs)
+                    .setMinUpdateIntervalMillis(r.minIntervalMs)
+                    .setMinUpdateDistanceMeters(r.minDistanceM)
+                    .setMaxUpdateDelayMillis(r.maxDelayMs)
+                    .build();
+            LocationServices.getFusedLocationProviderClient(app).requestLocationUpdates(req, pendingIntent(app))
+                    .addOnSuccessListener(v -> {
+                        recordRegistered(app, true, "ok");
+                        Log.i(TAG, "requested location updates via PendingIntent: " + r);
+                    })
+                    .addOnFailureListener(e -> {
+                        recordFailed(app, "error: " + e.getClass().getSimpleName() + ": " + e.getMessage());
+                        Log.w(TAG, "failed to request updates", e);
+                    });
+        } catch (SecurityException se) {
+            recordFailed(app, "no permission");
+            Log.w(TAG, "missing location permission", se);
+        } catch (Throwable t) {
+            recordFailed(app, "error: " + t.getClass().getSimpleName() + ": " + t.getMessage());
+            Log.w(TAG, "failed to request updates", t);
+        }
+    }
+
+    static void unregister(Context context) {
+        Context app = context.getApplicationContext();
+        try {
+            LocationServices.getFusedLocationProviderClient(app).removeLocationUpdates(pendingIntent(app));
+        } catch (Throwable ignored) {}
+        WidgetState.edit(app).putBoolean("location_updates_wanted", false).remove("location_updates_request").apply();
+        recordRegistered(app, false, "removed");
+    }
+
+    private static PendingIntent pendingIntent(Context context) {
+        Intent intent = new Intent(context, LocationBroadcastReceiver.class);
+        // Mutable: the fused provider fills in the LocationResult extras
+        int flags = Build.VERSION.SDK_INT >= Build.VERSION_CODES.S ? PendingIntent.FLAG_MUTABLE | PendingIntent.FLAG_UPDATE_CURRENT : PendingIntent.FLAG_UPDATE_CURRENT;
+        return PendingIntent.getBroadcast(context, 0, intent, flags);
+    }
+
+    private static void recordRegistered(Context context, boolean registered, String status) {
+        WidgetState.edit(context)
+                .putBoolean("location_updates_registered", registered)
+                .putString("location_updates_status", status)
+                .putLong("location_updates_time", System.currentTimeMillis())
+                .apply();
+    }
+
+    // The request never got through: forget it, so the next adapt asks again
+    private static void recordFailed(Context context, String status) {
+        WidgetState.edit(context)
+                .putBoolean("location_updates_registered", false)
+                .putString("location_updates_status", status)
+                .putLong("location_updates_time", System.currentTimeMillis())
+                .remove("location_updates_request")
+                .apply();
+    }
+}
@@ -2,14 +2,30 @@ package com.empowering.weather;
 
 import android.os.Bundle;
 import android.webkit.CookieManager;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+import android.webkit.WebView;
 import android.os.Build;
 
 import com.getcapacitor.BridgeActivity;
+import com.getcapacitor.BridgeWebViewClient;
 
 public class MainActivity extends BridgeActivity {
 	@Override
 	protected void onCreate(Bundle savedInstanceState) {
+		// Fetch the saved location's weather while the WebView starts up; its /api request is answered from disk
+		NativeApiCache.prefetch(this);
+		// Plugins must be registered before the bridge starts in super.onCreate
+		registerPlugin(WeatherCachePlugin.class);
+		registerPlugin(WidgetMetricsPlugin.class);
 		super.onCreate(savedInstanceState);
+		getBridge().setWebViewClient(new BridgeWebViewClient(getBridge()) {
+			@Override
+			public WebResourceResponse shouldInterceptRequest(WebView view, WebResourceRequest request) {
+				WebResourceResponse cached = NativeApiCache.intercept(view.getContext(), request);
+				return cached != null ? cached : super.shouldInterceptRequest(view, request);
+			}
+		});
 
 		// Ensure the WebView accepts cookies. For API >= 21 also allow third-party cookies
 		try {
@@ -18,11 +34,11 @@ public class MainActivity extends BridgeActivity {
 			if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
 				// BridgeActivity hosts the WebView used by Capacitor; getWebView() is available
 				try {
-					android.webkit.WebView webView = (android.webkit.WebView) getBridge().getWebView();
+					WebView webView = getBridge().getWebView();
 					cookieManager.setAcceptThirdPartyCookies(webView, true);
 				} catch (Throwable ignored) {
 					// Fallback: enable global third-party cookies if available
-					try { cookieManager.setAcceptThirdPartyCookies(new android.webkit.WebView(this), true); } catch (Throwable ignored2) {}
+					try { cookieManager.setAcceptThirdPartyCookies(new WebView(this), true); } catch (Throwable ignored2) {}
 				}
 			}
 		} catch (Throwable ignored) {}
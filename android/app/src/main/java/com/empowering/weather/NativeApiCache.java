@@ -0,0 +1,143 @@
+package com.empowering.weather;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+
+import com.empowering.weather.core.StateStore;
+import com.empowering.weather.core.TaskScheduler;
+import com.empowering.weather.core.WidgetPayloadParser;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answers the web app's /api requests from the widget's on-disk cache ({@link WidgetHttpCache}), so a cold start
+ * paints weather without waiting for the network. Any stored entry is served at once with its real age in
+ * X-Cache-Age; a stale one is revalidated in the background (a conditional request, usually a 304). The fetch
+ * for the saved location is started by MainActivity before the WebView exists, so by the time the page asks the
+ * answer is often on disk already. Turned off with NATIVE_API_CACHE=false at build time.
+ */
+final class NativeApiCache {
+    private static final String TAG = "NativeApiCache";
+    // Must match the server in src/web/script/main.js
+    private static final String HOST = "weather.oreostack.uk";
+    // How long a request with nothing on disk waits for a fetch already under way before going to the network
+    private static final long PENDING_WAIT_MS = 3000L;
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "api-prefetch");
+        t.setDaemon(true);
+        return t;
+    });
+    // One background fetch per bucket at a time
+    private static final Map<String, Future<?>> PENDING = new ConcurrentHashMap<>();
+
+    private NativeApiCache() {}
+
+    /** Start fetching the saved location's payload unless a fresh one is on disk. Does not block. */
+    static void prefetch(Context context) {
+        if (!BuildConfig.NATIVE_API_CACHE) return;
+        Context app = context.getApplicationContext();
+        try {
+            StateStore.Snapshot s = WidgetState.snapshot(app);
+            if (!s.getBoolean("widget_has_location", false)) return;
+            double lat = s.getFloat("widget_lat", 0f);
+            double lon = s.getFloat("widget_lon", 0f);
+            WidgetHttpCache.Entry e = WidgetHttpCache.get(app).peek(WidgetHttpCache.bucketKey(lat, lon), System.currentTimeMillis());
+            if (e == null || !e.fresh) revalidate(app, lat, lon);
+        } catch (Throwable t) {
+            Log.w(TAG, "prefetch failed", t);
+        }
+    }
+
+    /** The cached answer for a WebView request to /api, or null to let it go to the network. */
+    static WebResourceResponse intercept(Context context, WebResourceRequest request) {
+        if (!BuildConfig.NATIVE_API_CACHE || !"GET".equalsIgnoreCase(request.getMethod())) return null;
+        Uri u = request.getUrl();
+        if (!HOST.equals(u.getHost()) || !"/api".equals(u.getPath())) return null;
+        Context app = context.getApplicationContext();
+        try {
+            double lat = Double.parseDouble(u.getQueryParameter("lat"));
+            double lon = Double.parseDouble(u.getQueryParameter("lon"));
+            String key = WidgetHttpCache.bucketKey(lat, lon);
+            WidgetHttpCache cache = WidgetHttpCache.get(app);
+            WidgetHttpCache.Entry e = cache.peek(key, System.currentTimeMillis());
+            if (e == null) {
+                Future<?> pending = PENDING.get(key);
+                if (pending == null) return null;
+                pending.get(PENDING_WAIT_MS, TimeUnit.MILLISECONDS);
+                e = cache.peek(key, System.currentTimeMillis());
+                if (e == null) return null;
+            } else if (!e.fresh) {
+                revalidate(app, lat, lon);
+            }
+            return respond(e);
+        } catch (Throwable t) {
+            // Bad parameters, a slow prefetch or an unreadable entry: the network answers as before
+            Log.w(TAG, "not served from cache: " + t);
+            return null;
+        }
+    }
+
+    private static WebResourceResponse respond(WidgetHttpCache.Entry e) throws Exception {
+        int cacheAge;
+        try (Reader in = new InputStreamReader(new BufferedInputStream(new FileInputStream(e.body)), StandardCharsets.UTF_8)) {
+            cacheAge = WidgetPayloadParser.parse(in).cacheAge;
+        }
+        long now = System.currentTimeMillis();
+        // The body's cache_age was measured when it was stored
+        long age = Math.max(0, cacheAge) + Math.max(0L, now - e.storedAt) / 1000L;
+        Map<String, String> headers = new HashMap<>();
+        // The page is served from the app's own origin
+        headers.put("Access-Control-Allow-Origin", "*");
+        headers.put("Access-Control-Expose-Headers", "X-Cache-Age, X-Native-Cache");
+        headers.put("Cache-Control", "no-store");
+        headers.put("X-Cache-Age", String.valueOf(age));
+        headers.put("X-Native-Cache", e.fresh ? "fresh" : "stale");
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            Log.i(TAG, "served /api from cache (" + (e.fresh ? "fresh" : "stale") + ", age " + age + " s) "
+                    + (SystemClock.elapsedRealtime() - Process.getStartElapsedRealtime()) + " ms after process start");
+        }
+        return new WebResourceResponse("application/json", "utf-8", 200, "OK", headers,
+                new BufferedInputStream(new FileInputStream(e.body)));
+    }
+
+    private static void revalidate(Context app, double lat, double lon) {
+        String key = WidgetHttpCache.bucketKey(lat, lon);
+        PENDING.computeIfAbsent(key, k -> EXECUTOR.submit(() -> {
+            try {
+                WidgetHttpCache cache = WidgetHttpCache.get(app);
+                WidgetHttpCache.Response resp = WidgetApiClient.get().fetch(cache, k, lat, lon, new TaskScheduler.Cancellation());
+                if (resp.code >= 200 && resp.code < 300 && !resp.fromCache) {
+                    // Give the new entry its lifetime, as the widget does after a transfer
+                    try (Reader in = resp.openBody()) {
+                        cache.commit(k, WidgetPayloadParser.parse(in).cacheAge);
+                    } catch (Exception parseErr) {
+                        cache.invalidate(k);
+                        throw parseErr;
+                    }
+                }
+                Log.i(TAG, "revalidated " + k + ": " + resp.code + (resp.fromCache ? " (not modified)" : ""));
+            } catch (Throwable t) {
+                Log.w(TAG, "revalidation failed for " + k, t);
+            } finally {
+                PENDING.remove(k);
+            }
+        }));
+    }
+}
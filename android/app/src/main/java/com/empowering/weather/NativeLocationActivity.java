@@ -3,30 +3,23 @@ package com.empowering.weather;
 import android.Manifest;
 import android.app.Activity;
 import android.content.Context;
-import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
 import android.location.Location;
 import android.location.LocationManager;
 import android.os.Bundle;
-import android.os.Looper;
 import androidx.annotation.NonNull;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
-import com.google.android.gms.location.FusedLocationProviderClient;
-import com.google.android.gms.location.LocationCallback;
-import com.google.android.gms.location.LocationRequest;
-import com.google.android.gms.location.LocationResult;
-import com.google.android.gms.location.LocationServices;
+
+import com.empowering.weather.core.LocationPolicy;
+import com.empowering.weather.core.SpeculativeFetch;
 
 public class NativeLocationActivity extends Activity {
     private static final int REQ_PERMS = 1423;
-    private FusedLocationProviderClient fused;
-    private LocationCallback lc;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        fused = LocationServices.getFusedLocationProviderClient(this);
 
         if (ContextCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION) != PackageManager.PERMISSION_GRANTED &&
             ContextCompat.checkSelfPermission(this, Manifest.permission.ACCESS_COARSE_LOCATION) != PackageManager.PERMISSION_GRANTED) {
@@ -37,55 +30,44 @@ public class NativeLocationActivity extends Activity {
     }
 
     private void fetchLocationAndFinish() {
+        Location last = null;
         try {
             LocationManager lm = (LocationManager) getSystemService(Context.LOCATION_SERVICE);
             if (lm != null) {
-                Location last = null;
                 try { last = lm.getLastKnownLocation(LocationManager.GPS_PROVIDER); } catch (Throwable ignored) {}
                 try { Location net = lm.getLastKnownLocation(LocationManager.NETWORK_PROVIDER); if (net != null && (last == null || net.getTime() > last.getTime())) last = net; } catch (Throwable ignored) {}
-                if (last != null) {
-                    saveAndFinish(last.getLatitude(), last.getLongitude());
-                    return;
-                }
             }
-
-            // Request a single update from fused provider
-            LocationRequest req = LocationRequest.create();
-            req.setInterval(0);
-            req.setFastestInterval(0);
-            req.setNumUpdates(1);
-            req.setPriority(LocationRequest.PRIORITY_HIGH_ACCURACY);
-
-            lc = new LocationCallback() {
-                @Override
-                public void onLocationResult(@NonNull LocationResult locationResult) {
-                    if (locationResult == null) {
-                        saveAndFinish(0, 0);
-                        return;
-                    }
-                    Location l = locationResult.getLastLocation();
-                    if (l != null) saveAndFinish(l.getLatitude(), l.getLongitude()); else saveAndFinish(0,0);
-                }
-            };
-
-            fused.requestLocationUpdates(req, lc, Looper.getMainLooper());
-        } catch (Throwable t) {
-            saveAndFinish(0,0);
+        } catch (Throwable ignored) {}
+        // Fetch for the last known location straight away and take a precise fix alongside; the fix only fetches
+        // again if it lands in another bucket. With nothing known the fetch waits for the fix
+        Context app = getApplicationContext();
+        SpeculativeFetch spec = new SpeculativeFetch((lat, lon) -> WeatherWidgetProvider.requestRefresh(app, true, null));
+        if (last != null) {
+            save(last.getLatitude(), last.getLongitude());
+            spec.begin(last.getLatitude(), last.getLongitude(), true);
         }
+        boolean known = last != null;
+        // Stay in the foreground until the fix, where high accuracy is allowed
+        LocationUpdates.freshFix(this, LocationPolicy.PRIORITY_HIGH_ACCURACY, spec, () -> {
+            if (!known && spec.noFix() == SpeculativeFetch.Outcome.NO_FIX) saveAndFinish(0, 0); else finish();
+        });
     }
 
     private void saveAndFinish(double lat, double lon) {
+        save(lat, lon);
+        finish();
+    }
+
+    private void save(double lat, double lon) {
         try {
-            SharedPreferences prefs = getSharedPreferences("weather_widget_prefs", Context.MODE_PRIVATE);
         boolean hasLocation = !(lat == 0d && lon == 0d);
-        prefs.edit()
+        WidgetState.edit(this)
             .putFloat("widget_lat", (float) lat)
             .putFloat("widget_lon", (float) lon)
             .putLong("widget_loc_time", System.currentTimeMillis())
             .putBoolean("widget_has_location", hasLocation)
             .apply();
         } catch (Throwable ignored) {}
-        finish();
     }
 
     @Override
@@ -97,6 +79,8 @@ public class NativeLocationActivity extends Activity {
                 for (int r : grantResults) if (r == PackageManager.PERMISSION_GRANTED) { ok = true; break; }
             }
             if (ok) {
+                // Widgets were waiting on this permission for their background updates
+                if (LocationUpdates.wanted(this)) LocationUpdates.register(this);
                 fetchLocationAndFinish();
             } else {
                 saveAndFinish(0,0);
@@ -0,0 +1,89 @@
+package com.empowering.weather;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.util.Log;
+
+import com.empowering.weather.core.HourlyTimeline;
+import com.empowering.weather.core.QuipEngine;
+import com.empowering.weather.core.QuipIndex;
+import com.empowering.weather.core.WidgetPayload;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * Quips picked on the device when /api gave none, or for hours rolled forward from the stored forecast. The
+ * weather notes are packed into the quips.idx asset at build time (the app's packQuips task) and mapped in
+ * place; {@link QuipEngine} picks the line the server would, taking the date in UTC like the server's container.
+ */
+final class OfflineQuips {
+    private static final String TAG = "OfflineQuips";
+    static final String ASSET = "quips.idx";
+    static final String PLACEHOLDER = "OverCast";
+
+    private static volatile QuipIndex index;
+    private static volatile boolean loaded;
+
+    private OfflineQuips() {}
+
+    /** The packed notes, or null when the asset is missing or unreadable. */
+    static QuipIndex index(Context context) {
+        if (!loaded) {
+            synchronized (OfflineQuips.class) {
+                if (!loaded) {
+                    index = load(context.getApplicationContext());
+                    loaded = true;
+                }
+            }
+        }
+        return index;
+    }
+
+    /** Quip for weather.current; the placeholder without the asset. */
+    static String forCurrent(Context context, WidgetPayload.Current cur, double lat, double lon, long now) {
+        String quip = pick(context, QuipEngine.category(cur), lat, lon, now);
+        return quip != null ? quip : PLACEHOLDER;
+    }
+
+    /** Quip for hour i of the timeline, or null without the asset. */
+    static String forHour(Context context, HourlyTimeline t, int i, double lat, double lon, long now) {
+        return pick(context, QuipEngine.category(t, i), lat, lon, now);
+    }
+
+    private static String pick(Context context, String category, double lat, double lon, long now) {
+        QuipIndex idx = index(context);
+        if (idx == null) return null;
+        Calendar c = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        c.setTimeInMillis(now);
+        String quip = QuipEngine.pick(idx, category, lat, lon,
+                c.get(Calendar.YEAR), c.get(Calendar.MONTH) + 1, c.get(Calendar.DAY_OF_MONTH));
+        return quip.isEmpty() ? null : quip;
+    }
+
+    private static QuipIndex load(Context app) {
+        // Stored uncompressed (noCompress 'idx'), so the asset can be mapped straight out of the APK
+        try (AssetFileDescriptor fd = app.getAssets().openFd(ASSET);
+             FileInputStream in = fd.createInputStream()) {
+            FileChannel ch = in.getChannel();
+            return QuipIndex.read(ch.map(FileChannel.MapMode.READ_ONLY, fd.getStartOffset(), fd.getDeclaredLength()));
+        } catch (Throwable t) {
+            Log.w(TAG, "mapping " + ASSET + " failed, reading it instead", t);
+        }
+        try (InputStream in = app.getAssets().open(ASSET)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) > 0) out.write(buf, 0, n);
+            return QuipIndex.read(ByteBuffer.wrap(out.toByteArray()));
+        } catch (Throwable t) {
+            Log.w(TAG, "no offline quips", t);
+            return null;
+        }
+    }
+}
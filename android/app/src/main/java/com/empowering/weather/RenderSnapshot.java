@@ -0,0 +1,100 @@
+package com.empowering.weather;
+
+import android.content.Context;
+
+import com.empowering.weather.core.StateStore;
+import com.empowering.weather.core.WeatherStats;
+import com.empowering.weather.core.WidgetFormat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * What the widget last rendered, kept in memory so the status tick and repaints need neither state store
+ * reads nor any parsing. Stored as one small record under widget_render; a cold process loads it once.
+ */
+final class RenderSnapshot {
+    static final String KEY = "widget_render";
+
+    private static volatile RenderSnapshot current;
+
+    final String quip;
+    final WeatherStats stats;
+    // 0 when never fetched
+    final long fetchTs;
+    // Time of the saved location the fetch used, 0 if none
+    final long locTs;
+    // When the fetched current values were observed, which the UV is carried on from
+    final long observedAt;
+
+    RenderSnapshot(String quip, WeatherStats stats, long fetchTs, long locTs, long observedAt) {
+        this.quip = quip;
+        this.stats = stats;
+        this.fetchTs = fetchTs;
+        this.locTs = locTs;
+        this.observedAt = observedAt;
+    }
+
+    static void set(RenderSnapshot snapshot) {
+        current = snapshot;
+    }
+
+    static RenderSnapshot get(Context context) {
+        RenderSnapshot s = current;
+        if (s == null) {
+            StateStore.Snapshot prefs = WidgetState.snapshot(context);
+            long fetchTs = prefs.getLong("widget_last_fetch_time", 0L);
+            // Only for records written before they carried the location time: widget_loc_time moves on with
+            // every later fix, so it need not be the one the fetch used
+            long locTs = prefs.getLong("widget_loc_time", 0L);
+            s = read(prefs.getBytes(KEY), fetchTs, locTs);
+            if (s == null) {
+                // Cached by an older version as display strings: parse them once
+                s = new RenderSnapshot(
+                        prefs.getString("widget_cached_quip", "OverCast"),
+                        WeatherStats.fromLabels(prefs.getString("widget_cached_temp", "--°C"),
+                                prefs.getString("widget_cached_location", WidgetFormat.EMPTY_DETAILS)),
+                        fetchTs, locTs, fetchTs);
+            }
+            current = s;
+        }
+        return s;
+    }
+
+    String status(long now) {
+        return WidgetFormat.fetchedStatus(fetchTs, locTs, now);
+    }
+
+    /**
+     * Quip, stats, the location time the fetch used and when the values were observed. The fetch time lives in
+     * its own key, which other components read.
+     */
+    byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(104);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(quip);
+            stats.writeTo(out);
+            out.writeLong(locTs);
+            out.writeLong(observedAt);
+        } catch (IOException ignored) {}
+        return bytes.toByteArray();
+    }
+
+    // oldLocTs stands in for the location time in records from before it was stored; the fetch time likewise for
+    // the observation time
+    private static RenderSnapshot read(byte[] data, long fetchTs, long oldLocTs) {
+        if (data == null) return null;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            String quip = in.readUTF();
+            WeatherStats stats = WeatherStats.readFrom(in);
+            long locTs = in.available() >= 8 ? in.readLong() : oldLocTs;
+            long observedAt = in.available() >= 8 ? in.readLong() : fetchTs;
+            return stats != null ? new RenderSnapshot(quip, stats, fetchTs, locTs, observedAt) : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
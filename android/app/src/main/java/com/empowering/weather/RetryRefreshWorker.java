@@ -0,0 +1,33 @@
+package com.empowering.weather;
+
+import android.content.Context;
+import androidx.annotation.NonNull;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retries a failed widget refresh, scheduled by {@link FetchRecovery}. WorkManager's network constraint only
+ * asks for a connected network, so a network that is up but not yet validated is waited out with a retry.
+ */
+public class RetryRefreshWorker extends Worker {
+    public RetryRefreshWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context ctx = getApplicationContext();
+        if (!FetchRecovery.hasValidatedNetwork(ctx)) return Result.retry();
+        // Hold the worker (and so the process) until the pass is done; the scheduler's deadline bounds it
+        CountDownLatch done = new CountDownLatch(1);
+        WeatherWidgetProvider.requestRefresh(ctx, false, done::countDown);
+        try {
+            done.await(15, TimeUnit.SECONDS);
+        } catch (InterruptedException ignored) {}
+        return Result.success();
+    }
+}
@@ -1,16 +1,20 @@
 package com.empowering.weather;
 
+import android.appwidget.AppWidgetManager;
+import android.content.ComponentName;
 import android.content.Context;
-import android.content.Intent;
-import android.content.SharedPreferences;
 import android.os.Build;
+import android.os.Debug;
+import android.os.Process;
+import android.os.SystemClock;
 import android.util.Log;
 import androidx.annotation.NonNull;
 import androidx.work.Worker;
 import androidx.work.WorkerParameters;
 
 /**
- * Worker used to start LocationUpdatesService in a WorkManager-safe way (used at boot).
+ * Restores the widget's location updates after boot or an app update, both of which drop the fused provider's
+ * registration. Registers directly; no service is kept running.
  */
 public class StartLocationWorker extends Worker {
     private static final String TAG = "StartLocationWorker";
@@ -23,28 +27,41 @@ public class StartLocationWorker extends Worker {
     @Override
     public Result doWork() {
         Context ctx = getApplicationContext();
-        SharedPreferences prefs = ctx.getSharedPreferences("weather_widget_prefs", Context.MODE_PRIVATE);
         try {
-            Intent svc = new Intent(ctx, LocationUpdatesService.class);
-            try {
-                // Prefer a normal startService call so the system doesn't expect a
-                // subsequent startForeground() call. If this fails (background-start
-                // restrictions), we'll record the error and retry later.
-                ctx.startService(svc);
-            } catch (Throwable startErr) {
-                String msg = startErr.getClass().getSimpleName() + ": " + startErr.getMessage();
-                prefs.edit().putString("location_service_start_status", "error: " + msg).putLong("location_service_start_time", System.currentTimeMillis()).apply();
-                Log.w(TAG, "failed to start service", startErr);
-                return Result.retry();
+            // Installs from before the persisted flag only tell by having widgets
+            if (LocationUpdates.wanted(ctx) || hasWidgets(ctx)) {
+                LocationUpdates.register(ctx);
+            } else {
+                Log.i(TAG, "no widgets; location updates not needed");
             }
-            prefs.edit().putString("location_service_start_status", "ok").putLong("location_service_start_time", System.currentTimeMillis()).apply();
-            Log.i(TAG, "started LocationUpdatesService via WorkManager");
+            // Left behind by the resident service this replaced
+            WidgetState.edit(ctx)
+                    .remove("location_service_running")
+                    .remove("location_service_started_at")
+                    .remove("location_service_stopped_at")
+                    .remove("location_service_start_status")
+                    .remove("location_service_start_time")
+                    .apply();
+            logFootprint();
             return Result.success();
         } catch (Throwable t) {
-            String msg = t.getClass().getSimpleName() + ": " + t.getMessage();
-            prefs.edit().putString("location_service_start_status", "error: " + msg).putLong("location_service_start_time", System.currentTimeMillis()).apply();
-            Log.w(TAG, "failed to start service", t);
+            Log.w(TAG, "failed to restore location updates", t);
             return Result.retry();
         }
     }
+
+    private static boolean hasWidgets(Context ctx) {
+        AppWidgetManager mgr = AppWidgetManager.getInstance(ctx);
+        return mgr.getAppWidgetIds(new ComponentName(ctx, WeatherWidgetProvider.class)).length > 0;
+    }
+
+    // Process uptime and PSS, for comparing against the old resident service: with nothing running, the process
+    // should be reclaimed soon after this, rather than living (and holding this much memory) indefinitely
+    private static void logFootprint() {
+        try {
+            long uptimeS = Build.VERSION.SDK_INT >= Build.VERSION_CODES.N
+                    ? (SystemClock.elapsedRealtime() - Process.getStartElapsedRealtime()) / 1000L : -1L;
+            Log.i(TAG, "process uptime " + uptimeS + " s, pss " + Debug.getPss() + " kB");
+        } catch (Throwable ignored) {}
+    }
 }
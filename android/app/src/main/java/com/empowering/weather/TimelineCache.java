@@ -0,0 +1,86 @@
+package com.empowering.weather;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.empowering.weather.core.HourlyTimeline;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * The hourly forecast from the last successful fetch and the server bucket it belongs to. Held in memory and
+ * mirrored to a small binary file so a cold process can keep rolling the widget forward without a fetch.
+ */
+final class TimelineCache {
+    private static final String TAG = "TimelineCache";
+    private static final String FILE = "widget_timeline.bin";
+
+    private static volatile TimelineCache current;
+    private static volatile boolean loaded;
+
+    final String key;
+    final HourlyTimeline timeline;
+
+    private TimelineCache(String key, HourlyTimeline timeline) {
+        this.key = key;
+        this.timeline = timeline;
+    }
+
+    /** The stored timeline, or null if there is none. */
+    static TimelineCache get(Context context) {
+        if (!loaded) {
+            synchronized (TimelineCache.class) {
+                if (!loaded) {
+                    current = load(new File(context.getApplicationContext().getFilesDir(), FILE));
+                    loaded = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /** The stored timeline if it belongs to key, else null. */
+    static HourlyTimeline get(Context context, String key) {
+        TimelineCache c = get(context);
+        return c != null && c.key.equals(key) ? c.timeline : null;
+    }
+
+    static synchronized void put(Context context, String key, HourlyTimeline timeline) {
+        current = new TimelineCache(key, timeline);
+        loaded = true;
+        File f = new File(context.getApplicationContext().getFilesDir(), FILE);
+        File tmp = new File(f.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeUTF(key);
+            timeline.writeTo(out);
+        } catch (IOException e) {
+            Log.w(TAG, "failed to write timeline", e);
+            return;
+        }
+        if (!tmp.renameTo(f)) Log.w(TAG, "failed to commit timeline " + f);
+    }
+
+    /** Drop the in-memory copy so the next get reads the file, as a cold process would. */
+    static synchronized void forget() {
+        current = null;
+        loaded = false;
+    }
+
+    private static TimelineCache load(File f) {
+        if (!f.isFile()) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)))) {
+            String key = in.readUTF();
+            HourlyTimeline t = HourlyTimeline.readFrom(in);
+            return t != null ? new TimelineCache(key, t) : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.empowering.weather;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+
+import com.empowering.weather.core.StateStore;
+import com.empowering.weather.core.WidgetPayload;
+import com.empowering.weather.core.WidgetPayloadParser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * One weather and location cache for the web app and the widget, exposed to the WebView as
+ * Capacitor.Plugins.WeatherCache. Payloads live in {@link WidgetHttpCache} (keyed by rounded lat:lon bucket)
+ * and the location in the widget state, so a fetch by either side warms the other, the web app can paint
+ * the widget's last payload at startup, and a location the web app gets reaches the widget directly.
+ *
+ * Methods (all resolve; a missing entry resolves without its fields):
+ *   getCached({lat?, lon?}) -> {bucket, payload, storedAt, fresh}   payload is the raw /api JSON text
+ *   putPayload({lat, lon, payload, etag?})
+ *   getLocation() -> {lat, lon, ts}
+ *   setLocation({lat, lon})
+ */
+@CapacitorPlugin(name = "WeatherCache")
+public class WeatherCachePlugin extends Plugin {
+    private static final String TAG = "WeatherCachePlugin";
+
+    @PluginMethod
+    public void getCached(PluginCall call) {
+        Context app = getContext().getApplicationContext();
+        JSObject ret = new JSObject();
+        try {
+            String key = bucketFor(app, call);
+            if (key == null) {
+                call.resolve(ret);
+                return;
+            }
+            ret.put("bucket", key);
+            WidgetHttpCache.Entry e = WidgetHttpCache.get(app).peek(key, System.currentTimeMillis());
+            if (e != null) {
+                ret.put("payload", readText(e.body));
+                ret.put("storedAt", e.storedAt);
+                ret.put("fresh", e.fresh);
+            }
+            call.resolve(ret);
+        } catch (Throwable t) {
+            Log.w(TAG, "getCached failed", t);
+            call.resolve(ret);
+        }
+    }
+
+    @PluginMethod
+    public void putPayload(PluginCall call) {
+        Context app = getContext().getApplicationContext();
+        Double lat = call.getDouble("lat");
+        Double lon = call.getDouble("lon");
+        String json = call.getString("payload");
+        if (lat == null || lon == null || json == null) {
+            call.reject("lat, lon and payload are required");
+            return;
+        }
+        try {
+            byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+            // Refuse a body the widget could not read; its cache_age sets the entry's lifetime
+            WidgetPayload payload;
+            try (Reader in = new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8)) {
+                payload = WidgetPayloadParser.parse(in);
+            }
+            String key = WidgetHttpCache.bucketKey(lat, lon);
+            WidgetHttpCache.get(app).store(key, bytes, call.getString("etag"), payload.cacheAge);
+            // Repaint the widget from the new entry if it shows this bucket
+            StateStore.Snapshot s = WidgetState.snapshot(app);
+            if (s.getBoolean("widget_has_location", false)
+                    && key.equals(WidgetHttpCache.bucketKey(s.getFloat("widget_lat", 0f), s.getFloat("widget_lon", 0f)))) {
+                // Read from the disk only, rather than rolling the stored forecast forward or fetching
+                WeatherWidgetProvider.paintStored(app);
+            }
+            call.resolve();
+        } catch (Throwable t) {
+            Log.w(TAG, "putPayload failed", t);
+            call.reject("could not store payload", t instanceof Exception ? (Exception) t : null);
+        }
+    }
+
+    @PluginMethod
+    public void getLocation(PluginCall call) {
+        JSObject ret = new JSObject();
+        StateStore.Snapshot s = WidgetState.snapshot(getContext());
+        if (s.getBoolean("widget_has_location", false)) {
+            ret.put("lat", (double) s.getFloat("widget_lat", 0f));
+            ret.put("lon", (double) s.getFloat("widget_lon", 0f));
+            ret.put("ts", s.getLong("widget_loc_time", 0L));
+        }
+        call.resolve(ret);
+    }
+
+    @PluginMethod
+    public void setLocation(PluginCall call) {
+        Double lat = call.getDouble("lat");
+        Double lon = call.getDouble("lon");
+        if (lat == null || lon == null || (lat == 0d && lon == 0d)) {
+            call.reject("lat and lon are required");
+            return;
+        }
+        // Same keys as NativeLocationActivity and the background updates; the next widget pass picks it up
+        WidgetState.edit(getContext())
+                .putBoolean("widget_has_location", true)
+                .putFloat("widget_lat", lat.floatValue())
+                .putFloat("widget_lon", lon.floatValue())
+                .putLong("widget_loc_time", System.currentTimeMillis())
+                .apply();
+        call.resolve();
+    }
+
+    // The bucket asked for, or the widget's own
+    private static String bucketFor(Context app, PluginCall call) {
+        Double lat = call.getDouble("lat");
+        Double lon = call.getDouble("lon");
+        if (lat != null && lon != null) return WidgetHttpCache.bucketKey(lat, lon);
+        StateStore.Snapshot s = WidgetState.snapshot(app);
+        if (!s.getBoolean("widget_has_location", false)) return null;
+        return WidgetHttpCache.bucketKey(s.getFloat("widget_lat", 0f), s.getFloat("widget_lon", 0f));
+    }
+
+    private static String readText(File f) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream((int) f.length());
+        try (InputStream in = new FileInputStream(f)) {
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) != -1) out.write(buf, 0, n);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -6,37 +6,70 @@ import android.appwidget.AppWidgetProvider;
 import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.net.Uri;
 import android.location.Location;
 import android.location.LocationManager;
 import android.content.pm.PackageManager;
 import androidx.core.content.ContextCompat;
 import android.os.Build;
+import android.os.SystemClock;
 import android.widget.RemoteViews;
 import android.app.AlarmManager;
-
-import org.json.JSONObject;
-
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import android.util.Log;
+
+import com.empowering.weather.core.HourlyTimeline;
+import com.empowering.weather.core.LocationPolicy;
+import com.empowering.weather.core.PipelineMetrics;
+import com.empowering.weather.core.RefreshGate;
+import com.empowering.weather.core.SpeculativeFetch;
+import com.empowering.weather.core.StateStore;
+import com.empowering.weather.core.TaskScheduler;
+import com.empowering.weather.core.UvEstimate;
+import com.empowering.weather.core.WeatherStats;
+import com.empowering.weather.core.WidgetPayload;
+import com.empowering.weather.core.WidgetPayloadParser;
+
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.empowering.weather.core.WidgetFormat.lastFetchedLabel;
+import static com.empowering.weather.core.WidgetFormat.nextStatusChange;
+import static com.empowering.weather.core.WidgetFormat.staleStatus;
 
 public class WeatherWidgetProvider extends AppWidgetProvider {
     public static final String ACTION_REFRESH = "com.empowering.weather.REFRESH";
     public static final String ACTION_UPDATE_TIME = "com.empowering.weather.UPDATE_TIME";
-    // Single-threaded executor to serialize widget fetch work and avoid spawning many threads
-    private static final ExecutorService EXEC = Executors.newSingleThreadExecutor();
+    // Set on ACTION_REFRESH sent by tapping the widget: the user wants fresh data, not the stored forecast
+    static final String EXTRA_FROM_TAP = "com.empowering.weather.FROM_TAP";
+    private static final String TAG = "WeatherWidgetProvider";
+    // Serializes widget work on one thread; a newer refresh supersedes a queued or outdated one (see requestRefresh)
+    private static final TaskScheduler SCHEDULER = new TaskScheduler("widget-refresh");
+    // Trigger and throttle bookkeeping for refresh passes
+    private static final RefreshGate GATE = new RefreshGate(BuildConfig.WIDGET_MIN_REFRESH_SECONDS * 1000L);
+    // Allowed delivery slack for status ticks so the system can batch them with other alarms
+    private static final long TICK_WINDOW_MS = 2000L;
+    // A receiver kept alive with goAsync() must finish within about 10 s; give up on the pass a little before
+    private static final long REFRESH_DEADLINE_MS = 9000L;
+    // Epoch hour of the last full render, so the tick knows when to roll the forecast forward
+    private static volatile long renderedHour = -1L;
+    // Elapsed-realtime of the last tap not yet answered with data, for the tap-to-data log; 0 when none
+    private static volatile long tappedAt = 0L;
+    // What each widget id was last sent, so later updates can push only the changed fields
+    private static final Map<Integer, WidgetFields> PUSHED = new HashMap<>();
+    // Why the last pass showed old data ("Offline", "Error 503"), so status ticks keep saying so; null after success
+    private static volatile String failureReason;
 
     @Override
     public void onUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
-        for (int appWidgetId : appWidgetIds) {
-            updateAppWidget(context, appWidgetManager, appWidgetId, null);
-            fetchAndUpdate(context, appWidgetManager, appWidgetId);
-        }
+        // Paint the last known data straight away, marked as updating, and leave revalidating to the sync
+        // worker. The host may hold nothing for these ids (new widget, reboot), so this is always a full update
+        forget(appWidgetIds);
+        updateAppWidget(context, appWidgetManager, appWidgetIds, firstPaintData(context, System.currentTimeMillis()));
+        WidgetSyncWorker.syncNow(context);
+        WidgetSyncWorker.ensureScheduled(context);
+        LocationUpdates.adapt(context);
         // Schedule periodic time updates
         scheduleTimeUpdates(context);
     }
@@ -45,26 +78,35 @@ public class WeatherWidgetProvider extends AppWidgetProvider {
     public void onReceive(Context context, Intent intent) {
         super.onReceive(context, intent);
         if (ACTION_REFRESH.equals(intent.getAction())) {
-            AppWidgetManager mgr = AppWidgetManager.getInstance(context);
-            int[] ids = mgr.getAppWidgetIds(new ComponentName(context, WeatherWidgetProvider.class));
-            for (int id : ids) {
-                fetchAndUpdate(context, mgr, id);
+            if (intent.getBooleanExtra(EXTRA_FROM_TAP, false)) {
+                tapRefresh(context, goAsync()::finish);
+            } else {
+                requestRefresh(context, false, goAsync()::finish);
             }
         } else if (ACTION_UPDATE_TIME.equals(intent.getAction())) {
+            WidgetMetrics.count(PipelineMetrics.TICKS);
             // Update only the timestamp display without fetching new data
             AppWidgetManager mgr = AppWidgetManager.getInstance(context);
             int[] ids = mgr.getAppWidgetIds(new ComponentName(context, WeatherWidgetProvider.class));
-            for (int id : ids) {
-                updateTimestampOnly(context, mgr, id);
+            if (ids.length > 0) {
+                if (HourlyTimeline.hourOf(System.currentTimeMillis()) != renderedHour) {
+                    // New hour: a refresh pass rolls the stored forecast forward (no network while it lasts)
+                    requestRefresh(context, false, goAsync()::finish);
+                } else {
+                    updateStatusOnly(context, mgr, ids);
+                }
             }
             // Reschedule the next time update
             scheduleTimeUpdates(context);
+            // Ticks arrive once the screen is back on: a chance to ask for livelier location updates
+            LocationUpdates.adapt(context);
         }
     }
 
     @Override
     public void onDeleted(Context context, int[] appWidgetIds) {
         super.onDeleted(context, appWidgetIds);
+        forget(appWidgetIds);
         // If no more widgets exist, cancel time updates
         AppWidgetManager mgr = AppWidgetManager.getInstance(context);
         int[] allIds = mgr.getAppWidgetIds(new ComponentName(context, WeatherWidgetProvider.class));
@@ -73,11 +115,20 @@ public class WeatherWidgetProvider extends AppWidgetProvider {
         }
     }
 
+    @Override
+    public void onEnabled(Context context) {
+        super.onEnabled(context);
+        // First widget placed: follow the location (needs permission, which the widget asks for when missing)
+        LocationUpdates.register(context);
+    }
+
     @Override
     public void onDisabled(Context context) {
         super.onDisabled(context);
-        // All widgets removed, cancel time updates
+        // All widgets removed, cancel time updates, background sync and location updates
         cancelTimeUpdates(context);
+        WidgetSyncWorker.cancel(context);
+        LocationUpdates.unregister(context);
     }
 
     // Cancel scheduled time updates
@@ -98,116 +149,131 @@ public class WeatherWidgetProvider extends AppWidgetProvider {
         alarmManager.cancel(pendingIntent);
     }
 
-    private static void updateAppWidget(Context context, AppWidgetManager appWidgetManager, int appWidgetId, WidgetData data) {
+    private static void updateAppWidget(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds, WidgetData data) {
+        push(context, appWidgetManager, appWidgetIds, WidgetFields.of(data, false));
+    }
+
+    static RemoteViews buildViews(Context context, WidgetData data) {
+        return fullViews(context, WidgetFields.of(data, false));
+    }
+
+    private static RemoteViews fullViews(Context context, WidgetFields fields) {
         RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.weather_widget);
-        if (data == null) {
-            views.setTextViewText(R.id.txtQuip, "OverCast");
-            views.setTextViewText(R.id.txtTemp, "--°C");
-            views.setTextViewText(R.id.txtPrec, "Prec: --");
-            views.setTextViewText(R.id.txtHum, "Hum: --");
-            views.setTextViewText(R.id.txtUv, "UV: --");
-            views.setTextViewText(R.id.txtStatus, "Updating…");
+        fields.applyTo(views, null);
+        PendingIntent pi;
+        if (fields.openApp) {
+            // Launch a small native activity that requests location permission and fetches a location
+            Intent openIntent = new Intent(context, NativeLocationActivity.class);
+            openIntent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
+            pi = PendingIntent.getActivity(
+                    context,
+                    0,
+                    openIntent,
+                    Build.VERSION.SDK_INT >= 31 ? PendingIntent.FLAG_IMMUTABLE : 0
+            );
         } else {
-            views.setTextViewText(R.id.txtQuip, data.quip);
-            views.setTextViewText(R.id.txtTemp, data.temp);
-            // data.location is "Prec: X | Hum: Y | UV: Z" -- try to split into parts
-            String loc = data.location != null ? data.location : "";
-            String prec = "Prec: --";
-            String hum = "Hum: --";
-            String uv = "UV: --";
-            try {
-                String[] parts = loc.split("\\|");
-                if (parts.length >= 1) prec = parts[0].trim();
-                if (parts.length >= 2) hum = parts[1].trim();
-                if (parts.length >= 3) uv = parts[2].trim();
-            } catch (Throwable ignored) {}
-            views.setTextViewText(R.id.txtPrec, prec);
-            views.setTextViewText(R.id.txtHum, hum);
-            views.setTextViewText(R.id.txtUv, uv);
-            views.setTextViewText(R.id.txtStatus, data.status);
+            Intent refreshIntent = new Intent(context, WeatherWidgetProvider.class);
+            refreshIntent.setAction(ACTION_REFRESH);
+            refreshIntent.putExtra(EXTRA_FROM_TAP, true);
+            pi = PendingIntent.getBroadcast(
+                    context,
+                    0,
+                    refreshIntent,
+                    Build.VERSION.SDK_INT >= 31 ? PendingIntent.FLAG_IMMUTABLE : 0
+            );
+        }
+        views.setOnClickPendingIntent(R.id.widget_root, pi);
+        return views;
+    }
 
-            // Set solid color backgrounds and HSL-based text color for each stat
-            try {
-                int w = dpToPx(context, 80);
-                int h = dpToPx(context, 32);
-
-                // Precipitation: grey if 0, else light blue to pure blue
-                double precipNorm = parsePrecNorm(partsSafe(loc,0));
-                int precipBg = (precipNorm == 0.0) ? 0xFFCCCCCC : lerpColor(0xFFB3E5FC, 0xFF1565C0, precipNorm);
-                android.graphics.Bitmap precipBmp = makeSolidBitmap(w, h, precipBg);
-                views.setImageViewBitmap(R.id.bg_precip, precipBmp);
-
-                // Humidity: white to blue by percent
-                double humNorm = parsePercentNorm(partsSafe(loc,1));
-                int humBg = lerpColor(0xFFFFFFFF, 0xFF2196F3, humNorm);
-                android.graphics.Bitmap humBmp = makeSolidBitmap(w, h, humBg);
-                views.setImageViewBitmap(R.id.bg_humidity, humBmp);
-
-                // UV: green (0-3), yellow (4-6), red (7+)
-                double uvVal = parseUvValue(partsSafe(loc,2));
-                int uvBg;
-                if (uvVal <= 3.0) uvBg = 0xFF66BB6A; // green
-                else if (uvVal <= 6.0) uvBg = 0xFFFFEB3B; // yellow
-                else uvBg = 0xFFF44336; // red
-                android.graphics.Bitmap uvBmp = makeSolidBitmap(w, h, uvBg);
-                views.setImageViewBitmap(R.id.bg_uv, uvBmp);
-
-                // Set text color using HSL, 0.6x brightness
-                int precipText = hslColor(precipBg, 0.6f);
-                int humText = hslColor(humBg, 0.6f);
-                int uvText = hslColor(uvBg, 0.6f);
-                views.setTextColor(R.id.txtPrec, precipText);
-                views.setTextColor(R.id.txtHum, humText);
-                views.setTextColor(R.id.txtUv, uvText);
-            } catch (Throwable ignored) {}
+    // Send fields to each widget: a full update for ids we have not sent anything yet (or whose click target
+    // changes), otherwise a partial update carrying only the fields that differ from what the id last got
+    private static void push(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds, WidgetFields fields) {
+        long start = WidgetMetrics.begin(PipelineMetrics.RENDER);
+        try {
+            pushFields(context, appWidgetManager, appWidgetIds, fields);
+        } finally {
+            WidgetMetrics.end(PipelineMetrics.RENDER, start);
         }
+    }
 
-        Intent refreshIntent = new Intent(context, WeatherWidgetProvider.class);
-        refreshIntent.setAction(ACTION_REFRESH);
-        PendingIntent pi = PendingIntent.getBroadcast(
-                context,
-                0,
-                refreshIntent,
-                Build.VERSION.SDK_INT >= 31 ? PendingIntent.FLAG_IMMUTABLE : 0
-        );
-        views.setOnClickPendingIntent(R.id.widget_root, pi);
+    private static void pushFields(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds, WidgetFields fields) {
+        synchronized (PUSHED) {
+            java.util.List<Integer> full = new java.util.ArrayList<>();
+            Map<WidgetFields, java.util.List<Integer>> partial = new java.util.IdentityHashMap<>();
+            for (int id : appWidgetIds) {
+                WidgetFields prev = PUSHED.get(id);
+                if (prev == null || prev.openApp != fields.openApp) {
+                    full.add(id);
+                } else if (!fields.sameContentAs(prev)) {
+                    java.util.List<Integer> group = partial.get(prev);
+                    if (group == null) partial.put(prev, group = new java.util.ArrayList<>());
+                    group.add(id);
+                }
+                PUSHED.put(id, fields);
+            }
+            if (!full.isEmpty()) appWidgetManager.updateAppWidget(toArray(full), fullViews(context, fields));
+            for (Map.Entry<WidgetFields, java.util.List<Integer>> e : partial.entrySet()) {
+                RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.weather_widget);
+                fields.applyTo(views, e.getKey());
+                appWidgetManager.partiallyUpdateAppWidget(toArray(e.getValue()), views);
+            }
+        }
+    }
 
-        appWidgetManager.updateAppWidget(appWidgetId, views);
+    private static void forget(int[] appWidgetIds) {
+        synchronized (PUSHED) {
+            for (int id : appWidgetIds) PUSHED.remove(id);
+        }
     }
 
-    // Update only the timestamp in the status text without fetching new data
-    private static void updateTimestampOnly(Context context, AppWidgetManager appWidgetManager, int appWidgetId) {
-        SharedPreferences prefs = context.getSharedPreferences("weather_widget_prefs", Context.MODE_PRIVATE);
-        
-        // Get last cached weather data
-        String cachedQuip = prefs.getString("widget_cached_quip", "OverCast");
-        String cachedTemp = prefs.getString("widget_cached_temp", "--°C");
-        String cachedLocation = prefs.getString("widget_cached_location", "Prec: -- | Hum: -- | UV: --");
-        
-        // Calculate current status with updated timestamp
-        long fetchTs = prefs.getLong("widget_last_fetch_time", 0L);
-        long savedLocationTs = prefs.getLong("widget_loc_time", 0L);
-        
-        String status;
-        if (fetchTs <= 0) {
-            status = "Open app to grant location";
-        } else {
-            String fetchedLabel = lastFetchedLabel(fetchTs);
-            boolean usingCached = savedLocationTs > 0 && (System.currentTimeMillis() - savedLocationTs > 2L * 60L * 1000L);
-            
-            if (usingCached) {
-                String age = formatAge(savedLocationTs);
-                status = "Using cached location " + age + " — " + fetchedLabel + " — Tap to refresh";
-            } else {
-                status = fetchedLabel + " — Tap to refresh";
+    private static int[] toArray(java.util.List<Integer> ids) {
+        int[] out = new int[ids.size()];
+        for (int i = 0; i < out.length; i++) out[i] = ids.get(i);
+        return out;
+    }
+
+    // Last known data for an immediate paint, with a status marking it as being updated. Null (the plain
+    // placeholder) when nothing was ever fetched
+    static WidgetData firstPaintData(Context context, long now) {
+        RenderSnapshot snap = RenderSnapshot.get(context);
+        if (snap.fetchTs <= 0) return null;
+        TimelineCache tl = TimelineCache.get(context);
+        return rolledForward(context, snap, tl != null ? tl.timeline : null, now, staleStatus(snap.fetchTs, now));
+    }
+
+    // Push only the status text; the launcher keeps the rest of the last full update. The ticked status is
+    // recorded as pushed, so the next pass diffs against what is really on screen. Ids showing the location
+    // prompt keep it
+    private static void updateStatusOnly(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
+        long start = WidgetMetrics.begin(PipelineMetrics.RENDER);
+        try {
+            RenderSnapshot snap = RenderSnapshot.get(context);
+            long now = System.currentTimeMillis();
+            String reason = failureReason;
+            String status = reason == null ? snap.status(now)
+                    : snap.fetchTs <= 0 ? reason : reason + " — " + lastFetchedLabel(snap.fetchTs, now);
+            java.util.List<Integer> ticked = new java.util.ArrayList<>();
+            synchronized (PUSHED) {
+                for (int id : appWidgetIds) {
+                    WidgetFields prev = PUSHED.get(id);
+                    if (prev != null && prev.openApp) continue;
+                    if (prev != null) PUSHED.put(id, prev.withStatus(status));
+                    ticked.add(id);
+                }
             }
+            if (ticked.isEmpty()) return;
+            RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.weather_widget);
+            views.setTextViewText(R.id.txtStatus, status);
+            appWidgetManager.partiallyUpdateAppWidget(toArray(ticked), views);
+        } finally {
+            WidgetMetrics.end(PipelineMetrics.RENDER, start);
         }
-        
-        WidgetData data = new WidgetData(cachedQuip, cachedTemp, cachedLocation, status);
-        updateAppWidget(context, appWidgetManager, appWidgetId, data);
     }
 
-    // Schedule periodic updates for timestamp display only
+    // Schedule the next status tick for when the label text actually changes (seconds, minutes, hours as in
+    // formatAge). The alarm is non-wakeup: while the screen is off it waits for the device to wake anyway, and
+    // once the label settles on a fixed time there is no alarm at all
     private static void scheduleTimeUpdates(Context context) {
         AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
         if (alarmManager == null) return;
@@ -224,386 +290,324 @@ public class WeatherWidgetProvider extends AppWidgetProvider {
 
         // Cancel any existing alarm
         alarmManager.cancel(pendingIntent);
-        
-        // Schedule an exact one-shot alarm ~10 seconds from now. We reschedule after each run
-        long intervalMillis = 10 * 1000L; // 10 seconds
-        long triggerAtMillis = System.currentTimeMillis() + intervalMillis;
 
-        // Cancel any existing scheduled alarm (already done above) then set an exact one-shot
+        RenderSnapshot snap = RenderSnapshot.get(context);
+        long now = System.currentTimeMillis();
+        long triggerAtMillis = nextStatusChange(snap.fetchTs, snap.locTs, now);
+        // Also wake up (non-wakeup alarm) at the next hour while the stored forecast still covers it
+        TimelineCache tl = TimelineCache.get(context);
+        if (tl != null && now < tl.timeline.endMillis()) {
+            triggerAtMillis = Math.min(triggerAtMillis, (HourlyTimeline.hourOf(now) + 1) * 3_600_000L);
+        }
+        if (triggerAtMillis == Long.MAX_VALUE) return;
+
+        WidgetMetrics.count(PipelineMetrics.ALARMS);
         try {
-            if (Build.VERSION.SDK_INT >= 23) {
-                // Use allowWhileIdle on newer devices to improve delivery while idle
-                alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerAtMillis, pendingIntent);
-            } else if (Build.VERSION.SDK_INT >= 19) {
-                alarmManager.setExact(AlarmManager.RTC_WAKEUP, triggerAtMillis, pendingIntent);
-            } else {
-                alarmManager.set(AlarmManager.RTC_WAKEUP, triggerAtMillis, pendingIntent);
-            }
+            alarmManager.setWindow(AlarmManager.RTC, triggerAtMillis, TICK_WINDOW_MS, pendingIntent);
         } catch (Exception e) {
-            // Fallback to inexact scheduling if exact fails
             alarmManager.set(AlarmManager.RTC, triggerAtMillis, pendingIntent);
         }
     }
 
-    private static void fetchAndUpdate(Context context, AppWidgetManager appWidgetManager, int appWidgetId) {
-        EXEC.submit(() -> {
-            try {
-                // Attempt to hit the same server the app uses. If CAP_SERVER_URL is set during packaging,
-                // you can bake it into the manifest metadata or hardcode it here if needed.
-                String server = "https://weather.oreostack.uk";
-                double lat = 0;
-                double lon = 0;
-                boolean hasLocation = false;
-
-                boolean usingCached = false;
-                long savedTs = 0L;
-                // Prefer an explicit saved location (from NativeLocationActivity). Use it even if slightly stale
-                try {
-                    SharedPreferences prefs = context.getSharedPreferences("weather_widget_prefs", Context.MODE_PRIVATE);
-                    boolean prefHas = prefs.getBoolean("widget_has_location", false);
-                    long ts = prefs.getLong("widget_loc_time", 0L);
-                    savedTs = ts;
-                    if (prefHas && ts > 0) {
-                        lat = prefs.getFloat("widget_lat", 0f);
-                        lon = prefs.getFloat("widget_lon", 0f);
-                        hasLocation = true;
-                        // mark as cached if older than 2 minutes (useful indicator)
-                        if (System.currentTimeMillis() - ts > 2L * 60L * 1000L) {
-                            usingCached = true;
-                        }
-                    }
-                } catch (Throwable ignored) {}
-
-                // If no saved pref location, fall back to last-known providers (if permitted)
-                if (!hasLocation) {
-                    double[] nativeLoc = tryGetLastKnownLocation(context);
-                    if (nativeLoc != null) {
-                        lat = nativeLoc[0];
-                        lon = nativeLoc[1];
-                        hasLocation = true;
-                    }
-                }
-
-                if (!hasLocation) {
-                    WidgetData data = new WidgetData("OverCast", "--°C", "Prec: -- | Hum: -- | UV: --", "Open app to grant location");
-                    // Open the native location activity which will request permission and obtain a location
-                    updateAppWidgetOpenApp(context, appWidgetManager, appWidgetId, data);
-                    return;
-                }
-                URL url = new URL(server + "/api?lat=" + lat + "&lon=" + lon);
-                HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-                conn.setConnectTimeout(4000);
-                conn.setReadTimeout(4000);
-                int code = conn.getResponseCode();
-                BufferedReader br = new BufferedReader(new InputStreamReader(
-                        code >= 200 && code < 300 ? conn.getInputStream() : conn.getErrorStream()
-                ));
-                StringBuilder sb = new StringBuilder();
-                String line;
-                while ((line = br.readLine()) != null) sb.append(line);
-                br.close();
-                if (code >= 200 && code < 300) {
-                    JSONObject root = new JSONObject(sb.toString());
-                    JSONObject weather = root.optJSONObject("weather");
-                    JSONObject cur = weather != null ? weather.optJSONObject("current") : null;
-                    String quip = root.optString("weather_quip", "");
-                    String temp = cur != null ? (cur.opt("temp_c") + "°C") : "--°C";
-                    String details = buildDetailsFromCurrent(cur);
-                    
-                    // record fetch time so the widget can show when data was last fetched
-                    SharedPreferences prefs = context.getSharedPreferences("weather_widget_prefs", Context.MODE_PRIVATE);
-                    long fetchTs = System.currentTimeMillis();
-                    SharedPreferences.Editor editor = prefs.edit();
-                    try { 
-                        editor.putLong("widget_last_fetch_time", fetchTs);
-                        // Cache the weather data for timestamp-only updates
-                        editor.putString("widget_cached_quip", quip.isEmpty() ? "OverCast" : quip);
-                        editor.putString("widget_cached_temp", temp);
-                        editor.putString("widget_cached_location", details);
-                        editor.apply(); 
-                    } catch (Throwable ignored) {}
-
-                    String status;
-                    String fetchedLabel = lastFetchedLabel(fetchTs);
-                    if (usingCached) {
-                        String age = formatAge(savedTs);
-                        status = "Using cached location " + age + " — " + fetchedLabel + " — Tap to refresh";
-                    } else {
-                        status = fetchedLabel + " — Tap to refresh";
-                    }
-                    WidgetData data = new WidgetData(quip.isEmpty() ? "OverCast" : quip, temp, details, status);
-                    updateAppWidget(context, appWidgetManager, appWidgetId, data);
-                } else {
-                    String st = hasLocation ? ("Error " + code) : "Open app to set location";
-                    if (!hasLocation) st = "Open app to grant location";
-                    // append last fetched time if available
-                    try {
-                        SharedPreferences prefs = context.getSharedPreferences("weather_widget_prefs", Context.MODE_PRIVATE);
-                        long last = prefs.getLong("widget_last_fetch_time", 0L);
-                        if (last > 0) st = st + " — " + lastFetchedLabel(last);
-                    } catch (Throwable ignored) {}
-                    WidgetData data = new WidgetData("OverCast", "--°C", "Prec: -- | Hum: -- | UV: --", st);
-                    if (hasLocation) {
-                        updateAppWidget(context, appWidgetManager, appWidgetId, data);
-                    } else {
-                        updateAppWidgetOpenApp(context, appWidgetManager, appWidgetId, data);
-                    }
-                }
-            } catch (Exception e) {
-                String st = "Offline";
-                try {
-                    SharedPreferences prefs = context.getSharedPreferences("weather_widget_prefs", Context.MODE_PRIVATE);
-                    long last = prefs.getLong("widget_last_fetch_time", 0L);
-                    if (last > 0) st = st + " — " + lastFetchedLabel(last);
-                } catch (Throwable ignored) {}
-                WidgetData data = new WidgetData("OverCast", "--°C", "Prec: -- | Hum: -- | UV: --", st);
-                updateAppWidget(context, appWidgetManager, appWidgetId, data);
+    // Queue one refresh pass for every widget instance. A pass still queued is replaced by the newer one; a pass
+    // running for another location bucket is cancelled, its fetch aborted, as its result is already stale; one
+    // for the same bucket finishes and the new pass runs after it. onDone (may be null; receivers pass their
+    // goAsync() result's finish) runs once when the pass ends, is dropped, or hits the deadline
+    static void requestRefresh(Context context, boolean fromTap, Runnable onDone) {
+        GATE.trigger(fromTap);
+        Context app = context.getApplicationContext();
+        String target = "none";
+        try {
+            StateStore.Snapshot prefs = WidgetState.snapshot(app);
+            if (prefs.getBoolean("widget_has_location", false)) {
+                target = WidgetHttpCache.bucketKey(prefs.getFloat("widget_lat", 0f), prefs.getFloat("widget_lon", 0f));
             }
-        });
+        } catch (Throwable ignored) {}
+        SCHEDULER.submit("refresh", target, REFRESH_DEADLINE_MS,
+                c -> {
+                    fetchAndUpdate(app, GATE.beginPass(), c);
+                    WidgetMetrics.save(app);
+                }, onDone);
+        long[] s = SCHEDULER.stats();
+        Log.i(TAG, "refresh queued for " + target + "; submitted=" + s[0] + " superseded=" + s[2]
+                + " cancelled=" + s[3] + " expired=" + s[4] + " depth=" + s[5] + " maxWaitMs=" + s[8]);
     }
 
-    // Open app when user taps the widget (used when location missing/permissions needed)
-    private static void updateAppWidgetOpenApp(Context context, AppWidgetManager appWidgetManager, int appWidgetId, WidgetData data) {
-        RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.weather_widget);
-        if (data == null) {
-            views.setTextViewText(R.id.txtQuip, "OverCast");
-            views.setTextViewText(R.id.txtTemp, "--°C");
-            views.setTextViewText(R.id.txtPrec, "Prec: --");
-            views.setTextViewText(R.id.txtHum, "Hum: --");
-            views.setTextViewText(R.id.txtUv, "UV: --");
-            views.setTextViewText(R.id.txtStatus, "Open app to set location");
-        } else {
-            views.setTextViewText(R.id.txtQuip, data.quip);
-            views.setTextViewText(R.id.txtTemp, data.temp);
-            String loc = data.location != null ? data.location : "";
-            String prec = "Prec: --";
-            String hum = "Hum: --";
-            String uv = "UV: --";
+    // The web app stored a payload for the widget's bucket: paint it from the disk. Unlike a tap, this pass never
+    // goes to the network, so the breaker and the fetch throttle have nothing to say about it
+    static void paintStored(Context context) {
+        Context app = context.getApplicationContext();
+        StateStore.Snapshot prefs = WidgetState.snapshot(app);
+        if (!prefs.getBoolean("widget_has_location", false)) return;
+        double lat = prefs.getFloat("widget_lat", 0f);
+        double lon = prefs.getFloat("widget_lon", 0f);
+        long savedTs = prefs.getLong("widget_loc_time", 0L);
+        String key = WidgetHttpCache.bucketKey(lat, lon);
+        SCHEDULER.submit("stored", key, REFRESH_DEADLINE_MS, c -> {
+            AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(app);
+            int[] appWidgetIds = appWidgetManager.getAppWidgetIds(new ComponentName(app, WeatherWidgetProvider.class));
+            if (appWidgetIds.length == 0 || c.isCancelled()) return;
+            WidgetHttpCache cache = WidgetHttpCache.get(app);
+            WidgetHttpCache.Entry e = cache.peek(key, System.currentTimeMillis());
+            // Gone or already stale: the next ordinary pass deals with it
+            if (e == null || !e.fresh) return;
             try {
-                String[] parts = loc.split("\\|");
-                if (parts.length >= 1) prec = parts[0].trim();
-                if (parts.length >= 2) hum = parts[1].trim();
-                if (parts.length >= 3) uv = parts[2].trim();
-            } catch (Throwable ignored) {}
-            views.setTextViewText(R.id.txtPrec, prec);
-            views.setTextViewText(R.id.txtHum, hum);
-            views.setTextViewText(R.id.txtUv, uv);
-            views.setTextViewText(R.id.txtStatus, data.status);
-        }
-    // Launch a small native activity that requests location permission and fetches a location
-    Intent openIntent = new Intent(context, NativeLocationActivity.class);
-        openIntent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
-        PendingIntent pi = PendingIntent.getActivity(
-                context,
-                0,
-                openIntent,
-                Build.VERSION.SDK_INT >= 31 ? PendingIntent.FLAG_IMMUTABLE : 0
-        );
-        views.setOnClickPendingIntent(R.id.widget_root, pi);
-        appWidgetManager.updateAppWidget(appWidgetId, views);
-    }
-
-    private static String buildDetailsFromCurrent(JSONObject cur) {
-        try {
-            if (cur == null) return "Prec: -- | Hum: -- | UV: --";
-            // Humidity
-            String humStr = "--";
-            if (cur.has("humidity") && !cur.isNull("humidity")) {
-                humStr = String.valueOf(cur.optInt("humidity"));
-                if (!"--".equals(humStr)) humStr += "%";
-            }
-
-            // UV
-            String uvStr = "--";
-            if (cur.has("uv") && !cur.isNull("uv")) {
-                Object uv = cur.opt("uv");
-                uvStr = String.valueOf(uv);
-            }
-
-            // Precipitation: prefer percent fields, fall back to precip_mm
-            String precStr = extractRainChancePercent(cur);
-            if (precStr == null) {
-                if (cur.has("precip_mm") && !cur.isNull("precip_mm")) {
-                    precStr = cur.opt("precip_mm") + " mm";
-                } else {
-                    precStr = "--";
-                }
+                paintPayload(app, appWidgetManager, appWidgetIds, cache, key, new WidgetHttpCache.Response(200, e.body, true),
+                        lat, lon, savedTs);
+            } catch (Exception ex) {
+                Log.w(TAG, "stored payload not painted", ex);
             }
+        }, null);
+    }
 
-            return "Prec: " + precStr + " | Hum: " + humStr + " | UV: " + uvStr;
-        } catch (Exception e) {
-            return "Prec: -- | Hum: -- | UV: --";
+    /**
+     * Drop everything the widget keeps in memory, as the process dying would: the state store, the render and
+     * forecast copies, the refresh and retry bookkeeping, and the API client. Files and WorkManager's jobs stay.
+     */
+    static void forgetProcess() {
+        WidgetState.forget();
+        TimelineCache.forget();
+        RenderSnapshot.set(null);
+        WidgetHttpCache.forget();
+        FetchRecovery.forget();
+        WidgetApiClient.forget();
+        GATE.reset();
+        synchronized (PUSHED) {
+            PUSHED.clear();
         }
+        renderedHour = -1L;
+        tappedAt = 0L;
+        failureReason = null;
     }
 
-    // Helpers for widget background gradients and parsing
-    private static String partsSafe(String loc, int idx) {
-        try {
-            if (loc == null) return "";
-            String[] p = loc.split("\\|");
-            if (idx < p.length) return p[idx].trim();
-        } catch (Throwable ignored) {}
-        return "";
+    /** True when no refresh pass is queued or running. */
+    static boolean refreshIdle() {
+        return SCHEDULER.idle();
     }
 
-    private static double parsePrecNorm(String s) {
-        try {
-            if (s == null) return 0.0;
-            // strip non-digits except dot
-            java.lang.String t = s.replaceAll("[^0-9.]", "");
-            if (t.isEmpty()) return 0.0;
-            double v = Double.parseDouble(t);
-            // if looks like percent (0-100), convert; else assume mm and normalize against 50mm
-            if (s.contains("%")) return Math.min(1.0, v / 100.0);
-            return Math.min(1.0, v / 50.0);
-        } catch (Throwable ignored) { return 0.0; }
+    // A tap: fetch for the saved location at once and ask for a fresh fix alongside, rather than waiting for the
+    // fix first. The fix only costs a second pass if it lands in another bucket, and that pass cancels the first
+    static void tapRefresh(Context context, Runnable onDone) {
+        Context app = context.getApplicationContext();
+        tappedAt = SystemClock.elapsedRealtime();
+        // Only the first pass holds the receiver open; a refetch for the fix does not
+        AtomicReference<Runnable> hold = new AtomicReference<>(onDone);
+        SpeculativeFetch spec = new SpeculativeFetch((lat, lon) -> requestRefresh(app, true, hold.getAndSet(null)));
+        StateStore.Snapshot prefs = WidgetState.snapshot(app);
+        if (!spec.begin(prefs.getFloat("widget_lat", 0f), prefs.getFloat("widget_lon", 0f),
+                prefs.getBoolean("widget_has_location", false))) {
+            // Nothing saved: the pass falls back to the platform's last known location or asks to open the app
+            requestRefresh(app, true, hold.getAndSet(null));
+        }
+        if (LocationUpdates.hasPermission(app)) {
+            LocationUpdates.freshFix(app, LocationPolicy.PRIORITY_BALANCED_POWER_ACCURACY, spec, null);
+        }
     }
 
-    private static double parsePercentNorm(String s) {
+    private static void fetchAndUpdate(Context context, boolean fromTap, TaskScheduler.Cancellation cancel) {
+        AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
+        int[] appWidgetIds = appWidgetManager.getAppWidgetIds(new ComponentName(context, WeatherWidgetProvider.class));
+        if (appWidgetIds.length == 0) return;
+        WidgetMetrics.count(PipelineMetrics.PASSES);
         try {
-            if (s == null) return 0.0;
-            java.lang.String t = s.replaceAll("[^0-9.]", "");
-            if (t.isEmpty()) return 0.0;
-            double v = Double.parseDouble(t);
-            return Math.min(1.0, v / 100.0);
-        } catch (Throwable ignored) { return 0.0; }
-    }
+            double lat = 0;
+            double lon = 0;
+            boolean hasLocation = false;
 
-    private static double parseUvValue(String s) {
-        try {
-            if (s == null) return 0.0;
-            java.lang.String t = s.replaceAll("[^0-9.]", "");
-            if (t.isEmpty()) return 0.0;
-            return Double.parseDouble(t);
-        } catch (Throwable ignored) { return 0.0; }
-    }
+            long savedTs = 0L;
+            long locStart = WidgetMetrics.begin(PipelineMetrics.LOCATION);
+            // Prefer an explicit saved location (from NativeLocationActivity). Use it even if slightly stale
+            try {
+                StateStore.Snapshot prefs = WidgetState.snapshot(context);
+                boolean prefHas = prefs.getBoolean("widget_has_location", false);
+                long ts = prefs.getLong("widget_loc_time", 0L);
+                if (prefHas && ts > 0) {
+                    lat = prefs.getFloat("widget_lat", 0f);
+                    lon = prefs.getFloat("widget_lon", 0f);
+                    hasLocation = true;
+                    savedTs = ts;
+                }
+            } catch (Throwable ignored) {}
 
-    private static int dpToPx(Context ctx, int dp) {
-        float scale = ctx.getResources().getDisplayMetrics().density;
-        return (int)(dp * scale + 0.5f);
-    }
+            // If no saved pref location, fall back to last-known providers (if permitted)
+            if (!hasLocation) {
+                double[] nativeLoc = tryGetLastKnownLocation(context);
+                if (nativeLoc != null) {
+                    lat = nativeLoc[0];
+                    lon = nativeLoc[1];
+                    hasLocation = true;
+                }
+            }
+            WidgetMetrics.end(PipelineMetrics.LOCATION, locStart);
 
-    // Make a solid color bitmap for stat backgrounds
-    private static android.graphics.Bitmap makeSolidBitmap(int w, int h, int color) {
-        try {
-            android.graphics.Bitmap bmp = android.graphics.Bitmap.createBitmap(w, h, android.graphics.Bitmap.Config.ARGB_8888);
-            android.graphics.Canvas canvas = new android.graphics.Canvas(bmp);
-            android.graphics.Paint paint = new android.graphics.Paint();
-            paint.setColor(color);
-            paint.setAntiAlias(true);
-            canvas.drawRoundRect(0, 0, w, h, h/2f, h/2f, paint);
-            return bmp;
-        } catch (Throwable t) {
-            return android.graphics.Bitmap.createBitmap(1,1, android.graphics.Bitmap.Config.ARGB_8888);
+            if (!hasLocation) {
+                WidgetData data = new WidgetData("OverCast", WeatherStats.EMPTY, "Open app to grant location");
+                // Open the native location activity which will request permission and obtain a location
+                updateAppWidgetOpenApp(context, appWidgetManager, appWidgetIds, data);
+                return;
+            }
+            // Conditional, gzip'd fetch through the on-disk cache; fresh entries are served without the network
+            String cacheKey = WidgetHttpCache.bucketKey(lat, lon);
+            long now = System.currentTimeMillis();
+            RenderSnapshot shown = RenderSnapshot.get(context);
+            HourlyTimeline timeline = TimelineCache.get(context, cacheKey);
+            if (!fromTap && shown.fetchTs > 0 && timeline != null && !timeline.needsFetch(now)) {
+                // Same bucket and the stored forecast still has hours ahead: roll it forward without the network
+                failureReason = null;
+                updateAppWidget(context, appWidgetManager, appWidgetIds, rolledForward(context, shown, timeline, now, shown.status(now)));
+                renderedHour = HourlyTimeline.hourOf(now);
+                return;
+            }
+            if (!GATE.shouldFetch(cacheKey, now)) {
+                // Fetched this bucket moments ago: repaint that result (covers newly added widgets) instead
+                WidgetData data = new WidgetData(shown.quip, shown.stats, shown.status(now));
+                failureReason = null;
+                updateAppWidget(context, appWidgetManager, appWidgetIds, data);
+                renderedHour = HourlyTimeline.hourOf(now);
+                return;
+            }
+            if (!FetchRecovery.allow(context, now, fromTap)) {
+                // The server kept failing: leave it alone until the breaker's trial, which is already scheduled
+                updateAppWidget(context, appWidgetManager, appWidgetIds, failureData(context, "Offline", now));
+                return;
+            }
+            WidgetHttpCache cache = WidgetHttpCache.get(context);
+            // Over the configured endpoints, hedged and with a deadline (see WidgetApiClient)
+            WidgetHttpCache.Response resp = WidgetApiClient.get().fetch(cache, cacheKey, lat, lon, cancel);
+            // Superseded or out of time: the pass that replaced this one paints
+            if (cancel.isCancelled()) return;
+            int code = resp.code;
+            if (code >= 200 && code < 300) {
+                paintPayload(context, appWidgetManager, appWidgetIds, cache, cacheKey, resp, lat, lon, savedTs);
+                FetchRecovery.succeeded(context);
+                long tap = tappedAt;
+                if (fromTap && tap > 0) {
+                    tappedAt = 0L;
+                    Log.i(TAG, "tap to data " + (SystemClock.elapsedRealtime() - tap) + " ms" + (resp.fromCache ? " (cached)" : ""));
+                }
+            } else {
+                // Overloaded or failing server: retry later. Other errors will not go away by retrying
+                if (code >= 500 || code == 429) {
+                    WidgetMetrics.count(PipelineMetrics.FAILURES);
+                    FetchRecovery.failed(context, now);
+                } else {
+                    FetchRecovery.succeeded(context);
+                }
+                updateAppWidget(context, appWidgetManager, appWidgetIds, failureData(context, "Error " + code, now));
+            }
+        } catch (Exception e) {
+            // An aborted fetch is not an outage
+            if (cancel.isCancelled()) return;
+            long now = System.currentTimeMillis();
+            WidgetMetrics.count(PipelineMetrics.FAILURES);
+            FetchRecovery.failed(context, now);
+            updateAppWidget(context, appWidgetManager, appWidgetIds, failureData(context, "Offline", now));
         }
     }
 
-    // Convert ARGB color to HSL, scale brightness, and return ARGB
-    private static int hslColor(int argb, float brightnessScale) {
-        float[] hsl = new float[3];
-        int r = (argb >> 16) & 0xFF;
-        int g = (argb >> 8) & 0xFF;
-        int b = argb & 0xFF;
-        rgbToHsl(r, g, b, hsl);
-        hsl[2] = Math.max(0f, Math.min(1f, hsl[2] * brightnessScale));
-        return hslToColor(hsl);
-    }
-
-    // Helper: RGB to HSL
-    private static void rgbToHsl(int r, int g, int b, float[] hsl) {
-        float rf = r / 255f, gf = g / 255f, bf = b / 255f;
-        float max = Math.max(rf, Math.max(gf, bf));
-        float min = Math.min(rf, Math.min(gf, bf));
-        float h, s, l = (max + min) / 2f;
-        if (max == min) {
-            h = s = 0f;
-        } else {
-            float d = max - min;
-            s = l > 0.5f ? d / (2f - max - min) : d / (max + min);
-            if (max == rf) h = (gf - bf) / d + (gf < bf ? 6f : 0f);
-            else if (max == gf) h = (bf - rf) / d + 2f;
-            else h = (rf - gf) / d + 4f;
-            h /= 6f;
+    // Paint a successful response (from the network or the disk) and make it the shown snapshot
+    private static void paintPayload(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds,
+            WidgetHttpCache cache, String cacheKey, WidgetHttpCache.Response resp, double lat, double lon, long savedTs)
+            throws Exception {
+        // Stream only the fields we render instead of buffering the whole forecast into a JSONObject tree
+        WidgetPayload payload;
+        long parseStart = WidgetMetrics.begin(PipelineMetrics.PARSE);
+        try (Reader in = resp.openBody()) {
+            payload = WidgetPayloadParser.parse(in);
+        } catch (Exception parseErr) {
+            cache.invalidate(cacheKey);
+            throw parseErr;
+        } finally {
+            WidgetMetrics.end(PipelineMetrics.PARSE, parseStart);
         }
-        hsl[0] = h;
-        hsl[1] = s;
-        hsl[2] = l;
-    }
-
-    // Helper: HSL to ARGB
-    private static int hslToColor(float[] hsl) {
-        float h = hsl[0], s = hsl[1], l = hsl[2];
-        float r, g, b;
-        if (s == 0f) {
-            r = g = b = l;
-        } else {
-            float q = l < 0.5f ? l * (1f + s) : l + s - l * s;
-            float p = 2f * l - q;
-            r = hue2rgb(p, q, h + 1f/3f);
-            g = hue2rgb(p, q, h);
-            b = hue2rgb(p, q, h - 1f/3f);
+        if (!resp.fromCache) cache.commit(cacheKey, payload.cacheAge);
+        // record fetch time so the widget can show when data was last fetched
+        long fetchTs = System.currentTimeMillis();
+        WidgetPayload.Current cur = payload.current;
+        // Picked on the device, the way the server would, when the payload carries none
+        String quip = payload.quip.isEmpty() ? OfflineQuips.forCurrent(context, cur, lat, lon, fetchTs) : payload.quip;
+        // Labels, numbers and pill colours worked out once here; renders just copy them
+        WeatherStats stats = WeatherStats.fromCurrent(cur);
+
+        // Plan the periodic sync for when this forecast runs low, phased to when the server has newer data
+        if (!resp.fromCache) {
+            WidgetSyncWorker.fetched(context, fetchTs, payload.cacheAge,
+                    payload.hourly != null ? payload.hourly.refetchAtMillis() : fetchTs);
         }
-        return 0xFF000000 | ((int)(r * 255) << 16) | ((int)(g * 255) << 8) | (int)(b * 255);
-    }
-    private static float hue2rgb(float p, float q, float t) {
-        if (t < 0f) t += 1f;
-        if (t > 1f) t -= 1f;
-        if (t < 1f/6f) return p + (q - p) * 6f * t;
-        if (t < 1f/2f) return q;
-        if (t < 2f/3f) return p + (q - p) * (2f/3f - t) * 6f;
-        return p;
-    }
+        // status flags a saved location older than 2 minutes as cached
+        RenderSnapshot snap = new RenderSnapshot(quip, stats, fetchTs, savedTs, payload.observedAt(fetchTs));
+        RenderSnapshot.set(snap);
+        StateStore.Editor editor = WidgetState.edit(context);
+        try { 
+            editor.putLong("widget_last_fetch_time", fetchTs);
+            // Where that fetch was for, so location fixes can be compared against it
+            editor.putFloat("widget_fetch_lat", (float) lat);
+            editor.putFloat("widget_fetch_lon", (float) lon);
+            // Cache the weather data for timestamp-only updates and cold starts
+            editor.putBytes(RenderSnapshot.KEY, snap.toBytes());
+            editor.remove("widget_cached_quip").remove("widget_cached_temp").remove("widget_cached_location");
+            editor.apply(); 
+        } catch (Throwable ignored) {}
 
-    private static int blendWhiteToBlue(double norm) {
-        int start = 0xFFFFFFFF;
-        int end = 0xFF2B7FFF;
-        return lerpColor(start, end, norm);
+        GATE.fetched(cacheKey, fetchTs);
+        if (payload.hourly != null) TimelineCache.put(context, cacheKey, payload.hourly);
+        String status = snap.status(fetchTs);
+        WidgetData data = new WidgetData(snap.quip, stats, status);
+        failureReason = null;
+        updateAppWidget(context, appWidgetManager, appWidgetIds, data);
+        renderedHour = HourlyTimeline.hourOf(fetchTs);
+        // A new fetch restarts the relative label, so the ticks may need to resume
+        scheduleTimeUpdates(context);
     }
 
-    private static int[] uvColor(double uv) {
-        double t = Math.max(0.0, Math.min(1.0, uv / 11.0));
-        int start = lerpColor(0xFF66BB6A, 0xFFFFEB3B, t); // green->yellow
-        int end = lerpColor(0xFFFFEB3B, 0xFFF44336, t);   // yellow->red
-        return new int[]{ start, end };
+    // What to show while fetches fail: the last data, rolled forward, with the reason and its age in the status.
+    // Placeholder values only if nothing was ever fetched
+    private static WidgetData failureData(Context context, String reason, long now) {
+        failureReason = reason;
+        RenderSnapshot snap = RenderSnapshot.get(context);
+        if (snap.fetchTs <= 0) return new WidgetData("OverCast", WeatherStats.EMPTY, reason);
+        TimelineCache tl = TimelineCache.get(context);
+        return rolledForward(context, snap, tl != null ? tl.timeline : null, now,
+                reason + " — " + lastFetchedLabel(snap.fetchTs, now));
     }
 
-    private static int lerpColor(int a, int b, double t) {
-        int ia = (a >> 24) & 0xff;
-        int ir = (a >> 16) & 0xff;
-        int ig = (a >> 8) & 0xff;
-        int ib = a & 0xff;
-        int ja = (b >> 24) & 0xff;
-        int jr = (b >> 16) & 0xff;
-        int jg = (b >> 8) & 0xff;
-        int jb = b & 0xff;
-        int aa = (int)(ia + (ja - ia) * t);
-        int rr = (int)(ir + (jr - ir) * t);
-        int gg = (int)(ig + (jg - ig) * t);
-        int bb = (int)(ib + (jb - ib) * t);
-        return ((aa & 0xff) << 24) | ((rr & 0xff) << 16) | ((gg & 0xff) << 8) | (bb & 0xff);
+    // The fetched values, rolled forward to the current hour from the stored forecast. Within the hour of the
+    // fetch the observed current conditions are kept, as they are more accurate than the forecast for that hour.
+    // Later hours also get a quip for their own conditions, picked on the device for where the fetch was. The UV
+    // follows the sun from the fetched values (UvEstimate), so it drops to 0 after sunset even past the forecast
+    private static WidgetData rolledForward(Context context, RenderSnapshot snap, HourlyTimeline timeline, long now,
+                                            String status) {
+        WeatherStats stats = snap.stats;
+        String quip = snap.quip;
+        StateStore.Snapshot prefs = WidgetState.snapshot(context);
+        // Caches from before the fetch position was recorded have nowhere to put the sun
+        boolean located = prefs.contains("widget_fetch_lat");
+        double lat = prefs.getFloat("widget_fetch_lat", 0f);
+        double lon = prefs.getFloat("widget_fetch_lon", 0f);
+        int i = timeline != null ? timeline.indexAt(now) : -1;
+        boolean forecastHour = i >= 0 && HourlyTimeline.hourOf(now) != HourlyTimeline.hourOf(snap.fetchTs);
+        if (forecastHour) {
+            stats = WeatherStats.fromHour(timeline, i);
+            String hourQuip = OfflineQuips.forHour(context, timeline, i, lat, lon, now);
+            if (hourQuip != null) quip = hourQuip;
+        }
+        if (located) {
+            double uv = forecastHour ? UvEstimate.fromTimeline(timeline, lat, lon, now)
+                    : UvEstimate.fromMeasurement(snap.stats.uvIndex, snap.observedAt, lat, lon, now);
+            if (!Double.isNaN(uv)) stats = stats.withUv(uv);
+        }
+        return new WidgetData(quip, stats, status);
     }
 
-    private static String extractRainChancePercent(JSONObject h) {
-        try {
-            if (h == null) return null;
-            // Try a set of common keys used across APIs
-            if (h.has("daily_chance_of_rain") && !h.isNull("daily_chance_of_rain"))
-                return h.optInt("daily_chance_of_rain") + "%";
-            if (h.has("chance_of_rain") && !h.isNull("chance_of_rain"))
-                return h.optInt("chance_of_rain") + "%";
-            if (h.has("chanceofrain") && !h.isNull("chanceofrain"))
-                return h.optInt("chanceofrain") + "%";
-            if (h.has("pop") && !h.isNull("pop")) return h.optInt("pop") + "%";
-            if (h.has("will_it_rain") && !h.isNull("will_it_rain"))
-                return (h.optInt("will_it_rain") != 0 ? 100 : 0) + "%";
-        } catch (Exception ignored) {}
-        return null;
+    // Open app when user taps the widget (used when location missing/permissions needed)
+    private static void updateAppWidgetOpenApp(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds, WidgetData data) {
+        push(context, appWidgetManager, appWidgetIds, WidgetFields.of(data, true));
     }
 
     private static double[] tryGetLastKnownLocation(Context context) {
         try {
-            // Check shared preferences for a recently saved native location first
-            SharedPreferences prefs = context.getSharedPreferences("weather_widget_prefs", Context.MODE_PRIVATE);
+            // Check the widget state for a recently saved native location first
+            StateStore.Snapshot prefs = WidgetState.snapshot(context);
             long ts = prefs.getLong("widget_loc_time", 0);
             long now = System.currentTimeMillis();
             // consider a saved location valid for 15 minutes
@@ -637,53 +641,14 @@ public class WeatherWidgetProvider extends AppWidgetProvider {
         return null;
     }
 
-    private static class WidgetData {
+    static class WidgetData {
         String quip;
-        String temp;
-        String location;
+        WeatherStats stats;
         String status;
-        WidgetData(String quip, String temp, String location, String status) {
+        WidgetData(String quip, WeatherStats stats, String status) {
             this.quip = quip;
-            this.temp = temp;
-            this.location = location;
+            this.stats = stats;
             this.status = status;
         }
     }
-
-    // Format a human readable age like "(5m)" or "(30s)"; returns empty string on error
-    private static String formatAge(long ts) {
-        try {
-            if (ts <= 0) return "";
-            long age = System.currentTimeMillis() - ts;
-            // Treat anything under 9 seconds as "now" per request
-            if (age < 9000L) return "(now)";
-            long secs = age / 1000L;
-            if (secs < 60L) return "(" + secs + "s)";
-            long mins = secs / 60L;
-            if (mins < 60L) return "(" + mins + "m)";
-            long hours = mins / 60L;
-            return "(" + hours + "h)";
-        } catch (Throwable ignored) {
-            return "";
-        }
-    }
-
-    // Return a compact "Last fetched" label using a time or relative age depending on how recent
-    private static String lastFetchedLabel(long ts) {
-        try {
-            if (ts <= 0) return "Last fetched (unknown)";
-            long age = System.currentTimeMillis() - ts;
-            // If very recent, show relative age like (now)/(5s)/(3m)
-            if (age < 60L * 1000L) {
-                String a = formatAge(ts);
-                return "Last fetched " + a;
-            }
-            // Otherwise show a simple time like HH:MM in the device default timezone
-            java.text.SimpleDateFormat fmt = new java.text.SimpleDateFormat("HH:mm");
-            String t = fmt.format(new java.util.Date(ts));
-            return "Last fetched " + t;
-        } catch (Throwable ignored) {
-            return "Last fetched";
-        }
-    }
 }
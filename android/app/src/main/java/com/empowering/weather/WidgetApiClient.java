@@ -0,0 +1,105 @@
+package com.empowering.weather;
+
+import android.util.Log;
+
+import com.empowering.weather.core.EndpointHealth;
+import com.empowering.weather.core.HedgedCall;
+import com.empowering.weather.core.TaskScheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The widget's /api calls over a list of endpoints: CAP_SERVER_URL (comma separated) when set at build time,
+ * otherwise the public server. Endpoints are tried in order of health; a request still unanswered after the
+ * recent p90 latency is also sent to the next endpoint, a failed one fails over at once, and the whole call has a
+ * deadline (see {@link HedgedCall}). Every attempt goes through {@link WidgetHttpCache}, so a fresh entry is
+ * answered from disk before any of this starts.
+ */
+final class WidgetApiClient {
+    private static final String TAG = "WidgetApiClient";
+    static final String DEFAULT_SERVER = "https://weather.oreostack.uk";
+    // Within the refresh pass's own deadline, leaving time to parse and render
+    static final long DEADLINE_MS = 6000L;
+    private static final int ATTEMPT_TIMEOUT_MS = 4000;
+    private static final double HEDGE_QUANTILE = 0.9;
+    private static final long MIN_HEDGE_MS = 300L;
+    private static final long MAX_HEDGE_MS = 2000L;
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "widget-api");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static volatile WidgetApiClient instance;
+
+    private final EndpointHealth health;
+    private final HedgedCall call;
+
+    private WidgetApiClient(List<String> endpoints) {
+        health = new EndpointHealth(endpoints);
+        call = new HedgedCall(health, EXECUTOR, HEDGE_QUANTILE, MIN_HEDGE_MS, MAX_HEDGE_MS);
+    }
+
+    static WidgetApiClient get() {
+        WidgetApiClient c = instance;
+        if (c == null) {
+            synchronized (WidgetApiClient.class) {
+                c = instance;
+                if (c == null) {
+                    c = new WidgetApiClient(endpoints(BuildConfig.CAP_SERVER_URL));
+                    instance = c;
+                }
+            }
+        }
+        return c;
+    }
+
+    /** Replace the endpoints, e.g. with local stand-ins in tests. Health starts over. */
+    static synchronized void use(List<String> endpoints) {
+        instance = new WidgetApiClient(endpoints);
+    }
+
+    /** Drop the client and its endpoint health; the next get starts over from the build's endpoints. */
+    static synchronized void forget() {
+        instance = null;
+    }
+
+    static List<String> endpoints(String configured) {
+        List<String> out = new ArrayList<>();
+        for (String s : configured.split(",")) {
+            String e = s.trim();
+            while (e.endsWith("/")) e = e.substring(0, e.length() - 1);
+            if (!e.isEmpty() && !out.contains(e)) out.add(e);
+        }
+        if (out.isEmpty()) out.add(DEFAULT_SERVER);
+        return out;
+    }
+
+    /**
+     * The payload for lat, lon through the cache under key. Server errors (5xx, 429) move on to the next endpoint;
+     * if every endpoint gives one, the last is returned for the caller to handle.
+     */
+    WidgetHttpCache.Response fetch(WidgetHttpCache cache, String key, double lat, double lon,
+                                   TaskScheduler.Cancellation cancel) throws Exception {
+        String query = "/api?lat=" + lat + "&lon=" + lon;
+        long[] before = call.stats();
+        try {
+            return call.call(
+                    (endpoint, c) -> cache.fetch(endpoint + query, key, ATTEMPT_TIMEOUT_MS, c),
+                    r -> r.code < 500 && r.code != 429,
+                    // A fresh entry or a 304 moved no body, so its time is not the endpoint's latency
+                    r -> !r.fromCache,
+                    DEADLINE_MS, cancel);
+        } finally {
+            long[] s = call.stats();
+            // Only calls that needed more than the first endpoint are worth a line
+            if (s[1] != before[1] || s[3] != before[3] || s[4] != before[4]) {
+                Log.i(TAG, "calls=" + s[0] + " hedges=" + s[1] + " hedgeWins=" + s[2] + " failovers=" + s[3]
+                        + " deadlineMisses=" + s[4] + " order=" + health.ordered(System.currentTimeMillis()));
+            }
+        }
+    }
+}
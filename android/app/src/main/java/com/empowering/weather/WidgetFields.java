@@ -0,0 +1,113 @@
+package com.empowering.weather;
+
+import android.widget.RemoteViews;
+
+import com.empowering.weather.core.WeatherStats;
+
+/**
+ * The values one widget update shows, split per view so consecutive updates can be diffed and only the
+ * changed fields pushed with partiallyUpdateAppWidget.
+ */
+final class WidgetFields {
+    // Layout defaults, used when the pills are not coloured
+    private static final int DEFAULT_BG = 0xFFFFFFFF;
+    private static final int DEFAULT_TEXT = 0xFF111111;
+
+    final String quip;
+    final String temp;
+    final String prec;
+    final String hum;
+    final String uv;
+    final String status;
+    // Click opens the location activity instead of refreshing
+    final boolean openApp;
+    final boolean colored;
+    final int precipBg;
+    final int humBg;
+    final int uvBg;
+    final int precipText;
+    final int humText;
+    final int uvText;
+
+    private WidgetFields(String quip, WeatherStats stats, String status, boolean openApp, boolean colored) {
+        this.quip = quip;
+        this.temp = stats.temp;
+        this.prec = stats.prec;
+        this.hum = stats.hum;
+        this.uv = stats.uv;
+        this.status = status;
+        this.openApp = openApp;
+        this.colored = colored;
+        this.precipBg = colored ? stats.precipBg : DEFAULT_BG;
+        this.humBg = colored ? stats.humBg : DEFAULT_BG;
+        this.uvBg = colored ? stats.uvBg : DEFAULT_BG;
+        this.precipText = colored ? stats.precipText : DEFAULT_TEXT;
+        this.humText = colored ? stats.humText : DEFAULT_TEXT;
+        this.uvText = colored ? stats.uvText : DEFAULT_TEXT;
+    }
+
+    // Copy of other showing status instead
+    private WidgetFields(WidgetFields other, String status) {
+        this.quip = other.quip;
+        this.temp = other.temp;
+        this.prec = other.prec;
+        this.hum = other.hum;
+        this.uv = other.uv;
+        this.status = status;
+        this.openApp = other.openApp;
+        this.colored = other.colored;
+        this.precipBg = other.precipBg;
+        this.humBg = other.humBg;
+        this.uvBg = other.uvBg;
+        this.precipText = other.precipText;
+        this.humText = other.humText;
+        this.uvText = other.uvText;
+    }
+
+    static WidgetFields of(WeatherWidgetProvider.WidgetData data, boolean openApp) {
+        if (data == null) {
+            return new WidgetFields("OverCast", WeatherStats.EMPTY, openApp ? "Open app to set location" : "Updating…",
+                    openApp, false);
+        }
+        // The location prompt keeps the layout's plain pills
+        return new WidgetFields(data.quip, data.stats != null ? data.stats : WeatherStats.EMPTY, data.status, openApp, !openApp);
+    }
+
+    /**
+     * Write the fields that differ from previous into views, or all of them when previous is null. The status is
+     * always written since the timestamp tick changes it behind our back.
+     */
+    void applyTo(RemoteViews views, WidgetFields previous) {
+        boolean full = previous == null;
+        if (full || !quip.equals(previous.quip)) views.setTextViewText(R.id.txtQuip, quip);
+        if (full || !temp.equals(previous.temp)) views.setTextViewText(R.id.txtTemp, temp);
+        if (full || !prec.equals(previous.prec)) views.setTextViewText(R.id.txtPrec, prec);
+        if (full || !hum.equals(previous.hum)) views.setTextViewText(R.id.txtHum, hum);
+        if (full || !uv.equals(previous.uv)) views.setTextViewText(R.id.txtUv, uv);
+        views.setTextViewText(R.id.txtStatus, status);
+
+        // Tint the shared pill drawable and set the precomputed HSL-based text color (0.6x brightness) for each
+        // stat. Only ints cross Binder here; the pills used to be three full ARGB bitmaps per update
+        if (full ? colored : precipBg != previous.precipBg || colored != previous.colored) pill(views, R.id.bg_precip, R.id.txtPrec, precipBg, precipText);
+        if (full ? colored : humBg != previous.humBg || colored != previous.colored) pill(views, R.id.bg_humidity, R.id.txtHum, humBg, humText);
+        if (full ? colored : uvBg != previous.uvBg || colored != previous.colored) pill(views, R.id.bg_uv, R.id.txtUv, uvBg, uvText);
+    }
+
+    /** These fields with the status replaced, as a status tick leaves them on screen. */
+    WidgetFields withStatus(String status) {
+        return status.equals(this.status) ? this : new WidgetFields(this, status);
+    }
+
+    /** True when applyTo(views, previous) would only rewrite the status. */
+    boolean sameContentAs(WidgetFields previous) {
+        return previous != null && quip.equals(previous.quip) && temp.equals(previous.temp) && prec.equals(previous.prec)
+                && hum.equals(previous.hum) && uv.equals(previous.uv) && status.equals(previous.status)
+                && colored == previous.colored && precipBg == previous.precipBg && humBg == previous.humBg
+                && uvBg == previous.uvBg;
+    }
+
+    private static void pill(RemoteViews views, int bgId, int textId, int bg, int text) {
+        views.setInt(bgId, "setColorFilter", bg);
+        views.setTextColor(textId, text);
+    }
+}
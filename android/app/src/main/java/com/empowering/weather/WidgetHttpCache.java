@@ -0,0 +1,401 @@
+package com.empowering.weather;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.empowering.weather.core.LocationGate;
+import com.empowering.weather.core.PipelineMetrics;
+import com.empowering.weather.core.StateStore;
+import com.empowering.weather.core.TaskScheduler;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Small bounded on-disk cache for the widget's /api calls.
+ *
+ * Requests ask for gzip and carry If-None-Match / If-Modified-Since when we hold an entry, so the server can
+ * answer 304. Entries also carry a freshness lifetime (Cache-Control max-age, or the server's remaining
+ * 1-hour TTL derived from cache_age) and are served locally without touching the network while fresh.
+ * Entries are keyed by the server's cache bucket (rounded lat:lon), which is what the server keys on too.
+ */
+final class WidgetHttpCache {
+    private static final String TAG = "WidgetHttpCache";
+    // Must match CACHE_TTL_SECONDS in src/api/index.js
+    static final int SERVER_TTL_SECONDS = 3600;
+    private static final int MAX_ENTRIES = 8;
+    private static final long MAX_BYTES = 1024L * 1024L;
+    private static final int META_VERSION = 1;
+
+    private static WidgetHttpCache instance;
+
+    private final File dir;
+    private final StateStore state;
+
+    static synchronized WidgetHttpCache get(Context context) {
+        if (instance == null) {
+            Context app = context.getApplicationContext();
+            instance = new WidgetHttpCache(new File(app.getCacheDir(), "widget_http"), WidgetState.get(app));
+        }
+        return instance;
+    }
+
+    /** Drop the instance, which holds on to the state store, so the next get opens both afresh. */
+    static synchronized void forget() {
+        instance = null;
+    }
+
+    private WidgetHttpCache(File dir, StateStore state) {
+        this.dir = dir;
+        this.state = state;
+    }
+
+    static String bucketKey(double lat, double lon) {
+        return LocationGate.bucketKey(lat, lon);
+    }
+
+    /** Outcome of {@link #fetch}: an HTTP status plus, on success, the cached body to parse. */
+    static final class Response {
+        final int code;
+        final File body;
+        // true when the body came from disk (fresh hit or 304) rather than a full transfer
+        final boolean fromCache;
+
+        Response(int code, File body, boolean fromCache) {
+            this.code = code;
+            this.body = body;
+            this.fromCache = fromCache;
+        }
+
+        Reader openBody() throws IOException {
+            return new InputStreamReader(new BufferedInputStream(new FileInputStream(body)), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Fetch url through the cache. The caller parses the body and reports its cache_age back through
+     * {@link #commit} so the entry gets a freshness lifetime. Cancelling aborts the connection, so a superseded or
+     * expired refresh does not sit out the read timeout. Only the disk is locked, not the network, so hedged
+     * attempts for the same key run side by side; each reads into its own temporary file.
+     */
+    Response fetch(String url, String key, int timeoutMs, TaskScheduler.Cancellation cancel) throws IOException {
+        long now = System.currentTimeMillis();
+        File body = bodyFile(key);
+        Meta meta;
+        synchronized (this) {
+            meta = readMeta(key);
+            if (meta != null && !body.isFile()) meta = null;
+            if (meta != null && meta.isFresh(now)) {
+                recordStats(1, 0, 0, 0, meta.wireBytes);
+                return new Response(200, body, true);
+            }
+        }
+
+        HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+        cancel.onCancel(conn::disconnect);
+        File tmp = null;
+        try {
+            conn.setConnectTimeout(timeoutMs);
+            conn.setReadTimeout(timeoutMs);
+            conn.setRequestProperty("Accept-Encoding", "gzip");
+            if (meta != null) {
+                if (!meta.etag.isEmpty()) conn.setRequestProperty("If-None-Match", meta.etag);
+                if (!meta.lastModified.isEmpty()) conn.setRequestProperty("If-Modified-Since", meta.lastModified);
+            }
+            WidgetMetrics.count(PipelineMetrics.FETCHES);
+            long t = WidgetMetrics.begin(PipelineMetrics.CONNECT);
+            try {
+                conn.connect();
+            } finally {
+                WidgetMetrics.end(PipelineMetrics.CONNECT, t);
+            }
+            // Request out, status line in
+            t = WidgetMetrics.begin(PipelineMetrics.TTFB);
+            int code;
+            try {
+                code = conn.getResponseCode();
+            } finally {
+                WidgetMetrics.end(PipelineMetrics.TTFB, t);
+            }
+            if (code == HttpURLConnection.HTTP_NOT_MODIFIED && meta != null) {
+                meta.storedAt = now;
+                meta.maxAgeSeconds = parseMaxAge(conn.getHeaderField("Cache-Control"), meta.maxAgeSeconds);
+                String etag = conn.getHeaderField("ETag");
+                if (etag != null) meta.etag = etag;
+                synchronized (this) {
+                    writeMeta(key, meta);
+                    recordStats(0, 0, 1, 0, meta.wireBytes);
+                }
+                return new Response(200, body, true);
+            }
+            if (code < 200 || code >= 300) {
+                try {
+                    InputStream err = conn.getErrorStream();
+                    if (err != null) err.close();
+                } catch (Throwable ignored) {}
+                return new Response(code, null, false);
+            }
+
+            // Full transfer: store the decoded body, counting bytes on the wire
+            synchronized (this) {
+                if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("cannot create " + dir);
+            }
+            tmp = File.createTempFile(fileName(key) + "-", ".tmp", dir);
+            CountingInputStream wire = new CountingInputStream(conn.getInputStream());
+            InputStream in = "gzip".equalsIgnoreCase(conn.getContentEncoding()) ? new GZIPInputStream(wire) : wire;
+            long decoded = 0;
+            t = WidgetMetrics.begin(PipelineMetrics.READ);
+            try (InputStream src = in; OutputStream out = new FileOutputStream(tmp)) {
+                byte[] buf = new byte[8192];
+                int n;
+                while ((n = src.read(buf)) != -1) {
+                    out.write(buf, 0, n);
+                    decoded += n;
+                }
+            } finally {
+                WidgetMetrics.end(PipelineMetrics.READ, t);
+            }
+            // A disconnect can look like a clean end of stream; never store a cut-off body
+            if (cancel.isCancelled()) throw new IOException("cancelled");
+
+            Meta fresh = new Meta();
+            fresh.etag = nonNull(conn.getHeaderField("ETag"));
+            fresh.lastModified = nonNull(conn.getHeaderField("Last-Modified"));
+            fresh.storedAt = now;
+            fresh.maxAgeSeconds = parseMaxAge(conn.getHeaderField("Cache-Control"), -1);
+            fresh.wireBytes = wire.count;
+            synchronized (this) {
+                if (!tmp.renameTo(body)) throw new IOException("cannot store " + body);
+                writeMeta(key, fresh);
+                recordStats(0, 1, 0, wire.count, Math.max(0, decoded - wire.count));
+                evict();
+            }
+            return new Response(code, body, false);
+        } finally {
+            conn.disconnect();
+            //noinspection ResultOfMethodCallIgnored
+            if (tmp != null) tmp.delete();
+        }
+    }
+
+    /**
+     * Called after a freshly transferred body was parsed. When the server sent no max-age, derive the
+     * lifetime from cache_age: the server keeps serving the same upstream data for the rest of its TTL.
+     */
+    synchronized void commit(String key, int cacheAge) {
+        Meta meta = readMeta(key);
+        if (meta == null || meta.maxAgeSeconds >= 0) return;
+        meta.maxAgeSeconds = cacheAge >= 0 ? Math.max(0, SERVER_TTL_SECONDS - cacheAge) : 0;
+        writeMeta(key, meta);
+    }
+
+    /** A stored body as is, for readers outside the widget (see {@link WeatherCachePlugin}). */
+    static final class Entry {
+        final File body;
+        final long storedAt;
+        final boolean fresh;
+
+        Entry(File body, long storedAt, boolean fresh) {
+            this.body = body;
+            this.storedAt = storedAt;
+            this.fresh = fresh;
+        }
+    }
+
+    /**
+     * The stored entry for key, fresh or not, without touching the network; null if there is none. Not
+     * synchronized, so it does not wait out a fetch in progress: files are only ever replaced by rename.
+     */
+    Entry peek(String key, long now) {
+        Meta meta = readMeta(key);
+        File body = bodyFile(key);
+        if (meta == null || !body.isFile()) return null;
+        return new Entry(body, meta.storedAt, meta.isFresh(now));
+    }
+
+    /**
+     * Store a body fetched by someone else (the web app), so the widget's next pass for that bucket is served
+     * from disk. The lifetime comes from cache_age, as in {@link #commit}; the etag allows a later 304.
+     */
+    synchronized void store(String key, byte[] json, String etag, int cacheAge) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("cannot create " + dir);
+        File tmp = new File(dir, fileName(key) + ".tmp");
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            out.write(json);
+        }
+        if (!tmp.renameTo(bodyFile(key))) throw new IOException("cannot store " + key);
+        Meta m = new Meta();
+        m.etag = nonNull(etag);
+        m.storedAt = System.currentTimeMillis();
+        m.maxAgeSeconds = cacheAge >= 0 ? Math.max(0, SERVER_TTL_SECONDS - cacheAge) : 0;
+        m.wireBytes = json.length;
+        writeMeta(key, m);
+        evict();
+    }
+
+    // Drop an entry whose body turned out to be unusable so the next call does a full fetch
+    synchronized void invalidate(String key) {
+        //noinspection ResultOfMethodCallIgnored
+        metaFile(key).delete();
+        //noinspection ResultOfMethodCallIgnored
+        bodyFile(key).delete();
+    }
+
+    /** Snapshot of the cache counters: {hits, misses, notModified, bytesTransferred, bytesSaved}. */
+    long[] stats() {
+        StateStore.Snapshot prefs = state.snapshot();
+        return new long[]{
+                prefs.getLong("widget_http_hits", 0L),
+                prefs.getLong("widget_http_misses", 0L),
+                prefs.getLong("widget_http_not_modified", 0L),
+                prefs.getLong("widget_http_bytes_transferred", 0L),
+                prefs.getLong("widget_http_bytes_saved", 0L),
+        };
+    }
+
+    private void recordStats(int hits, int misses, int notModified, long transferred, long saved) {
+        StateStore.Snapshot s = state.edit()
+                .add("widget_http_hits", hits)
+                .add("widget_http_misses", misses)
+                .add("widget_http_not_modified", notModified)
+                .add("widget_http_bytes_transferred", transferred)
+                .add("widget_http_bytes_saved", saved)
+                .apply();
+        Log.i(TAG, "hits=" + s.getLong("widget_http_hits", 0L) + " misses=" + s.getLong("widget_http_misses", 0L)
+                + " 304s=" + s.getLong("widget_http_not_modified", 0L)
+                + " transferred=" + s.getLong("widget_http_bytes_transferred", 0L)
+                + " saved=" + s.getLong("widget_http_bytes_saved", 0L));
+    }
+
+    // Keep at most MAX_ENTRIES / MAX_BYTES, dropping the least recently stored entries first
+    private void evict() {
+        File[] metas = dir.listFiles((d, name) -> name.endsWith(".meta"));
+        if (metas == null) return;
+        java.util.Arrays.sort(metas, (a, b) -> Long.compare(b.lastModified(), a.lastModified()));
+        long total = 0;
+        for (int i = 0; i < metas.length; i++) {
+            String base = metas[i].getName().substring(0, metas[i].getName().length() - ".meta".length());
+            File body = new File(dir, base + ".body");
+            total += body.length();
+            if (i >= MAX_ENTRIES || total > MAX_BYTES) {
+                //noinspection ResultOfMethodCallIgnored
+                metas[i].delete();
+                //noinspection ResultOfMethodCallIgnored
+                body.delete();
+            }
+        }
+    }
+
+    static int parseMaxAge(String cacheControl, int fallback) {
+        if (cacheControl == null) return fallback;
+        for (String part : cacheControl.split(",")) {
+            String p = part.trim();
+            if (p.regionMatches(true, 0, "no-cache", 0, 8) || p.regionMatches(true, 0, "no-store", 0, 8)) return 0;
+            if (p.regionMatches(true, 0, "max-age=", 0, 8)) {
+                try {
+                    return Math.max(0, Integer.parseInt(p.substring(8).trim()));
+                } catch (NumberFormatException ignored) {}
+            }
+        }
+        return fallback;
+    }
+
+    private static final class Meta {
+        String etag = "";
+        String lastModified = "";
+        long storedAt;
+        // -1 until known
+        int maxAgeSeconds = -1;
+        long wireBytes;
+
+        boolean isFresh(long now) {
+            return maxAgeSeconds > 0 && now >= storedAt && now - storedAt < maxAgeSeconds * 1000L;
+        }
+    }
+
+    private Meta readMeta(String key) {
+        File f = metaFile(key);
+        if (!f.isFile()) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)))) {
+            if (in.readInt() != META_VERSION) return null;
+            Meta m = new Meta();
+            m.etag = in.readUTF();
+            m.lastModified = in.readUTF();
+            m.storedAt = in.readLong();
+            m.maxAgeSeconds = in.readInt();
+            m.wireBytes = in.readLong();
+            return m;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void writeMeta(String key, Meta m) {
+        File f = metaFile(key);
+        File tmp = new File(dir, f.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(tmp))) {
+            out.writeInt(META_VERSION);
+            out.writeUTF(m.etag);
+            out.writeUTF(m.lastModified);
+            out.writeLong(m.storedAt);
+            out.writeInt(m.maxAgeSeconds);
+            out.writeLong(m.wireBytes);
+        } catch (IOException e) {
+            Log.w(TAG, "failed to write cache meta", e);
+            return;
+        }
+        if (!tmp.renameTo(f)) Log.w(TAG, "failed to commit cache meta " + f);
+    }
+
+    private File metaFile(String key) {
+        return new File(dir, fileName(key) + ".meta");
+    }
+
+    private File bodyFile(String key) {
+        return new File(dir, fileName(key) + ".body");
+    }
+
+    private static String fileName(String key) {
+        return key.replace(':', '_');
+    }
+
+    private static String nonNull(String s) {
+        return s != null ? s : "";
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+    }
+}
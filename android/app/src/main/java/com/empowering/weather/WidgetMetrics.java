@@ -0,0 +1,72 @@
+package com.empowering.weather;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+
+import com.empowering.weather.core.MetricsRing;
+import com.empowering.weather.core.PipelineMetrics;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * The widget pipeline's stage latencies and counters ({@link PipelineMetrics}), with an android.os.Trace section
+ * around each stage so the stages also show up in system traces. Persisted to a ring file
+ * ({@link MetricsRing}): a process folds the newest record into its own numbers once, then appends its totals
+ * after each refresh pass, so the ring holds a short history of totals and survives process death.
+ * Read by the app's debug modal through {@link WidgetMetricsPlugin}.
+ */
+final class WidgetMetrics {
+    private static final String TAG = "WidgetMetrics";
+    static final PipelineMetrics METRICS = new PipelineMetrics();
+    // Trace section per stage, in PipelineMetrics stage order
+    private static final String[] SECTIONS = {
+            "widget:location", "widget:connect", "widget:ttfb", "widget:read", "widget:parse", "widget:render"};
+    // A couple of days of passes at the hourly sync
+    private static final int SLOTS = 48;
+    private static final long[] SCRATCH = new long[PipelineMetrics.SIZE];
+
+    private static MetricsRing ring;
+
+    private WidgetMetrics() {}
+
+    /** Start timing a stage; pass the result to {@link #end} on the same thread. */
+    static long begin(int stage) {
+        Trace.beginSection(SECTIONS[stage]);
+        return SystemClock.elapsedRealtime();
+    }
+
+    static void end(int stage, long start) {
+        Trace.endSection();
+        METRICS.record(stage, SystemClock.elapsedRealtime() - start);
+    }
+
+    static void count(int counter) {
+        METRICS.count(counter);
+    }
+
+    /** The ring, restoring the persisted totals on first use in this process. */
+    static synchronized MetricsRing ring(Context context) {
+        if (ring == null) {
+            File f = new File(context.getApplicationContext().getFilesDir(), "widget_metrics.bin");
+            ring = new MetricsRing(f, SLOTS, PipelineMetrics.SIZE);
+            MetricsRing.Entry last = ring.latest();
+            if (last != null) METRICS.add(last.values);
+        }
+        return ring;
+    }
+
+    static void save(Context context) {
+        MetricsRing r = ring(context);
+        synchronized (SCRATCH) {
+            METRICS.copyTo(SCRATCH);
+            try {
+                r.append(System.currentTimeMillis(), SCRATCH);
+            } catch (IOException e) {
+                Log.w(TAG, "failed to save metrics", e);
+            }
+        }
+    }
+}
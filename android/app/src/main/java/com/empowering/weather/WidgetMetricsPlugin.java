@@ -0,0 +1,63 @@
+package com.empowering.weather;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+
+import com.empowering.weather.core.MetricsRing;
+import com.empowering.weather.core.PipelineMetrics;
+
+import java.util.List;
+
+/**
+ * The widget pipeline metrics ({@link WidgetMetrics}) for the app's debug modal, as
+ * Capacitor.Plugins.WidgetMetrics.get():
+ *   {stages: [{name, samples, meanMs, p50Ms, p90Ms, p99Ms}], counters: {passes, ...}, history: [{ts, passes, ...}]}
+ * Quantiles are bucket upper edges; -1 stands for the open last bucket. History is the persisted totals, oldest
+ * first.
+ */
+@CapacitorPlugin(name = "WidgetMetrics")
+public class WidgetMetricsPlugin extends Plugin {
+    @PluginMethod
+    public void get(PluginCall call) {
+        List<MetricsRing.Entry> history = WidgetMetrics.ring(getContext()).read();
+        PipelineMetrics m = WidgetMetrics.METRICS;
+        JSArray stages = new JSArray();
+        for (int i = 0; i < PipelineMetrics.STAGES.length; i++) {
+            JSObject s = new JSObject();
+            s.put("name", PipelineMetrics.STAGES[i]);
+            s.put("samples", m.samples(i));
+            s.put("meanMs", m.meanMs(i));
+            s.put("p50Ms", edge(m.quantileMs(i, 0.5)));
+            s.put("p90Ms", edge(m.quantileMs(i, 0.9)));
+            s.put("p99Ms", edge(m.quantileMs(i, 0.99)));
+            stages.put(s);
+        }
+        JSObject counters = new JSObject();
+        for (int i = 0; i < PipelineMetrics.COUNTERS.length; i++) {
+            counters.put(PipelineMetrics.COUNTERS[i], m.counter(i));
+        }
+        JSArray past = new JSArray();
+        int base = PipelineMetrics.SIZE - PipelineMetrics.COUNTERS.length;
+        for (MetricsRing.Entry e : history) {
+            JSObject h = new JSObject();
+            h.put("ts", e.ts);
+            for (int i = 0; i < PipelineMetrics.COUNTERS.length; i++) {
+                h.put(PipelineMetrics.COUNTERS[i], e.values[base + i]);
+            }
+            past.put(h);
+        }
+        JSObject ret = new JSObject();
+        ret.put("stages", stages);
+        ret.put("counters", counters);
+        ret.put("history", past);
+        call.resolve(ret);
+    }
+
+    private static long edge(long ms) {
+        return ms == Long.MAX_VALUE ? -1L : ms;
+    }
+}
@@ -0,0 +1,75 @@
+package com.empowering.weather;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.empowering.weather.core.StateStore;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Process-wide widget state (saved location, last fetch, cached render values, counters), stored in
+ * files/widget_state.bin by a {@link StateStore} with its own writer thread. Keys keep the names they had in
+ * the weather_widget_prefs SharedPreferences, which are moved over and cleared the first time the store opens.
+ */
+final class WidgetState {
+    private static final String TAG = "WidgetState";
+    private static final String FILE = "widget_state.bin";
+    private static final String LEGACY_PREFS = "weather_widget_prefs";
+    private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "widget-state");
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+
+    private static volatile StateStore store;
+
+    private WidgetState() {}
+
+    static StateStore get(Context context) {
+        StateStore s = store;
+        if (s == null) {
+            synchronized (WidgetState.class) {
+                s = store;
+                if (s == null) {
+                    Context app = context.getApplicationContext();
+                    s = new StateStore(new File(app.getFilesDir(), FILE), WRITER);
+                    if (!s.loaded()) migrate(app, s);
+                    store = s;
+                }
+            }
+        }
+        return s;
+    }
+
+    static StateStore.Snapshot snapshot(Context context) {
+        return get(context).snapshot();
+    }
+
+    static StateStore.Editor edit(Context context) {
+        return get(context).edit();
+    }
+
+    /** Drop the in-memory store so the next get reads the file, as a cold process would. */
+    static synchronized void forget() {
+        store = null;
+    }
+
+    // Move the old SharedPreferences keys over once; the prefs are only cleared after the record is on disk
+    private static void migrate(Context app, StateStore s) {
+        try {
+            SharedPreferences prefs = app.getSharedPreferences(LEGACY_PREFS, Context.MODE_PRIVATE);
+            Map<String, ?> all = prefs.getAll();
+            if (s.edit().putAll(all).commit()) {
+                if (!all.isEmpty()) prefs.edit().clear().apply();
+                Log.i(TAG, "migrated " + all.size() + " keys from " + LEGACY_PREFS);
+            }
+        } catch (Throwable t) {
+            Log.w(TAG, "migration failed", t);
+        }
+    }
+}
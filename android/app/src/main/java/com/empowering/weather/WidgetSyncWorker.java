@@ -0,0 +1,119 @@
+package com.empowering.weather;
+
+import android.content.Context;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.empowering.weather.core.StateStore;
+import com.empowering.weather.core.SyncSchedule;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The widget's background sync: a periodic run for when the stored forecast runs low, phased to just after the
+ * server's cache entry expires (see {@link SyncSchedule}), plus one-off runs for new widgets and location
+ * changes. Each run is a normal refresh pass. Until the forecast runs low the widget rolls it forward without
+ * the network, so the periodic run does not wake it earlier; a pass that cannot use the forecast (none stored,
+ * or another bucket) fetches whenever it runs. Both are unique work, so repeated enqueues collapse into one.
+ */
+public class WidgetSyncWorker extends Worker {
+    private static final String TAG = "WidgetSyncWorker";
+    static final String PERIODIC_WORK = "widget-sync";
+    static final String ONE_OFF_WORK = "widget-sync-now";
+    private static final long TTL_MS = WidgetHttpCache.SERVER_TTL_SECONDS * 1000L;
+    // Run this long after the server's entry expires, so the run sees the new data
+    private static final long SLACK_MS = 60_000L;
+    // Phase error tolerated before the periodic work is re-enqueued
+    private static final long DRIFT_TOLERANCE_MS = 5 * 60_000L;
+
+    public WidgetSyncWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        LocationUpdates.adapt(getApplicationContext());
+        // Hold the worker until the pass is done; the scheduler's deadline bounds it
+        CountDownLatch done = new CountDownLatch(1);
+        WeatherWidgetProvider.requestRefresh(getApplicationContext(), false, done::countDown);
+        try {
+            done.await(15, TimeUnit.SECONDS);
+        } catch (InterruptedException ignored) {}
+        return Result.success();
+    }
+
+    /** Sync as soon as there is a network, e.g. for a new widget; joins one already pending. */
+    static void syncNow(Context context) {
+        try {
+            OneTimeWorkRequest req = new OneTimeWorkRequest.Builder(WidgetSyncWorker.class)
+                    .setConstraints(new Constraints.Builder().setRequiredNetworkType(NetworkType.CONNECTED).build())
+                    .build();
+            WorkManager.getInstance(context).enqueueUniqueWork(ONE_OFF_WORK, ExistingWorkPolicy.KEEP, req);
+        } catch (Throwable t) {
+            Log.w(TAG, "failed to enqueue sync", t);
+        }
+    }
+
+    /** Start the periodic sync if it is not scheduled yet; the first fetch sets its real timing. */
+    static void ensureScheduled(Context context) {
+        if (WidgetState.snapshot(context).getLong("widget_sync_planned", 0L) > 0) return;
+        long next = System.currentTimeMillis() + TTL_MS;
+        enqueuePeriodic(context, next, periodMs(0L), ExistingPeriodicWorkPolicy.KEEP);
+    }
+
+    /**
+     * After a network fetch: plan the periodic sync for the first server expiry after dueAt, when the fetched
+     * forecast runs low (fetchTs when there is none), unless it is planned so already.
+     */
+    static void fetched(Context context, long fetchTs, int cacheAgeSeconds, long dueAt) {
+        long next = SyncSchedule.nextRunAt(fetchTs, cacheAgeSeconds, TTL_MS, SLACK_MS, dueAt);
+        long period = periodMs(dueAt - fetchTs);
+        StateStore.Snapshot prefs = WidgetState.snapshot(context);
+        long planned = prefs.getLong("widget_sync_planned", 0L);
+        if (prefs.getLong("widget_sync_period", 0L) == period
+                && !SyncSchedule.drifted(planned, next, period, DRIFT_TOLERANCE_MS)) return;
+        enqueuePeriodic(context, next, period, ExistingPeriodicWorkPolicy.CANCEL_AND_REENQUEUE);
+    }
+
+    static void cancel(Context context) {
+        try {
+            WorkManager wm = WorkManager.getInstance(context);
+            wm.cancelUniqueWork(PERIODIC_WORK);
+            wm.cancelUniqueWork(ONE_OFF_WORK);
+        } catch (Throwable ignored) {}
+        WidgetState.edit(context).remove("widget_sync_planned").remove("widget_sync_period").apply();
+    }
+
+    private static long periodMs(long coverMs) {
+        return SyncSchedule.periodMs(TTL_MS, PeriodicWorkRequest.MIN_PERIODIC_INTERVAL_MILLIS, coverMs);
+    }
+
+    private static void enqueuePeriodic(Context context, long firstRunAt, long period, ExistingPeriodicWorkPolicy policy) {
+        long delay = Math.max(0L, firstRunAt - System.currentTimeMillis());
+        try {
+            PeriodicWorkRequest req = new PeriodicWorkRequest.Builder(WidgetSyncWorker.class, period, TimeUnit.MILLISECONDS)
+                    .setConstraints(new Constraints.Builder()
+                            .setRequiredNetworkType(NetworkType.CONNECTED)
+                            .setRequiresBatteryNotLow(true)
+                            .build())
+                    .setInitialDelay(delay, TimeUnit.MILLISECONDS)
+                    .build();
+            WorkManager.getInstance(context).enqueueUniquePeriodicWork(PERIODIC_WORK, policy, req);
+            WidgetState.edit(context).putLong("widget_sync_planned", firstRunAt).putLong("widget_sync_period", period).apply();
+            Log.i(TAG, "periodic sync every " + period / 60_000L + " min, next in " + delay / 1000L + " s");
+        } catch (Throwable t) {
+            Log.w(TAG, "failed to schedule periodic sync", t);
+        }
+    }
+}
@@ -0,0 +1,418 @@
+package com.empowering.weather;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.AlarmManager;
+import android.appwidget.AppWidgetManager;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.location.Location;
+import android.net.ConnectivityManager;
+import android.net.NetworkCapabilities;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.work.Configuration;
+import androidx.work.NetworkType;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+import androidx.work.impl.WorkManagerImpl;
+import androidx.work.impl.model.WorkSpec;
+import androidx.work.testing.SynchronousExecutor;
+import androidx.work.testing.TestDriver;
+import androidx.work.testing.WorkManagerTestInitHelper;
+
+import com.empowering.weather.core.PipelineMetrics;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.internal.DoNotInstrument;
+import org.robolectric.shadows.ShadowAlarmManager;
+import org.robolectric.shadows.ShadowNetworkCapabilities;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Plays a scripted day (src/test/resources/scenarios) against the widget's receivers and workers on a virtual
+ * clock, with {@link SimServer} standing in for the API, and fails when a count goes over the script's limits:
+ * alarm deliveries, wakeups (anything delivered while the screen is off), HTTP requests, bytes sent by the
+ * server, state file writes and widget updates.
+ *
+ * What the platform does is modelled here: due alarms are delivered, non-wakeup ones only while the screen is
+ * on; due WorkManager work runs, network-bound work only while online; a reboot drops alarms and in-memory
+ * state. Location permission is not granted, so nothing talks to Play services: the script's fixes go straight
+ * to {@link LocationBroadcastReceiver}.
+ */
+@RunWith(RobolectricTestRunner.class)
+// Robolectric leaves app classes alone unless told, and their System.currentTimeMillis() would read the wall
+// clock; instrumented, it reads the virtual one. JUnit rejects an instrumented test class, hence DoNotInstrument
+@Config(sdk = 34, instrumentedPackages = "com.empowering.weather")
+@DoNotInstrument
+public class DayInTheLifeTest {
+    // 2025-10-15 00:00 UTC
+    private static final long DAY_START = 1760486400000L;
+    private static final String[] WORK = {
+            WidgetSyncWorker.PERIODIC_WORK, WidgetSyncWorker.ONE_OFF_WORK, FetchRecovery.WORK_NAME, "start-location"};
+    // More passes than this at one instant means something reschedules itself without end
+    private static final int RUNAWAY = 50;
+
+    private Context app;
+    private SimServer server;
+    private AlarmManager alarmManager;
+    private TestDriver driver;
+    private long now;
+    private boolean screenOn = true;
+    private boolean online = true;
+    // Work id -> virtual time it was enqueued or last ran
+    private final Map<UUID, Long> enqueuedAt = new HashMap<>();
+    private final Map<UUID, Integer> runs = new HashMap<>();
+    private final Map<String, Long> counts = new LinkedHashMap<>();
+    private long[] metricsAtStart;
+    private long writesBefore;
+
+    @Before
+    public void setUp() throws Exception {
+        // Tests share the JVM: start from a cold process, whatever ran before
+        WeatherWidgetProvider.forgetProcess();
+        app = ApplicationProvider.getApplicationContext();
+        SystemClock.setCurrentTimeMillis(DAY_START);
+        now = DAY_START;
+        WorkManagerTestInitHelper.initializeTestWorkManager(app, new Configuration.Builder()
+                .setMinimumLoggingLevel(Log.DEBUG)
+                .setExecutor(new SynchronousExecutor())
+                .build());
+        driver = WorkManagerTestInitHelper.getTestDriver(app);
+        alarmManager = (AlarmManager) app.getSystemService(Context.ALARM_SERVICE);
+        server = new SimServer("payloads/london_partly_cloudy.json");
+        setScreen(true);
+        setNetwork(true);
+        metricsAtStart = new long[PipelineMetrics.SIZE];
+        WidgetMetrics.METRICS.copyTo(metricsAtStart);
+        for (String k : new String[]{"alarms", "wakeups", "requests", "bytes", "prefWrites", "widgetUpdates"}) {
+            counts.put(k, 0L);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        if (server != null) server.close();
+        WeatherWidgetProvider.forgetProcess();
+    }
+
+    @Test
+    public void weekdayStaysWithinLimits() throws Exception {
+        Map<String, Long> limits = play("scenarios/weekday.txt");
+        String day = report();
+        for (Map.Entry<String, Long> l : limits.entrySet()) {
+            long n = counts.get(l.getKey());
+            assertTrue(l.getKey() + " = " + n + ", limit " + l.getValue() + "; " + day, n <= l.getValue());
+        }
+    }
+
+    // Runs the script and returns its limits
+    private Map<String, Long> play(String resource) throws Exception {
+        Map<String, Long> limits = new LinkedHashMap<>();
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(
+                getClass().getClassLoader().getResourceAsStream(resource), StandardCharsets.UTF_8))) {
+            for (String line; (line = r.readLine()) != null; ) {
+                int hash = line.indexOf('#');
+                if (hash >= 0) line = line.substring(0, hash);
+                if (!line.trim().isEmpty()) lines.add(line.trim());
+            }
+        }
+        for (String line : lines) {
+            String[] w = line.split("\\s+");
+            if (w[0].equals("limit")) {
+                if (!counts.containsKey(w[1])) fail("unknown count " + w[1]);
+                limits.put(w[1], Long.parseLong(w[2]));
+                continue;
+            }
+            runUntil(at(w[0]));
+            switch (w[1]) {
+                case "fix":
+                    fix(Double.parseDouble(w[2]), Double.parseDouble(w[3]), w.length > 4 ? Float.parseFloat(w[4]) : -1f);
+                    break;
+                case "fixes":
+                    fixes(at(w[2]), Double.parseDouble(w[3]), Double.parseDouble(w[4]),
+                            Double.parseDouble(w[5]), Double.parseDouble(w[6]), Long.parseLong(w[7]) * 1000L);
+                    break;
+                case "widget":
+                    shadowOf(AppWidgetManager.getInstance(app)).createWidget(WeatherWidgetProvider.class, R.layout.weather_widget);
+                    settle();
+                    break;
+                case "screen":
+                    setScreen(w[2].equals("on"));
+                    // Non-wakeup alarms that came due in the dark are delivered now
+                    if (screenOn) deliverDue();
+                    break;
+                case "tap":
+                    // What the widget's click PendingIntent sends
+                    Intent tap = new Intent(app, WeatherWidgetProvider.class)
+                            .setAction(WeatherWidgetProvider.ACTION_REFRESH)
+                            .putExtra(WeatherWidgetProvider.EXTRA_FROM_TAP, true);
+                    app.sendBroadcast(tap);
+                    settle();
+                    break;
+                case "network":
+                    setNetwork(w[2].equals("on"));
+                    if (online) deliverDue();
+                    break;
+                case "reboot":
+                    reboot();
+                    break;
+                case "end":
+                    break;
+                default:
+                    fail("unknown event: " + line);
+            }
+        }
+        return limits;
+    }
+
+    private static long at(String hhmm) {
+        String[] p = hhmm.split(":");
+        return DAY_START + (Long.parseLong(p[0]) * 60 + Long.parseLong(p[1])) * 60_000L;
+    }
+
+    // Deliver everything that comes due before t, in time order, then move the clock to t
+    private void runUntil(long t) throws Exception {
+        long instant = -1;
+        int atInstant = 0;
+        while (true) {
+            long next = Math.min(nextAlarm(), nextWork());
+            if (next > t) break;
+            advanceTo(next);
+            if (now == instant && ++atInstant > RUNAWAY) fail("runaway scheduling at " + clock());
+            if (now != instant) {
+                instant = now;
+                atInstant = 0;
+            }
+            deliverDue();
+        }
+        advanceTo(t);
+    }
+
+    private void advanceTo(long t) {
+        if (t > now) {
+            shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(t - now));
+            now = t;
+        }
+    }
+
+    // Earliest alarm the platform would deliver in the current screen state
+    private long nextAlarm() {
+        long next = Long.MAX_VALUE;
+        for (ShadowAlarmManager.ScheduledAlarm a : shadowOf(alarmManager).getScheduledAlarms()) {
+            if (screenOn || wakeup(a.type)) next = Math.min(next, Math.max(a.triggerAtTime, now));
+        }
+        return next;
+    }
+
+    private long nextWork() throws Exception {
+        long next = Long.MAX_VALUE;
+        for (String name : WORK) {
+            for (WorkInfo info : WorkManager.getInstance(app).getWorkInfosForUniqueWork(name).get()) {
+                if (info.getState() != WorkInfo.State.ENQUEUED) continue;
+                WorkSpec spec = spec(info.getId());
+                if (spec.constraints.getRequiredNetworkType() != NetworkType.NOT_REQUIRED && !online) continue;
+                next = Math.min(next, Math.max(due(info.getId(), spec), now));
+            }
+        }
+        return next;
+    }
+
+    private long due(UUID id, WorkSpec spec) {
+        Long since = enqueuedAt.get(id);
+        if (since == null) {
+            // First seen now: every step ends by looking for work, so this is when it was enqueued
+            since = now;
+            enqueuedAt.put(id, since);
+        }
+        boolean first = runs.getOrDefault(id, 0) == 0;
+        return since + (first || !spec.isPeriodic() ? spec.initialDelay : spec.intervalDuration);
+    }
+
+    private WorkSpec spec(UUID id) {
+        return WorkManagerImpl.getInstance(app).getWorkDatabase().workSpecDao().getWorkSpec(id.toString());
+    }
+
+    private void deliverDue() throws Exception {
+        for (ShadowAlarmManager.ScheduledAlarm a : new ArrayList<>(shadowOf(alarmManager).getScheduledAlarms())) {
+            if (a.triggerAtTime > now || !(screenOn || wakeup(a.type))) continue;
+            alarmManager.cancel(a.operation);
+            count("alarms");
+            if (!screenOn) count("wakeups");
+            a.operation.send();
+            settle();
+        }
+        for (String name : WORK) {
+            for (WorkInfo info : WorkManager.getInstance(app).getWorkInfosForUniqueWork(name).get()) {
+                UUID id = info.getId();
+                if (info.getState() != WorkInfo.State.ENQUEUED) continue;
+                WorkSpec spec = spec(id);
+                boolean needsNetwork = spec.constraints.getRequiredNetworkType() != NetworkType.NOT_REQUIRED;
+                if ((needsNetwork && !online) || due(id, spec) > now) continue;
+                if (!screenOn) count("wakeups");
+                int n = runs.getOrDefault(id, 0);
+                runs.put(id, n + 1);
+                enqueuedAt.put(id, now);
+                // SynchronousExecutor: the worker runs in the driver call that meets its last condition, and the
+                // sync worker holds on until its pass is done. The delay goes first, so that call is the last one
+                if (n == 0) {
+                    if (spec.initialDelay > 0) driver.setInitialDelayMet(id);
+                } else if (spec.isPeriodic()) {
+                    driver.setPeriodDelayMet(id);
+                }
+                if (enqueued(id)) driver.setAllConstraintsMet(id);
+                settle();
+            }
+        }
+    }
+
+    private boolean enqueued(UUID id) throws Exception {
+        WorkInfo info = WorkManager.getInstance(app).getWorkInfoById(id).get();
+        return info != null && info.getState() == WorkInfo.State.ENQUEUED;
+    }
+
+    private static boolean wakeup(int type) {
+        return type == AlarmManager.RTC_WAKEUP || type == AlarmManager.ELAPSED_REALTIME_WAKEUP;
+    }
+
+    private void fix(double lat, double lon, float speed) throws Exception {
+        Location loc = new Location("fused");
+        loc.setLatitude(lat);
+        loc.setLongitude(lon);
+        loc.setTime(now);
+        if (speed >= 0) loc.setSpeed(speed);
+        if (!screenOn) count("wakeups");
+        LocationBroadcastReceiver.onLocation(app, loc);
+        settle();
+        deliverDue();
+    }
+
+    private void fixes(long until, double lat0, double lon0, double lat1, double lon1, long everyMs) throws Exception {
+        long start = now;
+        double span = Math.max(1L, until - start);
+        // Straight-line speed in m/s, near enough at these distances
+        double dLat = (lat1 - lat0) * 111_320.0;
+        double dLon = (lon1 - lon0) * 111_320.0 * Math.cos(Math.toRadians(lat0));
+        float speed = (float) (Math.sqrt(dLat * dLat + dLon * dLon) / (span / 1000.0));
+        for (long t = start; t <= until; t += everyMs) {
+            runUntil(t);
+            double f = (t - start) / span;
+            fix(lat0 + (lat1 - lat0) * f, lon0 + (lon1 - lon0) * f, speed);
+        }
+    }
+
+    private void setScreen(boolean on) {
+        screenOn = on;
+        shadowOf((PowerManager) app.getSystemService(Context.POWER_SERVICE)).setIsInteractive(on);
+    }
+
+    private void setNetwork(boolean on) throws Exception {
+        online = on;
+        ConnectivityManager cm = (ConnectivityManager) app.getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkCapabilities caps = ShadowNetworkCapabilities.newInstance();
+        shadowOf(caps).addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET);
+        if (on) shadowOf(caps).addCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED);
+        shadowOf(cm).setNetworkCapabilities(cm.getActiveNetwork(), caps);
+        if (on) {
+            WidgetApiClient.use(Collections.singletonList(server.url()));
+        } else {
+            // A port nothing listens on: connections are refused, as without a route
+            try (ServerSocket s = new ServerSocket(0)) {
+                WidgetApiClient.use(Collections.singletonList("http://127.0.0.1:" + s.getLocalPort()));
+            }
+        }
+    }
+
+    // Power loss and boot: alarms and everything in memory go; WorkManager's jobs and the files stay
+    private void reboot() throws Exception {
+        for (ShadowAlarmManager.ScheduledAlarm a : new ArrayList<>(shadowOf(alarmManager).getScheduledAlarms())) {
+            alarmManager.cancel(a.operation);
+        }
+        writesBefore += WidgetState.get(app).stats()[1];
+        WeatherWidgetProvider.forgetProcess();
+        // The API client went with the process; point the new one at the stand-in again
+        setNetwork(online);
+        WidgetState.edit(app).putBoolean("location_updates_registered", false).apply();
+        new BootReceiver().onReceive(app, new Intent(Intent.ACTION_BOOT_COMPLETED));
+        deliverDue();
+        // The launcher asks its widgets to update once it is up
+        int[] ids = AppWidgetManager.getInstance(app).getAppWidgetIds(new ComponentName(app, WeatherWidgetProvider.class));
+        app.sendBroadcast(new Intent(AppWidgetManager.ACTION_APPWIDGET_UPDATE)
+                .setComponent(new ComponentName(app, WeatherWidgetProvider.class))
+                .putExtra(AppWidgetManager.EXTRA_APPWIDGET_IDS, ids));
+        settle();
+        deliverDue();
+    }
+
+    // Let broadcasts reach their receivers and wait for the refresh pass they start
+    private void settle() throws InterruptedException {
+        for (int i = 0; i < 4000; i++) {
+            shadowOf(Looper.getMainLooper()).idle();
+            if (WeatherWidgetProvider.refreshIdle()) {
+                shadowOf(Looper.getMainLooper()).idle();
+                if (WeatherWidgetProvider.refreshIdle()) return;
+            }
+            Thread.sleep(5);
+        }
+        fail("refresh pass still running at " + clock());
+    }
+
+    private void count(String name) {
+        counts.merge(name, 1L, Long::sum);
+    }
+
+    // Collects the day's counts and returns them as one line for the assertion messages
+    private String report() throws InterruptedException {
+        // State writes land on the store's writer thread
+        long writes = -1;
+        for (int i = 0; i < 100; i++) {
+            long w = WidgetState.get(app).stats()[1];
+            if (w == writes) break;
+            writes = w;
+            Thread.sleep(20);
+        }
+        long[] m = new long[PipelineMetrics.SIZE];
+        WidgetMetrics.METRICS.copyTo(m);
+        long renders = 0;
+        int base = PipelineMetrics.RENDER * (PipelineMetrics.BUCKETS + 1);
+        for (int i = 0; i < PipelineMetrics.BUCKETS; i++) renders += m[base + i] - metricsAtStart[base + i];
+        counts.put("requests", server.requests.get());
+        counts.put("bytes", server.bytes.get());
+        counts.put("prefWrites", writesBefore + writes);
+        counts.put("widgetUpdates", renders);
+        StringBuilder sb = new StringBuilder("day in the life:");
+        for (Map.Entry<String, Long> c : counts.entrySet()) sb.append(' ').append(c.getKey()).append('=').append(c.getValue());
+        sb.append(" notModified=").append(server.notModified.get());
+        return sb.toString();
+    }
+
+    private String clock() {
+        long min = (now - DAY_START) / 60_000L;
+        return String.format("%02d:%02d", min / 60, min % 60);
+    }
+}
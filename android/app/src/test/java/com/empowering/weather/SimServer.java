@@ -0,0 +1,149 @@
+package com.empowering.weather;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Stand-in for the weather API in {@link DayInTheLifeTest}, answering /api the way the real server does: one
+ * upstream refresh per cache bucket per TTL, an ETag per refresh, max-age for what is left of the TTL, 304 for a
+ * matching If-None-Match and gzip when asked. The body is a recorded payload with its epochs moved to the
+ * refresh, so the widget sees a forecast for the simulated day. Counts requests and body bytes sent.
+ */
+final class SimServer implements AutoCloseable {
+    private static final long TTL_MS = WidgetHttpCache.SERVER_TTL_SECONDS * 1000L;
+
+    final AtomicLong requests = new AtomicLong();
+    final AtomicLong notModified = new AtomicLong();
+    final AtomicLong bytes = new AtomicLong();
+
+    private final HttpServer http;
+    private final String recorded;
+    private final long recordedHour;
+    // bucket -> time of its last upstream refresh
+    private final Map<String, Long> refreshedAt = new HashMap<>();
+
+    SimServer(String payloadResource) throws Exception {
+        try (InputStream in = SimServer.class.getClassLoader().getResourceAsStream(payloadResource)) {
+            if (in == null) throw new IOException("missing " + payloadResource);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) > 0) out.write(buf, 0, n);
+            recorded = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+        long localtime = new JSONObject(recorded).getJSONObject("weather").getJSONObject("location").getLong("localtime_epoch");
+        recordedHour = localtime / 3600L * 3600L;
+        http = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        http.createContext("/api", this::handle);
+        http.start();
+    }
+
+    String url() {
+        return "http://127.0.0.1:" + http.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        http.stop(0);
+    }
+
+    private void handle(HttpExchange ex) throws IOException {
+        requests.incrementAndGet();
+        try {
+            Map<String, String> q = query(ex.getRequestURI());
+            String bucket = WidgetHttpCache.bucketKey(Double.parseDouble(q.get("lat")), Double.parseDouble(q.get("lon")));
+            long now = System.currentTimeMillis();
+            long refreshed;
+            synchronized (refreshedAt) {
+                Long t = refreshedAt.get(bucket);
+                if (t == null || now - t >= TTL_MS) {
+                    t = now;
+                    refreshedAt.put(bucket, t);
+                }
+                refreshed = t;
+            }
+            String etag = "\"" + bucket + "-" + refreshed + "\"";
+            long maxAge = Math.max(0L, (refreshed + TTL_MS - now) / 1000L);
+            ex.getResponseHeaders().set("ETag", etag);
+            ex.getResponseHeaders().set("Cache-Control", "public, max-age=" + maxAge);
+            if (etag.equals(ex.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModified.incrementAndGet();
+                ex.sendResponseHeaders(304, -1);
+                return;
+            }
+            byte[] body = body(refreshed, now).getBytes(StandardCharsets.UTF_8);
+            String accept = ex.getRequestHeaders().getFirst("Accept-Encoding");
+            if (accept != null && accept.contains("gzip")) {
+                ByteArrayOutputStream z = new ByteArrayOutputStream();
+                try (GZIPOutputStream gz = new GZIPOutputStream(z)) {
+                    gz.write(body);
+                }
+                body = z.toByteArray();
+                ex.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            ex.getResponseHeaders().set("Content-Type", "application/json");
+            ex.sendResponseHeaders(200, body.length);
+            try (OutputStream out = ex.getResponseBody()) {
+                out.write(body);
+            }
+            bytes.addAndGet(body.length);
+        } catch (Exception e) {
+            ex.sendResponseHeaders(500, -1);
+        } finally {
+            ex.close();
+        }
+    }
+
+    // The recorded payload as the server would have it after an upstream refresh at refreshed
+    private String body(long refreshed, long now) throws Exception {
+        JSONObject o = new JSONObject(recorded);
+        shiftEpochs(o, refreshed / 3_600_000L * 3600L - recordedHour);
+        o.put("cache_age", (now - refreshed) / 1000L);
+        return o.toString();
+    }
+
+    private static void shiftEpochs(Object node, long seconds) throws Exception {
+        if (node instanceof JSONObject) {
+            JSONObject o = (JSONObject) node;
+            for (Iterator<String> it = o.keys(); it.hasNext(); ) {
+                String k = it.next();
+                Object v = o.get(k);
+                if (k.endsWith("_epoch") && v instanceof Number) {
+                    o.put(k, ((Number) v).longValue() + seconds);
+                } else {
+                    shiftEpochs(v, seconds);
+                }
+            }
+        } else if (node instanceof JSONArray) {
+            JSONArray a = (JSONArray) node;
+            for (int i = 0; i < a.length(); i++) shiftEpochs(a.get(i), seconds);
+        }
+    }
+
+    private static Map<String, String> query(URI uri) {
+        Map<String, String> q = new HashMap<>();
+        String raw = uri.getRawQuery();
+        if (raw == null) return q;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) q.put(pair.substring(0, eq), pair.substring(eq + 1));
+        }
+        return q;
+    }
+}
@@ -0,0 +1,158 @@
+package com.empowering.weather;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.appwidget.AppWidgetManager;
+import android.content.Context;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.work.Configuration;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+import androidx.work.impl.WorkManagerImpl;
+import androidx.work.impl.model.WorkSpec;
+import androidx.work.testing.SynchronousExecutor;
+import androidx.work.testing.TestDriver;
+import androidx.work.testing.WorkManagerTestInitHelper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.internal.DoNotInstrument;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Background sync through WorkManager's test driver, on the virtual clock (see {@link DayInTheLifeTest}): over
+ * three simulated days the periodic sync may only run when the stored forecast runs low, and then it must fetch.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34, instrumentedPackages = "com.empowering.weather")
+@DoNotInstrument
+public class WidgetSyncWorkerTest {
+    // 2025-10-15 00:00 UTC
+    private static final long DAY_START = 1760486400000L;
+    private static final long HOUR = 3_600_000L;
+
+    private Context app;
+    private SimServer server;
+    private TestDriver driver;
+    private long now;
+
+    @Before
+    public void setUp() throws Exception {
+        // Tests share the JVM: start from a cold process, whatever ran before
+        WeatherWidgetProvider.forgetProcess();
+        app = ApplicationProvider.getApplicationContext();
+        SystemClock.setCurrentTimeMillis(DAY_START);
+        now = DAY_START;
+        WorkManagerTestInitHelper.initializeTestWorkManager(app, new Configuration.Builder()
+                .setExecutor(new SynchronousExecutor())
+                .build());
+        driver = WorkManagerTestInitHelper.getTestDriver(app);
+        server = new SimServer("payloads/london_partly_cloudy.json");
+        WidgetApiClient.use(Collections.singletonList(server.url()));
+        WidgetState.edit(app)
+                .putBoolean("widget_has_location", true)
+                .putFloat("widget_lat", 51.5074f)
+                .putFloat("widget_lon", -0.1278f)
+                .putLong("widget_loc_time", now)
+                .commit();
+    }
+
+    @After
+    public void tearDown() {
+        if (server != null) server.close();
+        WeatherWidgetProvider.forgetProcess();
+    }
+
+    @Test
+    public void periodicSyncRunsOnlyWhenAFetchIsDue() throws Exception {
+        shadowOf(AppWidgetManager.getInstance(app)).createWidget(WeatherWidgetProvider.class, R.layout.weather_widget);
+        settle();
+        // The new widget's one-off sync fetches and plans the periodic one
+        WorkInfo oneOff = only(WidgetSyncWorker.ONE_OFF_WORK);
+        driver.setAllConstraintsMet(oneOff.getId());
+        settle();
+        assertEquals(1, server.requests.get());
+
+        long end = DAY_START + 72 * HOUR;
+        int runs = 0;
+        WorkInfo periodic = only(WidgetSyncWorker.PERIODIC_WORK);
+        long due = now + spec(periodic).initialDelay;
+        boolean first = true;
+        while (due < end) {
+            advanceTo(due);
+            long before = server.requests.get();
+            TimelineCache tl = TimelineCache.get(app);
+            assertNotNull(tl);
+            assertTrue("woke at " + hours() + " h with the forecast still good", tl.timeline.needsFetch(now));
+            if (first) {
+                driver.setInitialDelayMet(periodic.getId());
+            } else {
+                driver.setPeriodDelayMet(periodic.getId());
+            }
+            driver.setAllConstraintsMet(periodic.getId());
+            settle();
+            runs++;
+            assertEquals("run at " + hours() + " h", before + 1, server.requests.get());
+            // The fetch may have replanned the sync, which replaces the work
+            WorkInfo after = only(WidgetSyncWorker.PERIODIC_WORK);
+            first = !after.getId().equals(periodic.getId());
+            periodic = after;
+            WorkSpec spec = spec(periodic);
+            due = now + (first ? spec.initialDelay : spec.intervalDuration);
+        }
+        // A sync every server hour would have run 72 times. The forecast from each fetch lasts 32 hours here
+        assertEquals(2, runs);
+        assertEquals(3, server.requests.get());
+    }
+
+    private WorkInfo only(String name) throws Exception {
+        List<WorkInfo> infos = WorkManager.getInstance(app).getWorkInfosForUniqueWork(name).get();
+        WorkInfo enqueued = null;
+        for (WorkInfo info : infos) {
+            if (info.getState() == WorkInfo.State.ENQUEUED) {
+                assertEquals(null, enqueued);
+                enqueued = info;
+            }
+        }
+        assertNotNull(name + " not enqueued", enqueued);
+        return enqueued;
+    }
+
+    private WorkSpec spec(WorkInfo info) {
+        return WorkManagerImpl.getInstance(app).getWorkDatabase().workSpecDao().getWorkSpec(info.getId().toString());
+    }
+
+    private void advanceTo(long t) {
+        if (t > now) {
+            shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(t - now));
+            now = t;
+        }
+    }
+
+    // Let broadcasts reach their receivers and wait for the refresh pass they start
+    private void settle() throws InterruptedException {
+        for (int i = 0; i < 4000; i++) {
+            shadowOf(Looper.getMainLooper()).idle();
+            if (WeatherWidgetProvider.refreshIdle()) return;
+            Thread.sleep(5);
+        }
+        throw new AssertionError("refresh pass still running at " + hours() + " h");
+    }
+
+    private long hours() {
+        return (now - DAY_START) / HOUR;
+    }
+}
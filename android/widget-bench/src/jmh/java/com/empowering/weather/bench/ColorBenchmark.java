@@ -0,0 +1,43 @@
+package com.empowering.weather.bench;
+
+import com.empowering.weather.core.WidgetColors;
+import com.empowering.weather.core.WidgetFormat;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pill colours as computed on every render: parse the cached details line back into numbers, then
+ * derive background and HSL text colours for precipitation, humidity and UV.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ColorBenchmark {
+    @Param({"Prec: 0.0 mm | Hum: 70% | UV: 0.8", "Prec: 45% | Hum: 71% | UV: 9.0"})
+    public String details;
+
+    @Benchmark
+    public void pillColors(Blackhole bh) {
+        int precipBg = WidgetColors.precipBackground(WidgetFormat.parsePrecNorm(WidgetFormat.partsSafe(details, 0)));
+        int humBg = WidgetColors.humidityBackground(WidgetFormat.parsePercentNorm(WidgetFormat.partsSafe(details, 1)));
+        int uvBg = WidgetColors.uvBackground(WidgetFormat.parseUvValue(WidgetFormat.partsSafe(details, 2)));
+        bh.consume(WidgetColors.hslColor(precipBg, WidgetColors.TEXT_BRIGHTNESS));
+        bh.consume(WidgetColors.hslColor(humBg, WidgetColors.TEXT_BRIGHTNESS));
+        bh.consume(WidgetColors.hslColor(uvBg, WidgetColors.TEXT_BRIGHTNESS));
+    }
+
+    @Benchmark
+    public int colorMathOnly() {
+        int bg = WidgetColors.lerpColor(0xFFB3E5FC, 0xFF1565C0, 0.45);
+        return WidgetColors.hslColor(bg, WidgetColors.TEXT_BRIGHTNESS);
+    }
+}
@@ -0,0 +1,62 @@
+package com.empowering.weather.bench;
+
+import com.empowering.weather.core.WeatherStats;
+import com.empowering.weather.core.WidgetFormat;
+import com.empowering.weather.core.WidgetPayload;
+import com.empowering.weather.core.WidgetPayloadParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Text work done on every widget render: the details line and the "Last fetched" labels.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FormatBenchmark {
+    private static final long NOW = 1760437020000L;
+
+    private WidgetPayload.Current current;
+
+    @Setup
+    public void load() throws IOException {
+        current = WidgetPayloadParser.parse(new StringReader(Payloads.read("london_partly_cloudy.json"))).current;
+    }
+
+    @Benchmark
+    public String detailsLine() {
+        return WidgetFormat.buildDetailsFromCurrent(current);
+    }
+
+    // Labels, numbers and pill colours together, done once per fetch; compare with ColorBenchmark.pillColors,
+    // which every render used to pay
+    @Benchmark
+    public WeatherStats renderStats() {
+        return WeatherStats.fromCurrent(current);
+    }
+
+    @Benchmark
+    public String lastFetchedRelative() {
+        return WidgetFormat.lastFetchedLabel(NOW - 25_000L, NOW);
+    }
+
+    @Benchmark
+    public String lastFetchedClock() {
+        return WidgetFormat.lastFetchedLabel(NOW - 20L * 60_000L, NOW);
+    }
+
+    @Benchmark
+    public String cachedLocationAge() {
+        return WidgetFormat.formatAge(NOW - 42L * 60_000L, NOW);
+    }
+}
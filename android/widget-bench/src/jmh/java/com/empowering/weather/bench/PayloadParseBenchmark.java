@@ -0,0 +1,52 @@
+package com.empowering.weather.bench;
+
+import com.empowering.weather.core.WidgetFormat;
+import com.empowering.weather.core.WidgetPayload;
+import com.empowering.weather.core.WidgetPayloadParser;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse cost of one /api response: the streaming extractor vs the JSONObject tree it replaced.
+ * Run with -prof gc (on by default in build.gradle) to compare gc.alloc.rate.norm per op.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PayloadParseBenchmark {
+    @Param({"london_partly_cloudy.json", "sydney_sunny_cached.json", "reykjavik_mist.json"})
+    public String payload;
+
+    private String body;
+
+    @Setup
+    public void load() throws IOException {
+        body = Payloads.read(payload);
+    }
+
+    @Benchmark
+    public String streaming() throws IOException {
+        WidgetPayload p = WidgetPayloadParser.parse(new StringReader(body));
+        return p.quip + p.current.opt("temp_c") + WidgetFormat.buildDetailsFromCurrent(p.current);
+    }
+
+    @Benchmark
+    public String jsonObjectTree() {
+        JSONObject root = new JSONObject(body);
+        JSONObject weather = root.optJSONObject("weather");
+        JSONObject cur = weather != null ? weather.optJSONObject("current") : null;
+        return root.optString("weather_quip", "") + cur.opt("temp_c") + cur.opt("humidity") + cur.opt("uv") + cur.opt("precip_mm");
+    }
+}
@@ -0,0 +1,131 @@
+package com.empowering.weather.bench;
+
+import com.empowering.weather.core.StateStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the widget's state writes and reads: the binary {@link StateStore} against the whole-file XML
+ * rewrite SharedPreferences does (see {@link XmlPrefs}). Both hold the ~20 keys the app keeps today.
+ * "apply" is what the caller waits for; "durable" waits for the write to reach disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StateStoreBenchmark {
+    private File dir;
+    private ExecutorService writer;
+    private StateStore store;
+    private XmlPrefs prefs;
+    private long tick;
+
+    @Setup(Level.Trial)
+    public void open() throws IOException {
+        dir = Files.createTempDirectory("state-bench").toFile();
+        writer = Executors.newSingleThreadExecutor();
+        store = new StateStore(new File(dir, "widget_state.bin"), writer);
+        prefs = new XmlPrefs(new File(dir, "weather_widget_prefs.xml"));
+        Map<String, Object> seed = seed();
+        store.edit().putAll(seed).commit();
+        try {
+            prefs.apply(seed).get();
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        writer.shutdown();
+        prefs.close();
+        File[] files = dir.listFiles();
+        if (files != null) for (File f : files) //noinspection ResultOfMethodCallIgnored
+            f.delete();
+        //noinspection ResultOfMethodCallIgnored
+        dir.delete();
+    }
+
+    // The location fix written by LocationBroadcastReceiver
+    @Benchmark
+    public Object storeApplyFix() {
+        long t = ++tick;
+        return store.edit().putBoolean("widget_has_location", true).putFloat("widget_lat", 51.5f + t * 1e-6f)
+                .putFloat("widget_lon", -0.12f).putLong("widget_loc_time", t).apply();
+    }
+
+    @Benchmark
+    public Object prefsApplyFix() {
+        return prefs.apply(fix(++tick));
+    }
+
+    @Benchmark
+    public boolean storeDurableFix() {
+        long t = ++tick;
+        return store.edit().putBoolean("widget_has_location", true).putFloat("widget_lat", 51.5f + t * 1e-6f)
+                .putFloat("widget_lon", -0.12f).putLong("widget_loc_time", t).commit();
+    }
+
+    @Benchmark
+    public Object prefsDurableFix() throws Exception {
+        return prefs.apply(fix(++tick)).get();
+    }
+
+    // The saved location the fetch path reads before every refresh
+    @Benchmark
+    public double storeReadLocation() {
+        StateStore.Snapshot s = store.snapshot();
+        return s.getBoolean("widget_has_location", false) ? s.getFloat("widget_lat", 0f) + s.getFloat("widget_lon", 0f)
+                + s.getLong("widget_loc_time", 0L) : 0;
+    }
+
+    @Benchmark
+    public double prefsReadLocation() {
+        return prefs.getBoolean("widget_has_location", false) ? prefs.getFloat("widget_lat", 0f)
+                + prefs.getFloat("widget_lon", 0f) + prefs.getLong("widget_loc_time", 0L) : 0;
+    }
+
+    private static Map<String, Object> fix(long t) {
+        Map<String, Object> m = new HashMap<>();
+        m.put("widget_has_location", true);
+        m.put("widget_lat", 51.5f + t * 1e-6f);
+        m.put("widget_lon", -0.12f);
+        m.put("widget_loc_time", t);
+        return m;
+    }
+
+    private static Map<String, Object> seed() {
+        Map<String, Object> m = new HashMap<>(fix(1L));
+        m.put("widget_last_fetch_time", 1760437020000L);
+        m.put("widget_fetch_lat", 51.5f);
+        m.put("widget_fetch_lon", -0.12f);
+        m.put("widget_cached_quip", "Grey skies, grey mood. The sun has filed for annual leave.");
+        m.put("widget_cached_temp", "14.2°C");
+        m.put("widget_cached_location", "Prec: 40% | Hum: 71% | UV: 3.5");
+        m.put("widget_loc_suppressed", 42L);
+        m.put("location_service_running", true);
+        m.put("location_service_started_at", 1760437020000L);
+        m.put("location_service_stopped_at", 1760430000000L);
+        m.put("location_service_start_status", "ok");
+        m.put("location_service_start_time", 1760437020000L);
+        String[] counters = {"hits", "misses", "not_modified", "bytes_transferred", "bytes_saved"};
+        for (int i = 0; i < counters.length; i++) m.put("widget_http_" + counters[i], 1000L * (i + 1));
+        return m;
+    }
+}
@@ -0,0 +1,105 @@
+package com.empowering.weather.bench;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * JVM stand-in for Android's SharedPreferencesImpl, the baseline for {@link StateStoreBenchmark}. It does what
+ * the platform does per edit: every getter takes the instance lock, and every apply/commit copies the whole map
+ * and rewrites the whole XML file (backup rename, serialise, fsync) on a single background thread. As on the
+ * platform, a queued write that a newer edit has overtaken is skipped.
+ */
+final class XmlPrefs {
+    private final File file;
+    private final File backup;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor();
+    private final Object lock = new Object();
+    private final Map<String, Object> map = new HashMap<>();
+    private long generation;
+
+    XmlPrefs(File file) {
+        this.file = file;
+        this.backup = new File(file.getPath() + ".bak");
+    }
+
+    long getLong(String key, long def) {
+        synchronized (lock) {
+            Object v = map.get(key);
+            return v != null ? (Long) v : def;
+        }
+    }
+
+    float getFloat(String key, float def) {
+        synchronized (lock) {
+            Object v = map.get(key);
+            return v != null ? (Float) v : def;
+        }
+    }
+
+    boolean getBoolean(String key, boolean def) {
+        synchronized (lock) {
+            Object v = map.get(key);
+            return v != null ? (Boolean) v : def;
+        }
+    }
+
+    /** Apply changes in memory and return the pending disk write, as apply() does without waiting for it. */
+    Future<?> apply(Map<String, Object> changes) {
+        Map<String, Object> copy;
+        long gen;
+        synchronized (lock) {
+            map.putAll(changes);
+            copy = new HashMap<>(map);
+            gen = ++generation;
+        }
+        return writer.submit(() -> {
+            synchronized (lock) {
+                if (gen != generation) return;
+            }
+            try {
+                write(copy);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    void close() {
+        writer.shutdown();
+    }
+
+    private void write(Map<String, Object> values) throws IOException {
+        if (file.exists() && !backup.exists() && !file.renameTo(backup)) throw new IOException("backup failed");
+        try (FileOutputStream fos = new FileOutputStream(file)) {
+            BufferedWriter out = new BufferedWriter(new OutputStreamWriter(fos, StandardCharsets.UTF_8));
+            out.write("<?xml version='1.0' encoding='utf-8' standalone='yes' ?>\n<map>\n");
+            for (Map.Entry<String, Object> e : values.entrySet()) {
+                Object v = e.getValue();
+                String type = v instanceof Long ? "long" : v instanceof Float ? "float" : v instanceof Boolean ? "boolean" : "string";
+                if (v instanceof String) {
+                    out.write("    <string name=\"" + escape(e.getKey()) + "\">" + escape((String) v) + "</string>\n");
+                } else {
+                    out.write("    <" + type + " name=\"" + escape(e.getKey()) + "\" value=\"" + v + "\" />\n");
+                }
+            }
+            out.write("</map>\n");
+            out.flush();
+            fos.getFD().sync();
+        }
+        //noinspection ResultOfMethodCallIgnored
+        backup.delete();
+    }
+
+    private static String escape(String s) {
+        return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+}
@@ -0,0 +1,44 @@
+package com.empowering.weather.core;
+
+/**
+ * Default {@link LocationPolicy}. The widget only needs to notice moves of about moveThresholdMeters (see
+ * {@link LocationGate}), so the request is only as eager as someone looking at the screen while travelling
+ * needs. When nobody is looking, or the battery is low, it drops to passive fixes (ones other apps asked for)
+ * or infrequent low-power ones, batched so the device is woken rarely.
+ */
+public final class AdaptiveLocationPolicy implements LocationPolicy {
+    // Below this, not charging, counts as low battery; Android's own low-battery warning is at 15%
+    static final int LOW_BATTERY_PERCENT = 15;
+    // Slower than walking (about 1.4 m/s) counts as stationary
+    static final double STATIONARY_MPS = 0.5;
+
+    private static final long MIN = 60_000L;
+
+    private final Request lowBattery;
+    private final Request screenOff;
+    private final Request screenOffMoving;
+    private final Request stationary;
+    private final Request moving;
+    private final Request charging;
+
+    public AdaptiveLocationPolicy(float moveThresholdMeters) {
+        lowBattery = new Request("low-battery", PRIORITY_PASSIVE, 30 * MIN, 15 * MIN, moveThresholdMeters, 60 * MIN);
+        screenOff = new Request("screen-off", PRIORITY_PASSIVE, 15 * MIN, 5 * MIN, moveThresholdMeters, 30 * MIN);
+        screenOffMoving = new Request("screen-off-moving", PRIORITY_LOW_POWER, 10 * MIN, 5 * MIN, moveThresholdMeters, 30 * MIN);
+        stationary = new Request("stationary", PRIORITY_LOW_POWER, 5 * MIN, 2 * MIN, moveThresholdMeters, 0L);
+        moving = new Request("moving", PRIORITY_BALANCED_POWER_ACCURACY, MIN, 30_000L, moveThresholdMeters / 5f, 0L);
+        // What the widget always used to ask for; fine while on the charger
+        charging = new Request("charging", PRIORITY_BALANCED_POWER_ACCURACY, 30_000L, 10_000L, 0f, 0L);
+    }
+
+    @Override
+    public Request choose(State s) {
+        boolean low = !s.charging && (s.powerSave || (s.batteryPercent >= 0 && s.batteryPercent <= LOW_BATTERY_PERCENT));
+        // Unknown speed counts as moving, so the next fixes come soon enough to tell
+        boolean still = s.speedMps < STATIONARY_MPS;
+        if (low) return lowBattery;
+        if (!s.screenOn) return still ? screenOff : screenOffMoving;
+        if (still) return stationary;
+        return s.charging ? charging : moving;
+    }
+}
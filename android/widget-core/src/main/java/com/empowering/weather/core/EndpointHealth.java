@@ -0,0 +1,101 @@
+package com.empowering.weather.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Health of a fixed list of API endpoints, from the calls made to them: a moving average of each one's latency
+ * and its run of consecutive failures. An endpoint that just failed sits out a penalty that doubles with every
+ * further failure; the rest are ordered by latency, with endpoints not yet measured taking the average and ties
+ * keeping the configured order. Also keeps the most recent latencies across all endpoints, for hedging.
+ */
+public final class EndpointHealth {
+    // Weight of a new sample in the moving average
+    private static final double ALPHA = 0.3;
+    private static final long PENALTY_MS = 30_000L;
+    private static final long MAX_PENALTY_MS = 10 * 60_000L;
+    private static final int WINDOW = 32;
+
+    private final List<String> endpoints;
+    private final double[] latencyMs;
+    private final int[] failures;
+    private final long[] failedAt;
+    private final long[] recent = new long[WINDOW];
+    private int recentCount;
+    private int recentNext;
+
+    public EndpointHealth(List<String> endpoints) {
+        if (endpoints.isEmpty()) throw new IllegalArgumentException("no endpoints");
+        this.endpoints = new ArrayList<>(endpoints);
+        int n = endpoints.size();
+        latencyMs = new double[n];
+        Arrays.fill(latencyMs, Double.NaN);
+        failures = new int[n];
+        failedAt = new long[n];
+    }
+
+    public List<String> endpoints() {
+        return new ArrayList<>(endpoints);
+    }
+
+    /** Endpoints to try, best first. */
+    public synchronized List<String> ordered(long now) {
+        double sum = 0;
+        int known = 0;
+        for (double l : latencyMs) {
+            if (!Double.isNaN(l)) {
+                sum += l;
+                known++;
+            }
+        }
+        double prior = known > 0 ? sum / known : 0;
+        Integer[] idx = new Integer[endpoints.size()];
+        for (int i = 0; i < idx.length; i++) idx[i] = i;
+        // Stable: equal keys keep the configured order
+        Arrays.sort(idx, Comparator.<Integer>comparingInt(i -> penalized(i, now) ? 1 : 0)
+                .thenComparingDouble(i -> Double.isNaN(latencyMs[i]) ? prior : latencyMs[i]));
+        List<String> out = new ArrayList<>(idx.length);
+        for (int i : idx) out.add(endpoints.get(i));
+        return out;
+    }
+
+    public synchronized void success(String endpoint, long ms) {
+        int i = endpoints.indexOf(endpoint);
+        if (i < 0) return;
+        latencyMs[i] = Double.isNaN(latencyMs[i]) ? ms : latencyMs[i] + ALPHA * (ms - latencyMs[i]);
+        failures[i] = 0;
+        recent[recentNext] = ms;
+        recentNext = (recentNext + 1) % WINDOW;
+        recentCount = Math.min(WINDOW, recentCount + 1);
+    }
+
+    public synchronized void failure(String endpoint, long now) {
+        int i = endpoints.indexOf(endpoint);
+        if (i < 0) return;
+        failures[i]++;
+        failedAt[i] = now;
+    }
+
+    /** The p-th quantile (0 < p <= 1) of the recent latencies, or def before any call succeeded. */
+    public synchronized long latencyQuantileMs(double p, long def) {
+        if (recentCount == 0) return def;
+        long[] sorted = Arrays.copyOf(recent, recentCount);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(p * recentCount) - 1;
+        return sorted[Math.max(0, Math.min(recentCount - 1, rank))];
+    }
+
+    /** Moving average latency in ms, or -1 before the endpoint's first success. */
+    public synchronized long latencyMs(String endpoint) {
+        int i = endpoints.indexOf(endpoint);
+        return i < 0 || Double.isNaN(latencyMs[i]) ? -1L : Math.round(latencyMs[i]);
+    }
+
+    private boolean penalized(int i, long now) {
+        if (failures[i] == 0) return false;
+        long penalty = Math.min(MAX_PENALTY_MS, PENALTY_MS << Math.min(failures[i] - 1, 16));
+        return now - failedAt[i] < penalty;
+    }
+}
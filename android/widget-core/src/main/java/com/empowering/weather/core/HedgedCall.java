@@ -0,0 +1,188 @@
+package com.empowering.weather.core;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * One logical request over several endpoints ({@link EndpointHealth}), best first. When the first attempt has
+ * not answered within the recent latency quantile, the same request goes to the next endpoint as well and the
+ * first usable answer wins; an attempt that fails, or answers with something unusable, moves on to the next
+ * endpoint at once. Losing attempts are cancelled. The whole call has a deadline, after which the attempts still
+ * running are cancelled and count against their endpoints.
+ */
+public final class HedgedCall {
+    /** One attempt against one endpoint. Should abort promptly when cancel fires. */
+    public interface Attempt<T> {
+        T call(String endpoint, TaskScheduler.Cancellation cancel) throws Exception;
+    }
+
+    private static final Object CANCELLED = new Object();
+
+    private final EndpointHealth health;
+    private final Executor executor;
+    private final double hedgeQuantile;
+    private final long minHedgeMs;
+    private final long maxHedgeMs;
+    private long calls;
+    private long hedges;
+    private long hedgeWins;
+    private long failovers;
+    private long deadlineMisses;
+
+    /**
+     * Hedges after the hedgeQuantile of recent latencies, kept within [minHedgeMs, maxHedgeMs]; maxHedgeMs
+     * before anything was measured. Attempts run on executor, which must be able to run several at once.
+     */
+    public HedgedCall(EndpointHealth health, Executor executor, double hedgeQuantile, long minHedgeMs, long maxHedgeMs) {
+        this.health = health;
+        this.executor = executor;
+        this.hedgeQuantile = hedgeQuantile;
+        this.minHedgeMs = minHedgeMs;
+        this.maxHedgeMs = maxHedgeMs;
+    }
+
+    private static final class Done<T> {
+        final String endpoint;
+        final int index;
+        final T result;
+        final Exception error;
+        final long ms;
+
+        Done(String endpoint, int index, T result, Exception error, long ms) {
+            this.endpoint = endpoint;
+            this.index = index;
+            this.result = result;
+            this.error = error;
+            this.ms = ms;
+        }
+    }
+
+    /** Current delay before a hedge is sent, in ms. */
+    public long hedgeDelayMs() {
+        return Math.max(minHedgeMs, Math.min(maxHedgeMs, health.latencyQuantileMs(hedgeQuantile, maxHedgeMs)));
+    }
+
+    /**
+     * The first answer usable says yes to. When no attempt gives one, the last unusable answer, or else the last
+     * error, is passed on; SocketTimeoutException when the deadline passes first.
+     */
+    public <T> T call(Attempt<T> attempt, Predicate<T> usable, long deadlineMs, TaskScheduler.Cancellation cancel)
+            throws Exception {
+        return call(attempt, usable, r -> true, deadlineMs, cancel);
+    }
+
+    /**
+     * As above, but only a winning answer measured says yes to counts towards its endpoint's latency and the hedge
+     * delay. One served without a transfer (from a local cache, say) says nothing about the endpoint.
+     */
+    public <T> T call(Attempt<T> attempt, Predicate<T> usable, Predicate<T> measured, long deadlineMs,
+                      TaskScheduler.Cancellation cancel) throws Exception {
+        synchronized (this) {
+            calls++;
+        }
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+        long hedgeNs = TimeUnit.MILLISECONDS.toNanos(hedgeDelayMs());
+        List<String> order = health.ordered(System.currentTimeMillis());
+        BlockingQueue<Object> done = new LinkedBlockingQueue<>();
+        List<TaskScheduler.Cancellation> running = new ArrayList<>();
+        List<String> inFlight = new ArrayList<>();
+        boolean[] hedged = new boolean[order.size()];
+        cancel.onCancel(() -> done.offer(CANCELLED));
+
+        int next = 0;
+        launch(attempt, order.get(next), next++, done, running, inFlight);
+        long hedgeAt = start + hedgeNs;
+        T lastResult = null;
+        Exception lastError = null;
+        try {
+            while (true) {
+                boolean canHedge = next < order.size();
+                long wake = canHedge ? Math.min(hedgeAt, deadline) : deadline;
+                Object o = done.poll(Math.max(0L, wake - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (o == CANCELLED) throw new IOException("cancelled");
+                long nowNs = System.nanoTime();
+                if (o == null) {
+                    if (nowNs >= deadline) {
+                        synchronized (this) {
+                            deadlineMisses++;
+                        }
+                        long now = System.currentTimeMillis();
+                        for (String e : inFlight) health.failure(e, now);
+                        if (lastResult != null) return lastResult;
+                        throw new SocketTimeoutException("no answer within " + deadlineMs + " ms");
+                    }
+                    if (canHedge) {
+                        synchronized (this) {
+                            hedges++;
+                        }
+                        hedged[next] = true;
+                        launch(attempt, order.get(next), next++, done, running, inFlight);
+                        hedgeAt = nowNs + hedgeNs;
+                    }
+                    continue;
+                }
+                @SuppressWarnings("unchecked")
+                Done<T> d = (Done<T>) o;
+                inFlight.remove(d.endpoint);
+                if (d.error == null && usable.test(d.result)) {
+                    if (measured.test(d.result)) health.success(d.endpoint, d.ms);
+                    if (hedged[d.index]) {
+                        synchronized (this) {
+                            hedgeWins++;
+                        }
+                    }
+                    return d.result;
+                }
+                health.failure(d.endpoint, System.currentTimeMillis());
+                if (d.error == null) {
+                    lastResult = d.result;
+                } else {
+                    lastError = d.error;
+                }
+                if (next < order.size()) {
+                    synchronized (this) {
+                        failovers++;
+                    }
+                    launch(attempt, order.get(next), next++, done, running, inFlight);
+                    hedgeAt = nowNs + hedgeNs;
+                } else if (inFlight.isEmpty()) {
+                    if (lastResult != null) return lastResult;
+                    throw lastError;
+                }
+            }
+        } finally {
+            for (TaskScheduler.Cancellation c : running) c.cancel();
+        }
+    }
+
+    private <T> void launch(Attempt<T> attempt, String endpoint, int index, BlockingQueue<Object> done,
+                            List<TaskScheduler.Cancellation> running, List<String> inFlight) {
+        TaskScheduler.Cancellation c = new TaskScheduler.Cancellation();
+        running.add(c);
+        inFlight.add(endpoint);
+        executor.execute(() -> {
+            long t = System.nanoTime();
+            T result = null;
+            Exception error = null;
+            try {
+                result = attempt.call(endpoint, c);
+            } catch (Exception e) {
+                error = e;
+            }
+            done.offer(new Done<>(endpoint, index, result, error, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t)));
+        });
+    }
+
+    /** Counters for logging: {calls, hedges, hedgeWins, failovers, deadlineMisses}. */
+    public synchronized long[] stats() {
+        return new long[]{calls, hedges, hedgeWins, failovers, deadlineMisses};
+    }
+}
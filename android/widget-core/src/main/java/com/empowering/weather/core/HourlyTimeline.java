@@ -0,0 +1,188 @@
+package com.empowering.weather.core;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The /api hourly forecast (weather.forecast.forecastday[].hour[]) kept as parallel primitive arrays indexed by
+ * epoch hour, so the widget can roll its values forward as hours pass without another fetch.
+ * Missing values are NaN for the float series and -1 for the short ones. Each hour also keeps its conditions
+ * reduced to {@link QuipEngine#conditionFlags} so a quip can be picked for it offline.
+ */
+public final class HourlyTimeline {
+    // Refetch once fewer hours than this are left ahead of now
+    public static final int MIN_HOURS_LEFT = 6;
+    private static final int FORMAT_VERSION = 2;
+    private static final long HOUR_MS = 3_600_000L;
+
+    private final long firstHour;
+    private final float[] tempC;
+    private final float[] uv;
+    private final float[] precipMm;
+    private final short[] humidity;
+    private final short[] rainChance;
+    private final byte[] conditions;
+
+    private HourlyTimeline(long firstHour, float[] tempC, float[] uv, float[] precipMm, short[] humidity, short[] rainChance,
+                           byte[] conditions) {
+        this.firstHour = firstHour;
+        this.tempC = tempC;
+        this.uv = uv;
+        this.precipMm = precipMm;
+        this.humidity = humidity;
+        this.rainChance = rainChance;
+        this.conditions = conditions;
+    }
+
+    public static long hourOf(long epochMillis) {
+        return Math.floorDiv(epochMillis, HOUR_MS);
+    }
+
+    public int size() {
+        return tempC.length;
+    }
+
+    /** Epoch millis just past the last covered hour. */
+    public long endMillis() {
+        return (firstHour + tempC.length) * HOUR_MS;
+    }
+
+    /** Index of the hour containing epochMillis, or -1 when outside the timeline. */
+    public int indexAt(long epochMillis) {
+        long i = hourOf(epochMillis) - firstHour;
+        return i >= 0 && i < tempC.length ? (int) i : -1;
+    }
+
+    /** Whole hours covered from the one containing epochMillis onwards. */
+    public int hoursLeft(long epochMillis) {
+        long i = hourOf(epochMillis) - firstHour;
+        if (i < 0) return tempC.length;
+        return (int) Math.max(0L, tempC.length - i);
+    }
+
+    public boolean needsFetch(long epochMillis) {
+        return hoursLeft(epochMillis) < MIN_HOURS_LEFT;
+    }
+
+    /** First instant at which {@link #needsFetch} is true. */
+    public long refetchAtMillis() {
+        return (firstHour + tempC.length - MIN_HOURS_LEFT + 1) * HOUR_MS;
+    }
+
+    public float tempC(int i) { return tempC[i]; }
+    public float uv(int i) { return uv[i]; }
+    public float precipMm(int i) { return precipMm[i]; }
+    public int humidity(int i) { return humidity[i]; }
+    public int rainChance(int i) { return rainChance[i]; }
+    public int conditions(int i) { return conditions[i] & 0xff; }
+
+    /** Rough heap footprint: array payloads plus object and array headers. */
+    public int estimatedBytes() {
+        int n = tempC.length;
+        return 24 + 6 * 16 + n * (3 * 4 + 2 * 2 + 1);
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(firstHour);
+        out.writeShort(tempC.length);
+        for (int i = 0; i < tempC.length; i++) {
+            out.writeFloat(tempC[i]);
+            out.writeFloat(uv[i]);
+            out.writeFloat(precipMm[i]);
+            out.writeShort(humidity[i]);
+            out.writeShort(rainChance[i]);
+            out.writeByte(conditions[i]);
+        }
+    }
+
+    /** Returns null when the data was written by an incompatible version. */
+    public static HourlyTimeline readFrom(DataInput in) throws IOException {
+        if (in.readInt() != FORMAT_VERSION) return null;
+        long first = in.readLong();
+        int n = in.readUnsignedShort();
+        float[] t = new float[n], u = new float[n], p = new float[n];
+        short[] h = new short[n], c = new short[n];
+        byte[] f = new byte[n];
+        for (int i = 0; i < n; i++) {
+            t[i] = in.readFloat();
+            u[i] = in.readFloat();
+            p[i] = in.readFloat();
+            h[i] = in.readShort();
+            c[i] = in.readShort();
+            f[i] = in.readByte();
+        }
+        return new HourlyTimeline(first, t, u, p, h, c, f);
+    }
+
+    /** Collects hours in any order; gaps between the first and last hour are left as missing values. */
+    public static final class Builder {
+        private long[] hours = new long[48];
+        private float[] temp = new float[48], uvs = new float[48], precip = new float[48];
+        private short[] hum = new short[48], chance = new short[48];
+        private byte[] cond = new byte[48];
+        private int count;
+
+        public Builder add(long epochSeconds, float tempC, int humidity, float uv, float precipMm, int rainChance) {
+            return add(epochSeconds, tempC, humidity, uv, precipMm, rainChance, 0);
+        }
+
+        /** conditions as from {@link QuipEngine#conditionFlags}. */
+        public Builder add(long epochSeconds, float tempC, int humidity, float uv, float precipMm, int rainChance,
+                           int conditions) {
+            if (count == hours.length) {
+                int cap = count * 2;
+                hours = Arrays.copyOf(hours, cap);
+                temp = Arrays.copyOf(temp, cap);
+                uvs = Arrays.copyOf(uvs, cap);
+                precip = Arrays.copyOf(precip, cap);
+                hum = Arrays.copyOf(hum, cap);
+                chance = Arrays.copyOf(chance, cap);
+                cond = Arrays.copyOf(cond, cap);
+            }
+            hours[count] = Math.floorDiv(epochSeconds, 3600L);
+            temp[count] = tempC;
+            uvs[count] = uv;
+            precip[count] = precipMm;
+            hum[count] = (short) humidity;
+            chance[count] = (short) rainChance;
+            cond[count] = (byte) conditions;
+            count++;
+            return this;
+        }
+
+        /** Null when no hours were added. */
+        public HourlyTimeline build() {
+            if (count == 0) return null;
+            long min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+            for (int i = 0; i < count; i++) {
+                min = Math.min(min, hours[i]);
+                max = Math.max(max, hours[i]);
+            }
+            // A well-formed payload spans 48 hours; cap anything absurd rather than allocating for it
+            int n = (int) Math.min(max - min + 1, 24L * 16);
+            float[] t = new float[n], u = new float[n], p = new float[n];
+            short[] h = new short[n], c = new short[n];
+            byte[] f = new byte[n];
+            Arrays.fill(t, Float.NaN);
+            Arrays.fill(u, Float.NaN);
+            Arrays.fill(p, Float.NaN);
+            Arrays.fill(h, (short) -1);
+            Arrays.fill(c, (short) -1);
+            for (int i = 0; i < count; i++) {
+                long idx = hours[i] - min;
+                if (idx >= n) continue;
+                int j = (int) idx;
+                t[j] = temp[i];
+                u[j] = uvs[i];
+                p[j] = precip[i];
+                h[j] = hum[i];
+                c[j] = chance[i];
+                f[j] = cond[i];
+            }
+            return new HourlyTimeline(min, t, u, p, h, c, f);
+        }
+    }
+}
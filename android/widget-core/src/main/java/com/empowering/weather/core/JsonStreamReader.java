@@ -0,0 +1,310 @@
+package com.empowering.weather.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Minimal pull-style JSON tokenizer (same shape as android.util.JsonReader) that runs on the plain JVM.
+ * Values the caller is not interested in are skipped character by character without building strings
+ * or objects, so only the fields that are actually read cost allocations.
+ */
+public final class JsonStreamReader implements Closeable {
+    public enum Token { BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT }
+
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_OBJECT = 2;
+    private static final int DANGLING_NAME = 3;
+    private static final int NONEMPTY_OBJECT = 4;
+    private static final int EMPTY_ARRAY = 5;
+    private static final int NONEMPTY_ARRAY = 6;
+
+    private final Reader in;
+    private final char[] buf = new char[2048];
+    private int pos = 0;
+    private int limit = 0;
+    private int[] stack = new int[16];
+    private int depth = 1;
+    private Token peeked;
+    // Reused for names/literals so matching a key does not allocate
+    private final StringBuilder scratch = new StringBuilder(32);
+
+    public JsonStreamReader(Reader in) {
+        this.in = in;
+        stack[0] = EMPTY_DOCUMENT;
+    }
+
+    public Token peek() throws IOException {
+        if (peeked != null) return peeked;
+        int scope = stack[depth - 1];
+        int c;
+        switch (scope) {
+            case EMPTY_DOCUMENT:
+                stack[depth - 1] = NONEMPTY_DOCUMENT;
+                return peeked = readValueToken(nextNonWhitespace());
+            case NONEMPTY_DOCUMENT:
+                c = nextNonWhitespace();
+                if (c != -1) throw syntax("trailing content");
+                return peeked = Token.END_DOCUMENT;
+            case EMPTY_ARRAY:
+                stack[depth - 1] = NONEMPTY_ARRAY;
+                c = nextNonWhitespace();
+                if (c == ']') return peeked = Token.END_ARRAY;
+                return peeked = readValueToken(c);
+            case NONEMPTY_ARRAY:
+                c = nextNonWhitespace();
+                if (c == ']') return peeked = Token.END_ARRAY;
+                if (c != ',') throw syntax("expected ',' or ']'");
+                return peeked = readValueToken(nextNonWhitespace());
+            case EMPTY_OBJECT:
+            case NONEMPTY_OBJECT:
+                c = nextNonWhitespace();
+                if (c == '}') return peeked = Token.END_OBJECT;
+                if (scope == NONEMPTY_OBJECT) {
+                    if (c != ',') throw syntax("expected ',' or '}'");
+                    c = nextNonWhitespace();
+                }
+                if (c != '"') throw syntax("expected name");
+                stack[depth - 1] = DANGLING_NAME;
+                return peeked = Token.NAME;
+            case DANGLING_NAME:
+                if (nextNonWhitespace() != ':') throw syntax("expected ':'");
+                stack[depth - 1] = NONEMPTY_OBJECT;
+                return peeked = readValueToken(nextNonWhitespace());
+            default:
+                throw new IllegalStateException("bad scope " + scope);
+        }
+    }
+
+    public boolean hasNext() throws IOException {
+        Token t = peek();
+        return t != Token.END_OBJECT && t != Token.END_ARRAY && t != Token.END_DOCUMENT;
+    }
+
+    public void beginObject() throws IOException {
+        expect(Token.BEGIN_OBJECT);
+        push(EMPTY_OBJECT);
+    }
+
+    public void endObject() throws IOException {
+        expect(Token.END_OBJECT);
+        depth--;
+    }
+
+    public void beginArray() throws IOException {
+        expect(Token.BEGIN_ARRAY);
+        push(EMPTY_ARRAY);
+    }
+
+    public void endArray() throws IOException {
+        expect(Token.END_ARRAY);
+        depth--;
+    }
+
+    public String nextName() throws IOException {
+        expect(Token.NAME);
+        scratch.setLength(0);
+        readString(scratch);
+        return scratch.toString();
+    }
+
+    // Consume the next name and return its index in options, or -1. Does not allocate.
+    public int selectName(String[] options) throws IOException {
+        expect(Token.NAME);
+        scratch.setLength(0);
+        readString(scratch);
+        for (int i = 0; i < options.length; i++) {
+            if (options[i].contentEquals(scratch)) return i;
+        }
+        return -1;
+    }
+
+    public String nextString() throws IOException {
+        Token t = peek();
+        peeked = null;
+        scratch.setLength(0);
+        if (t == Token.STRING) {
+            readString(scratch);
+        } else if (t == Token.NUMBER || t == Token.BOOLEAN || t == Token.NULL) {
+            readLiteral(scratch);
+        } else {
+            throw new IllegalStateException("expected a string but was " + t);
+        }
+        return scratch.toString();
+    }
+
+    // Raw source text of a number, boolean or null literal
+    public String nextLiteral() throws IOException {
+        Token t = peek();
+        if (t != Token.NUMBER && t != Token.BOOLEAN && t != Token.NULL) {
+            throw new IllegalStateException("expected a literal but was " + t);
+        }
+        peeked = null;
+        scratch.setLength(0);
+        readLiteral(scratch);
+        return scratch.toString();
+    }
+
+    public void skipValue() throws IOException {
+        int count = 0;
+        do {
+            Token t = peek();
+            peeked = null;
+            switch (t) {
+                case BEGIN_OBJECT:
+                    push(EMPTY_OBJECT);
+                    count++;
+                    break;
+                case BEGIN_ARRAY:
+                    push(EMPTY_ARRAY);
+                    count++;
+                    break;
+                case END_OBJECT:
+                case END_ARRAY:
+                    depth--;
+                    count--;
+                    break;
+                case NAME:
+                case STRING:
+                    skipString();
+                    break;
+                case NUMBER:
+                case BOOLEAN:
+                case NULL:
+                    skipLiteral();
+                    break;
+                default:
+                    throw syntax("unexpected " + t);
+            }
+        } while (count != 0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void expect(Token t) throws IOException {
+        Token actual = peek();
+        if (actual != t) throw new IllegalStateException("expected " + t + " but was " + actual);
+        peeked = null;
+    }
+
+    private void push(int scope) {
+        if (depth == stack.length) {
+            int[] grown = new int[depth * 2];
+            System.arraycopy(stack, 0, grown, 0, depth);
+            stack = grown;
+        }
+        stack[depth++] = scope;
+    }
+
+    private Token readValueToken(int c) throws IOException {
+        switch (c) {
+            case '{': return Token.BEGIN_OBJECT;
+            case '[': return Token.BEGIN_ARRAY;
+            case '"': return Token.STRING;
+            case 't':
+            case 'f':
+            case 'T':
+            case 'F':
+                pos--;
+                return Token.BOOLEAN;
+            case 'n':
+            case 'N':
+                pos--;
+                return Token.NULL;
+            case -1:
+                throw syntax("unexpected end of input");
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    pos--;
+                    return Token.NUMBER;
+                }
+                throw syntax("unexpected character '" + (char) c + "'");
+        }
+    }
+
+    private int read() throws IOException {
+        if (pos == limit) {
+            limit = in.read(buf, 0, buf.length);
+            pos = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buf[pos++];
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        int c;
+        do {
+            c = read();
+        } while (c == ' ' || c == '\n' || c == '\r' || c == '\t');
+        return c;
+    }
+
+    // Reads string content after the opening quote into out (or skips it when out is null)
+    private void readString(StringBuilder out) throws IOException {
+        while (true) {
+            int c = read();
+            if (c == -1) throw syntax("unterminated string");
+            if (c == '"') return;
+            if (c == '\\') {
+                c = read();
+                char decoded;
+                switch (c) {
+                    case 'u':
+                        int v = 0;
+                        for (int i = 0; i < 4; i++) {
+                            int h = Character.digit(read(), 16);
+                            if (h < 0) throw syntax("bad \\u escape");
+                            v = (v << 4) | h;
+                        }
+                        decoded = (char) v;
+                        break;
+                    case 'n': decoded = '\n'; break;
+                    case 't': decoded = '\t'; break;
+                    case 'r': decoded = '\r'; break;
+                    case 'b': decoded = '\b'; break;
+                    case 'f': decoded = '\f'; break;
+                    case -1: throw syntax("unterminated escape");
+                    default: decoded = (char) c; break;
+                }
+                if (out != null) out.append(decoded);
+            } else if (out != null) {
+                out.append((char) c);
+            }
+        }
+    }
+
+    private void skipString() throws IOException {
+        readString(null);
+    }
+
+    private void readLiteral(StringBuilder out) throws IOException {
+        while (true) {
+            int c = read();
+            if (c == -1) return;
+            if (isLiteralEnd(c)) {
+                pos--;
+                return;
+            }
+            if (out != null) out.append((char) c);
+        }
+    }
+
+    private void skipLiteral() throws IOException {
+        readLiteral(null);
+    }
+
+    private static boolean isLiteralEnd(int c) {
+        return c == ',' || c == '}' || c == ']' || c == ':' || c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    private IOException syntax(String msg) {
+        return new IOException("Malformed JSON: " + msg);
+    }
+}
@@ -0,0 +1,57 @@
+package com.empowering.weather.core;
+
+/**
+ * Decides whether a new location fix is worth a widget refresh.
+ *
+ * The server caches forecasts per rounded lat:lon bucket, so a fix only changes what the widget shows when it
+ * lands in a different bucket than the last fetch, or when that fetch is old enough for the server to hold newer
+ * data. A bucket change must also come with a minimum movement, so jitter across a bucket edge does not
+ * flip-flop between two forecasts.
+ */
+public final class LocationGate {
+    public enum Decision {
+        FIRST_FIX, BUCKET_CHANGED, STALE, SUPPRESSED;
+
+        public boolean refresh() {
+            return this != SUPPRESSED;
+        }
+    }
+
+    private static final double EARTH_RADIUS_M = 6_371_000.0;
+
+    private LocationGate() {}
+
+    // Same key the server uses for its cache (Math.round matches JS for these values)
+    public static String bucketKey(double lat, double lon) {
+        return Math.round(lat) + ":" + Math.round(lon);
+    }
+
+    public static boolean sameBucket(double lat1, double lon1, double lat2, double lon2) {
+        return Math.round(lat1) == Math.round(lat2) && Math.round(lon1) == Math.round(lon2);
+    }
+
+    /**
+     * @param fetchTs time of the last successful fetch, 0 if none
+     * @param fetchLat location that fetch used
+     * @param thresholdMeters minimum movement from the fetched location before a bucket change counts
+     * @param staleMs age after which the last fetch is refreshed regardless of movement
+     */
+    public static Decision decide(long fetchTs, double fetchLat, double fetchLon, double lat, double lon, long now,
+                                  double thresholdMeters, long staleMs) {
+        if (fetchTs <= 0) return Decision.FIRST_FIX;
+        if (now < fetchTs || now - fetchTs >= staleMs) return Decision.STALE;
+        if (!sameBucket(fetchLat, fetchLon, lat, lon) && distanceMeters(fetchLat, fetchLon, lat, lon) >= thresholdMeters) {
+            return Decision.BUCKET_CHANGED;
+        }
+        return Decision.SUPPRESSED;
+    }
+
+    // Haversine great-circle distance
+    public static double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_M * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+}
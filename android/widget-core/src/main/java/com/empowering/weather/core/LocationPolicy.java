@@ -0,0 +1,86 @@
+package com.empowering.weather.core;
+
+import java.util.Objects;
+
+/**
+ * Picks the fused location request for the widget's background updates from the device state. Implementations
+ * must be pure so they can be replayed over recorded state traces; the app re-registers whenever the chosen
+ * {@link Request} changes.
+ */
+public interface LocationPolicy {
+    // Same values as com.google.android.gms.location.Priority
+    int PRIORITY_HIGH_ACCURACY = 100;
+    int PRIORITY_BALANCED_POWER_ACCURACY = 102;
+    int PRIORITY_LOW_POWER = 104;
+    int PRIORITY_PASSIVE = 105;
+
+    Request choose(State state);
+
+    /** What the device is doing, sampled whenever the widget's code runs. */
+    final class State {
+        public final boolean screenOn;
+        // 0-100, -1 when unknown
+        public final int batteryPercent;
+        public final boolean charging;
+        public final boolean powerSave;
+        // From the last two fixes, NaN when unknown
+        public final double speedMps;
+
+        public State(boolean screenOn, int batteryPercent, boolean charging, boolean powerSave, double speedMps) {
+            this.screenOn = screenOn;
+            this.batteryPercent = batteryPercent;
+            this.charging = charging;
+            this.powerSave = powerSave;
+            this.speedMps = speedMps;
+        }
+
+        /** Average speed between two fixes; NaN if they are not in time order. */
+        public static double speedBetween(double lat1, double lon1, long t1, double lat2, double lon2, long t2) {
+            if (t1 <= 0 || t2 <= t1) return Double.NaN;
+            return LocationGate.distanceMeters(lat1, lon1, lat2, lon2) / ((t2 - t1) / 1000.0);
+        }
+    }
+
+    /** The parameters of one fused location request. */
+    final class Request {
+        public final String name;
+        public final int priority;
+        public final long intervalMs;
+        public final long minIntervalMs;
+        public final float minDistanceM;
+        // Batching: fixes may be held back and delivered together this long; 0 for none
+        public final long maxDelayMs;
+
+        public Request(String name, int priority, long intervalMs, long minIntervalMs, float minDistanceM, long maxDelayMs) {
+            this.name = name;
+            this.priority = priority;
+            this.intervalMs = intervalMs;
+            this.minIntervalMs = minIntervalMs;
+            this.minDistanceM = minDistanceM;
+            this.maxDelayMs = maxDelayMs;
+        }
+
+        /** Compact form for persisting which request is registered. */
+        public String encode() {
+            return name + "/" + priority + "/" + intervalMs + "/" + minIntervalMs + "/" + minDistanceM + "/" + maxDelayMs;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Request)) return false;
+            Request r = (Request) o;
+            return priority == r.priority && intervalMs == r.intervalMs && minIntervalMs == r.minIntervalMs
+                    && minDistanceM == r.minDistanceM && maxDelayMs == r.maxDelayMs && name.equals(r.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, priority, intervalMs, minIntervalMs, minDistanceM, maxDelayMs);
+        }
+
+        @Override
+        public String toString() {
+            return encode();
+        }
+    }
+}
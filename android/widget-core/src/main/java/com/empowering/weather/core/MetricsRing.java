@@ -0,0 +1,117 @@
+package com.empowering.weather.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Fixed-size file of timestamped long[] records, overwriting the oldest once full. Each append writes one
+ * record in place and then advances the header, so the file never grows and a crash mid-write loses at most
+ * that record (it fails its CRC32 and is skipped). A file with another shape (slots, record length) is
+ * started over.
+ */
+public final class MetricsRing {
+    private static final int MAGIC = 0x4d524e31; // "MRN1"
+    private static final int HEADER_BYTES = 16;
+
+    private final File file;
+    private final int slots;
+    private final int recordLongs;
+    private final int recordBytes;
+    private final ByteBuffer buf;
+
+    public MetricsRing(File file, int slots, int recordLongs) {
+        this.file = file;
+        this.slots = slots;
+        this.recordLongs = recordLongs;
+        this.recordBytes = 8 + recordLongs * 8 + 4;
+        this.buf = ByteBuffer.allocate(recordBytes);
+    }
+
+    /** One record, as appended. */
+    public static final class Entry {
+        public final long ts;
+        public final long[] values;
+
+        Entry(long ts, long[] values) {
+            this.ts = ts;
+            this.values = values;
+        }
+    }
+
+    public synchronized void append(long ts, long[] values) throws IOException {
+        File dir = file.getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) throw new IOException("cannot create " + dir);
+        try (RandomAccessFile f = new RandomAccessFile(file, "rw")) {
+            int next = header(f);
+            if (next < 0) {
+                f.setLength(0);
+                f.setLength(HEADER_BYTES + (long) slots * recordBytes);
+                next = 0;
+            }
+            buf.clear();
+            buf.putLong(ts);
+            for (int i = 0; i < recordLongs; i++) buf.putLong(values[i]);
+            CRC32 crc = new CRC32();
+            crc.update(buf.array(), 0, recordBytes - 4);
+            buf.putInt((int) crc.getValue());
+            f.seek(HEADER_BYTES + (long) next * recordBytes);
+            f.write(buf.array(), 0, recordBytes);
+            writeHeader(f, (next + 1) % slots);
+        }
+    }
+
+    /** Every readable record, oldest first. Empty when the file is missing or has another shape. */
+    public synchronized List<Entry> read() {
+        List<Entry> out = new ArrayList<>();
+        if (!file.isFile()) return out;
+        try (RandomAccessFile f = new RandomAccessFile(file, "r")) {
+            int next = header(f);
+            if (next < 0) return out;
+            byte[] rec = new byte[recordBytes];
+            for (int i = 0; i < slots; i++) {
+                int slot = (next + i) % slots;
+                f.seek(HEADER_BYTES + (long) slot * recordBytes);
+                f.readFully(rec);
+                ByteBuffer b = ByteBuffer.wrap(rec);
+                CRC32 crc = new CRC32();
+                crc.update(rec, 0, recordBytes - 4);
+                long ts = b.getLong();
+                if (ts == 0 || b.getInt(recordBytes - 4) != (int) crc.getValue()) continue;
+                long[] values = new long[recordLongs];
+                for (int j = 0; j < recordLongs; j++) values[j] = b.getLong();
+                out.add(new Entry(ts, values));
+            }
+        } catch (IOException e) {
+            return out;
+        }
+        return out;
+    }
+
+    /** The newest readable record, or null. */
+    public Entry latest() {
+        List<Entry> all = read();
+        return all.isEmpty() ? null : all.get(all.size() - 1);
+    }
+
+    // Slot the next append goes to, or -1 when the file does not hold a ring of this shape
+    private int header(RandomAccessFile f) throws IOException {
+        if (f.length() != HEADER_BYTES + (long) slots * recordBytes) return -1;
+        f.seek(0);
+        if (f.readInt() != MAGIC || f.readInt() != slots || f.readInt() != recordLongs) return -1;
+        int next = f.readInt();
+        return next >= 0 && next < slots ? next : -1;
+    }
+
+    private void writeHeader(RandomAccessFile f, int next) throws IOException {
+        f.seek(0);
+        f.writeInt(MAGIC);
+        f.writeInt(slots);
+        f.writeInt(recordLongs);
+        f.writeInt(next);
+    }
+}
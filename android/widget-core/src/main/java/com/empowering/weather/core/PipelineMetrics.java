@@ -0,0 +1,94 @@
+package com.empowering.weather.core;
+
+/**
+ * Latency histograms per widget pipeline stage plus event counters, kept in one flat long[] so recording
+ * allocates nothing. Bucket 0 holds samples of 0 ms, bucket i samples in [2^(i-1), 2^i) ms, and the last bucket
+ * everything from 2^(BUCKETS-2) ms up. Every value is a sum, so snapshots from several processes can be
+ * {@link #add added} together.
+ *
+ * Layout of {@link #copyTo}: for each stage BUCKETS counts and then the sum of its samples in ms, followed by
+ * the counters.
+ */
+public final class PipelineMetrics {
+    public static final int LOCATION = 0;
+    public static final int CONNECT = 1;
+    public static final int TTFB = 2;
+    public static final int READ = 3;
+    public static final int PARSE = 4;
+    public static final int RENDER = 5;
+    public static final String[] STAGES = {"location", "connect", "ttfb", "read", "parse", "render"};
+
+    public static final int PASSES = 0;
+    public static final int FETCHES = 1;
+    public static final int FAILURES = 2;
+    public static final int TICKS = 3;
+    public static final int ALARMS = 4;
+    public static final String[] COUNTERS = {"passes", "fetches", "failures", "ticks", "alarms"};
+
+    public static final int BUCKETS = 16;
+    private static final int STRIDE = BUCKETS + 1;
+    /** Number of longs in a snapshot. */
+    public static final int SIZE = STAGES.length * STRIDE + COUNTERS.length;
+
+    private final long[] values = new long[SIZE];
+
+    public synchronized void record(int stage, long ms) {
+        int base = stage * STRIDE;
+        values[base + bucket(ms)]++;
+        values[base + BUCKETS] += Math.max(0L, ms);
+    }
+
+    public synchronized void count(int counter) {
+        values[STAGES.length * STRIDE + counter]++;
+    }
+
+    public synchronized long samples(int stage) {
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) n += values[stage * STRIDE + i];
+        return n;
+    }
+
+    public synchronized long counter(int counter) {
+        return values[STAGES.length * STRIDE + counter];
+    }
+
+    /** Mean of the stage's samples in ms, or 0 without samples. */
+    public synchronized long meanMs(int stage) {
+        long n = samples(stage);
+        return n == 0 ? 0L : values[stage * STRIDE + BUCKETS] / n;
+    }
+
+    /**
+     * Upper edge in ms of the bucket holding the p-th quantile (0 < p <= 1): the quantile is below it. 0 without
+     * samples, Long.MAX_VALUE when it falls in the open last bucket.
+     */
+    public synchronized long quantileMs(int stage, double p) {
+        long n = samples(stage);
+        if (n == 0) return 0L;
+        long rank = Math.max(1L, (long) Math.ceil(p * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += values[stage * STRIDE + i];
+            if (seen >= rank) return upperEdge(i);
+        }
+        return Long.MAX_VALUE;
+    }
+
+    public synchronized void copyTo(long[] dst) {
+        System.arraycopy(values, 0, dst, 0, SIZE);
+    }
+
+    /** Fold in a snapshot, e.g. one persisted by an earlier process. */
+    public synchronized void add(long[] src) {
+        for (int i = 0; i < SIZE; i++) values[i] += src[i];
+    }
+
+    static int bucket(long ms) {
+        if (ms <= 0) return 0;
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(ms));
+    }
+
+    static long upperEdge(int bucket) {
+        return bucket == BUCKETS - 1 ? Long.MAX_VALUE : 1L << bucket;
+    }
+}
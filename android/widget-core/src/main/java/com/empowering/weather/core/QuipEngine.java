@@ -0,0 +1,126 @@
+package com.empowering.weather.core;
+
+import java.util.Locale;
+
+/**
+ * Port of the server's quip picker (src/api/quips.js) for when the widget has no weather_quip from /api: the
+ * same category rules, the same mulberry32 draw from a date and rounded-coordinate seed, over the same notes
+ * packed into a {@link QuipIndex}. QuipEngineTest checks it against the server's recorded choices, so change
+ * both together.
+ */
+public final class QuipEngine {
+    /** The notes categories, in the server's order (the fallback draw indexes into it). */
+    public static final String[] CATEGORIES = {
+            "cloudy", "cold", "foggy", "hot", "humid", "mild", "rainy", "snowy", "stormy", "thunderstorm", "windy"
+    };
+
+    // Bits of conditionFlags: words found in the condition text, then the wind and cloud thresholds
+    public static final int THUNDER = 1;
+    public static final int STORM = 1 << 1;
+    public static final int SNOW = 1 << 2;
+    public static final int RAIN = 1 << 3;
+    public static final int FOG = 1 << 4;
+    public static final int CLOUD = 1 << 5;
+    public static final int WINDY = 1 << 6;
+    public static final int OVERCAST = 1 << 7;
+
+    private QuipEngine() {}
+
+    /**
+     * Everything the category rules need besides temperature, humidity and precipitation, in one byte so hourly
+     * forecasts can keep it. NaN wind or cloud counts as 0, like a missing value on the server.
+     */
+    public static int conditionFlags(String conditionText, double windKph, double cloud) {
+        int f = 0;
+        if (conditionText != null && !conditionText.isEmpty()) {
+            String t = conditionText.toLowerCase(Locale.ROOT);
+            if (t.contains("thunder")) f |= THUNDER;
+            if (t.contains("storm") || t.contains("squall")) f |= STORM;
+            if (t.contains("snow") || t.contains("sleet") || t.contains("blizzard") || t.contains("ice")) f |= SNOW;
+            if (t.contains("rain") || t.contains("drizzle") || t.contains("shower")) f |= RAIN;
+            if (t.contains("fog") || t.contains("mist") || t.contains("haze") || t.contains("smoke")) f |= FOG;
+            if (t.contains("cloud") || t.contains("overcast")) f |= CLOUD;
+        }
+        if (windKph >= 40) f |= WINDY;
+        if (cloud >= 70) f |= OVERCAST;
+        return f;
+    }
+
+    /** Category for weather.current, or null when it fits none (or is missing). */
+    public static String category(WidgetPayload.Current cur) {
+        if (cur == null) return null;
+        int flags = conditionFlags(cur.conditionText, number(cur.opt("wind_kph")), number(cur.opt("cloud")));
+        return category(flags, number(cur.opt("temp_c")), number(cur.opt("humidity")), number(cur.opt("precip_mm")));
+    }
+
+    /** Category for hour i of the timeline, or null when it fits none. */
+    public static String category(HourlyTimeline t, int i) {
+        int humidity = t.humidity(i);
+        return category(t.conditions(i), t.tempC(i), humidity < 0 ? Double.NaN : humidity, t.precipMm(i));
+    }
+
+    /**
+     * The server's determineCategory. NaN means missing: temperature and humidity rules then do not apply, and
+     * precipitation counts as 0.
+     */
+    public static String category(int flags, double tempC, double humidity, double precipMm) {
+        boolean hasTemp = !Double.isNaN(tempC);
+        if ((flags & THUNDER) != 0) return "thunderstorm";
+        if ((flags & STORM) != 0) return "stormy";
+        if ((flags & SNOW) != 0) return "snowy";
+        if ((flags & RAIN) != 0 || precipMm > 0.5) return "rainy";
+        if ((flags & FOG) != 0) return "foggy";
+        if ((flags & WINDY) != 0) return "windy";
+        if (hasTemp && tempC >= 30) return "hot";
+        if (hasTemp && tempC <= 0) return "cold";
+        if (!Double.isNaN(humidity) && humidity >= 85 && hasTemp && tempC >= 20) return "humid";
+        if ((flags & (OVERCAST | CLOUD)) != 0) return "cloudy";
+        if (hasTemp && tempC >= 10 && tempC <= 25) return "mild";
+        if (hasTemp && tempC <= 5) return "cold";
+        return null;
+    }
+
+    /**
+     * The server's pickQuip for a category on a calendar day (month 1-12), "" when there are no notes at all.
+     * A category without notes, or null, falls back to one drawn from the date and coordinates.
+     */
+    public static String pick(QuipIndex index, String category, double lat, double lon, int year, int month, int day) {
+        long seed = daySeed(year, month, day) + coordSeed(lat) + coordSeed(lon);
+        String chosen = category != null && index.count(category) > 0 ? category : null;
+        if (chosen == null) {
+            String[] available = new String[CATEGORIES.length];
+            int n = 0;
+            for (String c : CATEGORIES) {
+                if (index.count(c) > 0) available[n++] = c;
+            }
+            if (n == 0) return "";
+            chosen = available[(int) Math.floor(mulberry32(seed) * n)];
+        }
+        int lines = index.count(chosen);
+        return index.line(chosen, (int) Math.floor(mulberry32(seed + chosen.length()) * lines));
+    }
+
+    // The digits of year, month and day run together without padding, e.g. 2025-10-5 -> 2025105
+    static long daySeed(int year, int month, int day) {
+        return Long.parseLong("" + year + month + day);
+    }
+
+    // Math.round((lat || 0) * 100); Java's round also takes halves up, and NaN gives 0 either way
+    static long coordSeed(double v) {
+        return Math.round(v * 100);
+    }
+
+    /** First output of mulberry32 seeded with seed, in [0, 1). */
+    static double mulberry32(long seed) {
+        // JS adds in doubles then truncates to int32; the long sum wraps the same way
+        int t = (int) (seed + 0x6d2b79f5L);
+        t = (t ^ (t >>> 15)) * (t | 1);
+        t ^= t + (t ^ (t >>> 7)) * (t | 61);
+        return ((t ^ (t >>> 14)) & 0xffffffffL) / 4294967296.0;
+    }
+
+    // typeof v === "number"
+    private static double number(Object v) {
+        return v instanceof Number ? ((Number) v).doubleValue() : Double.NaN;
+    }
+}
@@ -0,0 +1,165 @@
+package com.empowering.weather.core;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The weather notes packed for the widget: a header naming each category with its first line and line count,
+ * a table of line offsets, then every line as UTF-8 back to back. Written at build time by {@link #main} and read
+ * in place from a (memory-mapped) buffer, so only the picked line is ever decoded.
+ */
+public final class QuipIndex {
+    private static final int MAGIC = 0x51554950; // "QUIP"
+    private static final int VERSION = 1;
+
+    private final ByteBuffer buf;
+    private final String[] names;
+    private final int[] firstLine;
+    private final int[] lineCount;
+    private final int offsetsAt;
+    private final int blobAt;
+
+    private QuipIndex(ByteBuffer buf, String[] names, int[] firstLine, int[] lineCount, int offsetsAt, int blobAt) {
+        this.buf = buf;
+        this.names = names;
+        this.firstLine = firstLine;
+        this.lineCount = lineCount;
+        this.offsetsAt = offsetsAt;
+        this.blobAt = blobAt;
+    }
+
+    /** Reads the header; lines stay in buf until asked for. */
+    public static QuipIndex read(ByteBuffer buf) throws IOException {
+        ByteBuffer b = buf.duplicate();
+        try {
+            if (b.getInt() != MAGIC || b.getInt() != VERSION) throw new IOException("not a quip index");
+            int n = b.getShort();
+            String[] names = new String[n];
+            int[] first = new int[n], count = new int[n];
+            for (int i = 0; i < n; i++) {
+                byte[] name = new byte[b.getShort()];
+                b.get(name);
+                names[i] = new String(name, StandardCharsets.UTF_8);
+                first[i] = b.getInt();
+                count[i] = b.getInt();
+            }
+            int total = b.getInt();
+            int offsetsAt = b.position();
+            int blobAt = offsetsAt + (total + 1) * 4;
+            if (blobAt > b.limit()) throw new IOException("truncated quip index");
+            return new QuipIndex(buf.duplicate(), names, first, count, offsetsAt, blobAt);
+        } catch (RuntimeException e) {
+            throw new IOException("corrupt quip index", e);
+        }
+    }
+
+    /** Lines in category, 0 when it is unknown. */
+    public int count(String category) {
+        int i = indexOf(category);
+        return i < 0 ? 0 : lineCount[i];
+    }
+
+    /** Line i (0-based) of category. */
+    public String line(String category, int i) {
+        int c = indexOf(category);
+        if (c < 0 || i < 0 || i >= lineCount[c]) throw new IndexOutOfBoundsException(category + "[" + i + "]");
+        int line = firstLine[c] + i;
+        int start = buf.getInt(offsetsAt + line * 4);
+        int end = buf.getInt(offsetsAt + (line + 1) * 4);
+        byte[] bytes = new byte[end - start];
+        ByteBuffer b = buf.duplicate();
+        // Through Buffer: ByteBuffer.position(int) is missing on older Android releases
+        ((Buffer) b).position(blobAt + start);
+        b.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int indexOf(String category) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(category)) return i;
+        }
+        return -1;
+    }
+
+    /** Packs notes (category to lines, in the order given) into out. */
+    public static void write(Map<String, List<String>> notes, OutputStream out) throws IOException {
+        ByteArrayOutputStream blob = new ByteArrayOutputStream();
+        List<Integer> offsets = new ArrayList<>();
+        DataOutputStream d = new DataOutputStream(new BufferedOutputStream(out));
+        d.writeInt(MAGIC);
+        d.writeInt(VERSION);
+        d.writeShort(notes.size());
+        for (Map.Entry<String, List<String>> e : notes.entrySet()) {
+            byte[] name = e.getKey().getBytes(StandardCharsets.UTF_8);
+            d.writeShort(name.length);
+            d.write(name);
+            d.writeInt(offsets.size());
+            d.writeInt(e.getValue().size());
+            for (String line : e.getValue()) {
+                offsets.add(blob.size());
+                blob.write(line.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        offsets.add(blob.size());
+        d.writeInt(offsets.size() - 1);
+        for (int o : offsets) d.writeInt(o);
+        blob.writeTo(d);
+        d.flush();
+    }
+
+    /**
+     * Reads dir/CATEGORY.txt for each of {@link QuipEngine#CATEGORIES} the way the server does: one quip per
+     * non-empty line, a missing file giving none.
+     */
+    public static Map<String, List<String>> loadNotes(File dir) throws IOException {
+        Map<String, List<String>> notes = new LinkedHashMap<>();
+        for (String category : QuipEngine.CATEGORIES) {
+            List<String> lines = new ArrayList<>();
+            File f = new File(dir, category + ".txt");
+            if (f.isFile()) {
+                for (String line : readUtf8(f).split("\r?\n")) {
+                    if (!line.isEmpty()) lines.add(line);
+                }
+            }
+            notes.put(category, lines);
+        }
+        return notes;
+    }
+
+    private static String readUtf8(File f) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new FileInputStream(f)) {
+            byte[] b = new byte[8192];
+            int n;
+            while ((n = in.read(b)) > 0) out.write(b, 0, n);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /** Build step: java QuipIndex NOTES_DIR OUT_FILE */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) throw new IllegalArgumentException("usage: QuipIndex NOTES_DIR OUT_FILE");
+        File dir = new File(args[0]);
+        if (!dir.isDirectory()) throw new IOException("no notes directory at " + dir.getAbsolutePath());
+        File out = new File(args[1]);
+        File parent = out.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) throw new IOException("cannot create " + parent);
+        try (OutputStream o = new FileOutputStream(out)) {
+            write(loadNotes(dir), o);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.empowering.weather.core;
+
+import java.util.Random;
+
+/**
+ * Retry timing and circuit breaker for widget fetches.
+ *
+ * A failed fetch is retried after a jittered exponential backoff: the nominal delay doubles per consecutive
+ * failure up to a cap, and the actual delay is drawn from its upper half so devices that failed together do not
+ * retry together. After enough consecutive failures the breaker opens and background fetches are refused until
+ * it has cooled down; the first fetch after that is a trial, and its failure opens the breaker again straight
+ * away. User-requested fetches always go through. A failure while the device has no validated network says
+ * nothing about the server: it is not counted and the retry waits for the network instead of a delay.
+ *
+ * Time is passed in so tests need no clock.
+ */
+public final class RecoveryPolicy {
+    /** Delay returned for a failure while offline: retry once a validated network is back. */
+    public static final long ON_NETWORK = 0L;
+
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+    private final int threshold;
+    private final long openMs;
+    private final Random random;
+
+    private int failures;
+    // 0 while closed; otherwise refuse background fetches until then, and treat the next one as a trial
+    private long openUntil;
+
+    private long failed;
+    private long offline;
+    private long opened;
+    private long rejected;
+
+    /**
+     * @param threshold consecutive server failures that open the breaker
+     * @param openMs how long the breaker stays open before a trial
+     */
+    public RecoveryPolicy(long baseDelayMs, long maxDelayMs, int threshold, long openMs, Random random) {
+        this.baseDelayMs = baseDelayMs;
+        this.maxDelayMs = maxDelayMs;
+        this.threshold = threshold;
+        this.openMs = openMs;
+        this.random = random;
+    }
+
+    /** Restore state saved from {@link #failures()} and {@link #openUntil()} by an earlier process. */
+    public synchronized void restore(int failures, long openUntil) {
+        this.failures = Math.max(0, failures);
+        this.openUntil = Math.max(0L, openUntil);
+    }
+
+    public synchronized int failures() {
+        return failures;
+    }
+
+    public synchronized long openUntil() {
+        return openUntil;
+    }
+
+    /** Whether a fetch may hit the network now. */
+    public synchronized boolean allow(long now, boolean user) {
+        if (user || openUntil == 0L || now >= openUntil) return true;
+        rejected++;
+        return false;
+    }
+
+    public synchronized void success() {
+        failures = 0;
+        openUntil = 0L;
+    }
+
+    /**
+     * Record a failed fetch and return the delay before retrying, or {@link #ON_NETWORK} when offline.
+     */
+    public synchronized long failure(long now, boolean offline) {
+        if (offline) {
+            this.offline++;
+            return ON_NETWORK;
+        }
+        failed++;
+        failures++;
+        // A failed trial, or one failure too many: stop trying until the server had time to come back
+        if (openUntil != 0L || failures >= threshold) {
+            openUntil = now + openMs;
+            opened++;
+            return openMs;
+        }
+        long nominal = Math.min(maxDelayMs, baseDelayMs << Math.min(failures - 1, 30));
+        return nominal - (long) (random.nextDouble() * (nominal / 2));
+    }
+
+    /** Counters for logging: {failed, offline, opened, rejected}. */
+    public synchronized long[] stats() {
+        return new long[]{failed, offline, opened, rejected};
+    }
+}
@@ -0,0 +1,65 @@
+package com.empowering.weather.core;
+
+/**
+ * Per-pass bookkeeping for widget refreshes.
+ *
+ * Passes remember whether any trigger they serve came from the user (a tap), who expects fresh data rather
+ * than a rolled-forward forecast. Within a pass, a fetch for the same location key inside the minimum interval
+ * since the last successful fetch is skipped. Queueing and coalescing of the passes themselves is left to
+ * {@link TaskScheduler}.
+ */
+public final class RefreshGate {
+    private final long minIntervalMs;
+
+    private boolean user;
+    private String lastKey;
+    private long lastFetchAt;
+
+    private long triggers;
+    private long passes;
+    private long throttled;
+
+    public RefreshGate(long minIntervalMs) {
+        this.minIntervalMs = minIntervalMs;
+    }
+
+    /** Record a trigger; the next pass to begin serves it. */
+    public synchronized void trigger(boolean user) {
+        this.user |= user;
+        triggers++;
+    }
+
+    /** Start of a pass: whether any trigger it serves came from the user. */
+    public synchronized boolean beginPass() {
+        boolean u = user;
+        user = false;
+        passes++;
+        return u;
+    }
+
+    /** Whether a pass for key should hit the network, or reuse the last result. */
+    public synchronized boolean shouldFetch(String key, long now) {
+        if (lastKey == null || !lastKey.equals(key) || now - lastFetchAt >= minIntervalMs || now < lastFetchAt) {
+            return true;
+        }
+        throttled++;
+        return false;
+    }
+
+    public synchronized void fetched(String key, long now) {
+        lastKey = key;
+        lastFetchAt = now;
+    }
+
+    /** Forget the pending trigger and the last fetch, as a new process starts out; the counters stay. */
+    public synchronized void reset() {
+        user = false;
+        lastKey = null;
+        lastFetchAt = 0L;
+    }
+
+    /** Counters for logging: {triggers, passes, throttled}. */
+    public synchronized long[] stats() {
+        return new long[]{triggers, passes, throttled};
+    }
+}
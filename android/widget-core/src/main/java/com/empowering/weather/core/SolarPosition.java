@@ -0,0 +1,43 @@
+package com.empowering.weather.core;
+
+/**
+ * Where the sun is for a place and time, from the low-precision solar coordinates of the Astronomical Almanac
+ * (good to about 0.01° in declination this century, ample for a widget). No refraction is applied; sunrise and
+ * sunset are taken where the sun's centre is 0.833° below the horizon, as weather services quote them.
+ */
+public final class SolarPosition {
+    /** Elevation of the sun's centre at sunrise and sunset: refraction plus the solar radius. */
+    public static final double HORIZON_DEG = -0.833;
+    private static final double DAY_MS = 86_400_000.0;
+    // Julian day of the Unix epoch and of J2000.0
+    private static final double JD_UNIX_EPOCH = 2440587.5;
+    private static final double JD_J2000 = 2451545.0;
+
+    private SolarPosition() {}
+
+    /** Elevation of the sun above the horizon in degrees, negative below it. */
+    public static double elevationDeg(double lat, double lon, long epochMillis) {
+        double n = epochMillis / DAY_MS + JD_UNIX_EPOCH - JD_J2000;
+        double meanLon = 280.460 + 0.9856474 * n;
+        double g = Math.toRadians(mod360(357.528 + 0.9856003 * n));
+        double lambda = Math.toRadians(mod360(meanLon + 1.915 * Math.sin(g) + 0.020 * Math.sin(2 * g)));
+        double eps = Math.toRadians(23.439 - 0.0000004 * n);
+        double ra = Math.atan2(Math.cos(eps) * Math.sin(lambda), Math.cos(lambda));
+        double dec = Math.asin(Math.sin(eps) * Math.sin(lambda));
+        double gmstHours = 18.697374558 + 24.06570982441908 * n;
+        double hourAngle = Math.toRadians(mod360(gmstHours * 15 + lon)) - ra;
+        double phi = Math.toRadians(lat);
+        double sinAlt = Math.sin(phi) * Math.sin(dec) + Math.cos(phi) * Math.cos(dec) * Math.cos(hourAngle);
+        return Math.toDegrees(Math.asin(Math.max(-1.0, Math.min(1.0, sinAlt))));
+    }
+
+    /** True between sunrise and sunset. */
+    public static boolean isDay(double lat, double lon, long epochMillis) {
+        return elevationDeg(lat, lon, epochMillis) > HORIZON_DEG;
+    }
+
+    private static double mod360(double deg) {
+        double d = deg % 360.0;
+        return d < 0 ? d + 360.0 : d;
+    }
+}
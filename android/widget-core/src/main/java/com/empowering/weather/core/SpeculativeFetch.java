@@ -0,0 +1,69 @@
+package com.empowering.weather.core;
+
+/**
+ * Starts the weather fetch with the best location already known while a fresh fix is still pending, instead of
+ * waiting for the fix first (a high-accuracy fix can take many seconds). The server caches per rounded lat:lon
+ * bucket, so the fix only costs a second fetch when it lands in a different bucket than the one fetched.
+ *
+ * One instance per request for data (a tap, the location screen). Thread-safe: the fix usually arrives on
+ * another thread than the one that began.
+ */
+public final class SpeculativeFetch {
+    /** Starts a fetch for a location; must not block. */
+    public interface Fetch {
+        void start(double lat, double lon);
+    }
+
+    public enum Outcome {
+        /** Nothing was known beforehand: the fix started the only fetch. */
+        FETCHED_ON_FIX,
+        /** The fix is in the bucket already fetched: nothing more to do. */
+        CONFIRMED,
+        /** The fix moved to another bucket: fetched again. */
+        REFETCHED,
+        /** No fix; whatever was fetched speculatively stands. */
+        NO_FIX
+    }
+
+    private final Fetch fetch;
+    private String fetchedKey;
+    private Outcome outcome;
+
+    public SpeculativeFetch(Fetch fetch) {
+        this.fetch = fetch;
+    }
+
+    /** Fetch for the best location known now, if any. Returns whether a fetch was started. */
+    public boolean begin(double lat, double lon, boolean known) {
+        synchronized (this) {
+            if (!known || outcome != null) return false;
+            fetchedKey = LocationGate.bucketKey(lat, lon);
+        }
+        fetch.start(lat, lon);
+        return true;
+    }
+
+    /** The fresh fix arrived. Later calls after the first are ignored and return the first outcome. */
+    public Outcome fix(double lat, double lon) {
+        String key = LocationGate.bucketKey(lat, lon);
+        Outcome o;
+        synchronized (this) {
+            if (outcome != null) return outcome;
+            if (fetchedKey == null) {
+                o = Outcome.FETCHED_ON_FIX;
+            } else {
+                o = fetchedKey.equals(key) ? Outcome.CONFIRMED : Outcome.REFETCHED;
+            }
+            outcome = o;
+            fetchedKey = key;
+        }
+        if (o != Outcome.CONFIRMED) fetch.start(lat, lon);
+        return o;
+    }
+
+    /** Getting a fix failed or timed out. */
+    public synchronized Outcome noFix() {
+        if (outcome == null) outcome = Outcome.NO_FIX;
+        return outcome;
+    }
+}
@@ -0,0 +1,327 @@
+package com.empowering.weather.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.zip.CRC32;
+
+/**
+ * Small key-value store for the widget's state with atomic snapshot reads and a single writer.
+ *
+ * Readers get an immutable {@link Snapshot}, so keys written by one edit are always seen together (no new lat
+ * with an old fix time). Edits are applied to memory under one lock and persisted by one background writer;
+ * edits that land while a write is queued are folded into it. The file is a single compact binary record
+ * (magic, version, entries, CRC32) replaced by write-to-temp, fsync and rename, so a crash leaves either the
+ * previous or the new record. A record that fails its checksum is ignored and the store starts empty.
+ */
+public final class StateStore {
+    private static final int MAGIC = 0x57535431; // "WST1"
+    private static final int FORMAT_VERSION = 1;
+    private static final byte T_LONG = 1;
+    private static final byte T_FLOAT = 2;
+    private static final byte T_STRING = 3;
+    private static final byte T_BOOLEAN = 4;
+    private static final byte T_BYTES = 5;
+    // A byte value's length is written as an unsigned short
+    private static final int MAX_BYTES = 0xFFFF;
+
+    private final File file;
+    private final Executor writer;
+    private final boolean loaded;
+    private final Object lock = new Object();
+
+    private Snapshot snapshot;
+    private long version;
+    private long writtenVersion;
+    private boolean writeQueued;
+    private boolean lastWriteOk = true;
+    private long edits;
+    private long writes;
+
+    /** Reads the file synchronously; writer runs every disk write and should be single-threaded. */
+    public StateStore(File file, Executor writer) {
+        this.file = file;
+        this.writer = writer;
+        Map<String, Object> values = read(file);
+        this.loaded = values != null;
+        this.snapshot = new Snapshot(values != null ? values : new HashMap<>());
+    }
+
+    /** False when there was no readable record on disk, i.e. the store is new and may need migrating. */
+    public boolean loaded() {
+        return loaded;
+    }
+
+    public Snapshot snapshot() {
+        synchronized (lock) {
+            return snapshot;
+        }
+    }
+
+    public Editor edit() {
+        return new Editor();
+    }
+
+    /** Counters for logging: {edits, writes}. Fewer writes than edits means edits were batched. */
+    public long[] stats() {
+        synchronized (lock) {
+            return new long[]{edits, writes};
+        }
+    }
+
+    /** Immutable view of every key at one point in time. */
+    public static final class Snapshot {
+        private final Map<String, Object> values;
+
+        private Snapshot(Map<String, Object> values) {
+            this.values = values;
+        }
+
+        public long getLong(String key, long def) {
+            Object v = values.get(key);
+            return v instanceof Long ? (Long) v : def;
+        }
+
+        public float getFloat(String key, float def) {
+            Object v = values.get(key);
+            return v instanceof Float ? (Float) v : def;
+        }
+
+        public String getString(String key, String def) {
+            Object v = values.get(key);
+            return v instanceof String ? (String) v : def;
+        }
+
+        public boolean getBoolean(String key, boolean def) {
+            Object v = values.get(key);
+            return v instanceof Boolean ? (Boolean) v : def;
+        }
+
+        /** A copy of the stored bytes, or null. */
+        public byte[] getBytes(String key) {
+            Object v = values.get(key);
+            return v instanceof byte[] ? ((byte[]) v).clone() : null;
+        }
+
+        public boolean contains(String key) {
+            return values.containsKey(key);
+        }
+
+        public Map<String, Object> asMap() {
+            return Collections.unmodifiableMap(values);
+        }
+    }
+
+    /** Batch of changes applied together. Not thread-safe; use one per edit. */
+    public final class Editor {
+        // A null value removes the key
+        private final Map<String, Object> puts = new LinkedHashMap<>();
+        private final Map<String, Long> adds = new LinkedHashMap<>();
+        private Snapshot published;
+
+        private Editor() {}
+
+        public Editor putLong(String key, long value) { return put(key, value); }
+        public Editor putFloat(String key, float value) { return put(key, value); }
+        public Editor putString(String key, String value) { return put(key, value); }
+        public Editor putBoolean(String key, boolean value) { return put(key, value); }
+        /** Values up to 64 KB - 1; a longer one would not load back, so it is refused here. */
+        public Editor putBytes(String key, byte[] value) {
+            if (value.length > MAX_BYTES) {
+                throw new IllegalArgumentException(key + ": " + value.length + " bytes, at most " + MAX_BYTES);
+            }
+            return put(key, value.clone());
+        }
+        public Editor remove(String key) { return put(key, null); }
+
+        /** Add delta to a long counter under the store lock, so concurrent increments are never lost. */
+        public Editor add(String key, long delta) {
+            puts.remove(key);
+            Long prev = adds.get(key);
+            adds.put(key, prev != null ? prev + delta : delta);
+            return this;
+        }
+
+        /**
+         * Copy long, int, float, string and boolean values from a SharedPreferences-style map; other types
+         * are skipped. Ints are stored as longs.
+         */
+        public Editor putAll(Map<String, ?> values) {
+            for (Map.Entry<String, ?> e : values.entrySet()) {
+                Object v = e.getValue();
+                if (v instanceof Integer) v = (long) (Integer) v;
+                if (v instanceof Long || v instanceof Float || v instanceof String || v instanceof Boolean) {
+                    put(e.getKey(), v);
+                }
+            }
+            return this;
+        }
+
+        private Editor put(String key, Object value) {
+            adds.remove(key);
+            puts.put(key, value);
+            return this;
+        }
+
+        /** Publish the changes to readers now and persist them in the background. Returns the new snapshot. */
+        public Snapshot apply() {
+            publish();
+            return published;
+        }
+
+        /**
+         * Publish and wait until a write covering the changes reaches disk. Returns false if that write failed.
+         * Must not be called from the writer.
+         */
+        public boolean commit() {
+            long v = publish();
+            synchronized (lock) {
+                boolean interrupted = false;
+                while (writtenVersion < v) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                if (interrupted) Thread.currentThread().interrupt();
+                return lastWriteOk;
+            }
+        }
+
+        private long publish() {
+            synchronized (lock) {
+                Map<String, Object> next = new HashMap<>(snapshot.values);
+                for (Map.Entry<String, Object> e : puts.entrySet()) {
+                    if (e.getValue() == null) next.remove(e.getKey()); else next.put(e.getKey(), e.getValue());
+                }
+                for (Map.Entry<String, Long> e : adds.entrySet()) {
+                    Object prev = next.get(e.getKey());
+                    next.put(e.getKey(), (prev instanceof Long ? (Long) prev : 0L) + e.getValue());
+                }
+                snapshot = published = new Snapshot(next);
+                version++;
+                edits++;
+                if (!writeQueued) {
+                    writeQueued = true;
+                    writer.execute(StateStore.this::flush);
+                }
+                return version;
+            }
+        }
+    }
+
+    // Runs on the writer: persist whatever is newest, covering every edit published before it started
+    private void flush() {
+        Snapshot s;
+        long v;
+        synchronized (lock) {
+            writeQueued = false;
+            s = snapshot;
+            v = version;
+        }
+        boolean ok;
+        try {
+            write(file, s.values);
+            ok = true;
+        } catch (IOException e) {
+            ok = false;
+        }
+        synchronized (lock) {
+            if (v > writtenVersion) writtenVersion = v;
+            lastWriteOk = ok;
+            writes++;
+            lock.notifyAll();
+        }
+    }
+
+    static void write(File file, Map<String, Object> values) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeShort(values.size());
+        for (Map.Entry<String, Object> e : values.entrySet()) {
+            out.writeUTF(e.getKey());
+            Object v = e.getValue();
+            if (v instanceof Long) {
+                out.writeByte(T_LONG);
+                out.writeLong((Long) v);
+            } else if (v instanceof Float) {
+                out.writeByte(T_FLOAT);
+                out.writeFloat((Float) v);
+            } else if (v instanceof String) {
+                out.writeByte(T_STRING);
+                out.writeUTF((String) v);
+            } else if (v instanceof byte[]) {
+                out.writeByte(T_BYTES);
+                out.writeShort(((byte[]) v).length);
+                out.write((byte[]) v);
+            } else {
+                out.writeByte(T_BOOLEAN);
+                out.writeBoolean((Boolean) v);
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray(), 0, bytes.size());
+        out.writeLong(crc.getValue());
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp)) {
+            bytes.writeTo(fos);
+            fos.getFD().sync();
+        }
+        if (!tmp.renameTo(file)) throw new IOException("rename failed: " + tmp);
+    }
+
+    /** The stored values, or null when the file is missing, unreadable or fails its checksum. */
+    static Map<String, Object> read(File file) {
+        if (!file.isFile()) return null;
+        byte[] data = new byte[(int) Math.min(file.length(), 1 << 20)];
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            in.readFully(data);
+        } catch (IOException e) {
+            return null;
+        }
+        if (data.length < 8 + 2 + 8) return null;
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length - 8);
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) return null;
+            int n = in.readUnsignedShort();
+            Map<String, Object> values = new HashMap<>(n * 2);
+            for (int i = 0; i < n; i++) {
+                String key = in.readUTF();
+                byte type = in.readByte();
+                switch (type) {
+                    case T_LONG: values.put(key, in.readLong()); break;
+                    case T_FLOAT: values.put(key, in.readFloat()); break;
+                    case T_STRING: values.put(key, in.readUTF()); break;
+                    case T_BOOLEAN: values.put(key, in.readBoolean()); break;
+                    case T_BYTES: {
+                        byte[] b = new byte[in.readUnsignedShort()];
+                        in.readFully(b);
+                        values.put(key, b);
+                        break;
+                    }
+                    default: return null;
+                }
+            }
+            if (in.readLong() != crc.getValue()) return null;
+            return values;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.empowering.weather.core;
+
+/**
+ * Timing of the widget's periodic background sync.
+ *
+ * Between fetches the widget rolls its stored forecast forward on its own, so a sync is only worth a wakeup
+ * when that forecast runs low ({@link HourlyTimeline#refetchAtMillis}). The server serves the same upstream data
+ * for a bucket until its cache entry is TTL old, so the sync is phased to just after one of the server's
+ * expiries: cache_age in a fetched response tells how far into the TTL that entry already was.
+ */
+public final class SyncSchedule {
+    private SyncSchedule() {}
+
+    /**
+     * When the server will next hold newer data than a fetch at fetchTs that reported cacheAgeSeconds (-1 when
+     * unknown, taken as a fresh entry). slackMs is added so the run lands after the expiry, not on it.
+     */
+    public static long nextRunAt(long fetchTs, int cacheAgeSeconds, long ttlMs, long slackMs) {
+        long age = cacheAgeSeconds > 0 ? Math.min(cacheAgeSeconds * 1000L, ttlMs) : 0L;
+        return fetchTs + ttlMs - age + slackMs;
+    }
+
+    /**
+     * The first run at or after dueAt that lands just after one of the server's expiries, counting them from
+     * {@link #nextRunAt(long, int, long, long)}. dueAt at or before fetchTs gives the next expiry.
+     */
+    public static long nextRunAt(long fetchTs, int cacheAgeSeconds, long ttlMs, long slackMs, long dueAt) {
+        long first = nextRunAt(fetchTs, cacheAgeSeconds, ttlMs, slackMs);
+        if (dueAt <= first) return first;
+        return first + (dueAt - first + ttlMs - 1) / ttlMs * ttlMs;
+    }
+
+    /**
+     * Sync period when a fetch lasts coverMs (until its forecast runs low; 0 or less when it has none): whole
+     * TTLs covering it, at least one, and no shorter than the scheduler allows (15 minutes for WorkManager).
+     */
+    public static long periodMs(long ttlMs, long minPeriodMs, long coverMs) {
+        long ttls = Math.max(1L, (coverMs + ttlMs - 1) / ttlMs);
+        return Math.max(ttls * ttlMs, minPeriodMs);
+    }
+
+    /**
+     * Whether a sync planned for plannedAt (0 if none) is out of phase with nextRunAt by more than toleranceMs,
+     * modulo the period, so it should be rescheduled.
+     */
+    public static boolean drifted(long plannedAt, long nextRunAt, long periodMs, long toleranceMs) {
+        if (plannedAt <= 0) return true;
+        long off = Math.floorMod(nextRunAt - plannedAt, periodMs);
+        return Math.min(off, periodMs - off) > toleranceMs;
+    }
+}
@@ -0,0 +1,227 @@
+package com.empowering.weather.core;
+
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Serial scheduler for widget work with supersession and deadlines.
+ *
+ * Tasks run one at a time on a single worker thread, in submission order. Each carries a key (the kind of work)
+ * and a target (what it works on, e.g. a location bucket). A newer submission for a key replaces one still
+ * queued under that key, and cancels a running one whose target differs, since its result is already stale; a
+ * running task for the same target is left to finish and the newer one runs after it. A task past its deadline
+ * is dropped if still queued, or cancelled if running. Every task's onDone runs exactly once, whichever way it
+ * ends, so it can finish a BroadcastReceiver's goAsync() result.
+ */
+public final class TaskScheduler {
+    /** A unit of work. Long blocking calls should register with {@link Cancellation#onCancel} to be aborted. */
+    public interface Task {
+        void run(Cancellation cancellation) throws Exception;
+    }
+
+    /** Cancellation signal for one task. */
+    public static final class Cancellation {
+        private final List<Runnable> listeners = new ArrayList<>(1);
+        private boolean cancelled;
+
+        public synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        /** Run r on cancellation, or straight away if already cancelled. */
+        public void onCancel(Runnable r) {
+            synchronized (this) {
+                if (!cancelled) {
+                    listeners.add(r);
+                    return;
+                }
+            }
+            runQuietly(r);
+        }
+
+        void cancel() {
+            List<Runnable> run;
+            synchronized (this) {
+                if (cancelled) return;
+                cancelled = true;
+                run = new ArrayList<>(listeners);
+                listeners.clear();
+            }
+            for (Runnable r : run) runQuietly(r);
+        }
+    }
+
+    private static final class Job {
+        final String key;
+        final String target;
+        final Task task;
+        final Runnable onDone;
+        final long submittedAt;
+        final Cancellation cancellation = new Cancellation();
+        final AtomicBoolean done = new AtomicBoolean();
+        ScheduledFuture<?> deadline;
+
+        Job(String key, String target, Task task, Runnable onDone, long submittedAt) {
+            this.key = key;
+            this.target = target;
+            this.task = task;
+            this.onDone = onDone;
+            this.submittedAt = submittedAt;
+        }
+
+        void finish() {
+            if (!done.compareAndSet(false, true)) return;
+            if (deadline != null) deadline.cancel(false);
+            if (onDone != null) runQuietly(onDone);
+        }
+    }
+
+    private final String name;
+    private final Object lock = new Object();
+    private final ArrayDeque<Job> queue = new ArrayDeque<>();
+    private final ScheduledThreadPoolExecutor timer;
+    private Thread worker;
+    private Job running;
+
+    private long submitted;
+    private long superseded;
+    private long cancelledInFlight;
+    private long expired;
+    private long started;
+    private long maxDepth;
+    private long waitTotalMs;
+    private long waitMaxMs;
+
+    public TaskScheduler(String name) {
+        this.name = name;
+        this.timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, name + "-deadline");
+            t.setDaemon(true);
+            return t;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Queue task under key for target. deadlineMs counts from now; 0 means none. onDone may be null.
+     */
+    public void submit(String key, String target, long deadlineMs, Task task, Runnable onDone) {
+        Job job = new Job(key, target, task, onDone, System.nanoTime());
+        Job replaced = null;
+        Job cancel = null;
+        synchronized (lock) {
+            submitted++;
+            // Take the place of a queued job for the same key rather than queueing behind it
+            boolean placed = false;
+            ArrayDeque<Job> rebuilt = new ArrayDeque<>(queue.size() + 1);
+            for (Job q : queue) {
+                if (!placed && q.key.equals(key)) {
+                    replaced = q;
+                    rebuilt.add(job);
+                    placed = true;
+                } else {
+                    rebuilt.add(q);
+                }
+            }
+            if (!placed) rebuilt.add(job);
+            queue.clear();
+            queue.addAll(rebuilt);
+            if (replaced != null) superseded++;
+            if (running != null && running.key.equals(key) && !Objects.equals(running.target, target)) {
+                cancel = running;
+                cancelledInFlight++;
+            }
+            maxDepth = Math.max(maxDepth, queue.size());
+            if (deadlineMs > 0) job.deadline = timer.schedule(() -> expire(job), deadlineMs, TimeUnit.MILLISECONDS);
+            ensureWorker();
+            lock.notifyAll();
+        }
+        if (replaced != null) replaced.finish();
+        if (cancel != null) cancel.cancellation.cancel();
+    }
+
+    /**
+     * Counters for logging: {submitted, started, superseded, cancelledInFlight, expired, queueDepth, maxQueueDepth,
+     * totalWaitMs, maxWaitMs}. Wait is the time from submission to start.
+     */
+    public long[] stats() {
+        synchronized (lock) {
+            return new long[]{submitted, started, superseded, cancelledInFlight, expired, queue.size(), maxDepth,
+                    waitTotalMs, waitMaxMs};
+        }
+    }
+
+    /** True when nothing is queued or running. */
+    public boolean idle() {
+        synchronized (lock) {
+            return queue.isEmpty() && running == null;
+        }
+    }
+
+    private void expire(Job job) {
+        boolean cancel;
+        synchronized (lock) {
+            if (job.done.get()) return;
+            if (queue.remove(job)) {
+                cancel = false;
+            } else if (running == job) {
+                cancel = true;
+            } else {
+                return;
+            }
+            expired++;
+        }
+        if (cancel) job.cancellation.cancel();
+        job.finish();
+    }
+
+    private void ensureWorker() {
+        if (worker != null) return;
+        worker = new Thread(this::loop, name);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private void loop() {
+        while (true) {
+            Job job;
+            synchronized (lock) {
+                while (queue.isEmpty()) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        worker = null;
+                        return;
+                    }
+                }
+                job = queue.poll();
+                running = job;
+                started++;
+                long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - job.submittedAt);
+                waitTotalMs += waited;
+                waitMaxMs = Math.max(waitMaxMs, waited);
+            }
+            try {
+                if (!job.cancellation.isCancelled()) job.task.run(job.cancellation);
+            } catch (Throwable ignored) {
+            } finally {
+                synchronized (lock) {
+                    running = null;
+                }
+                job.finish();
+            }
+        }
+    }
+
+    private static void runQuietly(Runnable r) {
+        try {
+            r.run();
+        } catch (Throwable ignored) {}
+    }
+}
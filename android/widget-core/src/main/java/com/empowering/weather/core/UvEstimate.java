@@ -0,0 +1,68 @@
+package com.empowering.weather.core;
+
+/**
+ * UV index between fetched values, following the sun. A fetched value is divided by the clear-sky UV for the
+ * sun's elevation at its time, which leaves how much cloud and haze let through; that clearness is carried (or
+ * interpolated between two values) to the time wanted and multiplied by the clear-sky UV there. The clear-sky
+ * curve is CLEAR_SKY_UV * sin(elevation)^EXPONENT, fitted to the clear hours of the recorded Sydney payload; only
+ * its shape matters, as every estimate is scaled by a fetched value. The sun below the horizon means 0.
+ */
+public final class UvEstimate {
+    static final double CLEAR_SKY_UV = 10.7;
+    static final double EXPONENT = 1.3;
+    // A value fetched with less clear-sky UV than this (sun near the horizon) says too little about the sky
+    private static final double MIN_CLEAR = 0.5;
+    private static final long HOUR_MS = 3_600_000L;
+
+    private UvEstimate() {}
+
+    /** Clear-sky UV index for the sun at elevationDeg. */
+    static double clearSky(double elevationDeg) {
+        if (elevationDeg <= 0) return 0.0;
+        return CLEAR_SKY_UV * Math.pow(Math.sin(Math.toRadians(elevationDeg)), EXPONENT);
+    }
+
+    /**
+     * UV at now from one value fetched for measuredAt at the same place. NaN when that value is missing or was
+     * taken with the sun too low to scale from, unless the sun is down at now.
+     */
+    public static double fromMeasurement(double uv, long measuredAt, double lat, double lon, long now) {
+        return between(uv, measuredAt, Double.NaN, measuredAt, lat, lon, now);
+    }
+
+    /**
+     * UV at now from the values fetched for a and b, a <= now <= b. Each gives its own estimate, its clearness
+     * carried to now or, with the sun too low to scale from, the value as it is; the two are weighted by how
+     * close now is to each. One value alone needs the sun high enough to scale from.
+     */
+    public static double between(double uvA, long a, double uvB, long b, double lat, double lon, long now) {
+        double clearNow = clearSky(SolarPosition.elevationDeg(lat, lon, now));
+        if (clearNow == 0.0) return 0.0;
+        double fromA = carried(uvA, a, lat, lon, clearNow);
+        double fromB = carried(uvB, b, lat, lon, clearNow);
+        if (Double.isNaN(uvA) || Double.isNaN(uvB)) return Double.isNaN(uvA) ? fromB : fromA;
+        double f = b > a ? Math.max(0.0, Math.min(1.0, (double) (now - a) / (b - a))) : 0.0;
+        if (Double.isNaN(fromA)) fromA = uvA;
+        if (Double.isNaN(fromB)) fromB = uvB;
+        return fromA + (fromB - fromA) * f;
+    }
+
+    // uv's clearness at its time times clearNow; NaN when uv is missing or the sun was too low then
+    private static double carried(double uv, long at, double lat, double lon, double clearNow) {
+        if (Double.isNaN(uv)) return Double.NaN;
+        double clear = clearSky(SolarPosition.elevationDeg(lat, lon, at));
+        return clear >= MIN_CLEAR ? uv / clear * clearNow : Double.NaN;
+    }
+
+    /**
+     * UV at now from the forecast hours either side of it (each value is for the start of its hour). NaN outside
+     * the timeline or when those hours have no UV.
+     */
+    public static double fromTimeline(HourlyTimeline t, double lat, double lon, long now) {
+        int i = t.indexAt(now);
+        if (i < 0) return Double.NaN;
+        long start = HourlyTimeline.hourOf(now) * HOUR_MS;
+        double next = i + 1 < t.size() ? t.uv(i + 1) : Double.NaN;
+        return between(t.uv(i), start, next, start + HOUR_MS, lat, lon, now);
+    }
+}
@@ -0,0 +1,168 @@
+package com.empowering.weather.core;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Render-ready values for one widget state: the temperature and stat labels, the numbers behind them and the
+ * pill colours derived from those numbers. Built once per fetch (or forecast hour) so rendering never parses
+ * the labels back. Missing numbers are NaN and colour like zero, as the label parsing they replace did.
+ */
+public final class WeatherStats {
+    private static final int FORMAT_VERSION = 1;
+
+    public static final WeatherStats EMPTY =
+            new WeatherStats("--°C", "Prec: --", "Hum: --", "UV: --", Double.NaN, false, Double.NaN, Double.NaN);
+
+    public final String temp;
+    public final String prec;
+    public final String hum;
+    public final String uv;
+    // Chance of rain in percent when precipPercent, else precipitation in mm
+    public final double precip;
+    public final boolean precipPercent;
+    public final double humidity;
+    public final double uvIndex;
+
+    public final int precipBg;
+    public final int humBg;
+    public final int uvBg;
+    public final int precipText;
+    public final int humText;
+    public final int uvText;
+
+    private WeatherStats(String temp, String prec, String hum, String uv, double precip, boolean precipPercent,
+                         double humidity, double uvIndex) {
+        this.temp = temp;
+        this.prec = prec;
+        this.hum = hum;
+        this.uv = uv;
+        this.precip = precip;
+        this.precipPercent = precipPercent;
+        this.humidity = humidity;
+        this.uvIndex = uvIndex;
+        // Precipitation percent normalises against 100, mm against 50 mm
+        double precipNorm = Double.isNaN(precip) ? 0.0 : Math.min(1.0, precip / (precipPercent ? 100.0 : 50.0));
+        this.precipBg = WidgetColors.precipBackground(precipNorm);
+        this.humBg = WidgetColors.humidityBackground(Double.isNaN(humidity) ? 0.0 : Math.min(1.0, humidity / 100.0));
+        this.uvBg = WidgetColors.uvBackground(Double.isNaN(uvIndex) ? 0.0 : uvIndex);
+        this.precipText = WidgetColors.hslColor(precipBg, WidgetColors.TEXT_BRIGHTNESS);
+        this.humText = WidgetColors.hslColor(humBg, WidgetColors.TEXT_BRIGHTNESS);
+        this.uvText = WidgetColors.hslColor(uvBg, WidgetColors.TEXT_BRIGHTNESS);
+    }
+
+    /** From weather.current, labelled exactly like {@link WidgetFormat#buildDetailsFromCurrent}. */
+    public static WeatherStats fromCurrent(WidgetPayload.Current cur) {
+        if (cur == null) return EMPTY;
+        try {
+            String temp = cur.opt("temp_c") + "°C";
+            String humStr = "--";
+            double hum = Double.NaN;
+            if (cur.has("humidity") && !cur.isNull("humidity")) {
+                hum = cur.optInt("humidity");
+                humStr = (int) hum + "%";
+            }
+            String uvStr = "--";
+            double uv = Double.NaN;
+            if (cur.has("uv") && !cur.isNull("uv")) {
+                Object v = cur.opt("uv");
+                uvStr = String.valueOf(v);
+                uv = number(v);
+            }
+            String precStr = WidgetFormat.extractRainChancePercent(cur);
+            double precip = Double.NaN;
+            boolean percent = precStr != null;
+            if (percent) {
+                precip = Integer.parseInt(precStr.substring(0, precStr.length() - 1));
+            } else if (cur.has("precip_mm") && !cur.isNull("precip_mm")) {
+                Object v = cur.opt("precip_mm");
+                precStr = v + " mm";
+                precip = number(v);
+            } else {
+                precStr = "--";
+            }
+            return new WeatherStats(temp, "Prec: " + precStr, "Hum: " + humStr, "UV: " + uvStr, precip, percent, hum, uv);
+        } catch (Exception e) {
+            return EMPTY;
+        }
+    }
+
+    /** From one forecast hour. */
+    public static WeatherStats fromHour(HourlyTimeline t, int i) {
+        // Same precipitation preference as weather.current: chance of rain, then mm
+        boolean percent = t.rainChance(i) >= 0;
+        double precip = percent ? t.rainChance(i) : t.precipMm(i);
+        String precStr = percent ? t.rainChance(i) + "%" : Float.isNaN(t.precipMm(i)) ? "--" : t.precipMm(i) + " mm";
+        double hum = t.humidity(i) >= 0 ? t.humidity(i) : Double.NaN;
+        String humStr = t.humidity(i) >= 0 ? t.humidity(i) + "%" : "--";
+        String uvStr = Float.isNaN(t.uv(i)) ? "--" : String.valueOf(t.uv(i));
+        return new WeatherStats(WidgetFormat.tempLabel(t, i), "Prec: " + precStr, "Hum: " + humStr, "UV: " + uvStr,
+                precip, percent, hum, t.uv(i));
+    }
+
+    /**
+     * The same values with the UV index replaced, e.g. by a {@link UvEstimate}. Labelled like the value it
+     * replaces: whole when the server sent a whole number, otherwise to one decimal.
+     */
+    public WeatherStats withUv(double uvIndex) {
+        String old = uv.startsWith("UV: ") ? uv.substring(4) : "--";
+        if (!old.equals("--") && old.indexOf('.') < 0) {
+            long rounded = Math.round(uvIndex);
+            return new WeatherStats(temp, prec, hum, "UV: " + rounded, precip, precipPercent, humidity, rounded);
+        }
+        double rounded = Math.round(uvIndex * 10.0) / 10.0;
+        return new WeatherStats(temp, prec, hum, "UV: " + rounded, precip, precipPercent, humidity, rounded);
+    }
+
+    /**
+     * From the temperature and details strings older versions cached ("Prec: 40% | Hum: 71% | UV: 3.5"). Parses
+     * them the way rendering used to; only needed once, when such a cache is upgraded.
+     */
+    public static WeatherStats fromLabels(String temp, String details) {
+        String prec = WidgetFormat.partsSafe(details, 0);
+        String hum = WidgetFormat.partsSafe(details, 1);
+        String uv = WidgetFormat.partsSafe(details, 2);
+        boolean percent = prec.contains("%");
+        double precip = WidgetFormat.parsePrecNorm(prec) * (percent ? 100.0 : 50.0);
+        return new WeatherStats(temp != null ? temp : "--°C",
+                prec.isEmpty() ? "Prec: --" : prec, hum.isEmpty() ? "Hum: --" : hum, uv.isEmpty() ? "UV: --" : uv,
+                precip, percent, WidgetFormat.parsePercentNorm(hum) * 100.0, WidgetFormat.parseUvValue(uv));
+    }
+
+    /** The stat labels joined the way they used to be cached. */
+    public String details() {
+        return prec + " | " + hum + " | " + uv;
+    }
+
+    /** Labels and numbers only; colours are derived again on read. */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeByte(FORMAT_VERSION);
+        out.writeUTF(temp);
+        out.writeUTF(prec);
+        out.writeUTF(hum);
+        out.writeUTF(uv);
+        out.writeDouble(precip);
+        out.writeBoolean(precipPercent);
+        out.writeDouble(humidity);
+        out.writeDouble(uvIndex);
+    }
+
+    /** Returns null when the data was written by an incompatible version. */
+    public static WeatherStats readFrom(DataInput in) throws IOException {
+        if (in.readByte() != FORMAT_VERSION) return null;
+        return new WeatherStats(in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(),
+                in.readDouble(), in.readBoolean(), in.readDouble(), in.readDouble());
+    }
+
+    // Numeric value of a weather.current field: numbers as-is, strings stripped of everything but digits and dots
+    private static double number(Object v) {
+        if (v instanceof Number) return ((Number) v).doubleValue();
+        try {
+            String t = String.valueOf(v).replaceAll("[^0-9.]", "");
+            return t.isEmpty() ? Double.NaN : Double.parseDouble(t);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.empowering.weather.core;
+
+/**
+ * Colour maths for the widget's stat pills. Colours are packed ARGB ints, same as android.graphics.Color.
+ */
+public final class WidgetColors {
+    // Pill text is the background colour at 0.6x HSL lightness
+    public static final float TEXT_BRIGHTNESS = 0.6f;
+
+    private WidgetColors() {}
+
+    // Precipitation: grey if 0, else light blue to pure blue
+    public static int precipBackground(double precipNorm) {
+        return (precipNorm == 0.0) ? 0xFFCCCCCC : lerpColor(0xFFB3E5FC, 0xFF1565C0, precipNorm);
+    }
+
+    // Humidity: white to blue by percent
+    public static int humidityBackground(double humNorm) {
+        return lerpColor(0xFFFFFFFF, 0xFF2196F3, humNorm);
+    }
+
+    // UV: green (0-3), yellow (4-6), red (7+)
+    public static int uvBackground(double uvVal) {
+        if (uvVal <= 3.0) return 0xFF66BB6A; // green
+        else if (uvVal <= 6.0) return 0xFFFFEB3B; // yellow
+        else return 0xFFF44336; // red
+    }
+
+    // Convert ARGB color to HSL, scale brightness, and return ARGB
+    public static int hslColor(int argb, float brightnessScale) {
+        float[] hsl = new float[3];
+        int r = (argb >> 16) & 0xFF;
+        int g = (argb >> 8) & 0xFF;
+        int b = argb & 0xFF;
+        rgbToHsl(r, g, b, hsl);
+        hsl[2] = Math.max(0f, Math.min(1f, hsl[2] * brightnessScale));
+        return hslToColor(hsl);
+    }
+
+    // Helper: RGB to HSL
+    static void rgbToHsl(int r, int g, int b, float[] hsl) {
+        float rf = r / 255f, gf = g / 255f, bf = b / 255f;
+        float max = Math.max(rf, Math.max(gf, bf));
+        float min = Math.min(rf, Math.min(gf, bf));
+        float h, s, l = (max + min) / 2f;
+        if (max == min) {
+            h = s = 0f;
+        } else {
+            float d = max - min;
+            s = l > 0.5f ? d / (2f - max - min) : d / (max + min);
+            if (max == rf) h = (gf - bf) / d + (gf < bf ? 6f : 0f);
+            else if (max == gf) h = (bf - rf) / d + 2f;
+            else h = (rf - gf) / d + 4f;
+            h /= 6f;
+        }
+        hsl[0] = h;
+        hsl[1] = s;
+        hsl[2] = l;
+    }
+
+    // Helper: HSL to ARGB
+    static int hslToColor(float[] hsl) {
+        float h = hsl[0], s = hsl[1], l = hsl[2];
+        float r, g, b;
+        if (s == 0f) {
+            r = g = b = l;
+        } else {
+            float q = l < 0.5f ? l * (1f + s) : l + s - l * s;
+            float p = 2f * l - q;
+            r = hue2rgb(p, q, h + 1f/3f);
+            g = hue2rgb(p, q, h);
+            b = hue2rgb(p, q, h - 1f/3f);
+        }
+        return 0xFF000000 | ((int)(r * 255) << 16) | ((int)(g * 255) << 8) | (int)(b * 255);
+    }
+
+    private static float hue2rgb(float p, float q, float t) {
+        if (t < 0f) t += 1f;
+        if (t > 1f) t -= 1f;
+        if (t < 1f/6f) return p + (q - p) * 6f * t;
+        if (t < 1f/2f) return q;
+        if (t < 2f/3f) return p + (q - p) * (2f/3f - t) * 6f;
+        return p;
+    }
+
+    public static int lerpColor(int a, int b, double t) {
+        int ia = (a >> 24) & 0xff;
+        int ir = (a >> 16) & 0xff;
+        int ig = (a >> 8) & 0xff;
+        int ib = a & 0xff;
+        int ja = (b >> 24) & 0xff;
+        int jr = (b >> 16) & 0xff;
+        int jg = (b >> 8) & 0xff;
+        int jb = b & 0xff;
+        int aa = (int)(ia + (ja - ia) * t);
+        int rr = (int)(ir + (jr - ir) * t);
+        int gg = (int)(ig + (jg - ig) * t);
+        int bb = (int)(ib + (jb - ib) * t);
+        return ((aa & 0xff) << 24) | ((rr & 0xff) << 16) | ((gg & 0xff) << 8) | (bb & 0xff);
+    }
+}
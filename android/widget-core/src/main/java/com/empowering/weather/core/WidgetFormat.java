@@ -0,0 +1,201 @@
+package com.empowering.weather.core;
+
+/**
+ * Text formatting and parsing for the widget: the "Prec | Hum | UV" details line, the values parsed back
+ * out of it for colouring, and the "Last fetched" labels.
+ */
+public final class WidgetFormat {
+    public static final String EMPTY_DETAILS = "Prec: -- | Hum: -- | UV: --";
+    // A saved location older than this is flagged as cached in the status line
+    public static final long CACHED_LOCATION_MS = 2L * 60L * 1000L;
+    // Seconds labels are refreshed in steps of this rather than every second
+    public static final long SECONDS_STEP_MS = 10_000L;
+
+    private WidgetFormat() {}
+
+    public static String buildDetailsFromCurrent(WidgetPayload.Current cur) {
+        try {
+            if (cur == null) return EMPTY_DETAILS;
+            // Humidity
+            String humStr = "--";
+            if (cur.has("humidity") && !cur.isNull("humidity")) {
+                humStr = String.valueOf(cur.optInt("humidity"));
+                if (!"--".equals(humStr)) humStr += "%";
+            }
+
+            // UV
+            String uvStr = "--";
+            if (cur.has("uv") && !cur.isNull("uv")) {
+                Object uv = cur.opt("uv");
+                uvStr = String.valueOf(uv);
+            }
+
+            // Precipitation: prefer percent fields, fall back to precip_mm
+            String precStr = extractRainChancePercent(cur);
+            if (precStr == null) {
+                if (cur.has("precip_mm") && !cur.isNull("precip_mm")) {
+                    precStr = cur.opt("precip_mm") + " mm";
+                } else {
+                    precStr = "--";
+                }
+            }
+
+            return "Prec: " + precStr + " | Hum: " + humStr + " | UV: " + uvStr;
+        } catch (Exception e) {
+            return EMPTY_DETAILS;
+        }
+    }
+
+    // Temperature label for a forecast hour, formatted like the current temp_c
+    public static String tempLabel(HourlyTimeline t, int i) {
+        float v = t.tempC(i);
+        return Float.isNaN(v) ? "--°C" : v + "°C";
+    }
+
+    // Details line for a forecast hour, same shape and precipitation preference as buildDetailsFromCurrent
+    public static String buildDetailsFromHour(HourlyTimeline t, int i) {
+        return WeatherStats.fromHour(t, i).details();
+    }
+
+    public static String extractRainChancePercent(WidgetPayload.Current h) {
+        try {
+            if (h == null) return null;
+            // Try a set of common keys used across APIs
+            if (h.has("daily_chance_of_rain") && !h.isNull("daily_chance_of_rain"))
+                return h.optInt("daily_chance_of_rain") + "%";
+            if (h.has("chance_of_rain") && !h.isNull("chance_of_rain"))
+                return h.optInt("chance_of_rain") + "%";
+            if (h.has("chanceofrain") && !h.isNull("chanceofrain"))
+                return h.optInt("chanceofrain") + "%";
+            if (h.has("pop") && !h.isNull("pop")) return h.optInt("pop") + "%";
+            if (h.has("will_it_rain") && !h.isNull("will_it_rain"))
+                return (h.optInt("will_it_rain") != 0 ? 100 : 0) + "%";
+        } catch (Exception ignored) {}
+        return null;
+    }
+
+    // Helpers for widget background gradients and parsing
+    public static String partsSafe(String loc, int idx) {
+        try {
+            if (loc == null) return "";
+            String[] p = loc.split("\\|");
+            if (idx < p.length) return p[idx].trim();
+        } catch (Throwable ignored) {}
+        return "";
+    }
+
+    public static double parsePrecNorm(String s) {
+        try {
+            if (s == null) return 0.0;
+            // strip non-digits except dot
+            java.lang.String t = s.replaceAll("[^0-9.]", "");
+            if (t.isEmpty()) return 0.0;
+            double v = Double.parseDouble(t);
+            // if looks like percent (0-100), convert; else assume mm and normalize against 50mm
+            if (s.contains("%")) return Math.min(1.0, v / 100.0);
+            return Math.min(1.0, v / 50.0);
+        } catch (Throwable ignored) { return 0.0; }
+    }
+
+    public static double parsePercentNorm(String s) {
+        try {
+            if (s == null) return 0.0;
+            java.lang.String t = s.replaceAll("[^0-9.]", "");
+            if (t.isEmpty()) return 0.0;
+            double v = Double.parseDouble(t);
+            return Math.min(1.0, v / 100.0);
+        } catch (Throwable ignored) { return 0.0; }
+    }
+
+    public static double parseUvValue(String s) {
+        try {
+            if (s == null) return 0.0;
+            java.lang.String t = s.replaceAll("[^0-9.]", "");
+            if (t.isEmpty()) return 0.0;
+            return Double.parseDouble(t);
+        } catch (Throwable ignored) { return 0.0; }
+    }
+
+    public static String formatAge(long ts) {
+        return formatAge(ts, System.currentTimeMillis());
+    }
+
+    // Format a human readable age like "(5m)" or "(30s)"; returns empty string on error
+    public static String formatAge(long ts, long now) {
+        try {
+            if (ts <= 0) return "";
+            long age = now - ts;
+            // Treat anything under 9 seconds as "now" per request
+            if (age < 9000L) return "(now)";
+            long secs = age / 1000L;
+            if (secs < 60L) return "(" + secs + "s)";
+            long mins = secs / 60L;
+            if (mins < 60L) return "(" + mins + "m)";
+            long hours = mins / 60L;
+            return "(" + hours + "h)";
+        } catch (Throwable ignored) {
+            return "";
+        }
+    }
+
+    public static String lastFetchedLabel(long ts) {
+        return lastFetchedLabel(ts, System.currentTimeMillis());
+    }
+
+    // Return a compact "Last fetched" label using a time or relative age depending on how recent
+    public static String lastFetchedLabel(long ts, long now) {
+        try {
+            if (ts <= 0) return "Last fetched (unknown)";
+            long age = now - ts;
+            // If very recent, show relative age like (now)/(5s)/(3m)
+            if (age < 60L * 1000L) {
+                String a = formatAge(ts, now);
+                return "Last fetched " + a;
+            }
+            // Otherwise show a simple time like HH:MM in the device default timezone
+            java.text.SimpleDateFormat fmt = new java.text.SimpleDateFormat("HH:mm");
+            String t = fmt.format(new java.util.Date(ts));
+            return "Last fetched " + t;
+        } catch (Throwable ignored) {
+            return "Last fetched";
+        }
+    }
+
+    // Status for data painted from cache while a refresh is under way
+    public static String staleStatus(long fetchTs, long now) {
+        if (fetchTs <= 0) return "Updating…";
+        return "Updating… — " + lastFetchedLabel(fetchTs, now);
+    }
+
+    // Status line under the stats: when data was last fetched, flagging a location older than CACHED_LOCATION_MS
+    public static String fetchedStatus(long fetchTs, long locTs, long now) {
+        if (fetchTs <= 0) return "Open app to grant location";
+        String fetchedLabel = lastFetchedLabel(fetchTs, now);
+        if (locTs > 0 && now - locTs > CACHED_LOCATION_MS) {
+            return "Using cached location " + formatAge(locTs, now) + " — " + fetchedLabel + " — Tap to refresh";
+        }
+        return fetchedLabel + " — Tap to refresh";
+    }
+
+    /**
+     * Time at which {@link #fetchedStatus} next renders differently, or Long.MAX_VALUE once it is static.
+     * Follows the formatAge granularity: seconds (in SECONDS_STEP_MS steps), then minutes, then hours. The
+     * fetch label switches to a fixed HH:mm after a minute, so only a cached location keeps it changing.
+     */
+    public static long nextStatusChange(long fetchTs, long locTs, long now) {
+        if (fetchTs <= 0) return Long.MAX_VALUE;
+        long next = Long.MAX_VALUE;
+        long fetchAge = Math.max(0L, now - fetchTs);
+        if (fetchAge < 9000L) next = fetchTs + 9000L;
+        else if (fetchAge < 60_000L) next = fetchTs + Math.min(60_000L, (fetchAge / SECONDS_STEP_MS + 1) * SECONDS_STEP_MS);
+        if (locTs > 0) {
+            long locAge = Math.max(0L, now - locTs);
+            long locNext;
+            if (locAge <= CACHED_LOCATION_MS) locNext = locTs + CACHED_LOCATION_MS + 1L;
+            else if (locAge < 3_600_000L) locNext = locTs + (locAge / 60_000L + 1) * 60_000L;
+            else locNext = locTs + (locAge / 3_600_000L + 1) * 3_600_000L;
+            next = Math.min(next, locNext);
+        }
+        return next;
+    }
+}
@@ -0,0 +1,88 @@
+package com.empowering.weather.core;
+
+/**
+ * The handful of /api response fields the widget renders. Produced by {@link WidgetPayloadParser}.
+ */
+public final class WidgetPayload {
+    // optString("weather_quip", "") semantics: "" when absent
+    public String quip = "";
+    // Seconds since the server fetched from weatherapi, -1 when absent
+    public int cacheAge = -1;
+    // weather.current, or null when missing / not an object
+    public Current current;
+    // weather.forecast hourly series, or null when the payload carries none
+    public HourlyTimeline hourly;
+
+    /**
+     * When weather.current was observed: its last_updated_epoch, else fetchTs less cache_age, else fetchTs. The
+     * current values are older than the fetch by at least the server's cache age.
+     */
+    public long observedAt(long fetchTs) {
+        Object v = current != null ? current.opt("last_updated_epoch") : null;
+        if (v instanceof Number && ((Number) v).longValue() > 0) return Math.min(fetchTs, ((Number) v).longValue() * 1000L);
+        return cacheAge > 0 ? fetchTs - cacheAge * 1000L : fetchTs;
+    }
+
+    /**
+     * Values of weather.current limited to {@link #KEYS}. Mirrors the JSONObject accessors the widget used
+     * (has/isNull/opt/optInt) including org.json's number typing, so formatting stays byte-for-byte the same.
+     */
+    public static final class Current {
+        public static final String[] KEYS = {
+                "temp_c", "humidity", "uv", "precip_mm",
+                "daily_chance_of_rain", "chance_of_rain", "chanceofrain", "pop", "will_it_rain",
+                "wind_kph", "cloud", "condition", "last_updated_epoch"
+        };
+        static final int CONDITION = 11;
+
+        // Stand-in for JSONObject.NULL
+        public static final Object NULL = new Object() {
+            @Override
+            public String toString() { return "null"; }
+        };
+
+        // Stand-in for nested objects/arrays, which the widget never reads
+        static final Object NESTED = new Object() {
+            @Override
+            public String toString() { return "{}"; }
+        };
+
+        final Object[] values = new Object[KEYS.length];
+        // condition.text, "" when absent or not a string
+        public String conditionText = "";
+
+        public boolean has(String key) {
+            int i = indexOf(key);
+            return i >= 0 && values[i] != null;
+        }
+
+        public boolean isNull(String key) {
+            Object v = opt(key);
+            return v == null || v == NULL;
+        }
+
+        public Object opt(String key) {
+            int i = indexOf(key);
+            return i >= 0 ? values[i] : null;
+        }
+
+        public int optInt(String key) {
+            Object v = opt(key);
+            if (v instanceof Integer) return (Integer) v;
+            if (v instanceof Number) return ((Number) v).intValue();
+            if (v instanceof String) {
+                try {
+                    return (int) Double.parseDouble((String) v);
+                } catch (NumberFormatException ignored) {}
+            }
+            return 0;
+        }
+
+        static int indexOf(String key) {
+            for (int i = 0; i < KEYS.length; i++) {
+                if (KEYS[i].equals(key)) return i;
+            }
+            return -1;
+        }
+    }
+}
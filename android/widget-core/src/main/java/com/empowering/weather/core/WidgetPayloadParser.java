@@ -0,0 +1,245 @@
+package com.empowering.weather.core;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Streaming extractor for the /api response. Reads weather_quip, cache_age, the weather.current fields the
+ * widget shows or picks a quip from and the hourly forecast series into an {@link HourlyTimeline}; everything
+ * else is skipped in place.
+ */
+public final class WidgetPayloadParser {
+    private static final String[] ROOT_KEYS = { "weather_quip", "cache_age", "weather" };
+    private static final String[] WEATHER_KEYS = { "current", "forecast" };
+    private static final String[] FORECAST_KEYS = { "forecastday" };
+    private static final String[] DAY_KEYS = { "hour" };
+    private static final String[] HOUR_KEYS = {
+            "time_epoch", "temp_c", "humidity", "uv", "precip_mm", "chance_of_rain", "will_it_rain",
+            "wind_kph", "cloud", "condition"
+    };
+    private static final String[] CONDITION_KEYS = { "text" };
+
+    private WidgetPayloadParser() {}
+
+    public static WidgetPayload parse(Reader reader) throws IOException {
+        JsonStreamReader r = new JsonStreamReader(reader);
+        WidgetPayload out = new WidgetPayload();
+        if (r.peek() != JsonStreamReader.Token.BEGIN_OBJECT) {
+            throw new IOException("Malformed JSON: expected an object");
+        }
+        r.beginObject();
+        while (r.hasNext()) {
+            switch (r.selectName(ROOT_KEYS)) {
+                case 0:
+                    out.quip = readAsString(r);
+                    break;
+                case 1:
+                    Object age = readPrimitive(r);
+                    out.cacheAge = age instanceof Number ? ((Number) age).intValue() : -1;
+                    break;
+                case 2:
+                    out.current = null;
+                    if (r.peek() == JsonStreamReader.Token.BEGIN_OBJECT) {
+                        readWeather(r, out);
+                    } else {
+                        r.skipValue();
+                    }
+                    break;
+                default:
+                    r.skipValue();
+            }
+        }
+        r.endObject();
+        return out;
+    }
+
+    private static void readWeather(JsonStreamReader r, WidgetPayload out) throws IOException {
+        r.beginObject();
+        while (r.hasNext()) {
+            switch (r.selectName(WEATHER_KEYS)) {
+                case 0:
+                    if (r.peek() == JsonStreamReader.Token.BEGIN_OBJECT) {
+                        out.current = readCurrent(r);
+                    } else {
+                        out.current = null;
+                        r.skipValue();
+                    }
+                    break;
+                case 1:
+                    out.hourly = readForecast(r);
+                    break;
+                default:
+                    r.skipValue();
+            }
+        }
+        r.endObject();
+    }
+
+    // forecast.forecastday[].hour[] -> timeline; anything unexpected in the structure is skipped
+    private static HourlyTimeline readForecast(JsonStreamReader r) throws IOException {
+        if (r.peek() != JsonStreamReader.Token.BEGIN_OBJECT) {
+            r.skipValue();
+            return null;
+        }
+        HourlyTimeline.Builder b = new HourlyTimeline.Builder();
+        r.beginObject();
+        while (r.hasNext()) {
+            if (r.selectName(FORECAST_KEYS) != 0 || r.peek() != JsonStreamReader.Token.BEGIN_ARRAY) {
+                r.skipValue();
+                continue;
+            }
+            r.beginArray();
+            while (r.hasNext()) {
+                if (r.peek() != JsonStreamReader.Token.BEGIN_OBJECT) {
+                    r.skipValue();
+                    continue;
+                }
+                r.beginObject();
+                while (r.hasNext()) {
+                    if (r.selectName(DAY_KEYS) != 0 || r.peek() != JsonStreamReader.Token.BEGIN_ARRAY) {
+                        r.skipValue();
+                        continue;
+                    }
+                    r.beginArray();
+                    while (r.hasNext()) {
+                        if (r.peek() == JsonStreamReader.Token.BEGIN_OBJECT) {
+                            readHour(r, b);
+                        } else {
+                            r.skipValue();
+                        }
+                    }
+                    r.endArray();
+                }
+                r.endObject();
+            }
+            r.endArray();
+        }
+        r.endObject();
+        return b.build();
+    }
+
+    private static void readHour(JsonStreamReader r, HourlyTimeline.Builder b) throws IOException {
+        long epoch = Long.MIN_VALUE;
+        float temp = Float.NaN, uv = Float.NaN, precip = Float.NaN;
+        float wind = Float.NaN, cloud = Float.NaN;
+        int hum = -1, chance = -1, willRain = -1;
+        String text = "";
+        r.beginObject();
+        while (r.hasNext()) {
+            int idx = r.selectName(HOUR_KEYS);
+            if (idx < 0) {
+                r.skipValue();
+                continue;
+            }
+            if (idx == 9) { // condition
+                text = readConditionText(r);
+                continue;
+            }
+            Object v = readPrimitive(r);
+            if (!(v instanceof Number)) continue;
+            Number n = (Number) v;
+            switch (idx) {
+                case 0: epoch = n.longValue(); break;
+                case 1: temp = n.floatValue(); break;
+                case 2: hum = n.intValue(); break;
+                case 3: uv = n.floatValue(); break;
+                case 4: precip = n.floatValue(); break;
+                case 5: chance = n.intValue(); break;
+                case 6: willRain = n.intValue(); break;
+                case 7: wind = n.floatValue(); break;
+                default: cloud = n.floatValue();
+            }
+        }
+        r.endObject();
+        if (epoch == Long.MIN_VALUE) return;
+        // Same preference as WidgetFormat.extractRainChancePercent
+        if (chance < 0 && willRain >= 0) chance = willRain != 0 ? 100 : 0;
+        b.add(epoch, temp, hum, uv, precip, chance, QuipEngine.conditionFlags(text, wind, cloud));
+    }
+
+    private static WidgetPayload.Current readCurrent(JsonStreamReader r) throws IOException {
+        WidgetPayload.Current cur = new WidgetPayload.Current();
+        r.beginObject();
+        while (r.hasNext()) {
+            int idx = r.selectName(WidgetPayload.Current.KEYS);
+            if (idx < 0) {
+                r.skipValue();
+            } else if (idx == WidgetPayload.Current.CONDITION) {
+                cur.values[idx] = WidgetPayload.Current.NESTED;
+                cur.conditionText = readConditionText(r);
+            } else {
+                cur.values[idx] = readPrimitive(r);
+            }
+        }
+        r.endObject();
+        return cur;
+    }
+
+    // condition.text when it is a string, "" otherwise
+    private static String readConditionText(JsonStreamReader r) throws IOException {
+        if (r.peek() != JsonStreamReader.Token.BEGIN_OBJECT) {
+            r.skipValue();
+            return "";
+        }
+        String text = "";
+        r.beginObject();
+        while (r.hasNext()) {
+            if (r.selectName(CONDITION_KEYS) == 0 && r.peek() == JsonStreamReader.Token.STRING) {
+                text = r.nextString();
+            } else {
+                r.skipValue();
+            }
+        }
+        r.endObject();
+        return text;
+    }
+
+    // optString semantics: strings as-is, other values via toString
+    private static String readAsString(JsonStreamReader r) throws IOException {
+        if (r.peek() == JsonStreamReader.Token.STRING) return r.nextString();
+        return String.valueOf(readPrimitive(r));
+    }
+
+    private static Object readPrimitive(JsonStreamReader r) throws IOException {
+        switch (r.peek()) {
+            case STRING:
+                return r.nextString();
+            case NUMBER:
+            case BOOLEAN:
+            case NULL:
+                return toValue(r.nextLiteral());
+            default:
+                r.skipValue();
+                return WidgetPayload.Current.NESTED;
+        }
+    }
+
+    // Same typing rules as Android's JSONTokener.readLiteral so String.valueOf() matches org.json output
+    static Object toValue(String literal) {
+        if ("null".equalsIgnoreCase(literal)) return WidgetPayload.Current.NULL;
+        if ("true".equalsIgnoreCase(literal)) return Boolean.TRUE;
+        if ("false".equalsIgnoreCase(literal)) return Boolean.FALSE;
+        if (literal.indexOf('.') == -1) {
+            int base = 10;
+            String number = literal;
+            if (number.startsWith("0x") || number.startsWith("0X")) {
+                number = number.substring(2);
+                base = 16;
+            } else if (number.startsWith("0") && number.length() > 1) {
+                number = number.substring(1);
+                base = 8;
+            }
+            try {
+                long longValue = Long.parseLong(number, base);
+                if (longValue <= Integer.MAX_VALUE && longValue >= Integer.MIN_VALUE) {
+                    return (int) longValue;
+                }
+                return longValue;
+            } catch (NumberFormatException ignored) {}
+        }
+        try {
+            return Double.valueOf(literal);
+        } catch (NumberFormatException ignored) {}
+        return literal;
+    }
+}
@@ -0,0 +1,103 @@
+package com.empowering.weather.core;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class AdaptiveLocationPolicyTest {
+    private static final long MIN = 60_000L;
+    private final LocationPolicy policy = new AdaptiveLocationPolicy(500f);
+
+    @Test
+    public void picksTheRequestFromTheState() {
+        assertEquals("moving", choose(true, 80, false, false, 12.0).name);
+        assertEquals("stationary", choose(true, 80, false, false, 0.1).name);
+        assertEquals("charging", choose(true, 80, true, false, 1.4).name);
+        assertEquals("screen-off", choose(false, 80, false, false, 0.0).name);
+        assertEquals("screen-off-moving", choose(false, 80, false, false, 12.0).name);
+        assertEquals("low-battery", choose(true, 15, false, false, 12.0).name);
+        assertEquals("low-battery", choose(true, 60, false, true, 12.0).name);
+        // on the charger the battery level does not matter
+        assertEquals("stationary", choose(true, 5, true, false, 0.0).name);
+        // no speed yet: assume moving until fixes tell otherwise
+        assertEquals("moving", choose(true, -1, false, false, Double.NaN).name);
+
+        LocationPolicy.Request off = choose(false, 80, false, false, 0.0);
+        assertEquals(LocationPolicy.PRIORITY_PASSIVE, off.priority);
+        assertEquals(500f, off.minDistanceM, 0f);
+        assertTrue(off.maxDelayMs > 0);
+        assertEquals(off, choose(false, 30, false, false, 0.2));
+    }
+
+    @Test
+    public void speedComesFromConsecutiveFixes() {
+        // about 1.1 km north in 100 s
+        assertEquals(11.1, LocationPolicy.State.speedBetween(51.50, -0.12, 1_000L, 51.51, -0.12, 101_000L), 0.1);
+        assertTrue(Double.isNaN(LocationPolicy.State.speedBetween(51.50, -0.12, 0L, 51.51, -0.12, 101_000L)));
+        assertTrue(Double.isNaN(LocationPolicy.State.speedBetween(51.50, -0.12, 5L, 51.51, -0.12, 5L)));
+    }
+
+    /**
+     * Replays a recorded weekday. The old fixed request (balanced power, every 30 s) asked for 2880 fixes a day;
+     * the adaptive one asks for under a tenth of that, never asks for active fixes with the screen off and still or
+     * on low battery, and re-registers only when the chosen request actually changes.
+     */
+    @Test
+    public void recordedDayTrace() throws IOException {
+        List<Long> times = new ArrayList<>();
+        List<LocationPolicy.State> states = new ArrayList<>();
+        readTrace("commuter_day.csv", times, states);
+
+        LocationPolicy.Request registered = null;
+        int registrations = 0;
+        double activeFixes = 0;
+        for (int i = 0; i < states.size(); i++) {
+            LocationPolicy.State s = states.get(i);
+            LocationPolicy.Request r = policy.choose(s);
+            if (!r.equals(registered)) {
+                registrations++;
+                registered = r;
+            }
+            long until = i + 1 < states.size() ? times.get(i + 1) : 24 * 60 * MIN;
+            long span = until - times.get(i);
+            if (r.priority != LocationPolicy.PRIORITY_PASSIVE) activeFixes += (double) span / r.intervalMs;
+
+            if (!s.screenOn) assertTrue(r.name, r.maxDelayMs > 0);
+            if (!s.screenOn && s.speedMps < 0.5) assertEquals(LocationPolicy.PRIORITY_PASSIVE, r.priority);
+            if (!s.charging && s.batteryPercent <= 15) assertEquals(LocationPolicy.PRIORITY_PASSIVE, r.priority);
+        }
+        double oldFixes = 24 * 60 * MIN / 30_000.0;
+        assertEquals(2880.0, oldFixes, 0.0);
+        assertTrue("active fixes " + activeFixes, activeFixes < oldFixes * 0.1);
+        // 32 samples, but consecutive samples mostly keep the same request
+        assertEquals(32, states.size());
+        assertEquals(26, registrations);
+    }
+
+    private LocationPolicy.Request choose(boolean screen, int battery, boolean charging, boolean powerSave, double speed) {
+        return policy.choose(new LocationPolicy.State(screen, battery, charging, powerSave, speed));
+    }
+
+    static void readTrace(String name, List<Long> times, List<LocationPolicy.State> states) throws IOException {
+        try (InputStream in = AdaptiveLocationPolicyTest.class.getResourceAsStream("/traces/" + name);
+             BufferedReader r = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String[] f = line.split(",");
+                String[] hm = f[0].split(":");
+                times.add((Long.parseLong(hm[0]) * 60 + Long.parseLong(hm[1])) * MIN);
+                states.add(new LocationPolicy.State(f[1].equals("1"), Integer.parseInt(f[2]), f[3].equals("1"),
+                        f[4].equals("1"), f[5].equals("-") ? Double.NaN : Double.parseDouble(f[5])));
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.empowering.weather.core;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class EndpointHealthTest {
+    private static final List<String> ENDPOINTS = List.of("https://a", "https://b", "https://c");
+
+    @Test
+    public void unmeasuredEndpointsKeepTheConfiguredOrder() {
+        assertEquals(ENDPOINTS, new EndpointHealth(ENDPOINTS).ordered(0L));
+    }
+
+    @Test
+    public void fasterEndpointsComeFirst() {
+        EndpointHealth h = new EndpointHealth(ENDPOINTS);
+        h.success("https://a", 900);
+        h.success("https://b", 100);
+        // c is unmeasured and takes the average (500): between the two
+        assertEquals(List.of("https://b", "https://c", "https://a"), h.ordered(0L));
+        // one fast answer from a only moves its average part of the way
+        h.success("https://a", 50);
+        assertEquals(645, h.latencyMs("https://a"));
+    }
+
+    @Test
+    public void failedEndpointSitsOutAPenaltyThatGrows() {
+        EndpointHealth h = new EndpointHealth(ENDPOINTS);
+        h.failure("https://a", 1000L);
+        assertEquals(List.of("https://b", "https://c", "https://a"), h.ordered(1000L));
+        assertEquals(ENDPOINTS, h.ordered(1000L + 30_000L));
+        // a second failure in a row doubles it
+        h.failure("https://a", 1000L);
+        assertEquals("https://a", h.ordered(1000L + 59_999L).get(2));
+        assertEquals("https://a", h.ordered(1000L + 60_000L).get(0));
+        // and a success clears the run
+        h.success("https://a", 100);
+        h.failure("https://a", 1000L);
+        assertEquals("https://a", h.ordered(1000L + 30_000L).get(0));
+    }
+
+    @Test
+    public void quantileOfRecentLatencies() {
+        EndpointHealth h = new EndpointHealth(ENDPOINTS);
+        assertEquals(1500, h.latencyQuantileMs(0.9, 1500));
+        for (int i = 1; i <= 10; i++) h.success(ENDPOINTS.get(i % 3), i * 100L);
+        assertEquals(900, h.latencyQuantileMs(0.9, 1500));
+        assertEquals(500, h.latencyQuantileMs(0.5, 1500));
+        // only the most recent 32 count
+        for (int i = 0; i < 32; i++) h.success("https://a", 20);
+        assertEquals(20, h.latencyQuantileMs(0.99, 1500));
+    }
+}
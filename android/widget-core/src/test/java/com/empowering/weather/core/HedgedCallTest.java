@@ -0,0 +1,162 @@
+package com.empowering.weather.core;
+
+import static org.junit.Assert.*;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class HedgedCallTest {
+    private static final String PAYLOAD = "london_partly_cloudy.json";
+    private final ExecutorService pool = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "attempt");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void slowEndpointIsHedgedToTheNext() throws Exception {
+        try (StandInServer slow = new StandInServer(WidgetPayloadParserTest.read(PAYLOAD));
+             StandInServer fast = new StandInServer(WidgetPayloadParserTest.read(PAYLOAD))) {
+            slow.delay(1500);
+            EndpointHealth health = new EndpointHealth(List.of(slow.endpoint(), fast.endpoint()));
+            HedgedCall call = new HedgedCall(health, pool, 0.9, 100, 200);
+
+            long t = System.nanoTime();
+            assertEquals(200, (int) call.call(HedgedCallTest::get, code -> code == 200, 5000, new TaskScheduler.Cancellation()));
+            long ms = (System.nanoTime() - t) / 1_000_000L;
+            assertTrue("took " + ms + " ms", ms < 1000);
+            long[] st = call.stats();
+            assertEquals(1, st[1]); // hedged
+            assertEquals(1, st[2]); // and the hedge won
+            assertEquals(1, slow.hits());
+            assertEquals(1, fast.hits());
+            // the fast one is measured; the slow one is not, so it takes the average and keeps its place
+            assertTrue(health.latencyMs(fast.endpoint()) >= 0);
+            assertEquals(-1, health.latencyMs(slow.endpoint()));
+        }
+    }
+
+    @Test
+    public void unmeasuredAnswerLeavesTheLatencyAlone() throws Exception {
+        try (StandInServer a = new StandInServer(WidgetPayloadParserTest.read(PAYLOAD))) {
+            EndpointHealth health = new EndpointHealth(List.of(a.endpoint()));
+            HedgedCall call = new HedgedCall(health, pool, 0.9, 100, 2000);
+            // Answered as if from a cache: it wins, but the endpoint stays unmeasured and the hedge at its maximum
+            assertEquals(200, (int) call.call((e, c) -> 200, code -> code == 200, code -> false, 5000,
+                    new TaskScheduler.Cancellation()));
+            assertEquals(-1, health.latencyMs(a.endpoint()));
+            assertEquals(2000, call.hedgeDelayMs());
+            assertEquals(200, (int) call.call(HedgedCallTest::get, code -> code == 200, 5000, new TaskScheduler.Cancellation()));
+            assertTrue(health.latencyMs(a.endpoint()) >= 0);
+        }
+    }
+
+    @Test
+    public void failingEndpointFailsOverAndIsTriedLast() throws Exception {
+        try (StandInServer down = new StandInServer(WidgetPayloadParserTest.read(PAYLOAD));
+             StandInServer up = new StandInServer(WidgetPayloadParserTest.read(PAYLOAD))) {
+            down.mode(StandInServer.Mode.UNAVAILABLE);
+            EndpointHealth health = new EndpointHealth(List.of(down.endpoint(), up.endpoint()));
+            HedgedCall call = new HedgedCall(health, pool, 0.9, 1000, 2000);
+
+            assertEquals(200, (int) call.call(HedgedCallTest::get, code -> code < 500, 5000, new TaskScheduler.Cancellation()));
+            assertEquals(1, call.stats()[3]); // failed over on the 503, without waiting to hedge
+            assertEquals(0, call.stats()[1]);
+            // while its penalty lasts the failing endpoint goes to the back and is not asked at all
+            assertEquals(List.of(up.endpoint(), down.endpoint()), health.ordered(System.currentTimeMillis()));
+            assertEquals(200, (int) call.call(HedgedCallTest::get, code -> code < 500, 5000, new TaskScheduler.Cancellation()));
+            assertEquals(1, down.hits());
+            assertEquals(2, up.hits());
+        }
+    }
+
+    @Test
+    public void everyEndpointFailingPassesOnTheLastAnswer() throws Exception {
+        try (StandInServer a = new StandInServer(WidgetPayloadParserTest.read(PAYLOAD));
+             StandInServer b = new StandInServer(WidgetPayloadParserTest.read(PAYLOAD))) {
+            a.mode(StandInServer.Mode.UNAVAILABLE);
+            b.mode(StandInServer.Mode.UNAVAILABLE);
+            HedgedCall call = new HedgedCall(new EndpointHealth(List.of(a.endpoint(), b.endpoint())), pool, 0.9, 1000, 2000);
+            assertEquals(503, (int) call.call(HedgedCallTest::get, code -> code < 500, 5000, new TaskScheduler.Cancellation()));
+            assertEquals(1, a.hits());
+            assertEquals(1, b.hits());
+        }
+    }
+
+    @Test
+    public void deadlineCutsOffSlowEndpoints() throws Exception {
+        try (StandInServer a = new StandInServer(WidgetPayloadParserTest.read(PAYLOAD));
+             StandInServer b = new StandInServer(WidgetPayloadParserTest.read(PAYLOAD))) {
+            a.mode(StandInServer.Mode.SLOW);
+            b.mode(StandInServer.Mode.SLOW);
+            EndpointHealth health = new EndpointHealth(List.of(a.endpoint(), b.endpoint()));
+            HedgedCall call = new HedgedCall(health, pool, 0.9, 100, 200);
+            long t = System.nanoTime();
+            try {
+                call.call(HedgedCallTest::get, code -> code == 200, 600, new TaskScheduler.Cancellation());
+                fail("answered after the deadline");
+            } catch (SocketTimeoutException expected) {
+            }
+            long ms = (System.nanoTime() - t) / 1_000_000L;
+            assertTrue("took " + ms + " ms", ms >= 600 && ms < 1500);
+            assertEquals(1, call.stats()[4]);
+            // both were still running, so both count as failed
+            assertEquals(List.of(a.endpoint(), b.endpoint()), health.ordered(System.currentTimeMillis()));
+            assertEquals(List.of(a.endpoint(), b.endpoint()), health.ordered(System.currentTimeMillis() + 31_000L));
+        }
+    }
+
+    @Test
+    public void cancellingTheCallAbortsItsAttempts() throws Exception {
+        try (StandInServer a = new StandInServer(WidgetPayloadParserTest.read(PAYLOAD))) {
+            a.mode(StandInServer.Mode.SLOW);
+            HedgedCall call = new HedgedCall(new EndpointHealth(List.of(a.endpoint())), pool, 0.9, 100, 200);
+            TaskScheduler.Cancellation cancel = new TaskScheduler.Cancellation();
+            pool.execute(() -> {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException ignored) {}
+                cancel.cancel();
+            });
+            long t = System.nanoTime();
+            try {
+                call.call(HedgedCallTest::get, code -> code == 200, 5000, cancel);
+                fail("not cancelled");
+            } catch (java.io.IOException expected) {
+            }
+            assertTrue((System.nanoTime() - t) / 1_000_000L < 1500);
+        }
+    }
+
+    // One attempt as the widget makes it: the status code, with the body read on success
+    private static Integer get(String endpoint, TaskScheduler.Cancellation cancel) throws Exception {
+        HttpURLConnection conn = (HttpURLConnection) new URL(endpoint + "/api?lat=51.5&lon=-0.1").openConnection();
+        cancel.onCancel(conn::disconnect);
+        try {
+            conn.setConnectTimeout(3000);
+            conn.setReadTimeout(3000);
+            int code = conn.getResponseCode();
+            if (code == 200) {
+                try (InputStream in = conn.getInputStream()) {
+                    in.readAllBytes();
+                }
+            }
+            return code;
+        } finally {
+            conn.disconnect();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.empowering.weather.core;
+
+import static org.junit.Assert.*;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.StringReader;
+
+public class HourlyTimelineTest {
+    private static final long HOUR = 3_600_000L;
+
+    @Test
+    public void parsesEveryHourOfTheRecordedForecast() throws Exception {
+        String body = WidgetPayloadParserTest.read("london_partly_cloudy.json");
+        HourlyTimeline t = WidgetPayloadParser.parse(new StringReader(body)).hourly;
+        assertNotNull(t);
+
+        JSONArray days = new JSONObject(body).getJSONObject("weather").getJSONObject("forecast").getJSONArray("forecastday");
+        int checked = 0;
+        for (int d = 0; d < days.length(); d++) {
+            JSONArray hours = days.getJSONObject(d).getJSONArray("hour");
+            for (int h = 0; h < hours.length(); h++) {
+                JSONObject hour = hours.getJSONObject(h);
+                int i = t.indexAt(hour.getLong("time_epoch") * 1000L);
+                assertTrue(i >= 0);
+                assertEquals((float) hour.getDouble("temp_c"), t.tempC(i), 0f);
+                assertEquals(hour.getInt("humidity"), t.humidity(i));
+                assertEquals((float) hour.getDouble("uv"), t.uv(i), 0f);
+                assertEquals(hour.getInt("chance_of_rain"), t.rainChance(i));
+                checked++;
+            }
+        }
+        assertEquals(48, checked);
+        assertEquals(48, t.size());
+    }
+
+    @Test
+    public void rollsForwardAndFormatsLikeCurrent() throws Exception {
+        HourlyTimeline t = WidgetPayloadParser.parse(new StringReader(WidgetPayloadParserTest.read("london_partly_cloudy.json"))).hourly;
+        // 2025-10-14 00:00 London time (BST) is the first hour
+        long first = 1760396400_000L;
+        assertEquals(0, t.indexAt(first));
+        assertEquals(0, t.indexAt(first + HOUR - 1));
+        assertEquals(-1, t.indexAt(first - 1));
+        assertEquals(-1, t.indexAt(first + 48 * HOUR));
+        assertEquals("10.8°C", WidgetFormat.tempLabel(t, 0));
+        assertEquals("Prec: 1% | Hum: 85% | UV: 0.0", WidgetFormat.buildDetailsFromHour(t, 0));
+    }
+
+    @Test
+    public void refetchWhenFewHoursRemain() {
+        HourlyTimeline t = synthetic(0L, 48);
+        assertEquals(48, t.hoursLeft(0L));
+        assertFalse(t.needsFetch(42 * HOUR + HOUR - 1));
+        assertEquals(6, t.hoursLeft(42 * HOUR));
+        assertTrue(t.needsFetch(43 * HOUR));
+        assertEquals(43 * HOUR, t.refetchAtMillis());
+        assertEquals(48 * HOUR, t.endMillis());
+        assertEquals(0, t.hoursLeft(50 * HOUR));
+    }
+
+    @Test
+    public void gapsAndMissingValues() {
+        HourlyTimeline t = new HourlyTimeline.Builder()
+                .add(3 * 3600L, 12.5f, 60, 1.0f, 0.2f, -1)
+                .add(0L, Float.NaN, -1, Float.NaN, Float.NaN, -1)
+                .build();
+        assertEquals(4, t.size());
+        assertEquals("--°C", WidgetFormat.tempLabel(t, 0));
+        assertEquals("Prec: -- | Hum: -- | UV: --", WidgetFormat.buildDetailsFromHour(t, 0));
+        // hour 1 was never sent
+        assertEquals("Prec: -- | Hum: -- | UV: --", WidgetFormat.buildDetailsFromHour(t, 1));
+        assertEquals("Prec: 0.2 mm | Hum: 60% | UV: 1.0", WidgetFormat.buildDetailsFromHour(t, 3));
+        assertNull(new HourlyTimeline.Builder().build());
+    }
+
+    @Test
+    public void binaryRoundTrip() throws Exception {
+        HourlyTimeline t = WidgetPayloadParser.parse(new StringReader(WidgetPayloadParserTest.read("reykjavik_mist.json"))).hourly;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        t.writeTo(new DataOutputStream(bytes));
+        // 48 hours at 17 bytes each plus a 14 byte header
+        assertEquals(14 + 48 * 17, bytes.size());
+        HourlyTimeline back = HourlyTimeline.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        for (int i = 0; i < t.size(); i++) {
+            assertEquals(WidgetFormat.buildDetailsFromHour(t, i), WidgetFormat.buildDetailsFromHour(back, i));
+            assertEquals(WidgetFormat.tempLabel(t, i), WidgetFormat.tempLabel(back, i));
+            assertEquals(t.conditions(i), back.conditions(i));
+        }
+    }
+
+    /**
+     * Replays two days of the widget's periodic triggers (onUpdate every 30 minutes, which is the platform floor
+     * for updatePeriodMillis). Before, every trigger went to the /api cache and on to the network once the
+     * server's hour was up. Now only a timeline about to run out does.
+     */
+    @Test
+    public void replayFetchCountAndFootprint() throws Exception {
+        long start = 11 * HOUR + 17 * 60_000L;
+        long end = start + 48 * HOUR;
+
+        int before = 0;
+        long httpFreshUntil = Long.MIN_VALUE;
+        int after = 0;
+        HourlyTimeline timeline = null;
+        for (long now = start; now < end; now += 30 * 60_000L) {
+            if (now >= httpFreshUntil) {
+                before++;
+                httpFreshUntil = now + HOUR;
+            }
+            if (timeline == null || timeline.needsFetch(now)) {
+                after++;
+                // The server sends today and tomorrow, midnight to midnight
+                timeline = synthetic(HourlyTimeline.hourOf(now) / 24 * 24 * HOUR, 48);
+            }
+        }
+        assertEquals(48, before);
+        // the first fetch, then one at 19:00 the next day when fewer than 6 hours are left
+        assertEquals(2, after);
+
+        int payloadBytes = WidgetPayloadParserTest.read("london_partly_cloudy.json").getBytes("UTF-8").length;
+        assertTrue(timeline.estimatedBytes() < 1024);
+        assertTrue(payloadBytes > 30 * timeline.estimatedBytes());
+    }
+
+    // Hours from startMillis, 10 °C and up by a degree an hour
+    static HourlyTimeline synthetic(long startMillis, int hours) {
+        HourlyTimeline.Builder b = new HourlyTimeline.Builder();
+        for (int i = 0; i < hours; i++) b.add(startMillis / 1000L + i * 3600L, 10f + i, 50, 1f, 0f, 10);
+        return b.build();
+    }
+}
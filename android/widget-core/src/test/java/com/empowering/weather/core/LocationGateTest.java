@@ -0,0 +1,54 @@
+package com.empowering.weather.core;
+
+import static org.junit.Assert.*;
+
+import com.empowering.weather.core.LocationGate.Decision;
+import org.junit.Test;
+
+public class LocationGateTest {
+    private static final long NOW = 1760437020000L;
+    private static final long STALE = 3_600_000L;
+    private static final double THRESHOLD = 500.0;
+
+    @Test
+    public void bucketKeyMatchesServerRounding() {
+        assertEquals("52:0", LocationGate.bucketKey(51.5074, -0.1278));
+        // JS Math.round rounds .5 towards +Infinity, as does Java
+        assertEquals("-33:151", LocationGate.bucketKey(-33.5, 151.2093));
+        assertEquals("1:-2", LocationGate.bucketKey(0.5, -2.5));
+    }
+
+    @Test
+    public void fixesInsideTheFetchedBucketAreSuppressed() {
+        long fetched = NOW - 10 * 60_000L;
+        // walking around central London: same 52:0 bucket
+        assertEquals(Decision.SUPPRESSED, LocationGate.decide(fetched, 51.5074, -0.1278, 51.52, -0.09, NOW, THRESHOLD, STALE));
+        assertEquals(Decision.SUPPRESSED, LocationGate.decide(fetched, 51.5074, -0.1278, 51.5074, -0.1278, NOW, THRESHOLD, STALE));
+    }
+
+    @Test
+    public void bucketChangeNeedsRealMovement() {
+        long fetched = NOW - 10 * 60_000L;
+        // 51.4999 vs 51.5001 straddles the bucket edge but is ~20 m apart: jitter, not movement
+        assertEquals(Decision.SUPPRESSED, LocationGate.decide(fetched, 51.4999, -0.2, 51.5001, -0.2, NOW, THRESHOLD, STALE));
+        // London to Reading crosses into 51:-1
+        assertEquals(Decision.BUCKET_CHANGED, LocationGate.decide(fetched, 51.5074, -0.1278, 51.4543, -0.9781, NOW, THRESHOLD, STALE));
+    }
+
+    @Test
+    public void firstFixAndStaleDataAlwaysRefresh() {
+        assertEquals(Decision.FIRST_FIX, LocationGate.decide(0L, 0, 0, 51.5, -0.1, NOW, THRESHOLD, STALE));
+        assertEquals(Decision.STALE, LocationGate.decide(NOW - STALE, 51.5074, -0.1278, 51.5074, -0.1278, NOW, THRESHOLD, STALE));
+        // clock moved backwards
+        assertEquals(Decision.STALE, LocationGate.decide(NOW + 1_000L, 51.5074, -0.1278, 51.5074, -0.1278, NOW, THRESHOLD, STALE));
+        assertTrue(Decision.STALE.refresh());
+        assertFalse(Decision.SUPPRESSED.refresh());
+    }
+
+    @Test
+    public void distance() {
+        // London to Paris is ~344 km
+        assertEquals(343_500, LocationGate.distanceMeters(51.5074, -0.1278, 48.8566, 2.3522), 1_000);
+        assertEquals(0.0, LocationGate.distanceMeters(10, 10, 10, 10), 0.0);
+    }
+}
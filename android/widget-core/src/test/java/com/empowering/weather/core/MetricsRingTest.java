@@ -0,0 +1,67 @@
+package com.empowering.weather.core;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MetricsRingTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void keepsTheNewestRecordsAcrossReopening() throws Exception {
+        File f = new File(tmp.getRoot(), "metrics/ring.bin");
+        MetricsRing ring = new MetricsRing(f, 4, 3);
+        assertTrue(ring.read().isEmpty());
+        assertNull(ring.latest());
+        for (long i = 1; i <= 6; i++) ring.append(1000L * i, new long[]{i, i * 2, i * 3});
+        long size = f.length();
+
+        // a new process reads what the old one wrote
+        List<MetricsRing.Entry> all = new MetricsRing(f, 4, 3).read();
+        assertEquals(4, all.size());
+        assertEquals(3000L, all.get(0).ts);
+        assertEquals(6000L, all.get(3).ts);
+        assertArrayEquals(new long[]{6, 12, 18}, all.get(3).values);
+        assertEquals(6000L, ring.latest().ts);
+        // fixed size
+        ring.append(7000L, new long[]{7, 14, 21});
+        assertEquals(size, f.length());
+    }
+
+    @Test
+    public void aTornRecordIsSkipped() throws Exception {
+        File f = new File(tmp.getRoot(), "ring.bin");
+        MetricsRing ring = new MetricsRing(f, 4, 2);
+        ring.append(1L, new long[]{1, 1});
+        ring.append(2L, new long[]{2, 2});
+        // flip a byte in the second record's values
+        try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+            long at = 16 + (8 + 2 * 8 + 4) + 10;
+            raf.seek(at);
+            int b = raf.read();
+            raf.seek(at);
+            raf.write(b ^ 0xff);
+        }
+        List<MetricsRing.Entry> all = ring.read();
+        assertEquals(1, all.size());
+        assertEquals(1L, all.get(0).ts);
+    }
+
+    @Test
+    public void anotherShapeStartsOver() throws Exception {
+        File f = new File(tmp.getRoot(), "ring.bin");
+        new MetricsRing(f, 4, 2).append(1L, new long[]{1, 1});
+        MetricsRing wider = new MetricsRing(f, 4, 3);
+        assertTrue(wider.read().isEmpty());
+        wider.append(2L, new long[]{1, 2, 3});
+        assertEquals(1, wider.read().size());
+        assertTrue(new MetricsRing(f, 4, 2).read().isEmpty());
+    }
+}
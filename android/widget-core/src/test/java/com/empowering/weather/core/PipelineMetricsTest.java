@@ -0,0 +1,59 @@
+package com.empowering.weather.core;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class PipelineMetricsTest {
+    @Test
+    public void bucketsArePowersOfTwo() {
+        assertEquals(0, PipelineMetrics.bucket(0));
+        assertEquals(0, PipelineMetrics.bucket(-5));
+        assertEquals(1, PipelineMetrics.bucket(1));
+        assertEquals(2, PipelineMetrics.bucket(2));
+        assertEquals(2, PipelineMetrics.bucket(3));
+        assertEquals(10, PipelineMetrics.bucket(1000));
+        assertEquals(14, PipelineMetrics.bucket(16_383));
+        assertEquals(PipelineMetrics.BUCKETS - 1, PipelineMetrics.bucket(16_384));
+        assertEquals(PipelineMetrics.BUCKETS - 1, PipelineMetrics.bucket(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void quantilesComeFromTheBuckets() {
+        PipelineMetrics m = new PipelineMetrics();
+        assertEquals(0L, m.quantileMs(PipelineMetrics.TTFB, 0.5));
+        // 90 fast answers and 10 slow ones
+        for (int i = 0; i < 90; i++) m.record(PipelineMetrics.TTFB, 100);
+        for (int i = 0; i < 10; i++) m.record(PipelineMetrics.TTFB, 3000);
+        assertEquals(100, m.samples(PipelineMetrics.TTFB));
+        assertEquals(128L, m.quantileMs(PipelineMetrics.TTFB, 0.5));
+        assertEquals(128L, m.quantileMs(PipelineMetrics.TTFB, 0.9));
+        assertEquals(4096L, m.quantileMs(PipelineMetrics.TTFB, 0.99));
+        assertEquals(390L, m.meanMs(PipelineMetrics.TTFB));
+        m.record(PipelineMetrics.RENDER, 60_000);
+        assertEquals(Long.MAX_VALUE, m.quantileMs(PipelineMetrics.RENDER, 0.5));
+        // other stages untouched
+        assertEquals(0, m.samples(PipelineMetrics.PARSE));
+    }
+
+    @Test
+    public void snapshotsAdd() {
+        PipelineMetrics earlier = new PipelineMetrics();
+        earlier.record(PipelineMetrics.PARSE, 7);
+        earlier.count(PipelineMetrics.TICKS);
+        earlier.count(PipelineMetrics.TICKS);
+        long[] saved = new long[PipelineMetrics.SIZE];
+        earlier.copyTo(saved);
+
+        PipelineMetrics now = new PipelineMetrics();
+        now.record(PipelineMetrics.PARSE, 9);
+        now.count(PipelineMetrics.ALARMS);
+        now.add(saved);
+        assertEquals(2, now.samples(PipelineMetrics.PARSE));
+        assertEquals(8L, now.meanMs(PipelineMetrics.PARSE));
+        assertEquals(2, now.counter(PipelineMetrics.TICKS));
+        assertEquals(1, now.counter(PipelineMetrics.ALARMS));
+        assertEquals(PipelineMetrics.COUNTERS.length + PipelineMetrics.STAGES.length * (PipelineMetrics.BUCKETS + 1),
+                PipelineMetrics.SIZE);
+    }
+}
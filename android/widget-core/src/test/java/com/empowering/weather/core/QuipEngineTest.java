@@ -0,0 +1,103 @@
+package com.empowering.weather.core;
+
+import static org.junit.Assert.*;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+
+/**
+ * Checks the port against the server's own choices, recorded by scripts/quip-parity.js into quips/parity.json,
+ * over the repo's weather_notes.
+ */
+public class QuipEngineTest {
+    private static QuipIndex index;
+
+    @BeforeClass
+    public static void packNotes() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        QuipIndex.write(QuipIndex.loadNotes(notesDir()), out);
+        index = QuipIndex.read(ByteBuffer.wrap(out.toByteArray()));
+    }
+
+    // weather_notes sits at the repo root, some levels above the working directory
+    private static File notesDir() {
+        for (File d = new File("").getAbsoluteFile(); d != null; d = d.getParentFile()) {
+            File notes = new File(d, "weather_notes");
+            if (notes.isDirectory()) return notes;
+        }
+        throw new AssertionError("weather_notes not found above " + new File("").getAbsolutePath());
+    }
+
+    @Test
+    public void matchesTheServer() throws Exception {
+        JSONObject parity = new JSONObject(WidgetPayloadParserTest.readResource("/quips/parity.json"));
+        JSONArray currents = parity.getJSONArray("currents");
+        JSONArray coords = parity.getJSONArray("coords");
+        JSONArray dates = parity.getJSONArray("dates");
+        JSONArray cases = parity.getJSONArray("cases");
+        assertTrue(cases.length() > 500);
+        for (int i = 0; i < cases.length(); i++) {
+            JSONArray c = cases.getJSONArray(i);
+            JSONObject current = currents.getJSONObject(c.getInt(0));
+            JSONObject root = new JSONObject();
+            if (current.length() > 0) root.put("weather", new JSONObject().put("current", current));
+            WidgetPayload payload = WidgetPayloadParser.parse(new StringReader(root.toString()));
+            JSONArray coord = coords.getJSONArray(c.getInt(1));
+            JSONArray date = dates.getJSONArray(c.getInt(2));
+            String label = current + " at " + coord + " on " + date;
+
+            String category = QuipEngine.category(payload.current);
+            assertEquals(label, c.isNull(3) ? null : c.getString(3), category);
+            assertEquals(label, c.getString(4), QuipEngine.pick(index, category, coord.getDouble(0), coord.getDouble(1),
+                    date.getInt(0), date.getInt(1), date.getInt(2)));
+        }
+    }
+
+    @Test
+    public void seedsAndDrawsMatchJavaScript() {
+        // Values printed by the server's daySeed, Math.round and seededRandom(seed)()
+        assertEquals(2025105, QuipEngine.daySeed(2025, 10, 5));
+        assertEquals(20251231, QuipEngine.daySeed(2025, 12, 31));
+        assertEquals(0, QuipEngine.coordSeed(-0.005));
+        assertEquals(-1, QuipEngine.coordSeed(-0.015));
+        assertEquals(13, QuipEngine.coordSeed(0.125));
+        assertEquals(0.26642920868471265, QuipEngine.mulberry32(0), 0);
+        assertEquals(0.6270739405881613, QuipEngine.mulberry32(1), 0);
+        assertEquals(0.4435194688849151, QuipEngine.mulberry32(2025105), 0);
+        assertEquals(0.43306733411736786, QuipEngine.mulberry32(-7), 0);
+        assertEquals(0.4290980885270983, QuipEngine.mulberry32(2147483647), 0);
+        assertEquals(0.6597811188548803, QuipEngine.mulberry32(20266352), 0);
+    }
+
+    @Test
+    public void categoryFromTheHourlyTimeline() throws Exception {
+        HourlyTimeline t = WidgetPayloadParser.parse(new StringReader(
+                WidgetPayloadParserTest.read("london_partly_cloudy.json"))).hourly;
+        JSONArray days = new JSONObject(WidgetPayloadParserTest.read("london_partly_cloudy.json"))
+                .getJSONObject("weather").getJSONObject("forecast").getJSONArray("forecastday");
+        for (int d = 0; d < days.length(); d++) {
+            JSONArray hours = days.getJSONObject(d).getJSONArray("hour");
+            for (int h = 0; h < hours.length(); h++) {
+                JSONObject hour = hours.getJSONObject(h);
+                WidgetPayload asCurrent = WidgetPayloadParser.parse(new StringReader(
+                        new JSONObject().put("weather", new JSONObject().put("current", hour)).toString()));
+                int i = t.indexAt(hour.getLong("time_epoch") * 1000L);
+                assertEquals(hour.toString(), QuipEngine.category(asCurrent.current), QuipEngine.category(t, i));
+            }
+        }
+    }
+
+    @Test
+    public void fallsBackWhenTheCategoryHasNoNotes() {
+        String quip = QuipEngine.pick(index, "no-such-category", 51.5, -0.13, 2025, 10, 14);
+        assertFalse(quip.isEmpty());
+        assertEquals(quip, QuipEngine.pick(index, null, 51.5, -0.13, 2025, 10, 14));
+    }
+}
@@ -0,0 +1,102 @@
+package com.empowering.weather.core;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class QuipIndexTest {
+    @Test
+    public void roundTripsThroughAMappedFile() throws Exception {
+        Map<String, List<String>> notes = new LinkedHashMap<>();
+        notes.put("cloudy", Arrays.asList("Grey again.", "Cloud — the sequel ☁", ""));
+        notes.put("cold", Collections.emptyList());
+        notes.put("windy", Collections.singletonList("Hold on to your hat."));
+
+        File f = File.createTempFile("quips", ".idx");
+        try {
+            try (OutputStream out = new FileOutputStream(f)) {
+                QuipIndex.write(notes, out);
+            }
+            try (RandomAccessFile raf = new RandomAccessFile(f, "r")) {
+                MappedByteBuffer buf = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+                QuipIndex index = QuipIndex.read(buf);
+                assertEquals(3, index.count("cloudy"));
+                assertEquals(0, index.count("cold"));
+                assertEquals(1, index.count("windy"));
+                assertEquals(0, index.count("snowy"));
+                assertEquals("Grey again.", index.line("cloudy", 0));
+                assertEquals("Cloud — the sequel ☁", index.line("cloudy", 1));
+                assertEquals("", index.line("cloudy", 2));
+                assertEquals("Hold on to your hat.", index.line("windy", 0));
+                // Reading leaves the buffer where it was
+                assertEquals(0, buf.position());
+            }
+        } finally {
+            assertTrue(f.delete());
+        }
+    }
+
+    @Test
+    public void outOfRangeLinesThrow() throws Exception {
+        QuipIndex index = QuipIndex.read(ByteBuffer.wrap(pack(Collections.singletonMap("mild", Arrays.asList("a")))));
+        try {
+            index.line("mild", 1);
+            fail();
+        } catch (IndexOutOfBoundsException expected) {}
+        try {
+            index.line("hot", 0);
+            fail();
+        } catch (IndexOutOfBoundsException expected) {}
+    }
+
+    @Test
+    public void rejectsOtherFiles() throws Exception {
+        byte[] ok = pack(Collections.singletonMap("mild", Arrays.asList("a", "b")));
+        for (byte[] bad : new byte[][]{new byte[0], "not an index".getBytes(), Arrays.copyOf(ok, 20)}) {
+            try {
+                QuipIndex.read(ByteBuffer.wrap(bad));
+                fail(Arrays.toString(bad));
+            } catch (IOException expected) {}
+        }
+    }
+
+    @Test
+    public void loadsNotesLikeTheServer() throws Exception {
+        File dir = File.createTempFile("notes", "");
+        assertTrue(dir.delete() && dir.mkdir());
+        File rainy = new File(dir, "rainy.txt");
+        try {
+            try (OutputStream out = new FileOutputStream(rainy)) {
+                out.write("Wet.\r\n\r\nWetter.\n\n".getBytes("UTF-8"));
+            }
+            Map<String, List<String>> notes = QuipIndex.loadNotes(dir);
+            assertEquals(Arrays.asList(QuipEngine.CATEGORIES), Arrays.asList(notes.keySet().toArray(new String[0])));
+            assertEquals(Arrays.asList("Wet.", "Wetter."), notes.get("rainy"));
+            assertEquals(Collections.emptyList(), notes.get("snowy"));
+        } finally {
+            rainy.delete();
+            dir.delete();
+        }
+    }
+
+    private static byte[] pack(Map<String, List<String>> notes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        QuipIndex.write(notes, out);
+        return out.toByteArray();
+    }
+}
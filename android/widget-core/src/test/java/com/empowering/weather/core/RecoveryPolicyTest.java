@@ -0,0 +1,136 @@
+package com.empowering.weather.core;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class RecoveryPolicyTest {
+    private static final long BASE = 30_000L;
+    private static final long MAX = 15 * 60_000L;
+    private static final int THRESHOLD = 4;
+    private static final long OPEN = 30 * 60_000L;
+
+    @Test
+    public void backoffDoublesWithJitterUpToTheCap() {
+        RecoveryPolicy p = new RecoveryPolicy(BASE, MAX, 100, OPEN, new Random(7));
+        long nominal = BASE;
+        for (int i = 0; i < 8; i++) {
+            long delay = p.failure(0L, false);
+            assertTrue(i + ": " + delay, delay > nominal / 2 && delay <= nominal);
+            nominal = Math.min(MAX, nominal * 2);
+        }
+        // jitter actually spreads retries
+        RecoveryPolicy a = new RecoveryPolicy(BASE, MAX, 100, OPEN, new Random(1));
+        RecoveryPolicy b = new RecoveryPolicy(BASE, MAX, 100, OPEN, new Random(2));
+        assertNotEquals(a.failure(0L, false), b.failure(0L, false));
+    }
+
+    @Test
+    public void downServerOpensTheBreakerAndATrialClosesIt() throws Exception {
+        try (StandInServer server = new StandInServer(WidgetPayloadParserTest.read("london_partly_cloudy.json"))) {
+            RecoveryPolicy p = new RecoveryPolicy(BASE, MAX, THRESHOLD, OPEN, new Random(3));
+            server.mode(StandInServer.Mode.DOWN);
+            long now = 0L;
+            long delay = 0L;
+            // Follow the retry schedule until the breaker opens
+            for (int i = 0; i < THRESHOLD; i++) {
+                assertTrue(p.allow(now, false));
+                assertFalse(fetch(server.url(51.5, -0.1)));
+                delay = p.failure(now, false);
+                now += delay;
+            }
+            // HttpURLConnection quietly retries a GET once on a dropped connection, so count at least one hit each
+            int hits = server.hits();
+            assertTrue(hits >= THRESHOLD);
+            assertEquals(OPEN, delay);
+
+            // Background triggers while open never reach the server; a tap does
+            assertFalse(p.allow(now - 1, false));
+            assertFalse(p.allow(now - OPEN / 2, false));
+            assertTrue(p.allow(now - 1, true));
+            assertEquals(hits, server.hits());
+
+            // The trial after cooling down fails on a still-unavailable server: open again at once
+            server.mode(StandInServer.Mode.UNAVAILABLE);
+            assertTrue(p.allow(now, false));
+            assertFalse(fetch(server.url(51.5, -0.1)));
+            assertEquals(OPEN, p.failure(now, false));
+            now += OPEN;
+
+            server.mode(StandInServer.Mode.UP);
+            assertTrue(p.allow(now, false));
+            assertTrue(fetch(server.url(51.5, -0.1)));
+            p.success();
+            assertEquals(0, p.failures());
+            assertEquals(0L, p.openUntil());
+            assertTrue(p.allow(now + 1, false));
+            assertArrayEquals(new long[]{THRESHOLD + 1, 0, 2, 2}, p.stats());
+        }
+    }
+
+    @Test
+    public void slowServerTimesOutAndBacksOff() throws Exception {
+        try (StandInServer server = new StandInServer(WidgetPayloadParserTest.read("london_partly_cloudy.json"))) {
+            RecoveryPolicy p = new RecoveryPolicy(BASE, MAX, THRESHOLD, OPEN, new Random(5));
+            server.mode(StandInServer.Mode.SLOW);
+            long started = System.nanoTime();
+            assertFalse(fetch(server.url(51.5, -0.1)));
+            assertTrue("gave up by the read timeout", System.nanoTime() - started < 1_500_000_000L);
+            long delay = p.failure(0L, false);
+            assertTrue(delay > BASE / 2 && delay <= BASE);
+
+            server.mode(StandInServer.Mode.UP);
+            assertTrue(p.allow(delay, false));
+            assertTrue(fetch(server.url(51.5, -0.1)));
+            p.success();
+            // the next outage starts from the base delay again
+            assertTrue(p.failure(delay, false) <= BASE);
+        }
+    }
+
+    @Test
+    public void offlineFailuresWaitForTheNetworkAndLeaveTheBreakerAlone() {
+        RecoveryPolicy p = new RecoveryPolicy(BASE, MAX, THRESHOLD, OPEN, new Random(9));
+        for (int i = 0; i < THRESHOLD * 2; i++) assertEquals(RecoveryPolicy.ON_NETWORK, p.failure(i, true));
+        assertEquals(0, p.failures());
+        assertTrue(p.allow(100L, false));
+        assertEquals(THRESHOLD * 2, p.stats()[1]);
+    }
+
+    @Test
+    public void restoredStateKeepsTheBreakerOpen() {
+        RecoveryPolicy p = new RecoveryPolicy(BASE, MAX, THRESHOLD, OPEN, new Random(11));
+        for (int i = 0; i < THRESHOLD; i++) p.failure(1000L, false);
+        RecoveryPolicy next = new RecoveryPolicy(BASE, MAX, THRESHOLD, OPEN, new Random(11));
+        next.restore(p.failures(), p.openUntil());
+        assertFalse(next.allow(1000L + OPEN - 1, false));
+        assertTrue(next.allow(1000L + OPEN, false));
+    }
+
+    // What the widget does with a response: 2xx with a parseable body is a success, anything else a failure
+    private static boolean fetch(String url) {
+        HttpURLConnection conn = null;
+        try {
+            conn = (HttpURLConnection) new URL(url).openConnection();
+            conn.setConnectTimeout(500);
+            conn.setReadTimeout(500);
+            int code = conn.getResponseCode();
+            if (code < 200 || code >= 300) return false;
+            try (Reader in = new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8)) {
+                return WidgetPayloadParser.parse(in).current != null;
+            }
+        } catch (IOException e) {
+            return false;
+        } finally {
+            if (conn != null) conn.disconnect();
+        }
+    }
+}
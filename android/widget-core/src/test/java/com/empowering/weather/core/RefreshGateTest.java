@@ -0,0 +1,45 @@
+package com.empowering.weather.core;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class RefreshGateTest {
+    private static final long MIN = 60_000L;
+
+    @Test
+    public void sameKeyInsideMinimumIntervalIsSkipped() {
+        RefreshGate gate = new RefreshGate(MIN);
+        assertTrue(gate.shouldFetch("51:0", 1_000L));
+        gate.fetched("51:0", 1_000L);
+        assertFalse(gate.shouldFetch("51:0", 30_000L));
+        // a new bucket or an expired interval go to the network
+        assertTrue(gate.shouldFetch("52:0", 30_000L));
+        assertTrue(gate.shouldFetch("51:0", 61_000L));
+        // clock moved backwards
+        assertTrue(gate.shouldFetch("51:0", 500L));
+    }
+
+    @Test
+    public void userTriggerIsCarriedIntoTheNextPass() {
+        RefreshGate gate = new RefreshGate(MIN);
+        gate.trigger(false);
+        assertFalse(gate.beginPass());
+        // a tap while that pass runs, then a location fix: the pass serving both is a user pass
+        gate.trigger(true);
+        gate.trigger(false);
+        assertTrue(gate.beginPass());
+        assertFalse(gate.beginPass());
+        assertArrayEquals(new long[]{3, 3, 0}, gate.stats());
+    }
+
+    @Test
+    public void resetForgetsTheLastFetchAndPendingTap() {
+        RefreshGate gate = new RefreshGate(MIN);
+        gate.fetched("51:0", 1_000L);
+        gate.trigger(true);
+        gate.reset();
+        assertTrue(gate.shouldFetch("51:0", 2_000L));
+        assertFalse(gate.beginPass());
+    }
+}
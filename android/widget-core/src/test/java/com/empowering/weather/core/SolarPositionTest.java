@@ -0,0 +1,77 @@
+package com.empowering.weather.core;
+
+import static org.junit.Assert.*;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+public class SolarPositionTest {
+    static final String[] PAYLOADS = {
+            "london_partly_cloudy.json",
+            "sydney_sunny_cached.json",
+            "reykjavik_mist.json",
+    };
+
+    @Test
+    public void knownElevations() {
+        // London at solar noon on the June solstice: 90 - 51.5 + 23.44
+        long solstice = ZonedDateTime.of(2025, 6, 21, 12, 2, 0, 0, ZoneId.of("UTC")).toInstant().toEpochMilli();
+        assertEquals(61.94, SolarPosition.elevationDeg(51.5, 0.0, solstice), 0.1);
+        // and at midnight 90 - 51.5 - 23.44 below the horizon
+        assertEquals(-15.06, SolarPosition.elevationDeg(51.5, 0.0, solstice + 12 * 3_600_000L), 0.1);
+        // Equator at the March equinox, noon at Greenwich
+        long equinox = ZonedDateTime.of(2025, 3, 20, 12, 7, 0, 0, ZoneId.of("UTC")).toInstant().toEpochMilli();
+        assertEquals(90.0, SolarPosition.elevationDeg(0.0, 0.0, equinox), 0.2);
+        assertEquals(0.0, SolarPosition.elevationDeg(0.0, 90.0, equinox), 0.2);
+    }
+
+    @Test
+    public void sunriseAndSunsetOfTheRecordedForecasts() throws Exception {
+        DateTimeFormatter clock = DateTimeFormatter.ofPattern("hh:mm a", Locale.US);
+        int checked = 0;
+        for (String name : PAYLOADS) {
+            JSONObject weather = new JSONObject(WidgetPayloadParserTest.read(name)).getJSONObject("weather");
+            JSONObject loc = weather.getJSONObject("location");
+            ZoneId zone = ZoneId.of(loc.getString("tz_id"));
+            JSONArray days = weather.getJSONObject("forecast").getJSONArray("forecastday");
+            for (int d = 0; d < days.length(); d++) {
+                JSONObject day = days.getJSONObject(d);
+                JSONObject astro = day.getJSONObject("astro");
+                for (String event : new String[]{"sunrise", "sunset"}) {
+                    long t = ZonedDateTime.of(LocalDate.parse(day.getString("date")),
+                            LocalTime.parse(astro.getString(event), clock), zone).toInstant().toEpochMilli();
+                    // The quoted times are to the minute and the coordinates to 0.01°
+                    assertEquals(name + " " + event, SolarPosition.HORIZON_DEG,
+                            SolarPosition.elevationDeg(loc.getDouble("lat"), loc.getDouble("lon"), t), 0.6);
+                    checked++;
+                }
+            }
+        }
+        assertEquals(12, checked);
+    }
+
+    @Test
+    public void dayAndNightMatchTheRecordedHours() throws Exception {
+        for (String name : PAYLOADS) {
+            JSONObject weather = new JSONObject(WidgetPayloadParserTest.read(name)).getJSONObject("weather");
+            JSONObject loc = weather.getJSONObject("location");
+            JSONArray days = weather.getJSONObject("forecast").getJSONArray("forecastday");
+            for (int d = 0; d < days.length(); d++) {
+                JSONArray hours = days.getJSONObject(d).getJSONArray("hour");
+                for (int h = 0; h < hours.length(); h++) {
+                    JSONObject hour = hours.getJSONObject(h);
+                    assertEquals(name + " " + hour.getString("time"), hour.getInt("is_day") == 1,
+                            SolarPosition.isDay(loc.getDouble("lat"), loc.getDouble("lon"), hour.getLong("time_epoch") * 1000L));
+                }
+            }
+        }
+    }
+}
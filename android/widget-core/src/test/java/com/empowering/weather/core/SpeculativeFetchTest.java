@@ -0,0 +1,79 @@
+package com.empowering.weather.core;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tap-to-data time of the two pipelines on a virtual clock, with a fresh fix that arrives after FIX_MS and
+ * fetches that take FETCH_MS: sequential (fix, then fetch) and speculative (fetch with the known location at once).
+ */
+public class SpeculativeFetchTest {
+    private static final long FIX_MS = 400;
+    private static final long FETCH_MS = 150;
+
+    @Test
+    public void fixInTheSameBucketCostsNothing() {
+        Run sequential = run(false, 0, 0, 51.6, -0.12);
+        Run run = run(true, 51.51, -0.14, 51.6, -0.12);
+        assertEquals(SpeculativeFetch.Outcome.FETCHED_ON_FIX, sequential.outcome);
+        assertEquals(SpeculativeFetch.Outcome.CONFIRMED, run.outcome);
+        assertEquals(FIX_MS + FETCH_MS, sequential.dataMs);
+        // the fix's wait comes off the tap-to-data time entirely
+        assertEquals("speculative " + run.dataMs + " ms vs " + sequential.dataMs + " ms", FETCH_MS, run.dataMs);
+        // one fetch each
+        assertEquals(1, sequential.fetches);
+        assertEquals(1, run.fetches);
+    }
+
+    @Test
+    public void fixInAnotherBucketFetchesAgain() {
+        Run run = run(true, 51.51, -0.14, 53.0, -1.5);
+        assertEquals(SpeculativeFetch.Outcome.REFETCHED, run.outcome);
+        assertEquals(2, run.fetches);
+        // the right bucket's data is no later than fix-then-fetch would have been
+        assertEquals(FIX_MS + FETCH_MS, run.lastDataMs);
+    }
+
+    @Test
+    public void nothingKnownWaitsForTheFix() {
+        int[] fetches = {0};
+        SpeculativeFetch s = new SpeculativeFetch((lat, lon) -> fetches[0]++);
+        assertFalse(s.begin(0, 0, false));
+        assertEquals(SpeculativeFetch.Outcome.FETCHED_ON_FIX, s.fix(51.5, -0.1));
+        // a second delivery changes nothing
+        assertEquals(SpeculativeFetch.Outcome.FETCHED_ON_FIX, s.fix(40.0, -3.7));
+        assertEquals(SpeculativeFetch.Outcome.FETCHED_ON_FIX, s.noFix());
+        assertEquals(1, fetches[0]);
+
+        SpeculativeFetch failed = new SpeculativeFetch((lat, lon) -> fetches[0]++);
+        assertTrue(failed.begin(51.5, -0.1, true));
+        assertEquals(SpeculativeFetch.Outcome.NO_FIX, failed.noFix());
+        assertEquals(2, fetches[0]);
+    }
+
+    private static final class Run {
+        SpeculativeFetch.Outcome outcome;
+        int fetches;
+        long dataMs;
+        long lastDataMs;
+    }
+
+    // One tap: a fetch at once if the location is known, the fix at FIX_MS, each fetch's data FETCH_MS after it starts
+    private static Run run(boolean known, double knownLat, double knownLon, double fixLat, double fixLon) {
+        long[] now = {0L};
+        List<Long> started = new ArrayList<>();
+        SpeculativeFetch s = new SpeculativeFetch((lat, lon) -> started.add(now[0]));
+        Run run = new Run();
+        s.begin(knownLat, knownLon, known);
+        now[0] = FIX_MS;
+        run.outcome = s.fix(fixLat, fixLon);
+        run.fetches = started.size();
+        run.dataMs = started.get(0) + FETCH_MS;
+        run.lastDataMs = started.get(started.size() - 1) + FETCH_MS;
+        return run;
+    }
+}
@@ -0,0 +1,105 @@
+package com.empowering.weather.core;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for the /api server that can be switched between up, down and slow while a test runs, with an
+ * optional extra latency before every answer.
+ */
+final class StandInServer implements AutoCloseable {
+    enum Mode {
+        /** Answers 200 with a recorded payload. */
+        UP,
+        /** Drops the connection without a response, like a crashed backend behind a proxy. */
+        DOWN,
+        /** Answers 503, as the server does while its upstream is failing. */
+        UNAVAILABLE,
+        /** Holds the request longer than any client timeout in these tests. */
+        SLOW
+    }
+
+    private final HttpServer server;
+    private final byte[] body;
+    private volatile Mode mode = Mode.UP;
+    private volatile long delayMs;
+    private final AtomicInteger hits = new AtomicInteger();
+
+    StandInServer(String payload) throws IOException {
+        body = payload.getBytes(StandardCharsets.UTF_8);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "stand-in");
+            t.setDaemon(true);
+            return t;
+        }));
+        server.createContext("/api", exchange -> {
+            hits.incrementAndGet();
+            try {
+                if (delayMs > 0) Thread.sleep(delayMs);
+                switch (mode) {
+                    case DOWN:
+                        break;
+                    case UNAVAILABLE:
+                        exchange.sendResponseHeaders(503, -1);
+                        break;
+                    case SLOW:
+                        Thread.sleep(2000);
+                        // It does answer, just too late
+                        answer(exchange);
+                        break;
+                    case UP:
+                        answer(exchange);
+                        break;
+                }
+            } catch (InterruptedException | IOException ignored) {
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    private void answer(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    void mode(Mode mode) {
+        this.mode = mode;
+    }
+
+    /** Hold every request this long before answering. */
+    void delay(long ms) {
+        this.delayMs = ms;
+    }
+
+    int hits() {
+        return hits.get();
+    }
+
+    /** Base URL, without the /api path. */
+    String endpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    String url(double lat, double lon) {
+        return endpoint() + "/api?lat=" + lat + "&lon=" + lon;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,129 @@
+package com.empowering.weather.core;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class StateStoreTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void valuesSurviveReopening() throws Exception {
+        File f = new File(tmp.getRoot(), "state.bin");
+        StateStore store = new StateStore(f, Runnable::run);
+        assertFalse(store.loaded());
+        assertTrue(store.edit()
+                .putFloat("widget_lat", 51.5074f)
+                .putLong("widget_loc_time", 1760437020000L)
+                .putBoolean("widget_has_location", true)
+                .putString("widget_cached_temp", "14.2°C")
+                .putBytes("widget_render", new byte[]{1, 2, 3})
+                .commit());
+
+        StateStore.Snapshot s = new StateStore(f, Runnable::run).snapshot();
+        assertEquals(51.5074f, s.getFloat("widget_lat", 0f), 0f);
+        assertEquals(1760437020000L, s.getLong("widget_loc_time", 0L));
+        assertTrue(s.getBoolean("widget_has_location", false));
+        assertEquals("14.2°C", s.getString("widget_cached_temp", null));
+        assertArrayEquals(new byte[]{1, 2, 3}, s.getBytes("widget_render"));
+        // wrong type or missing key falls back to the default
+        assertEquals(7L, s.getLong("widget_lat", 7L));
+        assertEquals("x", s.getString("missing", "x"));
+        assertFalse(new File(f.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void snapshotsNeverMixEdits() {
+        StateStore store = new StateStore(new File(tmp.getRoot(), "state.bin"), Runnable::run);
+        store.edit().putFloat("widget_lat", 1f).putLong("widget_loc_time", 1L).apply();
+        StateStore.Snapshot before = store.snapshot();
+        store.edit().putFloat("widget_lat", 2f).putLong("widget_loc_time", 2L).apply();
+        assertEquals(1f, before.getFloat("widget_lat", 0f), 0f);
+        assertEquals(1L, before.getLong("widget_loc_time", 0L));
+        assertEquals(2L, store.snapshot().getLong("widget_loc_time", 0L));
+    }
+
+    @Test
+    public void editsQueuedBehindAWriteShareIt() {
+        ArrayDeque<Runnable> queue = new ArrayDeque<>();
+        File f = new File(tmp.getRoot(), "state.bin");
+        StateStore store = new StateStore(f, queue::add);
+        for (int i = 0; i < 10; i++) store.edit().putLong("n", i).apply();
+        assertEquals(1, queue.size());
+        queue.poll().run();
+        assertArrayEquals(new long[]{10, 1}, store.stats());
+        assertEquals(9L, new StateStore(f, Runnable::run).snapshot().getLong("n", -1L));
+    }
+
+    @Test
+    public void concurrentCountersAreNotLost() throws Exception {
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        StateStore store = new StateStore(new File(tmp.getRoot(), "state.bin"), writer);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 250; i++) store.edit().add("widget_loc_suppressed", 1).apply();
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads) t.join();
+        assertTrue(store.edit().add("widget_loc_suppressed", 0).commit());
+        writer.shutdown();
+        assertTrue(writer.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(1000L, store.snapshot().getLong("widget_loc_suppressed", 0L));
+    }
+
+    @Test
+    public void corruptRecordIsIgnored() throws Exception {
+        File f = new File(tmp.getRoot(), "state.bin");
+        new StateStore(f, Runnable::run).edit().putString("widget_cached_quip", "Drizzle again").commit();
+        try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+            raf.seek(raf.length() / 2);
+            raf.write(raf.read() ^ 0xFF);
+        }
+        StateStore reopened = new StateStore(f, Runnable::run);
+        assertFalse(reopened.loaded());
+        assertNull(reopened.snapshot().getString("widget_cached_quip", null));
+    }
+
+    @Test
+    public void bytesOverTheLengthFieldAreRefused() {
+        File f = new File(tmp.getRoot(), "state.bin");
+        StateStore store = new StateStore(f, Runnable::run);
+        assertTrue(store.edit().putBytes("widget_render", new byte[0xFFFF]).commit());
+        try {
+            store.edit().putBytes("widget_big", new byte[0x10000]);
+            fail("accepted a value whose length does not fit");
+        } catch (IllegalArgumentException expected) {
+        }
+        // the store on disk is untouched and still loads
+        assertEquals(0xFFFF, new StateStore(f, Runnable::run).snapshot().getBytes("widget_render").length);
+    }
+
+    @Test
+    public void migratesPreferenceMaps() {
+        Map<String, Object> prefs = new HashMap<>();
+        prefs.put("widget_lat", 51.5f);
+        prefs.put("widget_loc_time", 5L);
+        prefs.put("legacy_int", 3);
+        prefs.put("legacy_set", new java.util.HashSet<String>());
+        StateStore store = new StateStore(new File(tmp.getRoot(), "state.bin"), Runnable::run);
+        store.edit().putAll(prefs).commit();
+        StateStore.Snapshot s = store.snapshot();
+        assertEquals(51.5f, s.getFloat("widget_lat", 0f), 0f);
+        assertEquals(3L, s.getLong("legacy_int", 0L));
+        assertFalse(s.contains("legacy_set"));
+    }
+}
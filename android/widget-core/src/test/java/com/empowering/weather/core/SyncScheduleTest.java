@@ -0,0 +1,109 @@
+package com.empowering.weather.core;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class SyncScheduleTest {
+    private static final long MIN = 60_000L;
+    private static final long HOUR = 60 * MIN;
+    private static final long SLACK = MIN;
+
+    @Test
+    public void nextRunFollowsTheServersExpiry() {
+        long fetchTs = 11 * HOUR + 17 * MIN;
+        // entry cached at 10:41 expires at 11:41
+        assertEquals(11 * HOUR + 42 * MIN, SyncSchedule.nextRunAt(fetchTs, 36 * 60, HOUR, SLACK));
+        // unknown or odd ages count as a fresh entry
+        assertEquals(fetchTs + HOUR + SLACK, SyncSchedule.nextRunAt(fetchTs, -1, HOUR, SLACK));
+        assertEquals(fetchTs + SLACK, SyncSchedule.nextRunAt(fetchTs, 7200, HOUR, SLACK));
+    }
+
+    @Test
+    public void driftIsMeasuredModuloThePeriod() {
+        assertTrue(SyncSchedule.drifted(0L, HOUR, HOUR, 5 * MIN));
+        // a whole number of periods apart is the same phase
+        assertFalse(SyncSchedule.drifted(HOUR, 4 * HOUR + 2 * MIN, HOUR, 5 * MIN));
+        assertFalse(SyncSchedule.drifted(HOUR, 4 * HOUR - 2 * MIN, HOUR, 5 * MIN));
+        assertTrue(SyncSchedule.drifted(HOUR, 4 * HOUR + 20 * MIN, HOUR, 5 * MIN));
+    }
+
+    @Test
+    public void runsFollowTheForecastsEnd() {
+        long fetchTs = 11 * HOUR + 17 * MIN;
+        // expiries at xx:41: the first one after 19:00 tomorrow
+        assertEquals(43 * HOUR + 42 * MIN, SyncSchedule.nextRunAt(fetchTs, 36 * 60, HOUR, SLACK, 43 * HOUR));
+        assertEquals(43 * HOUR + 42 * MIN, SyncSchedule.nextRunAt(fetchTs, 36 * 60, HOUR, SLACK, 43 * HOUR + 42 * MIN));
+        // due already, or no forecast: the next expiry
+        assertEquals(11 * HOUR + 42 * MIN, SyncSchedule.nextRunAt(fetchTs, 36 * 60, HOUR, SLACK, fetchTs));
+        assertEquals(32 * HOUR, SyncSchedule.periodMs(HOUR, 15 * MIN, 43 * HOUR - fetchTs));
+        assertEquals(HOUR, SyncSchedule.periodMs(HOUR, 15 * MIN, 0L));
+        assertEquals(15 * MIN, SyncSchedule.periodMs(5 * MIN, 15 * MIN, -HOUR));
+    }
+
+    /**
+     * Simulates three days of background syncs against a server that caches each bucket for an hour from the
+     * first request after expiry, planning the periodic sync as WidgetSyncWorker does after each fetch. The old
+     * trigger (updatePeriodMillis, floored at 30 minutes) woke the widget 48 times a day, and every other wake
+     * found the same server data as the one before. A sync every server hour would still wake 24 times a day to
+     * fetch nothing, as the stored forecast is rolled forward in between. The planned sync wakes only when the
+     * forecast runs low, just after the server's entry expired, and every wake fetches.
+     */
+    @Test
+    public void simulatedDaysWakeOnlyWhenAFetchIsDue() {
+        long serverCachedAt = 10 * HOUR + 41 * MIN;
+        long start = 11 * HOUR + 17 * MIN;
+        long end = start + 72 * HOUR;
+
+        int oldWakes = 0;
+        int oldRepeats = 0;
+        long seen = -1L;
+        for (long now = start; now < end; now += 30 * MIN) {
+            long cachedAt = serverEntry(serverCachedAt, now);
+            oldWakes++;
+            if (cachedAt == seen) oldRepeats++;
+            seen = cachedAt;
+        }
+
+        // First sync for the new widget, which also plans the periodic one
+        int wakes = 1;
+        int fetches = 0;
+        long planned = 0L;
+        long period = 0L;
+        HourlyTimeline timeline = null;
+        long now = start;
+        while (now < end) {
+            long cachedAt = serverEntry(serverCachedAt, now);
+            assertTrue("woke with the forecast still good", timeline == null || timeline.needsFetch(now));
+            assertTrue("woke long after the expiry", timeline == null || now - cachedAt <= SLACK);
+            fetches++;
+            // The server sends today and tomorrow, midnight to midnight
+            timeline = HourlyTimelineTest.synthetic(HourlyTimeline.hourOf(now) / 24 * 24 * HOUR, 48);
+            long due = timeline.refetchAtMillis();
+            long next = SyncSchedule.nextRunAt(now, (int) ((now - cachedAt) / 1000L), HOUR, SLACK, due);
+            long p = SyncSchedule.periodMs(HOUR, 15 * MIN, due - now);
+            if (p != period || SyncSchedule.drifted(planned, next, p, 5 * MIN)) {
+                planned = next;
+                period = p;
+            }
+            // The periodic run after now
+            long run = planned > now ? planned : planned + ((now - planned) / period + 1) * period;
+            for (long t = now; t < Math.min(run, end); t += HOUR) {
+                assertTrue("forecast ran out", timeline.indexAt(t) >= 0);
+            }
+            now = run;
+            if (now < end) wakes++;
+        }
+        assertEquals(144, oldWakes);
+        assertEquals(71, oldRepeats);
+        // 11:17 for the new widget, then 19:42 on each of the next two days
+        assertEquals(3, wakes);
+        assertEquals(3, fetches);
+    }
+
+    // When the server's entry serving a request at now was cached: entries live an hour, then the next request
+    // refreshes them
+    private static long serverEntry(long firstCachedAt, long now) {
+        return firstCachedAt + (now - firstCachedAt) / HOUR * HOUR;
+    }
+}
@@ -0,0 +1,135 @@
+package com.empowering.weather.core;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class TaskSchedulerTest {
+    private static final long WAIT_S = 5;
+
+    @Test
+    public void queuedJobForTheSameKeyIsReplaced() throws Exception {
+        TaskScheduler s = new TaskScheduler("test");
+        CountDownLatch blocker = new CountDownLatch(1);
+        CountDownLatch blocking = new CountDownLatch(1);
+        List<String> ran = new CopyOnWriteArrayList<>();
+        AtomicInteger done = new AtomicInteger();
+        CountDownLatch allDone = new CountDownLatch(5);
+        Runnable onDone = () -> {
+            done.incrementAndGet();
+            allDone.countDown();
+        };
+
+        s.submit("tick", "-", 0, c -> {
+            blocking.countDown();
+            blocker.await();
+        }, onDone);
+        assertTrue(blocking.await(WAIT_S, TimeUnit.SECONDS));
+        assertFalse(s.idle());
+        // three refreshes for the same bucket pile up behind the tick: only the newest survives
+        for (int i = 1; i <= 3; i++) {
+            String name = "refresh" + i;
+            s.submit("refresh", "51:0", 0, c -> ran.add(name), onDone);
+        }
+        s.submit("other", "-", 0, c -> ran.add("other"), onDone);
+        blocker.countDown();
+        assertTrue(allDone.await(WAIT_S, TimeUnit.SECONDS));
+        assertTrue(s.idle());
+
+        assertEquals(List.of("refresh3", "other"), ran);
+        assertEquals(5, done.get());
+        long[] st = s.stats();
+        assertEquals(5, st[0]); // submitted
+        assertEquals(3, st[1]); // started
+        assertEquals(2, st[2]); // superseded
+        assertEquals(0, st[5]); // queue empty again
+        assertEquals(2, st[6]); // deepest queue: the replacement kept its place
+    }
+
+    @Test
+    public void newTargetCancelsTheRunningJob() throws Exception {
+        TaskScheduler s = new TaskScheduler("test");
+        CountDownLatch inFlight = new CountDownLatch(1);
+        CountDownLatch aborted = new CountDownLatch(1);
+        CountDownLatch second = new CountDownLatch(1);
+        s.submit("refresh", "51:0", 0, c -> {
+            // stands in for an HTTP call that disconnect() would abort
+            c.onCancel(aborted::countDown);
+            inFlight.countDown();
+            assertTrue(aborted.await(WAIT_S, TimeUnit.SECONDS));
+        }, null);
+        assertTrue(inFlight.await(WAIT_S, TimeUnit.SECONDS));
+        s.submit("refresh", "52:0", 0, c -> second.countDown(), null);
+        assertTrue(second.await(WAIT_S, TimeUnit.SECONDS));
+        assertEquals(1, s.stats()[3]);
+    }
+
+    @Test
+    public void sameTargetRunsAfterTheRunningJob() throws Exception {
+        TaskScheduler s = new TaskScheduler("test");
+        CountDownLatch inFlight = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> ran = new CopyOnWriteArrayList<>();
+        CountDownLatch both = new CountDownLatch(2);
+        s.submit("refresh", "51:0", 0, c -> {
+            inFlight.countDown();
+            release.await();
+            ran.add(c.isCancelled() ? "first-cancelled" : "first");
+        }, both::countDown);
+        assertTrue(inFlight.await(WAIT_S, TimeUnit.SECONDS));
+        s.submit("refresh", "51:0", 0, c -> ran.add("trailing"), both::countDown);
+        release.countDown();
+        assertTrue(both.await(WAIT_S, TimeUnit.SECONDS));
+        assertEquals(List.of("first", "trailing"), ran);
+    }
+
+    @Test
+    public void deadlineCancelsAndFinishesOnce() throws Exception {
+        TaskScheduler s = new TaskScheduler("test");
+        AtomicInteger done = new AtomicInteger();
+        CountDownLatch finished = new CountDownLatch(1);
+        CountDownLatch cancelled = new CountDownLatch(1);
+        CountDownLatch exited = new CountDownLatch(1);
+        s.submit("refresh", "51:0", 100, c -> {
+            c.onCancel(cancelled::countDown);
+            // ignores the deadline until cancelled, like a read blocked on a dead server
+            try {
+                cancelled.await(WAIT_S, TimeUnit.SECONDS);
+            } finally {
+                exited.countDown();
+            }
+        }, () -> {
+            done.incrementAndGet();
+            finished.countDown();
+        });
+        // onDone (the receiver's finish) fires at the deadline, not when the task gets round to returning
+        assertTrue(finished.await(WAIT_S, TimeUnit.SECONDS));
+        assertTrue(exited.await(WAIT_S, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        assertEquals(1, done.get());
+        assertEquals(1, s.stats()[4]);
+    }
+
+    @Test
+    public void deadlinePassedInTheQueueDropsTheJob() throws Exception {
+        TaskScheduler s = new TaskScheduler("test");
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch dropped = new CountDownLatch(1);
+        AtomicInteger ran = new AtomicInteger();
+        s.submit("tick", "-", 0, c -> release.await(), null);
+        s.submit("refresh", "51:0", 50, c -> ran.incrementAndGet(), dropped::countDown);
+        assertTrue(dropped.await(WAIT_S, TimeUnit.SECONDS));
+        release.countDown();
+        CountDownLatch after = new CountDownLatch(1);
+        s.submit("probe", "-", 0, c -> after.countDown(), null);
+        assertTrue(after.await(WAIT_S, TimeUnit.SECONDS));
+        assertEquals(0, ran.get());
+        assertEquals(1, s.stats()[4]);
+    }
+}
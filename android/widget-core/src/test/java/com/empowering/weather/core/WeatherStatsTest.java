@@ -0,0 +1,100 @@
+package com.empowering.weather.core;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+
+/**
+ * The precomputed stats must render exactly what the old per-render path produced by parsing the details line.
+ */
+public class WeatherStatsTest {
+    private static final String[] PAYLOADS = {
+            "london_partly_cloudy.json",
+            "sydney_sunny_cached.json",
+            "reykjavik_mist.json",
+            "edge_cases.json",
+    };
+
+    @Test
+    public void matchesParsingTheDetailsLine() throws Exception {
+        for (String name : PAYLOADS) {
+            WidgetPayload.Current cur = WidgetPayloadParser.parse(new StringReader(WidgetPayloadParserTest.read(name))).current;
+            WeatherStats stats = WeatherStats.fromCurrent(cur);
+            String details = WidgetFormat.buildDetailsFromCurrent(cur);
+            assertEquals(name, cur.opt("temp_c") + "°C", stats.temp);
+            assertEquals(name, details, stats.details());
+            assertLegacyColors(name, details, stats);
+        }
+    }
+
+    @Test
+    public void forecastHoursMatchParsingToo() {
+        HourlyTimeline t = new HourlyTimeline.Builder()
+                .add(0L, 9.5f, 85, 0f, 0f, 1)
+                .add(3600L, 11f, -1, Float.NaN, 2.5f, -1)
+                .add(7200L, 14f, 40, 7.2f, Float.NaN, -1)
+                .build();
+        for (int i = 0; i < t.size(); i++) {
+            WeatherStats stats = WeatherStats.fromHour(t, i);
+            assertEquals(WidgetFormat.tempLabel(t, i), stats.temp);
+            assertLegacyColors("hour " + i, stats.details(), stats);
+        }
+        assertEquals("Prec: 2.5 mm | Hum: -- | UV: --", WeatherStats.fromHour(t, 1).details());
+    }
+
+    @Test
+    public void oldCachedLabelsUpgrade() {
+        String details = "Prec: 40% | Hum: 71% | UV: 3.5";
+        WeatherStats stats = WeatherStats.fromLabels("14.2°C", details);
+        assertEquals(details, stats.details());
+        assertEquals(40.0, stats.precip, 1e-9);
+        assertTrue(stats.precipPercent);
+        assertLegacyColors(details, details, stats);
+        assertEquals(WidgetFormat.EMPTY_DETAILS, WeatherStats.fromLabels("--°C", WidgetFormat.EMPTY_DETAILS).details());
+        assertEquals(WidgetFormat.EMPTY_DETAILS, WeatherStats.fromLabels(null, "").details());
+    }
+
+    @Test
+    public void roundTripsCompactly() throws IOException {
+        WeatherStats stats = WeatherStats.fromLabels("14.2°C", "Prec: 2.5 mm | Hum: 71% | UV: 9.0");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        stats.writeTo(new DataOutputStream(bytes));
+        assertTrue("serialized " + bytes.size() + " B", bytes.size() < 80);
+
+        WeatherStats back = WeatherStats.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(stats.temp, back.temp);
+        assertEquals(stats.details(), back.details());
+        assertEquals(stats.precipBg, back.precipBg);
+        assertEquals(stats.humText, back.humText);
+        assertEquals(stats.uvBg, back.uvBg);
+        assertEquals(0xFFF44336, back.uvBg);
+    }
+
+    @Test
+    public void emptyColorsLikeMissingValues() {
+        assertEquals(0xFFCCCCCC, WeatherStats.EMPTY.precipBg);
+        assertEquals(0xFFFFFFFF, WeatherStats.EMPTY.humBg);
+        assertEquals(0xFF66BB6A, WeatherStats.EMPTY.uvBg);
+        assertSame(WeatherStats.EMPTY, WeatherStats.fromCurrent(null));
+    }
+
+    // What rendering computed before: split the details line, strip to digits and derive the pill colours
+    private static void assertLegacyColors(String msg, String details, WeatherStats stats) {
+        int precipBg = WidgetColors.precipBackground(WidgetFormat.parsePrecNorm(WidgetFormat.partsSafe(details, 0)));
+        int humBg = WidgetColors.humidityBackground(WidgetFormat.parsePercentNorm(WidgetFormat.partsSafe(details, 1)));
+        int uvBg = WidgetColors.uvBackground(WidgetFormat.parseUvValue(WidgetFormat.partsSafe(details, 2)));
+        assertEquals(msg, precipBg, stats.precipBg);
+        assertEquals(msg, humBg, stats.humBg);
+        assertEquals(msg, uvBg, stats.uvBg);
+        assertEquals(msg, WidgetColors.hslColor(precipBg, WidgetColors.TEXT_BRIGHTNESS), stats.precipText);
+        assertEquals(msg, WidgetColors.hslColor(humBg, WidgetColors.TEXT_BRIGHTNESS), stats.humText);
+        assertEquals(msg, WidgetColors.hslColor(uvBg, WidgetColors.TEXT_BRIGHTNESS), stats.uvText);
+    }
+}
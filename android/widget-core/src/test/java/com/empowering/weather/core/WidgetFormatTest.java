@@ -0,0 +1,92 @@
+package com.empowering.weather.core;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class WidgetFormatTest {
+    private static final long NOW = 1760437020000L;
+
+    @Test
+    public void formatAgeGranularity() {
+        assertEquals("", WidgetFormat.formatAge(0L, NOW));
+        assertEquals("(now)", WidgetFormat.formatAge(NOW - 8_999L, NOW));
+        assertEquals("(9s)", WidgetFormat.formatAge(NOW - 9_000L, NOW));
+        assertEquals("(59s)", WidgetFormat.formatAge(NOW - 59_999L, NOW));
+        assertEquals("(1m)", WidgetFormat.formatAge(NOW - 60_000L, NOW));
+        assertEquals("(59m)", WidgetFormat.formatAge(NOW - 3_599_999L, NOW));
+        assertEquals("(2h)", WidgetFormat.formatAge(NOW - 2L * 3_600_000L, NOW));
+    }
+
+    @Test
+    public void lastFetchedLabel() {
+        assertEquals("Last fetched (unknown)", WidgetFormat.lastFetchedLabel(0L, NOW));
+        assertEquals("Last fetched (now)", WidgetFormat.lastFetchedLabel(NOW - 1_000L, NOW));
+        assertEquals("Last fetched (30s)", WidgetFormat.lastFetchedLabel(NOW - 30_000L, NOW));
+        String clock = new java.text.SimpleDateFormat("HH:mm").format(new java.util.Date(NOW - 120_000L));
+        assertEquals("Last fetched " + clock, WidgetFormat.lastFetchedLabel(NOW - 120_000L, NOW));
+    }
+
+    @Test
+    public void fetchedStatus() {
+        assertEquals("Open app to grant location", WidgetFormat.fetchedStatus(0L, NOW, NOW));
+        assertEquals("Last fetched (30s) — Tap to refresh", WidgetFormat.fetchedStatus(NOW - 30_000L, NOW - 60_000L, NOW));
+        assertEquals("Last fetched (30s) — Tap to refresh", WidgetFormat.fetchedStatus(NOW - 30_000L, 0L, NOW));
+        assertEquals("Using cached location (5m) — Last fetched (30s) — Tap to refresh",
+                WidgetFormat.fetchedStatus(NOW - 30_000L, NOW - 300_000L, NOW));
+    }
+
+    @Test
+    public void staleStatus() {
+        assertEquals("Updating…", WidgetFormat.staleStatus(0L, NOW));
+        assertEquals("Updating… — Last fetched (30s)", WidgetFormat.staleStatus(NOW - 30_000L, NOW));
+    }
+
+    @Test
+    public void nextStatusChangeFollowsLabelGranularity() {
+        assertEquals(Long.MAX_VALUE, WidgetFormat.nextStatusChange(0L, 0L, NOW));
+        long f = NOW;
+        // (now) -> (9s) -> 10 s steps -> HH:mm, then static
+        assertEquals(f + 9_000L, WidgetFormat.nextStatusChange(f, 0L, NOW + 1_000L));
+        assertEquals(f + 10_000L, WidgetFormat.nextStatusChange(f, 0L, NOW + 9_000L));
+        assertEquals(f + 60_000L, WidgetFormat.nextStatusChange(f, 0L, NOW + 55_000L));
+        assertEquals(Long.MAX_VALUE, WidgetFormat.nextStatusChange(f, 0L, NOW + 60_000L));
+        // A fresh location turns "cached" after two minutes, then counts minutes and hours
+        assertEquals(NOW + 120_001L, WidgetFormat.nextStatusChange(f, NOW, NOW + 90_000L));
+        assertEquals(NOW + 6 * 60_000L, WidgetFormat.nextStatusChange(f, NOW, NOW + 5 * 60_000L + 10_000L));
+        assertEquals(NOW + 3 * 3_600_000L, WidgetFormat.nextStatusChange(f, NOW, NOW + 2 * 3_600_000L + 5_000L));
+        // Every scheduled change really changes the text
+        for (long t = NOW; t < NOW + 4 * 3_600_000L; ) {
+            long next = WidgetFormat.nextStatusChange(f, NOW - 30_000L, t);
+            assertNotEquals(WidgetFormat.fetchedStatus(f, NOW - 30_000L, next - 1),
+                    WidgetFormat.fetchedStatus(f, NOW - 30_000L, next));
+            t = next;
+        }
+    }
+
+    @Test
+    public void detailsParsing() {
+        String details = "Prec: 40% | Hum: 71% | UV: 3.5";
+        assertEquals("Prec: 40%", WidgetFormat.partsSafe(details, 0));
+        assertEquals("", WidgetFormat.partsSafe(details, 3));
+        assertEquals(0.4, WidgetFormat.parsePrecNorm(WidgetFormat.partsSafe(details, 0)), 1e-9);
+        assertEquals(0.71, WidgetFormat.parsePercentNorm(WidgetFormat.partsSafe(details, 1)), 1e-9);
+        assertEquals(3.5, WidgetFormat.parseUvValue(WidgetFormat.partsSafe(details, 2)), 1e-9);
+        // mm values normalise against 50 mm
+        assertEquals(0.05, WidgetFormat.parsePrecNorm("Prec: 2.5 mm"), 1e-9);
+        assertEquals(0.0, WidgetFormat.parsePrecNorm("Prec: --"), 0.0);
+    }
+
+    @Test
+    public void pillColors() {
+        assertEquals(0xFFCCCCCC, WidgetColors.precipBackground(0.0));
+        assertEquals(0xFF1565C0, WidgetColors.precipBackground(1.0));
+        assertEquals(0xFFFFFFFF, WidgetColors.humidityBackground(0.0));
+        assertEquals(0xFF66BB6A, WidgetColors.uvBackground(3.0));
+        assertEquals(0xFFFFEB3B, WidgetColors.uvBackground(6.0));
+        assertEquals(0xFFF44336, WidgetColors.uvBackground(6.1));
+        // Grey keeps its hue and loses 40% lightness
+        assertEquals(0xFF7A7A7A, WidgetColors.hslColor(0xFFCCCCCC, WidgetColors.TEXT_BRIGHTNESS));
+        assertEquals(0x7F7F7F7F, WidgetColors.lerpColor(0x00000000, 0xFFFFFFFF, 0.5));
+    }
+}
@@ -0,0 +1,143 @@
+package com.empowering.weather.core;
+
+import static org.junit.Assert.*;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Checks the streaming parser against the JSONObject-based code the widget used before, over recorded /api payloads.
+ */
+public class WidgetPayloadParserTest {
+    private static final String[] PAYLOADS = {
+            "london_partly_cloudy.json",
+            "sydney_sunny_cached.json",
+            "reykjavik_mist.json",
+            "edge_cases.json",
+    };
+
+    @Test
+    public void streamingParserMatchesJsonObject() throws Exception {
+        for (String name : PAYLOADS) {
+            String body = read(name);
+            WidgetPayload payload = WidgetPayloadParser.parse(new StringReader(body));
+
+            JSONObject root = new JSONObject(body);
+            JSONObject weather = root.optJSONObject("weather");
+            JSONObject cur = weather != null ? weather.optJSONObject("current") : null;
+
+            assertEquals(name, root.optString("weather_quip", ""), payload.quip);
+            assertEquals(name, root.optInt("cache_age", -1), payload.cacheAge);
+            assertNotNull(name, payload.current);
+            assertEquals(name, cur.opt("temp_c") + "°C", payload.current.opt("temp_c") + "°C");
+            assertEquals(name, Reference.buildDetailsFromCurrent(cur), WidgetFormat.buildDetailsFromCurrent(payload.current));
+            assertEquals(name, Reference.extractRainChancePercent(cur), WidgetFormat.extractRainChancePercent(payload.current));
+        }
+    }
+
+    @Test
+    public void recordedPayloadValues() throws Exception {
+        WidgetPayload london = WidgetPayloadParser.parse(new StringReader(read("london_partly_cloudy.json")));
+        assertEquals("15.8°C", london.current.opt("temp_c") + "°C");
+        assertEquals("Prec: 0.0 mm | Hum: 70% | UV: 0.8", WidgetFormat.buildDetailsFromCurrent(london.current));
+
+        WidgetPayload edge = WidgetPayloadParser.parse(new StringReader(read("edge_cases.json")));
+        assertEquals(42, edge.cacheAge);
+        assertEquals("Café weather — tab\there, quote \" and slash / done", edge.quip);
+        assertEquals("30°C", edge.current.opt("temp_c") + "°C");
+        assertEquals("Prec: 45% | Hum: 71% | UV: --", WidgetFormat.buildDetailsFromCurrent(edge.current));
+    }
+
+    @Test
+    public void observedAtPrefersTheObservationTime() throws Exception {
+        WidgetPayload london = WidgetPayloadParser.parse(new StringReader(read("london_partly_cloudy.json")));
+        assertEquals(1760436900000L, london.observedAt(1760437800000L));
+        WidgetPayload aged = WidgetPayloadParser.parse(new StringReader("{\"cache_age\":600,\"weather\":{\"current\":{\"uv\":3}}}"));
+        assertEquals(1760437800000L - 600_000L, aged.observedAt(1760437800000L));
+        assertEquals(1760437800000L, WidgetPayloadParser.parse(new StringReader("{}")).observedAt(1760437800000L));
+    }
+
+    @Test
+    public void missingSectionsFallBack() throws Exception {
+        WidgetPayload p = WidgetPayloadParser.parse(new StringReader("{\"weather\":{\"current\":[1,2]},\"weather_quip\":null}"));
+        assertNull(p.current);
+        assertEquals("null", p.quip);
+        assertEquals("Prec: -- | Hum: -- | UV: --", WidgetFormat.buildDetailsFromCurrent(p.current));
+
+        WidgetPayload empty = WidgetPayloadParser.parse(new StringReader("{}"));
+        assertEquals("", empty.quip);
+        assertEquals(-1, empty.cacheAge);
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedBodyFails() throws Exception {
+        String body = read("london_partly_cloudy.json");
+        WidgetPayloadParser.parse(new StringReader(body.substring(0, body.length() / 2)));
+    }
+
+    static String read(String name) throws IOException {
+        return readResource("/payloads/" + name);
+    }
+
+    static String readResource(String path) throws IOException {
+        try (InputStream in = WidgetPayloadParserTest.class.getResourceAsStream(path)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) != -1) out.write(buf, 0, n);
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    // The widget's previous JSONObject-based extraction, kept verbatim as the parity reference
+    private static final class Reference {
+        static String buildDetailsFromCurrent(JSONObject cur) {
+            try {
+                if (cur == null) return "Prec: -- | Hum: -- | UV: --";
+                String humStr = "--";
+                if (cur.has("humidity") && !cur.isNull("humidity")) {
+                    humStr = String.valueOf(cur.optInt("humidity"));
+                    if (!"--".equals(humStr)) humStr += "%";
+                }
+                String uvStr = "--";
+                if (cur.has("uv") && !cur.isNull("uv")) {
+                    Object uv = cur.opt("uv");
+                    uvStr = String.valueOf(uv);
+                }
+                String precStr = extractRainChancePercent(cur);
+                if (precStr == null) {
+                    if (cur.has("precip_mm") && !cur.isNull("precip_mm")) {
+                        precStr = cur.opt("precip_mm") + " mm";
+                    } else {
+                        precStr = "--";
+                    }
+                }
+                return "Prec: " + precStr + " | Hum: " + humStr + " | UV: " + uvStr;
+            } catch (Exception e) {
+                return "Prec: -- | Hum: -- | UV: --";
+            }
+        }
+
+        static String extractRainChancePercent(JSONObject h) {
+            try {
+                if (h == null) return null;
+                if (h.has("daily_chance_of_rain") && !h.isNull("daily_chance_of_rain"))
+                    return h.optInt("daily_chance_of_rain") + "%";
+                if (h.has("chance_of_rain") && !h.isNull("chance_of_rain"))
+                    return h.optInt("chance_of_rain") + "%";
+                if (h.has("chanceofrain") && !h.isNull("chanceofrain"))
+                    return h.optInt("chanceofrain") + "%";
+                if (h.has("pop") && !h.isNull("pop")) return h.optInt("pop") + "%";
+                if (h.has("will_it_rain") && !h.isNull("will_it_rain"))
+                    return (h.optInt("will_it_rain") != 0 ? 100 : 0) + "%";
+            } catch (Exception ignored) {}
+            return null;
+        }
+    }
+}
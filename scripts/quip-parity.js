@@ -0,0 +1,77 @@
+// Records the server's quip choices (src/api/quips.js) for the Android port's parity tests
+// (QuipEngineTest in android/widget-core). Rerun after changing quips.js or weather_notes:
+//   node scripts/quip-parity.js
+const fs = require("fs");
+const path = require("path");
+const { loadNotes, determineCategory, pickQuip } = require("../src/api/quips");
+
+const repoRoot = path.resolve(__dirname, "..");
+const notes = loadNotes(path.join(repoRoot, "weather_notes"));
+const out = path.join(
+    repoRoot,
+    "android",
+    "widget-core",
+    "src",
+    "test",
+    "resources",
+    "quips",
+    "parity.json"
+);
+
+// One of each branch of determineCategory, plus inputs that fall through to the fallback category
+const currents = [
+    { temp_c: 24, condition: { text: "Thundery outbreaks in nearby" } },
+    { temp_c: 18, condition: { text: "Moderate or heavy rain with thunder" } },
+    { temp_c: 12, wind_kph: 60, condition: { text: "Storm" } },
+    { temp_c: -3, condition: { text: "Patchy light snow" } },
+    { temp_c: 1, condition: { text: "Light sleet showers" } },
+    { temp_c: 2, condition: { text: "Ice pellets" } },
+    { temp_c: 14, condition: { text: "Patchy rain nearby" } },
+    { temp_c: 14, precip_mm: 0.6, cloud: 20, condition: { text: "Partly cloudy" } },
+    { temp_c: 14, precip_mm: 0.5, cloud: 20, condition: { text: "Sunny" } },
+    { temp_c: 8, condition: { text: "Freezing fog" } },
+    { temp_c: 9, condition: { text: "Mist" } },
+    { temp_c: 15, wind_kph: 40, condition: { text: "Sunny" } },
+    { temp_c: 32.5, humidity: 40, condition: { text: "Sunny" } },
+    { temp_c: 0, condition: { text: "Clear" } },
+    { temp_c: 22, humidity: 90, condition: { text: "Sunny" } },
+    { temp_c: 19, humidity: 85, cloud: 75, condition: { text: "Sunny" } },
+    { temp_c: 27, cloud: 10, condition: { text: "Overcast" } },
+    { temp_c: 16.4, humidity: 60, cloud: 25, condition: { text: "Partly Cloudy " } },
+    { temp_c: 4, condition: { text: "Clear" } },
+    { temp_c: 27, cloud: 10, condition: { text: "Sunny" } },
+    { temp_c: 7, condition: { text: "Clear" } },
+    { humidity: 50, condition: { text: "Clear" } },
+    { temp_c: "12", wind_kph: "50", condition: { text: "Clear" } },
+    {},
+];
+const coords = [
+    [51.5074, -0.1278],
+    [-33.8688, 151.2093],
+    [40.7128, -74.006],
+    [0, 0],
+    [51.505, -0.125],
+    [-0.005, -0.015],
+];
+const dates = [
+    [2025, 1, 5],
+    [2025, 10, 14],
+    [2025, 12, 31],
+    [2024, 2, 29],
+];
+
+const cases = [];
+currents.forEach((current, c) => {
+    const weather = Object.keys(current).length ? { current } : {};
+    coords.forEach(([lat, lon], p) => {
+        dates.forEach(([y, m, d], q) => {
+            const now = new Date(y, m - 1, d, 12);
+            cases.push([c, p, q, determineCategory(weather), pickQuip(notes, weather, lat, lon, now)]);
+        });
+    });
+});
+
+fs.mkdirSync(path.dirname(out), { recursive: true });
+const json = JSON.stringify({ currents, coords, dates, cases });
+fs.writeFileSync(out, json.replace(/\],\[/g, "],\n[") + "\n");
+console.log(`${cases.length} cases written to ${path.relative(repoRoot, out)}`);
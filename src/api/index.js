@@ -1,8 +1,9 @@
 // Clean implementation: serve static frontend and provide /api and /health
 const express = require("express");
 const axios = require("axios");
-const fs = require("fs");
 const path = require("path");
+const zlib = require("zlib");
+const crypto = require("crypto");
 require("dotenv").config({
     path: path.join(__dirname, "..", "..", ".env"),
 });
@@ -53,113 +54,37 @@ app.use(express.static(WEB_DIR));
 const cache = new Map();
 const CACHE_TTL_SECONDS = 3600; // 1 hour
 
-// Load weather notes files into memory (weather_notes lives at repo root)
-const NOTES_DIR = path.join(__dirname, "..", "..", "weather_notes");
-const CATEGORIES = [
-    "cloudy",
-    "cold",
-    "foggy",
-    "hot",
-    "humid",
-    "mild",
-    "rainy",
-    "snowy",
-    "stormy",
-    "thunderstorm",
-    "windy",
-];
-
-const notes = {};
-for (const cat of CATEGORIES) {
-    const file = path.join(NOTES_DIR, `${cat}.txt`);
-    try {
-        const raw = fs.readFileSync(file, "utf8");
-        notes[cat] = raw.split(/\r?\n/).filter(Boolean);
-    } catch (err) {
-        notes[cat] = [];
-        console.warn(`Warning: could not read notes file for ${cat}: ${file}`);
-    }
-}
-
-function seededRandom(seed) {
-    // Simple mulberry32 PRNG
-    return function () {
-        let t = (seed += 0x6d2b79f5);
-        t = Math.imul(t ^ (t >>> 15), t | 1);
-        t ^= t + Math.imul(t ^ (t >>> 7), t | 61);
-        return ((t ^ (t >>> 14)) >>> 0) / 4294967296;
-    };
-}
+// Weather notes (weather_notes at the repo root) and the quip picker, shared with the Android parity tests
+const { loadNotes, pickQuip: pickQuipFrom } = require("./quips");
+const notes = loadNotes(path.join(__dirname, "..", "..", "weather_notes"));
 
 function pickQuip(weather, lat, lon) {
-    // Determine a best-fit category from the weather response
-    function determineCategory(data) {
-        if (!data || !data.current) return null;
-        const cur = data.current;
-        const text = (
-            (cur.condition && cur.condition.text) ||
-            ""
-        ).toLowerCase();
-        const temp = typeof cur.temp_c === "number" ? cur.temp_c : null;
-        const humidity = typeof cur.humidity === "number" ? cur.humidity : null;
-        const wind = typeof cur.wind_kph === "number" ? cur.wind_kph : 0;
-        const precip = typeof cur.precip_mm === "number" ? cur.precip_mm : 0;
-        const cloud = typeof cur.cloud === "number" ? cur.cloud : 0;
-
-        // Priority-ordered checks
-        if (/thunder/.test(text)) return "thunderstorm";
-        if (/storm|squall/.test(text)) return "stormy";
-        if (/snow|sleet|blizzard|ice/.test(text)) return "snowy";
-        if (/rain|drizzle|shower/.test(text) || precip > 0.5) return "rainy";
-        if (/fog|mist|haze|smoke/.test(text)) return "foggy";
-        if (wind >= 40) return "windy";
-        if (temp !== null && temp >= 30) return "hot";
-        if (temp !== null && temp <= 0) return "cold";
-        if (humidity !== null && humidity >= 85 && temp !== null && temp >= 20)
-            return "humid";
-        if (cloud >= 70 || /cloud|overcast/.test(text)) return "cloudy";
-        if (temp !== null && temp >= 10 && temp <= 25) return "mild";
-        if (temp !== null && temp <= 5) return "cold";
-
-        return null;
-    }
+    return pickQuipFrom(notes, weather, lat, lon, new Date());
+}
 
-    const category = determineCategory(weather);
-    const available = CATEGORIES.filter((c) => (notes[c] || []).length > 0);
-
-    // If determineCategory returns a category we have notes for, use it.
-    let chosenCategory = null;
-    if (category && available.includes(category)) {
-        chosenCategory = category;
-    } else if (available.length > 0) {
-        // Fallback: pick a deterministic category based on date + rounded coords
-        const now = new Date();
-        const daySeed = Number(
-            `${now.getFullYear()}${now.getMonth() + 1}${now.getDate()}`
-        );
-        const coordSeed =
-            Math.round((lat || 0) * 100) + Math.round((lon || 0) * 100);
-        const seed = daySeed + coordSeed;
-        const rnd = seededRandom(seed)();
-        chosenCategory = available[Math.floor(rnd * available.length)];
+// Send a weather response with validators so clients (the Android widget) can revalidate cheaply.
+// The ETag covers the cached upstream entry and the quip, not cache_age, so it stays stable for the
+// whole TTL and express answers matching If-None-Match requests with a 304.
+function sendWeather(req, res, key, entryTs, body) {
+    const nowSec = Math.floor(Date.now() / 1000);
+    const remaining = Math.max(0, CACHE_TTL_SECONDS - (nowSec - entryTs));
+    const quipHash = crypto
+        .createHash("sha1")
+        .update(body.weather_quip || "")
+        .digest("hex")
+        .slice(0, 8);
+    res.setHeader("ETag", `W/"${key}-${entryTs}-${quipHash}"`);
+    res.setHeader("Last-Modified", new Date(entryTs * 1000).toUTCString());
+    res.setHeader("Cache-Control", `private, max-age=${remaining}`);
+    res.vary("Accept-Encoding");
+    res.type("application/json");
+    const json = Buffer.from(JSON.stringify(body));
+    if (req.fresh) return res.status(304).end();
+    if (req.acceptsEncodings("gzip") === "gzip") {
+        res.setHeader("Content-Encoding", "gzip");
+        return res.send(zlib.gzipSync(json));
     }
-
-    if (!chosenCategory) return "";
-
-    // Pick a deterministic quip from the chosen category using the same seed
-    const now = new Date();
-    const daySeed2 = Number(
-        `${now.getFullYear()}${now.getMonth() + 1}${now.getDate()}`
-    );
-    const seed2 =
-        daySeed2 +
-        Math.round((lat || 0) * 100) +
-        Math.round((lon || 0) * 100) +
-        chosenCategory.length;
-    const rnd2 = seededRandom(seed2)();
-    const list = notes[chosenCategory] || [];
-    if (list.length === 0) return "";
-    return list[Math.floor(rnd2 * list.length)];
+    return res.send(json);
 }
 
 // Health endpoint
@@ -186,7 +111,11 @@ app.get("/api", async (req, res) => {
         if (age < CACHE_TTL_SECONDS) {
             const weather = entry.data;
             const quip = pickQuip(weather, latNum, lonNum);
-            return res.json({ cache_age: age, weather_quip: quip, weather });
+            return sendWeather(req, res, key, entry.ts, {
+                cache_age: age,
+                weather_quip: quip,
+                weather,
+            });
         }
     }
 
@@ -206,7 +135,11 @@ app.get("/api", async (req, res) => {
         const data = resp.data;
         cache.set(key, { ts: nowSec, data });
         const quip = pickQuip(data, latNum, lonNum);
-        return res.json({ cache_age: 0, weather_quip: quip, weather: data });
+        return sendWeather(req, res, key, nowSec, {
+            cache_age: 0,
+            weather_quip: quip,
+            weather: data,
+        });
     } catch (err) {
         console.error("weather fetch error", err && err.toString());
         return res.status(502).json({ error: "failed to fetch weather data" });
@@ -0,0 +1,115 @@
+// Quip selection for /api's weather_quip. The Android widget carries a Java port (QuipEngine in
+// android/widget-core) for when it has no server answer; scripts/quip-parity.js records this
+// implementation's outputs for its parity tests, so change both together.
+const fs = require("fs");
+const path = require("path");
+
+const CATEGORIES = [
+    "cloudy",
+    "cold",
+    "foggy",
+    "hot",
+    "humid",
+    "mild",
+    "rainy",
+    "snowy",
+    "stormy",
+    "thunderstorm",
+    "windy",
+];
+
+// Load weather notes files into memory: one quip per non-empty line
+function loadNotes(dir) {
+    const notes = {};
+    for (const cat of CATEGORIES) {
+        const file = path.join(dir, `${cat}.txt`);
+        try {
+            const raw = fs.readFileSync(file, "utf8");
+            notes[cat] = raw.split(/\r?\n/).filter(Boolean);
+        } catch (err) {
+            notes[cat] = [];
+            console.warn(`Warning: could not read notes file for ${cat}: ${file}`);
+        }
+    }
+    return notes;
+}
+
+function seededRandom(seed) {
+    // Simple mulberry32 PRNG
+    return function () {
+        let t = (seed += 0x6d2b79f5);
+        t = Math.imul(t ^ (t >>> 15), t | 1);
+        t ^= t + Math.imul(t ^ (t >>> 7), t | 61);
+        return ((t ^ (t >>> 14)) >>> 0) / 4294967296;
+    };
+}
+
+// Determine a best-fit category from the weather response
+function determineCategory(data) {
+    if (!data || !data.current) return null;
+    const cur = data.current;
+    const text = (
+        (cur.condition && cur.condition.text) ||
+        ""
+    ).toLowerCase();
+    const temp = typeof cur.temp_c === "number" ? cur.temp_c : null;
+    const humidity = typeof cur.humidity === "number" ? cur.humidity : null;
+    const wind = typeof cur.wind_kph === "number" ? cur.wind_kph : 0;
+    const precip = typeof cur.precip_mm === "number" ? cur.precip_mm : 0;
+    const cloud = typeof cur.cloud === "number" ? cur.cloud : 0;
+
+    // Priority-ordered checks
+    if (/thunder/.test(text)) return "thunderstorm";
+    if (/storm|squall/.test(text)) return "stormy";
+    if (/snow|sleet|blizzard|ice/.test(text)) return "snowy";
+    if (/rain|drizzle|shower/.test(text) || precip > 0.5) return "rainy";
+    if (/fog|mist|haze|smoke/.test(text)) return "foggy";
+    if (wind >= 40) return "windy";
+    if (temp !== null && temp >= 30) return "hot";
+    if (temp !== null && temp <= 0) return "cold";
+    if (humidity !== null && humidity >= 85 && temp !== null && temp >= 20)
+        return "humid";
+    if (cloud >= 70 || /cloud|overcast/.test(text)) return "cloudy";
+    if (temp !== null && temp >= 10 && temp <= 25) return "mild";
+    if (temp !== null && temp <= 5) return "cold";
+
+    return null;
+}
+
+// Seed for the day in the server's local time, e.g. 2025-10-5 -> 2025105
+function daySeed(now) {
+    return Number(`${now.getFullYear()}${now.getMonth() + 1}${now.getDate()}`);
+}
+
+function pickQuip(notes, weather, lat, lon, now) {
+    const category = determineCategory(weather);
+    const available = CATEGORIES.filter((c) => (notes[c] || []).length > 0);
+
+    // If determineCategory returns a category we have notes for, use it.
+    let chosenCategory = null;
+    if (category && available.includes(category)) {
+        chosenCategory = category;
+    } else if (available.length > 0) {
+        // Fallback: pick a deterministic category based on date + rounded coords
+        const coordSeed =
+            Math.round((lat || 0) * 100) + Math.round((lon || 0) * 100);
+        const seed = daySeed(now) + coordSeed;
+        const rnd = seededRandom(seed)();
+        chosenCategory = available[Math.floor(rnd * available.length)];
+    }
+
+    if (!chosenCategory) return "";
+
+    // Pick a deterministic quip from the chosen category using the same seed
+    const seed2 =
+        daySeed(now) +
+        Math.round((lat || 0) * 100) +
+        Math.round((lon || 0) * 100) +
+        chosenCategory.length;
+    const rnd2 = seededRandom(seed2)();
+    const list = notes[chosenCategory] || [];
+    if (list.length === 0) return "";
+    return list[Math.floor(rnd2 * list.length)];
+}
+
+module.exports = { CATEGORIES, loadNotes, determineCategory, pickQuip };
@@ -1,5 +1,53 @@
 // Debug modal open/close handlers
 
+// Native builds: the widget's pipeline metrics (WidgetMetrics plugin) as a plain-text table
+async function renderWidgetMetrics() {
+    const section = document.getElementById("widgetMetricsSection");
+    const out = document.getElementById("widgetMetrics");
+    const plugin =
+        window.Capacitor &&
+        window.Capacitor.Plugins &&
+        window.Capacitor.Plugins.WidgetMetrics;
+    if (!section || !out || !plugin) return;
+    try {
+        const m = await plugin.get();
+        const ms = (v) => (v < 0 ? "slow" : v === 0 ? "—" : `<${v}`);
+        const lines = ["stage       n     mean    p50     p90     p99"];
+        (m.stages || []).forEach((s) => {
+            lines.push(
+                [
+                    s.name.padEnd(10),
+                    String(s.samples).padStart(5),
+                    String(s.meanMs).padStart(7),
+                    ms(s.p50Ms).padStart(7),
+                    ms(s.p90Ms).padStart(7),
+                    ms(s.p99Ms).padStart(7),
+                ].join(" ")
+            );
+        });
+        lines.push("");
+        lines.push(
+            Object.entries(m.counters || {})
+                .map(([k, v]) => `${k} ${v}`)
+                .join("  ")
+        );
+        const history = m.history || [];
+        if (history.length > 1) {
+            const first = history[0];
+            const last = history[history.length - 1];
+            const hours = Math.max(1, (last.ts - first.ts) / 3600000);
+            lines.push(
+                `over ${hours.toFixed(1)} h: ${last.passes - first.passes} passes, ` +
+                    `${last.fetches - first.fetches} fetches, ${last.failures - first.failures} failures`
+            );
+        }
+        out.textContent = lines.join("\n");
+        section.classList.remove("hidden");
+    } catch (e) {
+        console.warn("debugModal: widget metrics unavailable", e);
+    }
+}
+
 export function installDebugModalHandlers() {
     document.addEventListener("DOMContentLoaded", () => {
         const debugBtn = document.getElementById("debugBtn");
@@ -9,6 +57,7 @@ export function installDebugModalHandlers() {
         function open() {
             debugModal.classList.remove("hidden");
             debugModal.setAttribute("aria-hidden", "false");
+            renderWidgetMetrics();
         }
         function close() {
             debugModal.classList.add("hidden");
@@ -1,8 +1,11 @@
 // Cross-platform location store for web + Capacitor
-// - Uses Capacitor Preferences when running in native (if available)
+// - Uses the native WeatherCache plugin when running in native, so the widget shares the location
+// - Falls back to Capacitor Preferences in native builds without the plugin
 // - Uses localStorage on web
 // - One-time migration from cookies (last_location JSON or last_lat/last_lon)
 
+import { getNativeLocation, setNativeLocation } from "./weatherCache.js";
+
 const LOCATION_KEY = "last_location_v1";
 const TTL_MS = 15 * 60 * 1000; // 15 minutes
 
@@ -31,6 +34,7 @@ function isNative() {
 
 async function writeNative(payload) {
     try {
+        if (await setNativeLocation(payload.lat, payload.lon)) return;
         if (StaticPreferences && StaticPreferences.Preferences) {
             await StaticPreferences.Preferences.set({
                 key: LOCATION_KEY,
@@ -57,6 +61,15 @@ async function writeNative(payload) {
 
 async function readNative() {
     try {
+        const shared = await getNativeLocation();
+        if (shared) {
+            return JSON.stringify({
+                lat: shared.lat,
+                lon: shared.lon,
+                ts: shared.ts,
+                source: "native",
+            });
+        }
         if (StaticPreferences && StaticPreferences.Preferences) {
             const r = await StaticPreferences.Preferences.get({
                 key: LOCATION_KEY,
@@ -10,6 +10,7 @@ import { renderUV, getUVRank } from "./uv.js";
 import { getHumidityRank, getWindRank } from "./rankings.js";
 import { renderStatsChart } from "./statsChart.js";
 import { installDebugModalHandlers } from "./debugModal.js";
+import { getCachedPayload, putPayload } from "./weatherCache.js";
 
 (function () {
     installGlobalErrorHandlers();
@@ -43,7 +44,26 @@ import { installDebugModalHandlers } from "./debugModal.js";
         }
     }
 
+    // Cold-start time to weather on screen, once per source, to compare builds with and without the native
+    // /api cache ("native fresh"/"native stale" against "network")
+    const timeToWeatherLogged = new Set();
+    function logTimeToWeather(source) {
+        if (timeToWeatherLogged.has(source)) return;
+        timeToWeatherLogged.add(source);
+        console.info(
+            `startup: time to weather ${Math.round(performance.now())} ms (${source})`
+        );
+    }
+
     async function fetchWeather(lat, lon) {
+        // A fresh payload for this bucket, fetched by the widget or earlier by us: no network needed
+        const cached = await getCachedPayload(lat, lon);
+        if (cached && cached.fresh) {
+            render(cached.payload);
+            logTimeToWeather("shared cache");
+            status && status.classList.add("hidden");
+            return;
+        }
         setStatus("Fetching…");
         try {
             const res = await fetch(
@@ -62,8 +82,18 @@ import { installDebugModalHandlers } from "./debugModal.js";
                 result.classList.add("hidden");
                 return;
             }
-            const j = await res.json();
+            const text = await res.text();
+            const j = JSON.parse(text);
+            // Answered by the app from its on-device cache: the header carries the entry's current age
+            const nativeCache = res.headers.get("X-Native-Cache");
+            if (nativeCache) {
+                const age = Number(res.headers.get("X-Cache-Age"));
+                if (!Number.isNaN(age)) j.cache_age = age;
+            }
             render(j);
+            logTimeToWeather(nativeCache ? `native ${nativeCache}` : "network");
+            // Warm the widget with what we just fetched; a native answer came from its cache already
+            if (!nativeCache) putPayload(lat, lon, text, res.headers.get("ETag"));
             setStatus("Last fetched: just now");
             try {
                 status && status.classList.add("hidden");
@@ -316,6 +346,18 @@ import { installDebugModalHandlers } from "./debugModal.js";
         }
     }
 
+    // Paint the widget's last payload while locating, so startup is not a blank screen
+    async function paintCached() {
+        const cached = await getCachedPayload();
+        if (!cached) return;
+        try {
+            render(cached.payload);
+            logTimeToWeather("widget payload");
+        } catch (e) {
+            console.warn("paintCached: cached payload did not render", e);
+        }
+    }
+
     async function startWithGeolocation() {
         setStatus("Locating…");
         const hasCap = !!(
@@ -386,6 +428,7 @@ import { installDebugModalHandlers } from "./debugModal.js";
         );
     }
 
+    paintCached();
     startWithGeolocation();
 
     // Periodic background location update (every THIRTY_SECONDS, best-effort)
@@ -453,6 +496,7 @@ import { installDebugModalHandlers } from "./debugModal.js";
     if (retryBtn) {
         retryBtn.addEventListener("click", () => {
             retryBtn.classList.add("hidden");
+            paintCached();
             startWithGeolocation();
         });
     }
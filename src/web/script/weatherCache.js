@@ -0,0 +1,98 @@
+// Shared native weather + location cache (Android WeatherCache plugin)
+// - The widget and the app read and warm the same /api payloads, keyed by rounded lat:lon bucket
+// - Every call is a no-op (null / false) on the web or when the plugin is missing
+
+function plugin() {
+    try {
+        return (
+            (window.Capacitor &&
+                window.Capacitor.Plugins &&
+                window.Capacitor.Plugins.WeatherCache) ||
+            null
+        );
+    } catch {
+        return null;
+    }
+}
+
+export function hasWeatherCache() {
+    return !!plugin();
+}
+
+/**
+ * Cached payload for the bucket of lat/lon, or the widget's own when omitted.
+ * Resolves { payload, storedAt, fresh } or null when nothing is stored.
+ */
+export async function getCachedPayload(lat, lon) {
+    const p = plugin();
+    if (!p) return null;
+    try {
+        const opts = lat != null && lon != null ? { lat: Number(lat), lon: Number(lon) } : {};
+        const r = await p.getCached(opts);
+        if (!r || !r.payload) return null;
+        const payload = JSON.parse(r.payload);
+        // cache_age was the body's age when it was stored; add the time since, as X-Cache-Age does
+        if (typeof payload.cache_age === "number" && r.storedAt) {
+            payload.cache_age += Math.max(0, Math.floor((Date.now() - r.storedAt) / 1000));
+        }
+        return {
+            payload,
+            storedAt: r.storedAt,
+            fresh: !!r.fresh,
+        };
+    } catch (e) {
+        console.warn("weatherCache: getCached failed", e);
+        return null;
+    }
+}
+
+// Hand a payload the app fetched to the widget. text is the raw response body
+export async function putPayload(lat, lon, text, etag) {
+    const p = plugin();
+    if (!p) return false;
+    try {
+        await p.putPayload({
+            lat: Number(lat),
+            lon: Number(lon),
+            payload: text,
+            etag: etag || "",
+        });
+        return true;
+    } catch (e) {
+        console.warn("weatherCache: putPayload failed", e);
+        return false;
+    }
+}
+
+// The widget's location as { lat, lon, ts }, or null
+export async function getNativeLocation() {
+    const p = plugin();
+    if (!p) return null;
+    try {
+        const r = await p.getLocation();
+        return r && r.lat != null && r.lon != null ? r : null;
+    } catch (e) {
+        console.warn("weatherCache: getLocation failed", e);
+        return null;
+    }
+}
+
+export async function setNativeLocation(lat, lon) {
+    const p = plugin();
+    if (!p) return false;
+    try {
+        await p.setLocation({ lat: Number(lat), lon: Number(lon) });
+        return true;
+    } catch (e) {
+        console.warn("weatherCache: setLocation failed", e);
+        return false;
+    }
+}
+
+export default {
+    hasWeatherCache,
+    getCachedPayload,
+    putPayload,
+    getNativeLocation,
+    setNativeLocation,
+};